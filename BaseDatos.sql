@@ -15,6 +15,7 @@ CREATE TABLE IF NOT EXISTS persona (
     telefono VARCHAR(20) NOT NULL,
     fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
     dtype VARCHAR(31)
 ) ENGINE=InnoDB;
 
@@ -36,8 +37,25 @@ CREATE TABLE IF NOT EXISTS cuenta (
     saldo_disponible DECIMAL(19,2) NOT NULL,
     estado BOOLEAN DEFAULT TRUE,
     cliente_id BIGINT NOT NULL,
+    moneda CHAR(3) NOT NULL DEFAULT 'USD',
     fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    ranuras_saldo INT,
+    movimiento_conciliado_id BIGINT,
+    secuencia_compactada BIGINT NULL
+) ENGINE=InnoDB;
+
+-- Sub-saldos de cuentas calientes (depósitos repartidos por ranura)
+CREATE TABLE IF NOT EXISTS cuenta_sub_saldo (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cuenta_id BIGINT NOT NULL,
+    ranura INT NOT NULL,
+    saldo DECIMAL(19,2) NOT NULL,
+    version BIGINT NOT NULL,
+    fecha_actualizacion TIMESTAMP(6) NOT NULL,
+    UNIQUE KEY uk_sub_saldo_cuenta_ranura (cuenta_id, ranura),
+    FOREIGN KEY (cuenta_id) REFERENCES cuenta(id) ON DELETE CASCADE
 ) ENGINE=InnoDB;
 
 -- Tabla Movimiento
@@ -49,10 +67,56 @@ CREATE TABLE IF NOT EXISTS movimiento (
     saldo DECIMAL(19,2) NOT NULL,
     cuenta_id BIGINT NOT NULL,
     descripcion VARCHAR(255),
+    transferencia_id VARCHAR(36),
+    moneda_origen CHAR(3),
+    valor_origen DECIMAL(19,2),
+    tasa_cambio DECIMAL(19,10),
+    secuencia BIGINT NULL,
     fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_movimiento_cuenta_secuencia (cuenta_id, secuencia),
     FOREIGN KEY (cuenta_id) REFERENCES cuenta(id) ON DELETE CASCADE
 ) ENGINE=InnoDB;
 
+-- Tabla Agregado Diario (totales de movimientos por cuenta, día y tipo)
+CREATE TABLE IF NOT EXISTS agregado_diario (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cuenta_id BIGINT NOT NULL,
+    tipo_cuenta VARCHAR(50) NOT NULL,
+    moneda CHAR(3) NOT NULL DEFAULT 'USD',
+    fecha DATE NOT NULL,
+    tipo_movimiento VARCHAR(50) NOT NULL,
+    cantidad BIGINT NOT NULL,
+    total DECIMAL(19,2) NOT NULL,
+    UNIQUE KEY uk_agregado_cuenta_fecha_tipo (cuenta_id, fecha, tipo_movimiento),
+    KEY idx_agregado_fecha_tipo_cuenta (fecha, tipo_cuenta)
+) ENGINE=InnoDB;
+
+-- Tabla Agregado por Tipo de Cuenta (totales por tipo de cuenta, moneda, día y tipo, en 16 ranuras)
+CREATE TABLE IF NOT EXISTS agregado_tipo_cuenta_diario (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tipo_cuenta VARCHAR(50) NOT NULL,
+    moneda CHAR(3) NOT NULL,
+    fecha DATE NOT NULL,
+    tipo_movimiento VARCHAR(50) NOT NULL,
+    ranura INT NOT NULL,
+    cantidad BIGINT NOT NULL,
+    total DECIMAL(19,2) NOT NULL,
+    UNIQUE KEY uk_agregado_tipo_cuenta (fecha, tipo_cuenta, moneda, tipo_movimiento, ranura)
+) ENGINE=InnoDB;
+
+-- Tabla Devengo Interés (un abono de intereses por cuenta y día devengado)
+CREATE TABLE IF NOT EXISTS devengo_interes (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cuenta_id BIGINT NOT NULL,
+    fecha DATE NOT NULL,
+    base DECIMAL(19,2) NOT NULL,
+    valor DECIMAL(19,2) NOT NULL,
+    movimiento_id BIGINT,
+    fecha_creacion TIMESTAMP NOT NULL,
+    UNIQUE KEY uk_devengo_cuenta_fecha (cuenta_id, fecha),
+    KEY idx_devengo_fecha (fecha)
+) ENGINE=InnoDB;
+
 -- Índices para optimizar búsquedas
 CREATE INDEX idx_cliente_identificacion ON persona(identificacion);
 CREATE INDEX idx_cuenta_numero ON cuenta(numero_cuenta);
@@ -60,6 +124,24 @@ CREATE INDEX idx_cuenta_cliente ON cuenta(cliente_id);
 CREATE INDEX idx_movimiento_cuenta ON movimiento(cuenta_id);
 CREATE INDEX idx_movimiento_fecha ON movimiento(fecha);
 
+-- Índices compuestos para los listados filtrados y paginados
+CREATE INDEX idx_cuenta_estado_tipo_fecha ON cuenta(estado, tipo_cuenta, fecha_creacion);
+CREATE INDEX idx_cuenta_cliente_estado_fecha ON cuenta(cliente_id, estado, fecha_creacion);
+CREATE INDEX idx_cuenta_fecha_creacion ON cuenta(fecha_creacion);
+CREATE INDEX idx_persona_fecha_creacion ON persona(fecha_creacion);
+CREATE INDEX idx_cliente_estado ON cliente(estado);
+
+-- Saldo en un instante: búsqueda descendente del último movimiento por cuenta
+CREATE INDEX idx_movimiento_cuenta_fecha ON movimiento(cuenta_id, fecha, id);
+
+-- Movimientos enlazados de una transferencia
+CREATE INDEX idx_movimiento_transferencia ON movimiento(transferencia_id);
+
+-- Búsqueda de movimientos (GET /api/movimientos/busqueda): índices conductores por criterio.
+-- Por cuenta usa idx_movimiento_cuenta_fecha y por ventana de fechas idx_movimiento_fecha;
+-- descripción y valor sólo filtran dentro de esos rangos
+CREATE INDEX idx_movimiento_tipo_fecha ON movimiento(tipo_movimiento, fecha, id);
+
 -- Datos de prueba
 -- Insertando clientes
 INSERT INTO persona (nombre, genero, edad, identificacion, direccion, telefono, dtype)
@@ -108,3 +190,14 @@ VALUES (NOW(), 'Deposito', 150, 150, 3, 'Deposito de 150');
 
 INSERT INTO movimiento (fecha, tipo_movimiento, valor, saldo, cuenta_id, descripcion)
 VALUES (NOW(), 'Retiro', 540, 0, 4, 'Retiro de 540');
+
+-- Agregados diarios de los movimientos de prueba
+INSERT INTO agregado_diario (cuenta_id, tipo_cuenta, moneda, fecha, tipo_movimiento, cantidad, total)
+SELECT m.cuenta_id, c.tipo_cuenta, c.moneda, DATE(m.fecha), m.tipo_movimiento, COUNT(*), SUM(m.valor)
+FROM movimiento m JOIN cuenta c ON c.id = m.cuenta_id
+GROUP BY m.cuenta_id, c.tipo_cuenta, c.moneda, DATE(m.fecha), m.tipo_movimiento;
+
+INSERT INTO agregado_tipo_cuenta_diario (tipo_cuenta, moneda, fecha, tipo_movimiento, ranura, cantidad, total)
+SELECT tipo_cuenta, moneda, fecha, tipo_movimiento, MOD(cuenta_id, 16), SUM(cantidad), SUM(total)
+FROM agregado_diario
+GROUP BY tipo_cuenta, moneda, fecha, tipo_movimiento, MOD(cuenta_id, 16);
@@ -0,0 +1,231 @@
+package com.banksystem.comun.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Invalidación de las caches locales en todas las instancias del servicio.
+ * <ul>
+ *   <li>Los cambios se juntan por transacción y se aplican al confirmar: en esta instancia de
+ *   inmediato, en las demás con un mensaje {@code origen|cache|id,id,...}.</li>
+ *   <li>Las ráfagas se agrupan: lo confirmado dentro de la ventana viaja en un solo mensaje
+ *   por cache, y si son demasiados IDs se manda {@code *} (invalidar todo).</li>
+ *   <li>Al caer la conexión las caches se deshabilitan; al volver se vacían, porque no se sabe
+ *   qué avisos se perdieron.</li>
+ * </ul>
+ */
+@Component
+public class BusInvalidacion implements TransporteInvalidacion.Oyente, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(BusInvalidacion.class);
+    static final String TODOS = "*";
+
+    private final String origen = UUID.randomUUID().toString();
+    private final TransporteInvalidacion transporte;
+    private final long ventanaMs;
+    private final int maximoIdsPorMensaje;
+    private final Map<String, CacheInvalidable> caches = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> pendientes = new ConcurrentHashMap<>();
+    private final AtomicBoolean programado = new AtomicBoolean();
+    private final ScheduledExecutorService planificador;
+    private volatile boolean conectado;
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder recibidos = new LongAdder();
+    private final LongAdder resincronizaciones = new LongAdder();
+
+    public BusInvalidacion(ObjectProvider<TransporteInvalidacion> transporte,
+                           @Value("${banco.cache.ventana-ms:50}") long ventanaMs,
+                           @Value("${banco.cache.maximo-ids-por-mensaje:500}") int maximoIdsPorMensaje) {
+        this.transporte = transporte.getIfAvailable();
+        this.ventanaMs = ventanaMs;
+        this.maximoIdsPorMensaje = maximoIdsPorMensaje;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "invalidacion-cache");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (transporte != null) {
+            transporte.iniciar(this);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        planificador.shutdownNow();
+    }
+
+    /**
+     * Registrar una cache; sin conexión al transporte queda deshabilitada hasta conectar
+     */
+    public void registrar(CacheInvalidable cache) {
+        caches.put(cache.getNombre(), cache);
+        if (transporte != null && !conectado) {
+            cache.deshabilitar();
+        }
+    }
+
+    /**
+     * Invalidar la entrada en todas las instancias cuando confirme la transacción actual
+     * (de inmediato si no hay transacción)
+     */
+    public void invalidarAlConfirmar(String nombreCache, Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidar(Map.of(nombreCache, Set.of(id)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Set<Long>> lote = (Map<String, Set<Long>>) TransactionSynchronizationManager.getResource(this);
+        if (lote == null) {
+            Map<String, Set<Long>> nuevo = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, nuevo);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BusInvalidacion.this);
+                    if (estado == STATUS_COMMITTED) {
+                        invalidar(nuevo);
+                    }
+                }
+            });
+            lote = nuevo;
+        }
+        lote.computeIfAbsent(nombreCache, nombre -> new HashSet<>()).add(id);
+    }
+
+    private void invalidar(Map<String, Set<Long>> lote) {
+        lote.forEach((nombre, ids) -> {
+            CacheInvalidable cache = caches.get(nombre);
+            if (cache != null) {
+                cache.invalidar(ids);
+            }
+            if (transporte != null) {
+                encolar(nombre, ids);
+            }
+        });
+    }
+
+    private void encolar(String nombre, Set<Long> ids) {
+        // Dentro de compute: publicar() saca el conjunto completo o no lo ve
+        pendientes.compute(nombre, (clave, actual) -> {
+            Set<Long> resultado = actual != null ? actual : new HashSet<>();
+            resultado.addAll(ids);
+            return resultado;
+        });
+        programar();
+    }
+
+    private void programar() {
+        if (programado.compareAndSet(false, true)) {
+            planificador.schedule(this::publicar, ventanaMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publicar() {
+        programado.set(false);
+        for (String nombre : new ArrayList<>(pendientes.keySet())) {
+            Set<Long> ids = pendientes.remove(nombre);
+            if (ids == null) {
+                continue;
+            }
+            String mensaje = origen + "|" + nombre + "|" + (ids.size() > maximoIdsPorMensaje ? TODOS
+                    : ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            try {
+                transporte.publicar(mensaje);
+                enviados.increment();
+            } catch (RuntimeException e) {
+                // Se reintenta en la próxima ventana junto con lo que llegue mientras tanto
+                log.warn("No se pudo publicar la invalidación de '{}': {}", nombre, e.getMessage());
+                encolar(nombre, ids);
+            }
+        }
+    }
+
+    @Override
+    public void alRecibir(String mensaje) {
+        String[] partes = mensaje.split("\\|", 3);
+        if (partes.length != 3 || origen.equals(partes[0])) {
+            return;
+        }
+        CacheInvalidable cache = caches.get(partes[1]);
+        if (cache == null) {
+            return;
+        }
+        recibidos.increment();
+        if (TODOS.equals(partes[2])) {
+            cache.invalidarTodo();
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : partes[2].split(",")) {
+            ids.add(Long.valueOf(id));
+        }
+        cache.invalidar(ids);
+    }
+
+    @Override
+    public void alConectar() {
+        conectado = true;
+        resincronizaciones.increment();
+        log.info("Canal de invalidación conectado: caches locales vaciadas y habilitadas");
+        caches.values().forEach(CacheInvalidable::habilitar);
+    }
+
+    @Override
+    public void alDesconectar() {
+        if (conectado) {
+            log.warn("Canal de invalidación caído: caches locales deshabilitadas hasta reconectar");
+        }
+        conectado = false;
+        caches.values().forEach(CacheInvalidable::deshabilitar);
+    }
+
+    public long getEnviados() {
+        return enviados.sum();
+    }
+
+    public long getResincronizaciones() {
+        return resincronizaciones.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("banco.cache.invalidaciones.enviadas", enviados, LongAdder::sum)
+                .description("Mensajes de invalidación publicados (uno por cache y ventana)")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.invalidaciones.recibidas", recibidos, LongAdder::sum)
+                .description("Mensajes de invalidación de otras instancias aplicados")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.resincronizaciones", resincronizaciones, LongAdder::sum)
+                .description("Vaciados completos por (re)conexión del canal de invalidación")
+                .register(registry);
+    }
+}
@@ -0,0 +1,152 @@
+package com.banksystem.comun.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache local (primer nivel) de entidades por ID; la base es el segundo nivel.
+ * <ul>
+ *   <li>Las otras instancias avisan sus cambios por {@link BusInvalidacion}: mientras el canal
+ *   de avisos está caído la cache se deshabilita y toda lectura va a la base.</li>
+ *   <li>Cada invalidación incrementa una generación: una carga que empezó antes de la
+ *   invalidación no guarda su resultado, así una lectura lenta no reinstala un valor viejo.</li>
+ *   <li>El tiempo de vida acota lo que dure un aviso perdido (instancia caída antes de publicar).</li>
+ * </ul>
+ */
+public class CacheCercana<V> implements CacheInvalidable, MeterBinder {
+
+    private record Entrada<V>(V valor, long expiraNanos) {
+    }
+
+    private final String nombre;
+    private final int maximoEntradas;
+    private final long tiempoVidaNanos;
+    private final Map<Long, Entrada<V>> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+    private volatile boolean habilitada = true;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    public CacheCercana(String nombre, int maximoEntradas, long tiempoVidaMs) {
+        this.nombre = nombre;
+        this.maximoEntradas = maximoEntradas;
+        this.tiempoVidaNanos = tiempoVidaMs * 1_000_000L;
+    }
+
+    /**
+     * Valor en cache o, si no está o venció, el que devuelva el cargador
+     */
+    public V obtener(Long id, Function<Long, V> cargador) {
+        return obtener(id, valor -> true, cargador);
+    }
+
+    /**
+     * Como {@link #obtener(Long, Function)}, descartando el valor en cache que no sea vigente
+     * (p. ej. una versión anterior a la ya leída de la base)
+     */
+    public V obtener(Long id, Predicate<V> vigente, Function<Long, V> cargador) {
+        if (!habilitada) {
+            return cargador.apply(id);
+        }
+        long ahora = System.nanoTime();
+        Entrada<V> entrada = entradas.get(id);
+        if (entrada != null && ahora - entrada.expiraNanos() < 0 && vigente.test(entrada.valor())) {
+            aciertos.increment();
+            return entrada.valor();
+        }
+        fallos.increment();
+        long generacionCarga = generacion.get();
+        V valor = cargador.apply(id);
+        if (valor == null) {
+            return null;
+        }
+        if (entradas.size() >= maximoEntradas && !entradas.containsKey(id)) {
+            desalojarUna();
+        }
+        Entrada<V> nueva = new Entrada<>(valor, System.nanoTime() + tiempoVidaNanos);
+        // Dentro de compute: una invalidación que incrementó la generación después de esta
+        // comprobación espera el bloqueo de la clave y borra lo recién guardado
+        entradas.compute(id, (clave, actual) -> generacion.get() == generacionCarga ? nueva : actual);
+        return valor;
+    }
+
+    @Override
+    public void invalidar(Collection<Long> ids) {
+        generacion.incrementAndGet();
+        for (Long id : ids) {
+            entradas.remove(id);
+        }
+    }
+
+    @Override
+    public void invalidarTodo() {
+        generacion.incrementAndGet();
+        entradas.clear();
+    }
+
+    @Override
+    public void habilitar() {
+        invalidarTodo();
+        habilitada = true;
+    }
+
+    @Override
+    public void deshabilitar() {
+        habilitada = false;
+        invalidarTodo();
+    }
+
+    /**
+     * Desalojo aproximado: cualquier entrada, sin llevar orden de uso en cada lectura
+     */
+    private void desalojarUna() {
+        Iterator<Long> claves = entradas.keySet().iterator();
+        if (claves.hasNext()) {
+            entradas.remove(claves.next());
+        }
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    public boolean contiene(Long id) {
+        return entradas.containsKey(id);
+    }
+
+    public int getTamano() {
+        return entradas.size();
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banco.cache.entradas", entradas, Map::size)
+                .tag("cache", nombre)
+                .description("Entradas en la cache local")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.aciertos", aciertos, LongAdder::sum)
+                .tag("cache", nombre)
+                .description("Lecturas resueltas por la cache local")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.fallos", fallos, LongAdder::sum)
+                .tag("cache", nombre)
+                .description("Lecturas que fueron a la base")
+                .register(registry);
+    }
+}
@@ -0,0 +1,26 @@
+package com.banksystem.comun.cache;
+
+import java.util.Collection;
+
+/**
+ * Cache local que {@link BusInvalidacion} mantiene coherente entre instancias: los IDs que
+ * viajan en los avisos son los de la entidad de la que depende cada entrada.
+ */
+public interface CacheInvalidable {
+
+    String getNombre();
+
+    void invalidar(Collection<Long> ids);
+
+    void invalidarTodo();
+
+    /**
+     * Canal de avisos (re)conectado: vaciar, porque no se sabe qué avisos se perdieron
+     */
+    void habilitar();
+
+    /**
+     * Canal de avisos caído: dejar de servir entradas hasta reconectar
+     */
+    void deshabilitar();
+}
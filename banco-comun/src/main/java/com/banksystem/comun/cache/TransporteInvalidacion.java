@@ -0,0 +1,27 @@
+package com.banksystem.comun.cache;
+
+/**
+ * Canal por el que las instancias del servicio se avisan las invalidaciones de cache.
+ * Sin transporte configurado ({@code banco.cache.transporte=ninguno}) la cache es sólo local.
+ */
+public interface TransporteInvalidacion {
+
+    /**
+     * Receptor de los mensajes y de los cambios de estado de la conexión
+     */
+    interface Oyente {
+
+        void alRecibir(String mensaje);
+
+        /**
+         * Conexión (re)establecida: lo que se haya perdido mientras tanto es desconocido
+         */
+        void alConectar();
+
+        void alDesconectar();
+    }
+
+    void iniciar(Oyente oyente);
+
+    void publicar(String mensaje);
+}
@@ -0,0 +1,97 @@
+package com.banksystem.comun.cache;
+
+import com.rabbitmq.client.ShutdownSignalException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionListener;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Invalidaciones por RabbitMQ: un exchange fanout compartido y una cola exclusiva por
+ * instancia, que el broker borra al cerrarse la conexión y se vuelve a declarar al reconectar.
+ */
+@Component
+@ConditionalOnProperty(name = "banco.cache.transporte", havingValue = "rabbit", matchIfMissing = true)
+public class TransporteInvalidacionRabbit implements TransporteInvalidacion, ConnectionListener {
+
+    private final ConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final RabbitAdmin admin;
+    private final FanoutExchange exchange;
+    private final AnonymousQueue cola;
+    private SimpleMessageListenerContainer contenedor;
+    private volatile Oyente oyente;
+
+    public TransporteInvalidacionRabbit(ConnectionFactory connectionFactory,
+                                        RabbitTemplate rabbitTemplate,
+                                        @Value("${banco.cache.exchange:banco.cache.invalidacion}") String exchange) {
+        this.connectionFactory = connectionFactory;
+        this.rabbitTemplate = rabbitTemplate;
+        this.admin = new RabbitAdmin(connectionFactory);
+        this.exchange = new FanoutExchange(exchange, true, false);
+        this.cola = new AnonymousQueue(new Base64UrlNamingStrategy("banco.cache."));
+    }
+
+    @Override
+    public void iniciar(Oyente oyente) {
+        this.oyente = oyente;
+        connectionFactory.addConnectionListener(this);
+        contenedor = new SimpleMessageListenerContainer(connectionFactory);
+        contenedor.setQueueNames(cola.getName());
+        contenedor.setMissingQueuesFatal(false);
+        contenedor.setMessageListener(mensaje ->
+                oyente.alRecibir(new String(mensaje.getBody(), StandardCharsets.UTF_8)));
+        contenedor.start();
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (contenedor != null) {
+            contenedor.stop();
+        }
+    }
+
+    @Override
+    public void publicar(String mensaje) {
+        rabbitTemplate.convertAndSend(exchange.getName(), "", mensaje);
+    }
+
+    /**
+     * Conexión nueva (también tras una caída): declarar cola y enlace antes de consumir
+     */
+    @Override
+    public void onCreate(Connection connection) {
+        admin.declareExchange(exchange);
+        admin.declareQueue(cola);
+        admin.declareBinding(BindingBuilder.bind(cola).to(exchange));
+        if (oyente != null) {
+            oyente.alConectar();
+        }
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        if (oyente != null) {
+            oyente.alDesconectar();
+        }
+    }
+
+    @Override
+    public void onShutDown(ShutdownSignalException signal) {
+        if (oyente != null) {
+            oyente.alDesconectar();
+        }
+    }
+}
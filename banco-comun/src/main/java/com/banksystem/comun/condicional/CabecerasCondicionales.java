@@ -0,0 +1,72 @@
+package com.banksystem.comun.condicional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * ETag y Last-Modified derivados de la columna version y de fechaActualizacion; el If-Match
+ * de las modificaciones se traduce de vuelta a las versiones aceptadas
+ */
+public final class CabecerasCondicionales {
+
+    private CabecerasCondicionales() {
+    }
+
+    public static String etag(String recurso, Long id, Long version) {
+        return "\"" + recurso + "-" + id + "-v" + version + "\"";
+    }
+
+    public static String etag(String coleccion, VersionColeccion version) {
+        return "\"" + coleccion + "-" + valor(version.getCantidad()) + "-" + valor(version.getMaximoId())
+                + "-" + valor(version.getSumaVersiones()) + "\"";
+    }
+
+    /**
+     * Versiones que el cliente acepta, tomadas del If-Match (uno o varios ETags separados
+     * por comas); null sin cabecera o con "*". La comparación es fuerte: un ETag débil (W/),
+     * de otro recurso o mal formado no aporta versión, y un conjunto vacío nunca coincide
+     */
+    public static Set<Long> versionesEsperadas(String siCoincide, String recurso, Long id) {
+        if (siCoincide == null || siCoincide.isBlank() || siCoincide.trim().equals("*")) {
+            return null;
+        }
+        String prefijo = recurso + "-" + id + "-v";
+        Set<Long> versiones = new HashSet<>();
+        int i = 0;
+        while (i < siCoincide.length()) {
+            char c = siCoincide.charAt(i);
+            if (c == ',' || Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            boolean debil = siCoincide.startsWith("W/", i);
+            int apertura = siCoincide.indexOf('"', i);
+            int cierre = apertura < 0 ? -1 : siCoincide.indexOf('"', apertura + 1);
+            if (cierre < 0) {
+                break;
+            }
+            String opaco = siCoincide.substring(apertura + 1, cierre);
+            if (!debil && opaco.startsWith(prefijo)) {
+                try {
+                    versiones.add(Long.parseLong(opaco.substring(prefijo.length())));
+                } catch (NumberFormatException e) {
+                    // ETag ajeno: no aporta versión
+                }
+            }
+            i = cierre + 1;
+        }
+        return versiones;
+    }
+
+    public static long ultimaModificacion(LocalDateTime fechaActualizacion) {
+        return fechaActualizacion != null
+                ? fechaActualizacion.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+    }
+
+    private static long valor(Long numero) {
+        return numero != null ? numero : 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.banksystem.comun.condicional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versión agregada de un listado: cambia con altas, bajas y cualquier actualización
+ */
+public interface VersionColeccion {
+
+    Long getCantidad();
+
+    Long getMaximoId();
+
+    Long getSumaVersiones();
+
+    LocalDateTime getUltimaActualizacion();
+}
@@ -0,0 +1,13 @@
+package com.banksystem.comun.condicional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección liviana para validar peticiones condicionales sin cargar la entidad
+ */
+public interface VersionRecurso {
+
+    Long getVersion();
+
+    LocalDateTime getFechaActualizacion();
+}
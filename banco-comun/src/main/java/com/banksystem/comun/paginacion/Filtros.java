@@ -0,0 +1,30 @@
+package com.banksystem.comun.paginacion;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Condiciones de los listados filtrados; con valor nulo la condición no se aplica
+ */
+public final class Filtros {
+
+    private Filtros() {
+    }
+
+    public static <T> Specification<T> igual(String campo, Object valor) {
+        return valor == null ? null : (raiz, consulta, cb) -> cb.equal(raiz.get(campo), valor);
+    }
+
+    /**
+     * Campo mayor o igual al valor
+     */
+    public static <T, V extends Comparable<? super V>> Specification<T> desde(String campo, V valor) {
+        return valor == null ? null : (raiz, consulta, cb) -> cb.greaterThanOrEqualTo(raiz.get(campo), valor);
+    }
+
+    /**
+     * Campo estrictamente menor al valor
+     */
+    public static <T, V extends Comparable<? super V>> Specification<T> antes(String campo, V valor) {
+        return valor == null ? null : (raiz, consulta, cb) -> cb.lessThan(raiz.get(campo), valor);
+    }
+}
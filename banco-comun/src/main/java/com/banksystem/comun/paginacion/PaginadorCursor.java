@@ -0,0 +1,106 @@
+package com.banksystem.comun.paginacion;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Listados filtrados paginados por clave: cada página sigue a la última fila de la anterior
+ * (campo de orden y luego ID) en lugar de saltar filas con OFFSET, y se pide una fila de más
+ * para saber si hay otra página en lugar de ejecutar COUNT(*).
+ * <p>
+ * El cursor es el valor "siguiente" de la página anterior; lleva el orden con que se generó
+ * y sólo vale para ese mismo orden.
+ */
+public class PaginadorCursor {
+
+    public static final int TAMANO_MAXIMO_PAGINA = 200;
+    private static final String CAMPO_ID = "id";
+    private static final char SEPARADOR = '|';
+
+    private final Map<String, Function<String, ?>> camposOrden;
+
+    /**
+     * @param camposOrden campos por los que se permite ordenar, con la conversión de su valor
+     *                    en el cursor; el ID se agrega siempre como desempate
+     */
+    public PaginadorCursor(Map<String, Function<String, ?>> camposOrden) {
+        this.camposOrden = new HashMap<>(camposOrden);
+        this.camposOrden.put(CAMPO_ID, Long::valueOf);
+    }
+
+    /**
+     * Página de filas que cumplen el filtro, con las claves contenido, tamano,
+     * numeroElementos, hayMas y siguiente (sólo si hay más)
+     */
+    public <T> Map<String, Object> listar(JpaSpecificationExecutor<T> repositorio, Specification<T> filtro,
+                                          String cursor, int tamano, String orden, String direccion) {
+        if (!camposOrden.containsKey(orden)) {
+            throw new IllegalArgumentException("Campo de orden no permitido: " + orden);
+        }
+        if (tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("El tamaño debe estar entre 1 y " + TAMANO_MAXIMO_PAGINA);
+        }
+        Sort.Direction sentido = Sort.Direction.fromString(direccion);
+        Sort sort = Sort.by(sentido, orden);
+        if (!CAMPO_ID.equals(orden)) {
+            sort = sort.and(Sort.by(sentido, CAMPO_ID));
+        }
+        ScrollPosition posicion = cursor == null || cursor.isBlank()
+                ? ScrollPosition.keyset()
+                : decodificar(cursor, orden, sentido);
+
+        Sort ordenFinal = sort;
+        Window<T> ventana = repositorio.findBy(filtro == null ? Specification.where(null) : filtro,
+                consulta -> consulta.sortBy(ordenFinal).limit(tamano).scroll(posicion));
+
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("contenido", ventana.getContent());
+        respuesta.put("tamano", tamano);
+        respuesta.put("numeroElementos", ventana.size());
+        respuesta.put("hayMas", ventana.hasNext());
+        if (ventana.hasNext()) {
+            Map<String, Object> claves = ((KeysetScrollPosition) ventana.positionAt(ventana.size() - 1)).getKeys();
+            respuesta.put("siguiente", codificar(orden, sentido, claves.get(orden), claves.get(CAMPO_ID)));
+        }
+        return respuesta;
+    }
+
+    private static String codificar(String orden, Sort.Direction sentido, Object valor, Object id) {
+        String clave = orden + SEPARADOR + sentido + SEPARADOR + valor + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(clave.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private KeysetScrollPosition decodificar(String cursor, String orden, Sort.Direction sentido) {
+        String clave;
+        try {
+            clave = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+        // El valor puede contener el separador: orden y sentido van al inicio y el ID al final
+        String prefijo = orden + SEPARADOR + sentido + SEPARADOR;
+        int ultimo = clave.lastIndexOf(SEPARADOR);
+        if (!clave.startsWith(prefijo) || ultimo < prefijo.length()) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+        Map<String, Object> claves = new LinkedHashMap<>();
+        try {
+            claves.put(orden, camposOrden.get(orden).apply(clave.substring(prefijo.length(), ultimo)));
+            claves.put(CAMPO_ID, Long.valueOf(clave.substring(ultimo + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+        return ScrollPosition.forward(claves);
+    }
+}
@@ -5,7 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
 @SpringBootApplication
-@ComponentScan(basePackages = "com.banksystem.cliente")
+@ComponentScan(basePackages = {"com.banksystem.cliente", "com.banksystem.comun.cache"})
 public class ClientePersonaServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,27 @@
+package com.banksystem.cliente.cache;
+
+import com.banksystem.cliente.config.CacheConfig;
+import com.banksystem.cliente.entity.Cliente;
+import com.banksystem.comun.cache.BusInvalidacion;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Toda escritura de un cliente (también de sus datos de persona) invalida su entrada de cache
+ * al confirmar. Hibernate lo instancia a través del contenedor de Spring, de ahí la inyección
+ * por constructor.
+ */
+public class InvalidacionClienteListener {
+
+    private final BusInvalidacion bus;
+
+    public InvalidacionClienteListener(BusInvalidacion bus) {
+        this.bus = bus;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void alModificar(Cliente cliente) {
+        bus.invalidarAlConfirmar(CacheConfig.CACHE_CLIENTES, cliente.getId());
+    }
+}
@@ -0,0 +1,26 @@
+package com.banksystem.cliente.config;
+
+import com.banksystem.cliente.entity.Cliente;
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.comun.cache.CacheCercana;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches locales de entidades, invalidadas entre instancias por {@link BusInvalidacion}
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String CACHE_CLIENTES = "cliente";
+
+    @Bean
+    public CacheCercana<Cliente> cacheClientes(BusInvalidacion bus,
+                                               @Value("${banco.cache.clientes.maximo:50000}") int maximo,
+                                               @Value("${banco.cache.tiempo-vida-ms:300000}") long tiempoVidaMs) {
+        CacheCercana<Cliente> cache = new CacheCercana<>(CACHE_CLIENTES, maximo, tiempoVidaMs);
+        bus.registrar(cache);
+        return cache;
+    }
+}
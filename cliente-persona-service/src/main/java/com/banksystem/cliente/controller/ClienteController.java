@@ -2,12 +2,19 @@ package com.banksystem.cliente.controller;
 
 import com.banksystem.cliente.entity.Cliente;
 import com.banksystem.cliente.service.ClienteService;
+import com.banksystem.comun.condicional.CabecerasCondicionales;
+import com.banksystem.comun.condicional.VersionRecurso;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/clientes")
@@ -24,27 +31,70 @@ public class ClienteController {
      * GET /api/clientes - Obtener todos los clientes
      */
     @GetMapping
-    public ResponseEntity<List<Cliente>> obtenerTodos() {
+    public ResponseEntity<List<Cliente>> obtenerTodos(WebRequest request) {
+        String etag = CabecerasCondicionales.etag("clientes", clienteService.obtenerVersionTodos());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Cliente> clientes = clienteService.obtenerTodos();
-        return ResponseEntity.ok(clientes);
+        return ResponseEntity.ok().eTag(etag).body(clientes);
     }
 
     /**
      * GET /api/clientes/activos - Obtener todos los clientes activos
      */
     @GetMapping("/activos")
-    public ResponseEntity<List<Cliente>> obtenerActivos() {
+    public ResponseEntity<List<Cliente>> obtenerActivos(WebRequest request) {
+        String etag = CabecerasCondicionales.etag("clientes-activos", clienteService.obtenerVersionActivos());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Cliente> clientes = clienteService.obtenerClientesActivos();
-        return ResponseEntity.ok(clientes);
+        return ResponseEntity.ok().eTag(etag).body(clientes);
+    }
+
+    /**
+     * GET /api/clientes/pagina - Listado filtrado y paginado por cursor
+     * ?estado=&fechaDesde=YYYY-MM-DD&fechaHasta=YYYY-MM-DD
+     * &cursor=&tamano=50&orden=id|fechaCreacion|nombre&direccion=ASC|DESC&totalEstimado=false
+     * La página siguiente se pide con el valor "siguiente" como cursor y el mismo orden.
+     * totalEstimado sólo se informa con banco.paginacion.total-estimado=true (MySQL).
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<Map<String, Object>> obtenerPagina(
+            @RequestParam(required = false) Boolean estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano,
+            @RequestParam(defaultValue = "id") String orden,
+            @RequestParam(defaultValue = "ASC") String direccion,
+            @RequestParam(defaultValue = "false") boolean totalEstimado) {
+        Map<String, Object> respuesta = clienteService.filtrarClientes(estado, fechaDesde, fechaHasta,
+                cursor, tamano, orden, direccion);
+        Long total = totalEstimado ? clienteService.estimarTotalClientes() : null;
+        if (total != null) {
+            respuesta.put("totalEstimado", total);
+        }
+        return ResponseEntity.ok(respuesta);
     }
 
     /**
      * GET /api/clientes/{id} - Obtener cliente por ID
+     * Con If-None-Match / If-Modified-Since responde 304 consultando sólo la versión
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Cliente> obtenerPorId(@PathVariable Long id) {
-        Cliente cliente = clienteService.obtenerPorId(id);
-        return ResponseEntity.ok(cliente);
+    public ResponseEntity<Cliente> obtenerPorId(@PathVariable Long id, WebRequest request) {
+        VersionRecurso version = clienteService.obtenerVersion(id);
+        if (request.checkNotModified(CabecerasCondicionales.etag("cliente", id, version.getVersion()),
+                CabecerasCondicionales.ultimaModificacion(version.getFechaActualizacion()))) {
+            return null;
+        }
+        Cliente cliente = clienteService.obtenerPorId(id, version.getVersion());
+        return ResponseEntity.ok()
+                .eTag(CabecerasCondicionales.etag("cliente", id, cliente.getVersion()))
+                .lastModified(CabecerasCondicionales.ultimaModificacion(cliente.getFechaActualizacion()))
+                .body(cliente);
     }
 
     /**
@@ -85,22 +135,28 @@ public class ClienteController {
 
     /**
      * PUT /api/clientes/{id} - Actualizar cliente
+     * Con If-Match responde 412 si el cliente cambió desde que se leyó ese ETag
      */
     @PutMapping("/{id}")
     public ResponseEntity<Cliente> actualizarCliente(@PathVariable Long id,
-                                                     @Valid @RequestBody Cliente cliente) {
-        Cliente clienteActualizado = clienteService.actualizarCliente(id, cliente);
-        return ResponseEntity.ok(clienteActualizado);
+                                                     @Valid @RequestBody Cliente cliente,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String siCoincide) {
+        Cliente clienteActualizado = clienteService.actualizarCliente(id, cliente,
+                CabecerasCondicionales.versionesEsperadas(siCoincide, "cliente", id));
+        return conVersion(clienteActualizado);
     }
 
     /**
      * PATCH /api/clientes/{id}/estado - Cambiar estado del cliente
+     * Con If-Match responde 412 si el cliente cambió desde que se leyó ese ETag
      */
     @PatchMapping("/{id}/estado")
     public ResponseEntity<Cliente> cambiarEstado(@PathVariable Long id,
-                                                 @RequestParam Boolean estado) {
-        Cliente cliente = clienteService.cambiarEstado(id, estado);
-        return ResponseEntity.ok(cliente);
+                                                 @RequestParam Boolean estado,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String siCoincide) {
+        Cliente cliente = clienteService.cambiarEstado(id, estado,
+                CabecerasCondicionales.versionesEsperadas(siCoincide, "cliente", id));
+        return conVersion(cliente);
     }
 
     /**
@@ -111,4 +167,14 @@ public class ClienteController {
         clienteService.eliminarCliente(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Respuesta de una modificación con el ETag nuevo, para encadenar el próximo If-Match
+     */
+    private ResponseEntity<Cliente> conVersion(Cliente cliente) {
+        return ResponseEntity.ok()
+                .eTag(CabecerasCondicionales.etag("cliente", cliente.getId(), cliente.getVersion()))
+                .lastModified(CabecerasCondicionales.ultimaModificacion(cliente.getFechaActualizacion()))
+                .body(cliente);
+    }
 }
@@ -1,10 +1,14 @@
 package com.banksystem.cliente.entity;
 
+import com.banksystem.cliente.cache.InvalidacionClienteListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
 @Entity
-@Table(name = "cliente")
+@EntityListeners(InvalidacionClienteListener.class)
+@Table(name = "cliente", indexes = {
+        @Index(name = "idx_cliente_estado", columnList = "estado")
+})
 @PrimaryKeyJoinColumn(name = "persona_id")
 public class Cliente extends Persona {
 
@@ -1,12 +1,15 @@
 package com.banksystem.cliente.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "persona")
+@Table(name = "persona", indexes = {
+        @Index(name = "idx_persona_fecha_creacion", columnList = "fecha_creacion")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
 public class Persona implements Serializable {
 
@@ -50,6 +53,11 @@ public class Persona implements Serializable {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         this.fechaCreacion = LocalDateTime.now();
@@ -148,6 +156,14 @@ public class Persona implements Serializable {
         this.fechaActualizacion = fechaActualizacion;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Persona{" +
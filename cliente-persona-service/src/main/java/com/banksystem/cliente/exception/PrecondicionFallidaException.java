@@ -0,0 +1,10 @@
+package com.banksystem.cliente.exception;
+
+/**
+ * El If-Match no coincide con la versión vigente del recurso
+ */
+public class PrecondicionFallidaException extends RuntimeException {
+    public PrecondicionFallidaException(String message) {
+        super(message);
+    }
+}
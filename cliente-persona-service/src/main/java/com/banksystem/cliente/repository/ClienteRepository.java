@@ -1,7 +1,10 @@
 package com.banksystem.cliente.repository;
 
 import com.banksystem.cliente.entity.Cliente;
+import com.banksystem.comun.condicional.VersionColeccion;
+import com.banksystem.comun.condicional.VersionRecurso;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -10,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ClienteRepository extends JpaRepository<Cliente, Long> {
+public interface ClienteRepository extends JpaRepository<Cliente, Long>, JpaSpecificationExecutor<Cliente> {
 
     Optional<Cliente> findByIdentificacion(String identificacion);
 
@@ -25,4 +28,22 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     boolean existsByNumeroCliente(String numeroCliente);
 
     boolean existsByIdentificacion(String identificacion);
+
+    @Query("SELECT c.version AS version, c.fechaActualizacion AS fechaActualizacion FROM Cliente c WHERE c.id = :id")
+    Optional<VersionRecurso> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT COUNT(c) AS cantidad, MAX(c.id) AS maximoId, SUM(c.version) AS sumaVersiones, " +
+            "MAX(c.fechaActualizacion) AS ultimaActualizacion FROM Cliente c")
+    VersionColeccion obtenerVersionColeccion();
+
+    @Query("SELECT COUNT(c) AS cantidad, MAX(c.id) AS maximoId, SUM(c.version) AS sumaVersiones, " +
+            "MAX(c.fechaActualizacion) AS ultimaActualizacion FROM Cliente c WHERE c.estado = true")
+    VersionColeccion obtenerVersionColeccionActivos();
+
+    /**
+     * Total aproximado de filas según las estadísticas de InnoDB (sin recorrer la tabla)
+     */
+    @Query(value = "SELECT table_rows FROM information_schema.tables " +
+            "WHERE table_schema = DATABASE() AND table_name = 'cliente'", nativeQuery = true)
+    Long estimarTotal();
 }
@@ -3,11 +3,23 @@ package com.banksystem.cliente.service;
 import com.banksystem.cliente.entity.Cliente;
 import com.banksystem.cliente.exception.ClienteAlreadyExistsException;
 import com.banksystem.cliente.exception.ClienteNotFoundException;
+import com.banksystem.cliente.exception.PrecondicionFallidaException;
 import com.banksystem.cliente.repository.ClienteRepository;
+import com.banksystem.comun.cache.CacheCercana;
+import com.banksystem.comun.condicional.VersionColeccion;
+import com.banksystem.comun.condicional.VersionRecurso;
+import com.banksystem.comun.paginacion.Filtros;
+import com.banksystem.comun.paginacion.PaginadorCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,10 +27,19 @@ import java.util.UUID;
 @Transactional
 public class ClienteService {
 
+    private static final PaginadorCursor PAGINADOR = new PaginadorCursor(Map.of(
+            "fechaCreacion", LocalDateTime::parse,
+            "nombre", valor -> valor));
+
     private final ClienteRepository clienteRepository;
+    private final CacheCercana<Cliente> cacheClientes;
+    private final boolean totalEstimadoHabilitado;
 
-    public ClienteService(ClienteRepository clienteRepository) {
+    public ClienteService(ClienteRepository clienteRepository, CacheCercana<Cliente> cacheClientes,
+                          @Value("${banco.paginacion.total-estimado:false}") boolean totalEstimadoHabilitado) {
         this.clienteRepository = clienteRepository;
+        this.cacheClientes = cacheClientes;
+        this.totalEstimadoHabilitado = totalEstimadoHabilitado;
     }
 
     /**
@@ -38,14 +59,50 @@ public class ClienteService {
     }
 
     /**
-     * Obtener cliente por ID
+     * Obtener cliente por ID (cache local; sólo lectura, no modificar la instancia devuelta)
      */
     @Transactional(readOnly = true)
     public Cliente obtenerPorId(Long id) {
-        return clienteRepository.findById(id)
+        return cacheClientes.obtener(id, this::cargar);
+    }
+
+    /**
+     * Obtener cliente por ID con al menos la versión indicada: la copia en cache de un
+     * cliente que otra instancia modificó y cuyo aviso aún no llegó se vuelve a leer
+     */
+    @Transactional(readOnly = true)
+    public Cliente obtenerPorId(Long id, Long versionMinima) {
+        return cacheClientes.obtener(id,
+                cliente -> versionMinima == null
+                        || (cliente.getVersion() != null && cliente.getVersion() >= versionMinima),
+                this::cargar);
+    }
+
+    /**
+     * Obtener la versión del cliente sin cargar la entidad (peticiones condicionales)
+     */
+    @Transactional(readOnly = true)
+    public VersionRecurso obtenerVersion(Long id) {
+        return clienteRepository.findVersionById(id)
                 .orElseThrow(() -> new ClienteNotFoundException("Cliente no encontrado con ID: " + id));
     }
 
+    /**
+     * Versión agregada del listado de todos los clientes
+     */
+    @Transactional(readOnly = true)
+    public VersionColeccion obtenerVersionTodos() {
+        return clienteRepository.obtenerVersionColeccion();
+    }
+
+    /**
+     * Versión agregada del listado de clientes activos
+     */
+    @Transactional(readOnly = true)
+    public VersionColeccion obtenerVersionActivos() {
+        return clienteRepository.obtenerVersionColeccionActivos();
+    }
+
     /**
      * Obtener cliente por identificación
      */
@@ -74,6 +131,28 @@ public class ClienteService {
         return clienteRepository.findByNombreContainingIgnoreCaseAndEstadoTrue(nombre);
     }
 
+    /**
+     * Listado filtrado por estado y rango de creación, paginado por cursor (sin OFFSET ni COUNT);
+     * orden por id, fechaCreacion o nombre
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> filtrarClientes(Boolean estado, LocalDate fechaDesde, LocalDate fechaHasta,
+                                               String cursor, int tamano, String orden, String direccion) {
+        Specification<Cliente> filtro = Specification.where(Filtros.<Cliente>igual("estado", estado))
+                .and(Filtros.desde("fechaCreacion", fechaDesde != null ? fechaDesde.atStartOfDay() : null))
+                .and(Filtros.antes("fechaCreacion", fechaHasta != null ? fechaHasta.plusDays(1).atStartOfDay() : null));
+        return PAGINADOR.listar(clienteRepository, filtro, cursor, tamano, orden, direccion);
+    }
+
+    /**
+     * Total estimado de clientes (estadísticas de InnoDB, no exacto), o null si
+     * banco.paginacion.total-estimado está deshabilitado (base que no es MySQL)
+     */
+    @Transactional(readOnly = true)
+    public Long estimarTotalClientes() {
+        return totalEstimadoHabilitado ? clienteRepository.estimarTotal() : null;
+    }
+
     /**
      * Crear nuevo cliente
      */
@@ -95,7 +174,15 @@ public class ClienteService {
      * Actualizar cliente existente
      */
     public Cliente actualizarCliente(Long id, Cliente clienteActualizado) {
-        Cliente clienteExistente = obtenerPorId(id);
+        return actualizarCliente(id, clienteActualizado, null);
+    }
+
+    /**
+     * Actualizar cliente sólo si sigue en una de las versiones que se leyeron (null: sin condición)
+     */
+    public Cliente actualizarCliente(Long id, Cliente clienteActualizado, Set<Long> versionesEsperadas) {
+        Cliente clienteExistente = cargar(id);
+        verificarVersion(clienteExistente, versionesEsperadas);
 
         // Validar que no exista otro cliente con la misma identificación
         if (!clienteExistente.getIdentificacion().equals(clienteActualizado.getIdentificacion()) &&
@@ -122,7 +209,15 @@ public class ClienteService {
      * Cambiar estado del cliente
      */
     public Cliente cambiarEstado(Long id, Boolean nuevoEstado) {
-        Cliente cliente = obtenerPorId(id);
+        return cambiarEstado(id, nuevoEstado, null);
+    }
+
+    /**
+     * Cambiar estado sólo si el cliente sigue en una de las versiones que se leyeron (null: sin condición)
+     */
+    public Cliente cambiarEstado(Long id, Boolean nuevoEstado, Set<Long> versionesEsperadas) {
+        Cliente cliente = cargar(id);
+        verificarVersion(cliente, versionesEsperadas);
         cliente.setEstado(nuevoEstado);
         return clienteRepository.save(cliente);
     }
@@ -131,10 +226,28 @@ public class ClienteService {
      * Eliminar cliente
      */
     public void eliminarCliente(Long id) {
-        Cliente cliente = obtenerPorId(id);
+        Cliente cliente = cargar(id);
         clienteRepository.delete(cliente);
     }
 
+    /**
+     * La versión del If-Match es la del ETag; si el cliente cambió desde que se leyó la
+     * precondición falla
+     */
+    private void verificarVersion(Cliente cliente, Set<Long> versionesEsperadas) {
+        if (versionesEsperadas != null && !versionesEsperadas.contains(cliente.getVersion())) {
+            throw new PrecondicionFallidaException("El cliente " + cliente.getId() + " cambió desde que se leyó su ETag");
+        }
+    }
+
+    /**
+     * Leer el cliente de la base (entidad administrada, para modificarlo)
+     */
+    private Cliente cargar(Long id) {
+        return clienteRepository.findById(id)
+                .orElseThrow(() -> new ClienteNotFoundException("Cliente no encontrado con ID: " + id));
+    }
+
     /**
      * Generar número de cliente único
      */
@@ -0,0 +1,125 @@
+package com.banksystem.cliente;
+
+import com.banksystem.cliente.controller.ClienteController;
+import com.banksystem.cliente.entity.Cliente;
+import com.banksystem.cliente.exception.GlobalExceptionHandler;
+import com.banksystem.cliente.exception.PrecondicionFallidaException;
+import com.banksystem.cliente.service.ClienteService;
+import com.banksystem.comun.condicional.VersionRecurso;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+@ExtendWith(MockitoExtension.class)
+public class ClienteControllerCondicionalTest {
+
+    private static final String CLIENTE_JSON = "{\"nombre\":\"Jose Lema\",\"genero\":\"M\",\"edad\":35,"
+            + "\"identificacion\":\"1234567890\",\"direccion\":\"Otavalo sn y principal\","
+            + "\"telefono\":\"098254785\",\"contrasena\":\"123456\",\"estado\":true}";
+
+    @Mock
+    private ClienteService clienteService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ClienteController(clienteService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    public void testIfNoneMatchVigenteDevuelve304SinLeerElCliente() throws Exception {
+        // Arrange
+        when(clienteService.obtenerVersion(1L)).thenReturn(version(3L));
+
+        // Act
+        var respuesta = mockMvc.perform(get("/api/clientes/1").header(HttpHeaders.IF_NONE_MATCH, "\"cliente-1-v3\""))
+                .andReturn().getResponse();
+
+        // Assert
+        assertEquals(304, respuesta.getStatus());
+        verify(clienteService, never()).obtenerPorId(any(), any());
+    }
+
+    @Test
+    public void testDespuesDeUnaEscrituraElETagAnteriorDevuelve200() throws Exception {
+        // Arrange: la escritura con If-Match vigente deja al cliente en la versión 4
+        when(clienteService.actualizarCliente(eq(1L), any(Cliente.class), eq(Set.of(3L)))).thenReturn(cliente(4L));
+        when(clienteService.obtenerVersion(1L)).thenReturn(version(4L));
+        when(clienteService.obtenerPorId(1L, 4L)).thenReturn(cliente(4L));
+
+        // Act
+        var escritura = mockMvc.perform(put("/api/clientes/1").header(HttpHeaders.IF_MATCH, "\"cliente-1-v3\"")
+                .contentType(MediaType.APPLICATION_JSON).content(CLIENTE_JSON)).andReturn().getResponse();
+        var lectura = mockMvc.perform(get("/api/clientes/1").header(HttpHeaders.IF_NONE_MATCH, "\"cliente-1-v3\""))
+                .andReturn().getResponse();
+
+        // Assert
+        assertEquals(200, escritura.getStatus());
+        assertEquals("\"cliente-1-v4\"", escritura.getHeader(HttpHeaders.ETAG));
+        assertEquals(200, lectura.getStatus());
+        assertEquals("\"cliente-1-v4\"", lectura.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testIfMatchVencidoDebilODeOtroRecursoDevuelve412() throws Exception {
+        // Arrange: un ETag débil o de otro recurso no aporta versión
+        when(clienteService.actualizarCliente(eq(1L), any(Cliente.class), eq(Set.of(2L))))
+                .thenThrow(new PrecondicionFallidaException("El cliente 1 cambió"));
+        when(clienteService.actualizarCliente(eq(1L), any(Cliente.class), eq(Set.of())))
+                .thenThrow(new PrecondicionFallidaException("El cliente 1 cambió"));
+
+        // Act
+        int vencido = mockMvc.perform(put("/api/clientes/1").header(HttpHeaders.IF_MATCH, "\"cliente-1-v2\"")
+                .contentType(MediaType.APPLICATION_JSON).content(CLIENTE_JSON)).andReturn().getResponse().getStatus();
+        int otroRecurso = mockMvc.perform(put("/api/clientes/1").header(HttpHeaders.IF_MATCH, "\"cliente-9-v2\"")
+                .contentType(MediaType.APPLICATION_JSON).content(CLIENTE_JSON)).andReturn().getResponse().getStatus();
+        int debil = mockMvc.perform(put("/api/clientes/1").header(HttpHeaders.IF_MATCH, "W/\"cliente-1-v3\"")
+                .contentType(MediaType.APPLICATION_JSON).content(CLIENTE_JSON)).andReturn().getResponse().getStatus();
+
+        // Assert
+        assertEquals(412, vencido);
+        assertEquals(412, otroRecurso);
+        assertEquals(412, debil);
+    }
+
+    private static VersionRecurso version(Long numero) {
+        return new VersionRecurso() {
+            @Override
+            public Long getVersion() {
+                return numero;
+            }
+
+            @Override
+            public LocalDateTime getFechaActualizacion() {
+                return null;
+            }
+        };
+    }
+
+    private static Cliente cliente(Long version) {
+        Cliente cliente = new Cliente();
+        cliente.setId(1L);
+        cliente.setNombre("Jose Lema");
+        cliente.setVersion(version);
+        return cliente;
+    }
+}
@@ -3,16 +3,19 @@ package com.banksystem.cliente;
 import com.banksystem.cliente.entity.Cliente;
 import com.banksystem.cliente.exception.ClienteAlreadyExistsException;
 import com.banksystem.cliente.exception.ClienteNotFoundException;
+import com.banksystem.cliente.exception.PrecondicionFallidaException;
 import com.banksystem.cliente.repository.ClienteRepository;
 import com.banksystem.cliente.service.ClienteService;
+import com.banksystem.comun.cache.CacheCercana;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,13 +27,15 @@ public class ClienteServiceTest {
     @Mock
     private ClienteRepository clienteRepository;
 
-    @InjectMocks
+    private CacheCercana<Cliente> cacheClientes;
     private ClienteService clienteService;
 
     private Cliente cliente;
 
     @BeforeEach
     public void setUp() {
+        cacheClientes = new CacheCercana<>("cliente", 100, 60_000);
+        clienteService = new ClienteService(clienteRepository, cacheClientes, false);
         cliente = new Cliente();
         cliente.setId(1L);
         cliente.setNombre("Jose Lema");
@@ -87,6 +92,24 @@ public class ClienteServiceTest {
         verify(clienteRepository, times(1)).findById(1L);
     }
 
+    @Test
+    public void testObtenerClientePorIdUsaLaCacheHastaInvalidar() {
+        // Arrange
+        when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+        cliente.setVersion(3L);
+
+        // Act
+        clienteService.obtenerPorId(1L);
+        clienteService.obtenerPorId(1L);
+        clienteService.obtenerPorId(1L, 3L);
+        clienteService.obtenerPorId(1L, 4L);
+        cacheClientes.invalidar(List.of(1L));
+        clienteService.obtenerPorId(1L);
+
+        // Assert: versión más nueva que la cacheada e invalidación van a la base
+        verify(clienteRepository, times(3)).findById(1L);
+    }
+
     @Test
     public void testObtenerClientePorIdNoEncontrado() {
         // Arrange
@@ -121,6 +144,18 @@ public class ClienteServiceTest {
         verify(clienteRepository, times(1)).save(any(Cliente.class));
     }
 
+    @Test
+    public void testActualizarConVersionVencidaNoGuarda() {
+        // Arrange
+        cliente.setVersion(4L);
+        when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+
+        // Act & Assert
+        assertThrows(PrecondicionFallidaException.class,
+                () -> clienteService.actualizarCliente(1L, new Cliente(), Set.of(3L)));
+        verify(clienteRepository, never()).save(any(Cliente.class));
+    }
+
     @Test
     public void testEliminarClienteExitosamente() {
         // Arrange
@@ -147,4 +182,23 @@ public class ClienteServiceTest {
         assertNotNull(resultado);
         verify(clienteRepository, times(1)).save(any(Cliente.class));
     }
+
+    @Test
+    public void testFiltrarClientesConOrdenNoPermitido() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            clienteService.filtrarClientes(true, null, null, null, 50, "contrasena", "ASC");
+        });
+        verifyNoInteractions(clienteRepository);
+    }
+
+    @Test
+    public void testFiltrarClientesFueraDelTamanoPermitido() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> clienteService.filtrarClientes(true, null, null, null, 0, "nombre", "ASC"));
+        assertThrows(IllegalArgumentException.class,
+                () -> clienteService.filtrarClientes(true, null, null, null, 201, "nombre", "ASC"));
+        verifyNoInteractions(clienteRepository);
+    }
 }
@@ -3,9 +3,11 @@ package com.banksystem.cuenta;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@ComponentScan(basePackages = "com.banksystem.cuenta")
+@ComponentScan(basePackages = {"com.banksystem.cuenta", "com.banksystem.comun.cache"})
+@EnableScheduling
 public class CuentaMovimientoServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,144 @@
+package com.banksystem.cuenta.archivo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Índice de los segmentos archivados de una cuenta: una entrada por mes con rango de
+ * fechas, rango de IDs y saldo final, suficiente para descartar segmentos sin abrirlos.
+ */
+public final class IndiceArchivo {
+
+    private static final int MAGIA = 0x4D564958;
+    private static final byte VERSION = 1;
+
+    private final List<Entrada> entradas;
+
+    public IndiceArchivo(List<Entrada> entradas) {
+        List<Entrada> ordenadas = new ArrayList<>(entradas);
+        ordenadas.sort(Comparator.comparing(Entrada::getMes));
+        this.entradas = Collections.unmodifiableList(ordenadas);
+    }
+
+    public static IndiceArchivo vacio() {
+        return new IndiceArchivo(Collections.emptyList());
+    }
+
+    public List<Entrada> getEntradas() {
+        return entradas;
+    }
+
+    public boolean estaVacio() {
+        return entradas.isEmpty();
+    }
+
+    /**
+     * Nuevo índice con la entrada del mes reemplazada
+     */
+    public IndiceArchivo con(Entrada entrada) {
+        List<Entrada> nuevas = new ArrayList<>();
+        for (Entrada actual : entradas) {
+            if (!actual.getMes().equals(entrada.getMes())) {
+                nuevas.add(actual);
+            }
+        }
+        nuevas.add(entrada);
+        return new IndiceArchivo(nuevas);
+    }
+
+    public static IndiceArchivo leer(Path archivo) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            if (in.readInt() != MAGIA || in.readByte() != VERSION) {
+                throw new IOException("Índice de archivo inválido: " + archivo);
+            }
+            int cantidad = in.readInt();
+            List<Entrada> entradas = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                int mes = in.readInt();
+                entradas.add(new Entrada(YearMonth.of(mes / 100, mes % 100), in.readInt(),
+                        in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+            }
+            return new IndiceArchivo(entradas);
+        }
+    }
+
+    public void escribir(Path archivo) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+            out.writeInt(MAGIA);
+            out.writeByte(VERSION);
+            out.writeInt(entradas.size());
+            for (Entrada entrada : entradas) {
+                out.writeInt(entrada.getMes().getYear() * 100 + entrada.getMes().getMonthValue());
+                out.writeInt(entrada.getCantidad());
+                out.writeLong(entrada.getFechaMinima());
+                out.writeLong(entrada.getFechaMaxima());
+                out.writeLong(entrada.getIdMinimo());
+                out.writeLong(entrada.getIdMaximo());
+                out.writeLong(entrada.getSaldoFinal());
+            }
+        }
+    }
+
+    /**
+     * Resumen de un segmento; fechas en microsegundos y saldo final en centavos
+     */
+    public static final class Entrada {
+
+        private final YearMonth mes;
+        private final int cantidad;
+        private final long fechaMinima;
+        private final long fechaMaxima;
+        private final long idMinimo;
+        private final long idMaximo;
+        private final long saldoFinal;
+
+        public Entrada(YearMonth mes, int cantidad, long fechaMinima, long fechaMaxima,
+                       long idMinimo, long idMaximo, long saldoFinal) {
+            this.mes = mes;
+            this.cantidad = cantidad;
+            this.fechaMinima = fechaMinima;
+            this.fechaMaxima = fechaMaxima;
+            this.idMinimo = idMinimo;
+            this.idMaximo = idMaximo;
+            this.saldoFinal = saldoFinal;
+        }
+
+        public YearMonth getMes() {
+            return mes;
+        }
+
+        public int getCantidad() {
+            return cantidad;
+        }
+
+        public long getFechaMinima() {
+            return fechaMinima;
+        }
+
+        public long getFechaMaxima() {
+            return fechaMaxima;
+        }
+
+        public long getIdMinimo() {
+            return idMinimo;
+        }
+
+        public long getIdMaximo() {
+            return idMaximo;
+        }
+
+        public long getSaldoFinal() {
+            return saldoFinal;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.banksystem.cuenta.archivo;
+
+import com.banksystem.cuenta.entity.Movimiento;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Segmento columnar comprimido con los movimientos archivados de una cuenta en un mes.
+ * <p>
+ * Formato: cabecera sin comprimir (magia, versión, cantidad de filas) seguida de un bloque
+ * GZIP con cada columna completa una tras otra. Los enteros se escriben como varint zigzag;
+ * id, fecha y saldo se guardan como delta respecto de la fila anterior y los importes como
+ * centavos. Las filas se ordenan por (fecha, id).
+ * La versión 2 agrega la columna transferenciaId al final y la 3 las de conversión de moneda
+ * (monedaOrigen, valorOrigen, tasaCambio, como texto; casi siempre nulas); las anteriores se
+ * siguen leyendo.
+ */
+public final class SegmentoMovimientos {
+
+    private static final int MAGIA = 0x4D565347;
+    private static final byte VERSION = 3;
+
+    private SegmentoMovimientos() {
+    }
+
+    public static void escribir(OutputStream salida, List<Movimiento> movimientos) throws IOException {
+        DataOutputStream cabecera = new DataOutputStream(salida);
+        cabecera.writeInt(MAGIA);
+        cabecera.writeByte(VERSION);
+        cabecera.writeInt(movimientos.size());
+        cabecera.flush();
+
+        GZIPOutputStream gzip = new GZIPOutputStream(salida, 64 * 1024);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, 64 * 1024));
+
+        long anterior = 0;
+        for (Movimiento m : movimientos) {
+            escribirVarLong(out, m.getId() - anterior);
+            anterior = m.getId();
+        }
+        anterior = 0;
+        for (Movimiento m : movimientos) {
+            long micros = aMicros(m.getFecha());
+            escribirVarLong(out, micros - anterior);
+            anterior = micros;
+        }
+        for (Movimiento m : movimientos) {
+            LocalDateTime creacion = m.getFechaCreacion() != null ? m.getFechaCreacion() : m.getFecha();
+            escribirVarLong(out, aMicros(creacion) - aMicros(m.getFecha()));
+        }
+
+        Map<String, Integer> tipos = new HashMap<>();
+        List<String> diccionario = new ArrayList<>();
+        for (Movimiento m : movimientos) {
+            if (!tipos.containsKey(m.getTipoMovimiento())) {
+                tipos.put(m.getTipoMovimiento(), diccionario.size());
+                diccionario.add(m.getTipoMovimiento());
+            }
+        }
+        escribirVarLong(out, diccionario.size());
+        for (String tipo : diccionario) {
+            escribirTexto(out, tipo);
+        }
+        for (Movimiento m : movimientos) {
+            escribirVarLong(out, tipos.get(m.getTipoMovimiento()));
+        }
+
+        for (Movimiento m : movimientos) {
+            escribirVarLong(out, aCentavos(m.getValor()));
+        }
+        anterior = 0;
+        for (Movimiento m : movimientos) {
+            long saldo = aCentavos(m.getSaldo());
+            escribirVarLong(out, saldo - anterior);
+            anterior = saldo;
+        }
+        for (Movimiento m : movimientos) {
+            escribirTexto(out, m.getDescripcion());
+        }
+        for (Movimiento m : movimientos) {
+            escribirTexto(out, m.getTransferenciaId());
+        }
+        for (Movimiento m : movimientos) {
+            escribirTexto(out, m.getMonedaOrigen());
+        }
+        for (Movimiento m : movimientos) {
+            escribirTexto(out, m.getValorOrigen() != null ? m.getValorOrigen().toPlainString() : null);
+        }
+        for (Movimiento m : movimientos) {
+            escribirTexto(out, m.getTasaCambio() != null ? m.getTasaCambio().toPlainString() : null);
+        }
+        out.flush();
+        gzip.finish();
+    }
+
+    public static List<Movimiento> leer(InputStream entrada, Long cuentaId) throws IOException {
+        DataInputStream cabecera = new DataInputStream(entrada);
+        if (cabecera.readInt() != MAGIA) {
+            throw new IOException("Segmento de movimientos inválido");
+        }
+        byte version = cabecera.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Versión de segmento no soportada: " + version);
+        }
+        int cantidad = cabecera.readInt();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(entrada, 64 * 1024)));
+        List<Movimiento> movimientos = new ArrayList<>(cantidad);
+        long acumulado = 0;
+        for (int i = 0; i < cantidad; i++) {
+            acumulado += leerVarLong(in);
+            Movimiento m = new Movimiento();
+            m.setId(acumulado);
+            m.setCuentaId(cuentaId);
+            movimientos.add(m);
+        }
+        acumulado = 0;
+        for (Movimiento m : movimientos) {
+            acumulado += leerVarLong(in);
+            m.setFecha(deMicros(acumulado));
+        }
+        for (Movimiento m : movimientos) {
+            m.setFechaCreacion(deMicros(aMicros(m.getFecha()) + leerVarLong(in)));
+        }
+
+        int tamanoDiccionario = (int) leerVarLong(in);
+        String[] diccionario = new String[tamanoDiccionario];
+        for (int i = 0; i < tamanoDiccionario; i++) {
+            diccionario[i] = leerTexto(in);
+        }
+        for (Movimiento m : movimientos) {
+            m.setTipoMovimiento(diccionario[(int) leerVarLong(in)]);
+        }
+
+        for (Movimiento m : movimientos) {
+            m.setValor(BigDecimal.valueOf(leerVarLong(in), 2));
+        }
+        acumulado = 0;
+        for (Movimiento m : movimientos) {
+            acumulado += leerVarLong(in);
+            m.setSaldo(BigDecimal.valueOf(acumulado, 2));
+        }
+        for (Movimiento m : movimientos) {
+            m.setDescripcion(leerTexto(in));
+        }
+        if (version >= 2) {
+            for (Movimiento m : movimientos) {
+                m.setTransferenciaId(leerTexto(in));
+            }
+        }
+        if (version >= 3) {
+            for (Movimiento m : movimientos) {
+                m.setMonedaOrigen(leerTexto(in));
+            }
+            for (Movimiento m : movimientos) {
+                String valorOrigen = leerTexto(in);
+                m.setValorOrigen(valorOrigen != null ? new BigDecimal(valorOrigen) : null);
+            }
+            for (Movimiento m : movimientos) {
+                String tasa = leerTexto(in);
+                m.setTasaCambio(tasa != null ? new BigDecimal(tasa) : null);
+            }
+        }
+        return movimientos;
+    }
+
+    public static void escribir(Path archivo, List<Movimiento> movimientos) throws IOException {
+        try (OutputStream salida = Files.newOutputStream(archivo)) {
+            escribir(salida, movimientos);
+        }
+    }
+
+    public static List<Movimiento> leer(Path archivo, Long cuentaId) throws IOException {
+        try (InputStream entrada = new BufferedInputStream(Files.newInputStream(archivo))) {
+            return leer(entrada, cuentaId);
+        }
+    }
+
+    public static long aMicros(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + fecha.getNano() / 1_000;
+    }
+
+    public static LocalDateTime deMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    public static long aCentavos(BigDecimal importe) {
+        return importe.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        if (texto == null) {
+            escribirVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        escribirVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        int longitud = (int) leerVarLong(in);
+        if (longitud == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void escribirVarLong(DataOutputStream out, long valor) throws IOException {
+        long zigzag = (valor << 1) ^ (valor >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long leerVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
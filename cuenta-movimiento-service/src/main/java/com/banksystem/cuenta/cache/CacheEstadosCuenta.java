@@ -0,0 +1,409 @@
+package com.banksystem.cuenta.cache;
+
+import com.banksystem.comun.cache.CacheCercana;
+import com.banksystem.comun.cache.CacheInvalidable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Estados de cuenta ya generados, comprimidos con gzip, en dos niveles acotados en bytes y
+ * con desalojo LRU: memoria y un directorio local.
+ * <ul>
+ *   <li>Clave (clienteId, fechaInicio, fechaFin, formato); los avisos de invalidación llevan
+ *   el ID del cliente y borran todos sus estados.</li>
+ *   <li>Lo generado se escribe en ambos niveles: lo que se desaloja de memoria sigue en disco
+ *   y vuelve a memoria en la próxima lectura.</li>
+ *   <li>El índice del disco se reconstruye al arrancar por fecha de modificación, que cada
+ *   lectura actualiza, así el orden LRU sobrevive a los reinicios.</li>
+ *   <li>Como en {@link CacheCercana}, una generación que empezó antes de una invalidación no
+ *   guarda su resultado.</li>
+ * </ul>
+ */
+public class CacheEstadosCuenta implements CacheInvalidable, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheEstadosCuenta.class);
+    private static final String EXTENSION = ".gz";
+
+    /**
+     * Estado de cuenta de un cliente para un rango y un formato de serialización
+     */
+    public record Clave(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin, String formato) {
+
+        String archivo() {
+            return clienteId + "_" + fechaInicio + "_" + fechaFin + "_" + formato + EXTENSION;
+        }
+
+        static Clave desdeArchivo(String archivo) {
+            if (!archivo.endsWith(EXTENSION)) {
+                return null;
+            }
+            String[] partes = archivo.substring(0, archivo.length() - EXTENSION.length()).split("_");
+            if (partes.length != 4) {
+                return null;
+            }
+            try {
+                return new Clave(Long.valueOf(partes[0]), LocalDate.parse(partes[1]), LocalDate.parse(partes[2]),
+                        partes[3]);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    private final String nombre;
+    private final Path directorio;
+    private final long maximoBytesMemoria;
+    private final long maximoBytesDisco;
+    // Orden de acceso: la primera entrada es la menos usada recientemente
+    private final LinkedHashMap<Clave, byte[]> memoria = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Clave, Long> disco = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesMemoria;
+    private long bytesDisco;
+    private final AtomicLong generacion = new AtomicLong();
+    private volatile boolean habilitada = true;
+    private final LongAdder aciertosMemoria = new LongAdder();
+    private final LongAdder aciertosDisco = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojosMemoria = new LongAdder();
+    private final LongAdder desalojosDisco = new LongAdder();
+
+    public CacheEstadosCuenta(String nombre, Path directorio, long maximoBytesMemoria, long maximoBytesDisco) {
+        this.nombre = nombre;
+        this.directorio = directorio;
+        this.maximoBytesMemoria = maximoBytesMemoria;
+        this.maximoBytesDisco = maximoBytesDisco;
+    }
+
+    /**
+     * Indexar los estados que quedaron en disco de una ejecución anterior, del menos al más
+     * recientemente leído, y descartar temporales de escrituras interrumpidas
+     */
+    public void cargarDisco() {
+        try {
+            Files.createDirectories(directorio);
+            List<Path> archivos;
+            try (Stream<Path> listado = Files.list(directorio)) {
+                archivos = listado.filter(Files::isRegularFile).toList();
+            }
+            List<Path> vigentes = new ArrayList<>();
+            for (Path archivo : archivos) {
+                if (Clave.desdeArchivo(archivo.getFileName().toString()) != null) {
+                    vigentes.add(archivo);
+                } else if (archivo.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(archivo);
+                }
+            }
+            vigentes.sort(Comparator.comparing(CacheEstadosCuenta::ultimaModificacion));
+            synchronized (disco) {
+                for (Path archivo : vigentes) {
+                    long tamano = Files.size(archivo);
+                    disco.put(Clave.desdeArchivo(archivo.getFileName().toString()), tamano);
+                    bytesDisco += tamano;
+                }
+                desalojarDisco();
+            }
+            log.info("Cache de estados de cuenta: {} archivos ({} bytes) en {}", disco.size(), bytesDisco, directorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + directorio, e);
+        }
+    }
+
+    /**
+     * Estado comprimido en cache o el que devuelva el generador (sin comprimir), que queda
+     * guardado en ambos niveles
+     */
+    public byte[] obtener(Clave clave, Supplier<byte[]> generador) {
+        if (!habilitada) {
+            fallos.increment();
+            return comprimir(generador.get());
+        }
+        byte[] comprimido;
+        synchronized (memoria) {
+            comprimido = memoria.get(clave);
+        }
+        if (comprimido != null) {
+            aciertosMemoria.increment();
+            return comprimido;
+        }
+        long generacionCarga = generacion.get();
+        comprimido = leerDisco(clave);
+        if (comprimido != null) {
+            aciertosDisco.increment();
+            guardarEnMemoria(clave, comprimido, generacionCarga);
+            return comprimido;
+        }
+        fallos.increment();
+        comprimido = comprimir(generador.get());
+        guardarEnMemoria(clave, comprimido, generacionCarga);
+        guardarEnDisco(clave, comprimido, generacionCarga);
+        return comprimido;
+    }
+
+    private byte[] leerDisco(Clave clave) {
+        synchronized (disco) {
+            if (disco.get(clave) == null) {
+                return null;
+            }
+        }
+        Path archivo = directorio.resolve(clave.archivo());
+        try {
+            byte[] comprimido = Files.readAllBytes(archivo);
+            Files.setLastModifiedTime(archivo, FileTime.fromMillis(System.currentTimeMillis()));
+            return comprimido;
+        } catch (NoSuchFileException e) {
+            // Desalojado o invalidado entre la consulta al índice y la lectura
+            return null;
+        } catch (IOException e) {
+            log.warn("No se pudo leer {} de la cache de estados: {}", archivo, e.getMessage());
+            return null;
+        }
+    }
+
+    private void guardarEnMemoria(Clave clave, byte[] comprimido, long generacionCarga) {
+        if (comprimido.length > maximoBytesMemoria) {
+            return;
+        }
+        // Bajo el mismo bloqueo que la invalidación: o ve la generación nueva, o la invalidación
+        // borra lo recién guardado
+        synchronized (memoria) {
+            if (generacion.get() != generacionCarga) {
+                return;
+            }
+            byte[] anterior = memoria.put(clave, comprimido);
+            bytesMemoria += comprimido.length - (anterior != null ? anterior.length : 0);
+            Iterator<Map.Entry<Clave, byte[]>> entradas = memoria.entrySet().iterator();
+            while (bytesMemoria > maximoBytesMemoria && entradas.hasNext()) {
+                bytesMemoria -= entradas.next().getValue().length;
+                entradas.remove();
+                desalojosMemoria.increment();
+            }
+        }
+    }
+
+    private void guardarEnDisco(Clave clave, byte[] comprimido, long generacionCarga) {
+        if (comprimido.length > maximoBytesDisco) {
+            return;
+        }
+        Path destino = directorio.resolve(clave.archivo());
+        Path temporal = directorio.resolve(clave.archivo() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.write(temporal, comprimido);
+            synchronized (disco) {
+                if (generacion.get() != generacionCarga) {
+                    return;
+                }
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Long anterior = disco.put(clave, (long) comprimido.length);
+                bytesDisco += comprimido.length - (anterior != null ? anterior : 0);
+                desalojarDisco();
+            }
+        } catch (IOException e) {
+            // La cache es prescindible: el estado ya se generó y se sirve igual
+            log.warn("No se pudo guardar {} en la cache de estados: {}", destino, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException e) {
+                log.debug("No se pudo borrar {}", temporal, e);
+            }
+        }
+    }
+
+    /**
+     * Borrar los archivos menos usados hasta volver bajo el máximo; con el bloqueo de disco tomado
+     */
+    private void desalojarDisco() {
+        Iterator<Map.Entry<Clave, Long>> entradas = disco.entrySet().iterator();
+        while (bytesDisco > maximoBytesDisco && entradas.hasNext()) {
+            Map.Entry<Clave, Long> entrada = entradas.next();
+            borrar(entrada.getKey());
+            bytesDisco -= entrada.getValue();
+            entradas.remove();
+            desalojosDisco.increment();
+        }
+    }
+
+    private void borrar(Clave clave) {
+        try {
+            Files.deleteIfExists(directorio.resolve(clave.archivo()));
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {} de la cache de estados: {}", clave.archivo(), e.getMessage());
+        }
+    }
+
+    /**
+     * Borrar los estados de los clientes indicados en ambos niveles
+     */
+    @Override
+    public void invalidar(Collection<Long> clienteIds) {
+        generacion.incrementAndGet();
+        synchronized (memoria) {
+            Iterator<Map.Entry<Clave, byte[]>> entradas = memoria.entrySet().iterator();
+            while (entradas.hasNext()) {
+                Map.Entry<Clave, byte[]> entrada = entradas.next();
+                if (clienteIds.contains(entrada.getKey().clienteId())) {
+                    bytesMemoria -= entrada.getValue().length;
+                    entradas.remove();
+                }
+            }
+        }
+        synchronized (disco) {
+            Iterator<Map.Entry<Clave, Long>> entradas = disco.entrySet().iterator();
+            while (entradas.hasNext()) {
+                Map.Entry<Clave, Long> entrada = entradas.next();
+                if (clienteIds.contains(entrada.getKey().clienteId())) {
+                    borrar(entrada.getKey());
+                    bytesDisco -= entrada.getValue();
+                    entradas.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidarTodo() {
+        generacion.incrementAndGet();
+        synchronized (memoria) {
+            memoria.clear();
+            bytesMemoria = 0;
+        }
+        synchronized (disco) {
+            disco.keySet().forEach(this::borrar);
+            disco.clear();
+            bytesDisco = 0;
+        }
+    }
+
+    /**
+     * Al (re)conectar se vacía también el disco: pudo perderse un aviso mientras tanto
+     */
+    @Override
+    public void habilitar() {
+        invalidarTodo();
+        habilitada = true;
+    }
+
+    @Override
+    public void deshabilitar() {
+        habilitada = false;
+        invalidarTodo();
+    }
+
+    private static byte[] comprimir(byte[] datos) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(512, datos.length / 4));
+        try (OutputStream salida = new GZIPOutputStream(bytes)) {
+            salida.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static FileTime ultimaModificacion(Path archivo) {
+        try {
+            return Files.getLastModifiedTime(archivo);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    public boolean enMemoria(Clave clave) {
+        synchronized (memoria) {
+            return memoria.containsKey(clave);
+        }
+    }
+
+    public boolean enDisco(Clave clave) {
+        synchronized (disco) {
+            return disco.containsKey(clave);
+        }
+    }
+
+    public long getBytesMemoria() {
+        synchronized (memoria) {
+            return bytesMemoria;
+        }
+    }
+
+    public long getBytesDisco() {
+        synchronized (disco) {
+            return bytesDisco;
+        }
+    }
+
+    public long getAciertosMemoria() {
+        return aciertosMemoria.sum();
+    }
+
+    public long getAciertosDisco() {
+        return aciertosDisco.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banco.cache.estados.bytes", this, CacheEstadosCuenta::getBytesMemoria)
+                .tag("nivel", "memoria")
+                .description("Bytes comprimidos de estados de cuenta en cache")
+                .register(registry);
+        Gauge.builder("banco.cache.estados.bytes", this, CacheEstadosCuenta::getBytesDisco)
+                .tag("nivel", "disco")
+                .description("Bytes comprimidos de estados de cuenta en cache")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.estados.aciertos", aciertosMemoria, LongAdder::sum)
+                .tag("nivel", "memoria")
+                .description("Estados de cuenta servidos desde la cache")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.estados.aciertos", aciertosDisco, LongAdder::sum)
+                .tag("nivel", "disco")
+                .description("Estados de cuenta servidos desde la cache")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.estados.fallos", fallos, LongAdder::sum)
+                .description("Estados de cuenta de períodos cerrados generados desde la base")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.estados.desalojos", desalojosMemoria, LongAdder::sum)
+                .tag("nivel", "memoria")
+                .description("Estados de cuenta desalojados por falta de espacio")
+                .register(registry);
+        FunctionCounter.builder("banco.cache.estados.desalojos", desalojosDisco, LongAdder::sum)
+                .tag("nivel", "disco")
+                .description("Estados de cuenta desalojados por falta de espacio")
+                .register(registry);
+    }
+}
@@ -0,0 +1,39 @@
+package com.banksystem.cuenta.cache;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.cuenta.config.CacheConfig;
+import com.banksystem.cuenta.entity.Cuenta;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Toda escritura de una cuenta (estado, tipo, saldo) invalida su entrada de cache al confirmar.
+ * Crearla o eliminarla cambia además la lista de cuentas de los estados de cuenta guardados
+ * del cliente. Hibernate lo instancia a través del contenedor de Spring, de ahí la inyección
+ * por constructor.
+ */
+public class InvalidacionCuentaListener {
+
+    private final BusInvalidacion bus;
+
+    public InvalidacionCuentaListener(BusInvalidacion bus) {
+        this.bus = bus;
+    }
+
+    @PostUpdate
+    public void alModificar(Cuenta cuenta) {
+        bus.invalidarAlConfirmar(CacheConfig.CACHE_CUENTAS, cuenta.getId());
+    }
+
+    @PostPersist
+    public void alCrear(Cuenta cuenta) {
+        bus.invalidarAlConfirmar(CacheConfig.CACHE_ESTADOS_CUENTA, cuenta.getClienteId());
+    }
+
+    @PostRemove
+    public void alEliminar(Cuenta cuenta) {
+        alModificar(cuenta);
+        alCrear(cuenta);
+    }
+}
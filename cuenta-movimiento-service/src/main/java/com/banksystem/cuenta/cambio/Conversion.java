@@ -0,0 +1,22 @@
+package com.banksystem.cuenta.cambio;
+
+import com.banksystem.cuenta.entity.Movimiento;
+
+import java.math.BigDecimal;
+
+/**
+ * Importe convertido entre dos monedas: valorDestino = valorOrigen × tasa, redondeado a los
+ * decimales de la moneda destino. La tasa guardada reproduce exactamente el importe acreditado o debitado.
+ */
+public record Conversion(String monedaOrigen, BigDecimal valorOrigen, String monedaDestino,
+                         BigDecimal valorDestino, BigDecimal tasa) {
+
+    /**
+     * Dejar constancia en el movimiento (expresado en la moneda destino) del importe y la tasa
+     */
+    public void anotarEn(Movimiento movimiento) {
+        movimiento.setMonedaOrigen(monedaOrigen);
+        movimiento.setValorOrigen(valorOrigen);
+        movimiento.setTasaCambio(tasa);
+    }
+}
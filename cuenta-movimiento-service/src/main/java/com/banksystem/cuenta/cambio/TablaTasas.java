@@ -0,0 +1,66 @@
+package com.banksystem.cuenta.cambio;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Foto inmutable de las tasas de cambio: unidades de cada moneda por una unidad de la moneda
+ * base. Una actualización no modifica la tabla sino que produce otra (copia al escribir), así
+ * que quien ya la leyó sigue viendo tasas coherentes entre sí sin tomar ningún bloqueo.
+ */
+public final class TablaTasas {
+
+    /**
+     * Tasa de una moneda y el instante en que la publicó la fuente
+     */
+    public record Tasa(BigDecimal unidadesPorBase, Instant fecha) {
+    }
+
+    private final String monedaBase;
+    private final Map<String, Tasa> tasas;
+    private final long version;
+
+    private TablaTasas(String monedaBase, Map<String, Tasa> tasas, long version) {
+        this.monedaBase = monedaBase;
+        this.tasas = tasas;
+        this.version = version;
+    }
+
+    static TablaTasas vacia(String monedaBase) {
+        return new TablaTasas(monedaBase, Map.of(), 0);
+    }
+
+    /**
+     * Tabla nueva con las tasas indicadas reemplazando a las anteriores; las demás se conservan
+     */
+    TablaTasas con(Map<String, Tasa> nuevas) {
+        Map<String, Tasa> copia = new HashMap<>(tasas);
+        copia.putAll(nuevas);
+        return new TablaTasas(monedaBase, Collections.unmodifiableMap(copia), version + 1);
+    }
+
+    /**
+     * Tasa de la moneda (la base vale 1 y no vence); null si no hay tasa publicada
+     */
+    public Tasa obtener(String moneda) {
+        if (monedaBase.equals(moneda)) {
+            return new Tasa(BigDecimal.ONE, null);
+        }
+        return tasas.get(moneda);
+    }
+
+    public String getMonedaBase() {
+        return monedaBase;
+    }
+
+    public Map<String, Tasa> getTasas() {
+        return tasas;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
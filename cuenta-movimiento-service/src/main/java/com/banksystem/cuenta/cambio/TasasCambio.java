@@ -0,0 +1,270 @@
+package com.banksystem.cuenta.cambio;
+
+import com.banksystem.cuenta.exception.TasaCambioNoDisponibleException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tasas de cambio vigentes. Los lectores (cada movimiento y transferencia entre monedas) sólo
+ * leen la referencia a la {@link TablaTasas} actual; los escritores arman una tabla nueva y la
+ * publican con compare-and-set, reintentando si otro publicó antes. Nadie bloquea a nadie.
+ * <ul>
+ *   <li>La fuente local ({@code banco.cambio.archivo}) se relee cuando cambia su fecha de
+ *   modificación; sus líneas {@code MONEDA,unidadesPorBase[,instante ISO-8601]} se publican
+ *   juntas en una sola tabla o, si alguna es inválida, ninguna.</li>
+ *   <li>Una tasa más vieja que {@code banco.cambio.vigencia-ms} no se usa para convertir
+ *   (0 = sin límite).</li>
+ * </ul>
+ */
+@Component
+public class TasasCambio implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TasasCambio.class);
+    static final int ESCALA_TASA = 10;
+    /** Decimales de las columnas de importes (saldo, valor, total) */
+    static final int ESCALA_IMPORTES = 2;
+
+    private final AtomicReference<TablaTasas> tabla;
+    private final Path archivo;
+    private final long vigenciaMs;
+    private volatile FileTime modificacionCargada;
+    private final LongAdder actualizaciones = new LongAdder();
+    private final LongAdder conversiones = new LongAdder();
+    private final LongAdder cargasFallidas = new LongAdder();
+
+    public TasasCambio(@Value("${banco.cambio.moneda-base:USD}") String monedaBase,
+                       @Value("${banco.cambio.archivo:}") String archivo,
+                       @Value("${banco.cambio.vigencia-ms:300000}") long vigenciaMs) {
+        this.tabla = new AtomicReference<>(TablaTasas.vacia(validarMoneda(monedaBase)));
+        this.archivo = archivo.isBlank() ? null : Paths.get(archivo);
+        this.vigenciaMs = vigenciaMs;
+    }
+
+    public TablaTasas getTabla() {
+        return tabla.get();
+    }
+
+    public String getMonedaBase() {
+        return tabla.get().getMonedaBase();
+    }
+
+    /**
+     * Código ISO 4217 normalizado a mayúsculas; IllegalArgumentException si no existe o si
+     * su unidad menor tiene más decimales de los que guardan los importes
+     */
+    public static String validarMoneda(String moneda) {
+        if (moneda == null || moneda.isBlank()) {
+            throw new IllegalArgumentException("La moneda es obligatoria");
+        }
+        String codigo = moneda.trim().toUpperCase(Locale.ROOT);
+        Currency divisa;
+        try {
+            divisa = Currency.getInstance(codigo);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Moneda no válida: " + moneda);
+        }
+        if (divisa.getDefaultFractionDigits() > ESCALA_IMPORTES) {
+            throw new IllegalArgumentException("Moneda no admitida: " + codigo + " usa "
+                    + divisa.getDefaultFractionDigits() + " decimales y los importes se guardan con " + ESCALA_IMPORTES);
+        }
+        return divisa.getCurrencyCode();
+    }
+
+    /**
+     * Decimales de los importes en la moneda: los de su unidad menor (0 para JPY, 2 para USD);
+     * las que no tienen unidad menor definida, como las de metales, usan los de las columnas
+     */
+    public static int escala(String moneda) {
+        int decimales = Currency.getInstance(moneda).getDefaultFractionDigits();
+        return decimales < 0 ? ESCALA_IMPORTES : decimales;
+    }
+
+    /**
+     * Publicar una o varias tasas en una sola tabla nueva
+     */
+    public TablaTasas actualizar(Map<String, BigDecimal> unidadesPorBase) {
+        Instant ahora = Instant.now();
+        Map<String, TablaTasas.Tasa> nuevas = new HashMap<>();
+        unidadesPorBase.forEach((moneda, valor) -> nuevas.put(validarMoneda(moneda), new TablaTasas.Tasa(valor, ahora)));
+        return publicar(nuevas);
+    }
+
+    private TablaTasas publicar(Map<String, TablaTasas.Tasa> nuevas) {
+        String base = getMonedaBase();
+        for (Map.Entry<String, TablaTasas.Tasa> tasa : nuevas.entrySet()) {
+            if (tasa.getKey().equals(base)) {
+                throw new IllegalArgumentException("La moneda base " + base + " vale siempre 1");
+            }
+            if (tasa.getValue().unidadesPorBase() == null || tasa.getValue().unidadesPorBase().signum() <= 0) {
+                throw new IllegalArgumentException("La tasa de " + tasa.getKey() + " debe ser mayor a cero");
+            }
+        }
+        // Copia al escribir: si otro escritor publicó entre la lectura y el CAS, se rehace la copia
+        TablaTasas publicada = tabla.updateAndGet(actual -> actual.con(nuevas));
+        actualizaciones.add(nuevas.size());
+        return publicada;
+    }
+
+    /**
+     * Convertir un importe; null si las monedas coinciden (no hay conversión que registrar)
+     */
+    public Conversion convertir(BigDecimal valor, String monedaOrigen, String monedaDestino) {
+        String origen = validarMoneda(monedaOrigen);
+        String destino = validarMoneda(monedaDestino);
+        if (origen.equals(destino)) {
+            return null;
+        }
+        // Una sola lectura: ambas tasas salen de la misma foto
+        TablaTasas actual = tabla.get();
+        BigDecimal tasa = vigente(actual, destino).unidadesPorBase()
+                .divide(vigente(actual, origen).unidadesPorBase(), ESCALA_TASA, RoundingMode.HALF_EVEN);
+        BigDecimal convertido = valor.multiply(tasa).setScale(escala(destino), RoundingMode.HALF_EVEN);
+        if (convertido.signum() <= 0) {
+            throw new IllegalArgumentException("El valor convertido a " + destino + " debe ser mayor a cero");
+        }
+        conversiones.increment();
+        return new Conversion(origen, valor, destino, convertido, tasa);
+    }
+
+    private TablaTasas.Tasa vigente(TablaTasas actual, String moneda) {
+        TablaTasas.Tasa tasa = actual.obtener(moneda);
+        if (tasa == null) {
+            throw new TasaCambioNoDisponibleException("No hay tasa de cambio publicada para " + moneda);
+        }
+        if (vigenciaMs > 0 && tasa.fecha() != null
+                && tasa.fecha().isBefore(Instant.now().minusMillis(vigenciaMs))) {
+            throw new TasaCambioNoDisponibleException("La tasa de cambio de " + moneda + " está vencida desde "
+                    + tasa.fecha().plusMillis(vigenciaMs));
+        }
+        return tasa;
+    }
+
+    /**
+     * Releer la fuente local si cambió desde la última carga
+     */
+    @Scheduled(fixedDelayString = "${banco.cambio.recarga-ms:1000}")
+    public void recargarSiCambio() {
+        if (archivo == null || !Files.isRegularFile(archivo)) {
+            return;
+        }
+        try {
+            if (!Files.getLastModifiedTime(archivo).equals(modificacionCargada)) {
+                cargarArchivo();
+            }
+        } catch (IOException | RuntimeException e) {
+            cargasFallidas.increment();
+            log.warn("No se pudo cargar la fuente de tasas {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    /**
+     * Cargar toda la fuente local en una sola tabla nueva
+     */
+    public Map<String, Object> cargarArchivo() {
+        if (archivo == null) {
+            throw new IllegalArgumentException("No hay fuente de tasas configurada (banco.cambio.archivo)");
+        }
+        try {
+            FileTime modificacion = Files.getLastModifiedTime(archivo);
+            Map<String, TablaTasas.Tasa> leidas = leer(archivo, modificacion.toInstant());
+            TablaTasas publicada = publicar(leidas);
+            modificacionCargada = modificacion;
+            log.debug("Fuente de tasas {}: {} monedas, versión {}", archivo, leidas.size(), publicada.getVersion());
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("archivo", archivo.toString());
+            resultado.put("monedas", leidas.size());
+            resultado.put("version", publicada.getVersion());
+            return resultado;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + archivo, e);
+        }
+    }
+
+    private static Map<String, TablaTasas.Tasa> leer(Path archivo, Instant fechaArchivo) throws IOException {
+        Map<String, TablaTasas.Tasa> tasas = new HashMap<>();
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            int numero = 0;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                linea = linea.trim();
+                if (linea.isEmpty() || linea.startsWith("#")) {
+                    continue;
+                }
+                String[] campos = linea.split(",");
+                try {
+                    if (campos.length < 2 || campos.length > 3) {
+                        throw new IllegalArgumentException("se esperaba MONEDA,tasa[,instante]");
+                    }
+                    Instant fecha = campos.length == 3 ? Instant.parse(campos[2].trim()) : fechaArchivo;
+                    tasas.put(validarMoneda(campos[0]), new TablaTasas.Tasa(new BigDecimal(campos[1].trim()), fecha));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    throw new IllegalArgumentException("Línea " + numero + " de " + archivo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return tasas;
+    }
+
+    /**
+     * Segundos desde la publicación de la tasa más vieja de la tabla vigente
+     */
+    private double antiguedadSegundos() {
+        Instant ahora = Instant.now();
+        return tabla.get().getTasas().values().stream()
+                .map(TablaTasas.Tasa::fecha)
+                .min(Instant::compareTo)
+                .map(fecha -> (ahora.toEpochMilli() - fecha.toEpochMilli()) / 1000.0)
+                .orElse(0.0);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banco.cambio.monedas", tabla, referencia -> referencia.get().getTasas().size())
+                .description("Monedas con tasa publicada, sin contar la base")
+                .register(registry);
+        Gauge.builder("banco.cambio.version", tabla, referencia -> referencia.get().getVersion())
+                .description("Tablas de tasas publicadas desde el arranque")
+                .register(registry);
+        Gauge.builder("banco.cambio.antiguedad", this, TasasCambio::antiguedadSegundos)
+                .baseUnit("seconds")
+                .description("Antigüedad de la tasa más vieja de la tabla vigente")
+                .register(registry);
+        FunctionCounter.builder("banco.cambio.actualizaciones", actualizaciones, LongAdder::sum)
+                .description("Tasas publicadas (una por moneda y actualización)")
+                .register(registry);
+        FunctionCounter.builder("banco.cambio.conversiones", conversiones, LongAdder::sum)
+                .description("Importes convertidos entre monedas")
+                .register(registry);
+        FunctionCounter.builder("banco.cambio.cargas.fallidas", cargasFallidas, LongAdder::sum)
+                .description("Lecturas de la fuente local rechazadas")
+                .register(registry);
+    }
+}
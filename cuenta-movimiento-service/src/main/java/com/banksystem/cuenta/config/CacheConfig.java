@@ -0,0 +1,45 @@
+package com.banksystem.cuenta.config;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.comun.cache.CacheCercana;
+import com.banksystem.cuenta.cache.CacheEstadosCuenta;
+import com.banksystem.cuenta.entity.Cuenta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Paths;
+
+/**
+ * Caches locales de entidades y de estados de cuenta, invalidadas entre instancias por
+ * {@link BusInvalidacion}
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String CACHE_CUENTAS = "cuenta";
+    public static final String CACHE_ESTADOS_CUENTA = "estado-cuenta";
+    public static final String CACHE_INDICES_ARCHIVO = "indice-archivo";
+
+    @Bean
+    public CacheCercana<Cuenta> cacheCuentas(BusInvalidacion bus,
+                                             @Value("${banco.cache.cuentas.maximo:50000}") int maximo,
+                                             @Value("${banco.cache.tiempo-vida-ms:300000}") long tiempoVidaMs) {
+        CacheCercana<Cuenta> cache = new CacheCercana<>(CACHE_CUENTAS, maximo, tiempoVidaMs);
+        bus.registrar(cache);
+        return cache;
+    }
+
+    @Bean
+    public CacheEstadosCuenta cacheEstadosCuenta(BusInvalidacion bus,
+                                                 @Value("${banco.cache.estados.directorio:cache-estados-cuenta}") String directorio,
+                                                 @Value("${banco.cache.estados.memoria:64MB}") DataSize memoria,
+                                                 @Value("${banco.cache.estados.disco:1GB}") DataSize disco) {
+        CacheEstadosCuenta cache = new CacheEstadosCuenta(CACHE_ESTADOS_CUENTA, Paths.get(directorio),
+                memoria.toBytes(), disco.toBytes());
+        cache.cargarDisco();
+        bus.registrar(cache);
+        return cache;
+    }
+}
@@ -0,0 +1,50 @@
+package com.banksystem.cuenta.config;
+
+import com.banksystem.cuenta.limite.ClaseTrafico;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Pools de conexiones por clase de tráfico. Todos parten de {@code spring.datasource.*} y
+ * {@code spring.datasource.hikari.*}; {@code banco.compartimentos.<clase>.conexiones} fija el
+ * tamaño de cada uno (0 = el de Hikari). Con {@code banco.compartimentos.habilitado=false}
+ * queda el DataSource único de Spring Boot.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banco.compartimentos.habilitado", havingValue = "true", matchIfMissing = true)
+public class CompartimentosConfig {
+
+    @Bean
+    public DataSourcePorClase dataSource(DataSourceProperties propiedades, Environment entorno) {
+        HikariDataSource base = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(entorno).bind("spring.datasource.hikari", Bindable.ofInstance(base));
+
+        Map<ClaseTrafico, HikariDataSource> pools = new EnumMap<>(ClaseTrafico.class);
+        for (ClaseTrafico clase : ClaseTrafico.values()) {
+            HikariConfig config = new HikariConfig();
+            base.copyStateTo(config);
+            int conexiones = entorno.getProperty("banco.compartimentos." + clase.getClave() + ".conexiones",
+                    Integer.class, clase.getConexiones());
+            if (conexiones > 0) {
+                config.setMaximumPoolSize(conexiones);
+                // minimumIdle sin fijar (-1) equivale a maximumPoolSize
+                if (base.getMinimumIdle() >= 0) {
+                    config.setMinimumIdle(Math.min(conexiones, base.getMinimumIdle()));
+                }
+            }
+            config.setPoolName((base.getPoolName() != null ? base.getPoolName() : "banco") + "-" + clase.getClave());
+            pools.put(clase, new HikariDataSource(config));
+        }
+        return new DataSourcePorClase(pools);
+    }
+}
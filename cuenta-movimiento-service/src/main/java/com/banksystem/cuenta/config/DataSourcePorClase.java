@@ -0,0 +1,67 @@
+package com.banksystem.cuenta.config;
+
+import com.banksystem.cuenta.limite.ClaseTrafico;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Un pool de conexiones por clase de tráfico: la conexión sale del pool de la clase fijada en
+ * el hilo ({@link ClaseTrafico#actual()}), o del de escrituras si no hay clase. Un reporte
+ * lento agota como mucho las conexiones de los reportes.
+ */
+public class DataSourcePorClase extends AbstractRoutingDataSource implements MeterBinder, Closeable {
+
+    private final Map<ClaseTrafico, HikariDataSource> pools;
+
+    public DataSourcePorClase(Map<ClaseTrafico, HikariDataSource> pools) {
+        this.pools = new EnumMap<>(pools);
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(ClaseTrafico.ESCRITURA));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ClaseTrafico.actual();
+    }
+
+    public HikariDataSource getPool(ClaseTrafico clase) {
+        return pools.get(clase);
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        pools.forEach((clase, pool) -> {
+            registrar(registry, "banco.compartimentos.conexiones.activas", clase, pool,
+                    HikariPoolMXBean::getActiveConnections, "Conexiones del pool de la clase en uso");
+            registrar(registry, "banco.compartimentos.conexiones.pendientes", clase, pool,
+                    HikariPoolMXBean::getThreadsAwaitingConnection, "Hilos esperando una conexión del pool de la clase");
+            Gauge.builder("banco.compartimentos.conexiones.maximo", pool, HikariDataSource::getMaximumPoolSize)
+                    .tag("clase", clase.getClave())
+                    .description("Tamaño del pool de conexiones de la clase")
+                    .register(registry);
+        });
+    }
+
+    private static void registrar(MeterRegistry registry, String nombre, ClaseTrafico clase, HikariDataSource pool,
+                                  ToIntFunction<HikariPoolMXBean> valor, String descripcion) {
+        Gauge.builder(nombre, pool, p -> p.getHikariPoolMXBean() != null ? valor.applyAsInt(p.getHikariPoolMXBean()) : 0)
+                .tag("clase", clase.getClave())
+                .description(descripcion)
+                .register(registry);
+    }
+}
@@ -1,13 +1,26 @@
 package com.banksystem.cuenta.controller;
 
+import com.banksystem.comun.condicional.CabecerasCondicionales;
+import com.banksystem.comun.condicional.VersionRecurso;
+import com.banksystem.cuenta.dto.ConsultaSaldosRequest;
+import com.banksystem.cuenta.dto.SaldoHistorico;
 import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.service.CuentaCalienteService;
 import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.LibroMayorService;
+import com.banksystem.cuenta.service.MovimientoService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cuentas")
@@ -15,36 +28,112 @@ import java.util.List;
 public class CuentaController {
 
     private final CuentaService cuentaService;
+    private final MovimientoService movimientoService;
+    private final CuentaCalienteService cuentaCalienteService;
+    private final LibroMayorService libroMayorService;
 
-    public CuentaController(CuentaService cuentaService) {
+    public CuentaController(CuentaService cuentaService, MovimientoService movimientoService,
+                            CuentaCalienteService cuentaCalienteService, LibroMayorService libroMayorService) {
         this.cuentaService = cuentaService;
+        this.movimientoService = movimientoService;
+        this.cuentaCalienteService = cuentaCalienteService;
+        this.libroMayorService = libroMayorService;
     }
 
     /**
      * GET /api/cuentas - Obtener todas las cuentas
      */
     @GetMapping
-    public ResponseEntity<List<Cuenta>> obtenerTodas() {
+    public ResponseEntity<List<Cuenta>> obtenerTodas(WebRequest request) {
+        String etag = CabecerasCondicionales.etag("cuentas", cuentaService.obtenerVersionTodas());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Cuenta> cuentas = cuentaService.obtenerTodas();
-        return ResponseEntity.ok(cuentas);
+        return ResponseEntity.ok().eTag(etag).body(cuentas);
     }
 
     /**
      * GET /api/cuentas/activas - Obtener cuentas activas
      */
     @GetMapping("/activas")
-    public ResponseEntity<List<Cuenta>> obtenerCuentasActivas() {
+    public ResponseEntity<List<Cuenta>> obtenerCuentasActivas(WebRequest request) {
+        String etag = CabecerasCondicionales.etag("cuentas-activas", cuentaService.obtenerVersionActivas());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Cuenta> cuentas = cuentaService.obtenerCuentasActivas();
-        return ResponseEntity.ok(cuentas);
+        return ResponseEntity.ok().eTag(etag).body(cuentas);
+    }
+
+    /**
+     * GET /api/cuentas/pagina - Listado filtrado y paginado por cursor
+     * ?estado=&tipoCuenta=&clienteId=&fechaDesde=YYYY-MM-DD&fechaHasta=YYYY-MM-DD
+     * &cursor=&tamano=50&orden=id|fechaCreacion|numeroCuenta&direccion=ASC|DESC&totalEstimado=false
+     * La página siguiente se pide con el valor "siguiente" como cursor y el mismo orden.
+     * totalEstimado sólo se informa con banco.paginacion.total-estimado=true (MySQL).
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<Map<String, Object>> obtenerPagina(
+            @RequestParam(required = false) Boolean estado,
+            @RequestParam(required = false) String tipoCuenta,
+            @RequestParam(required = false) Long clienteId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano,
+            @RequestParam(defaultValue = "id") String orden,
+            @RequestParam(defaultValue = "ASC") String direccion,
+            @RequestParam(defaultValue = "false") boolean totalEstimado) {
+        Map<String, Object> respuesta = cuentaService.filtrarCuentas(estado, tipoCuenta, clienteId,
+                fechaDesde, fechaHasta, cursor, tamano, orden, direccion);
+        Long total = totalEstimado ? cuentaService.estimarTotalCuentas() : null;
+        if (total != null) {
+            respuesta.put("totalEstimado", total);
+        }
+        return ResponseEntity.ok(respuesta);
     }
 
     /**
      * GET /api/cuentas/{id} - Obtener cuenta por ID
+     * Con If-None-Match / If-Modified-Since responde 304 consultando sólo la versión
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Cuenta> obtenerPorId(@PathVariable Long id) {
-        Cuenta cuenta = cuentaService.obtenerPorId(id);
-        return ResponseEntity.ok(cuenta);
+    public ResponseEntity<Cuenta> obtenerPorId(@PathVariable Long id, WebRequest request) {
+        VersionRecurso version = cuentaService.obtenerVersion(id);
+        if (request.checkNotModified(CabecerasCondicionales.etag("cuenta", id, version.getVersion()),
+                CabecerasCondicionales.ultimaModificacion(version.getFechaActualizacion()))) {
+            return null;
+        }
+        // Validadores leídos antes que la entidad: si cambia entre ambas lecturas el cliente
+        // recibe un ETag más viejo que el cuerpo y la próxima consulta trae datos nuevos
+        Cuenta cuenta = cuentaService.obtenerPorId(id, version.getVersion());
+        return ResponseEntity.ok()
+                .eTag(CabecerasCondicionales.etag("cuenta", id, version.getVersion()))
+                .lastModified(CabecerasCondicionales.ultimaModificacion(version.getFechaActualizacion()))
+                .body(cuenta);
+    }
+
+    /**
+     * GET /api/cuentas/{id}/saldo?fecha=... - Saldo de la cuenta en un instante
+     */
+    @GetMapping("/{id}/saldo")
+    public ResponseEntity<SaldoHistorico> obtenerSaldoEnFecha(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        SaldoHistorico saldo = movimientoService.obtenerSaldoEnFecha(id, fecha);
+        return ResponseEntity.ok(saldo);
+    }
+
+    /**
+     * POST /api/cuentas/saldos - Saldos de varias cuentas en varios instantes (una consulta por fecha, hasta 100 fechas)
+     */
+    @PostMapping("/saldos")
+    public ResponseEntity<List<SaldoHistorico>> obtenerSaldosEnFechas(
+            @Valid @RequestBody ConsultaSaldosRequest consulta) {
+        List<SaldoHistorico> saldos = movimientoService.obtenerSaldosEnFechas(
+                consulta.getCuentaIds(), consulta.getFechas());
+        return ResponseEntity.ok(saldos);
     }
 
     /**
@@ -60,9 +149,15 @@ public class CuentaController {
      * GET /api/cuentas/cliente/{clienteId} - Obtener cuentas por cliente
      */
     @GetMapping("/cliente/{clienteId}")
-    public ResponseEntity<List<Cuenta>> obtenerCuentasPorCliente(@PathVariable Long clienteId) {
+    public ResponseEntity<List<Cuenta>> obtenerCuentasPorCliente(@PathVariable Long clienteId,
+                                                                 WebRequest request) {
+        String etag = CabecerasCondicionales.etag("cuentas-cliente-" + clienteId,
+                cuentaService.obtenerVersionPorCliente(clienteId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Cuenta> cuentas = cuentaService.obtenerCuentasPorCliente(clienteId);
-        return ResponseEntity.ok(cuentas);
+        return ResponseEntity.ok().eTag(etag).body(cuentas);
     }
 
     /**
@@ -76,21 +171,48 @@ public class CuentaController {
 
     /**
      * PUT /api/cuentas/{id} - Actualizar cuenta
+     * Con If-Match responde 412 si la cuenta cambió desde que se leyó ese ETag
      */
     @PutMapping("/{id}")
     public ResponseEntity<Cuenta> actualizarCuenta(@PathVariable Long id,
-                                                   @Valid @RequestBody Cuenta cuenta) {
-        Cuenta cuentaActualizada = cuentaService.actualizarCuenta(id, cuenta);
-        return ResponseEntity.ok(cuentaActualizada);
+                                                   @Valid @RequestBody Cuenta cuenta,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String siCoincide) {
+        Cuenta cuentaActualizada = cuentaService.actualizarCuenta(id, cuenta,
+                CabecerasCondicionales.versionesEsperadas(siCoincide, "cuenta", id));
+        return conVersion(id, cuentaActualizada);
     }
 
     /**
      * PATCH /api/cuentas/{id}/estado - Cambiar estado
+     * Con If-Match responde 412 si la cuenta cambió desde que se leyó ese ETag
      */
     @PatchMapping("/{id}/estado")
     public ResponseEntity<Cuenta> cambiarEstado(@PathVariable Long id,
-                                               @RequestParam Boolean estado) {
-        Cuenta cuenta = cuentaService.cambiarEstado(id, estado);
+                                               @RequestParam Boolean estado,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String siCoincide) {
+        Cuenta cuenta = cuentaService.cambiarEstado(id, estado,
+                CabecerasCondicionales.versionesEsperadas(siCoincide, "cuenta", id));
+        return conVersion(id, cuenta);
+    }
+
+    /**
+     * PUT /api/cuentas/{id}/ranuras?cantidad=N - Modo cuenta caliente: repartir depósitos
+     * en N sub-saldos (0 lo desactiva)
+     */
+    @PutMapping("/{id}/ranuras")
+    public ResponseEntity<Cuenta> configurarRanuras(@PathVariable Long id,
+                                                    @RequestParam int cantidad) {
+        Cuenta cuenta = cuentaCalienteService.configurar(id, cantidad);
+        return ResponseEntity.ok(cuenta);
+    }
+
+    /**
+     * PUT /api/cuentas/{id}/libro - Modo libro mayor: los movimientos sólo se insertan, sin
+     * actualizar la cuenta (no se desactiva)
+     */
+    @PutMapping("/{id}/libro")
+    public ResponseEntity<Cuenta> activarLibroMayor(@PathVariable Long id) {
+        Cuenta cuenta = libroMayorService.activar(id);
         return ResponseEntity.ok(cuenta);
     }
 
@@ -102,4 +224,15 @@ public class CuentaController {
         cuentaService.eliminarCuenta(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Respuesta de una modificación con el ETag nuevo, para encadenar el próximo If-Match
+     */
+    private ResponseEntity<Cuenta> conVersion(Long id, Cuenta cuenta) {
+        VersionRecurso version = cuentaService.obtenerVersion(id);
+        return ResponseEntity.ok()
+                .eTag(CabecerasCondicionales.etag("cuenta", id, version.getVersion()))
+                .lastModified(CabecerasCondicionales.ultimaModificacion(version.getFechaActualizacion()))
+                .body(cuenta);
+    }
 }
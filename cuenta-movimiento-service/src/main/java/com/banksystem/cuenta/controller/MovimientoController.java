@@ -1,7 +1,11 @@
 package com.banksystem.cuenta.controller;
 
+import com.banksystem.cuenta.dto.FiltroMovimientos;
 import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.service.ArchivoMovimientosService;
+import com.banksystem.cuenta.service.BusquedaMovimientosService;
 import com.banksystem.cuenta.service.MovimientoService;
+import com.banksystem.cuenta.trabajo.Trabajo;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -9,8 +13,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/movimientos")
@@ -18,9 +24,15 @@ import java.util.List;
 public class MovimientoController {
 
     private final MovimientoService movimientoService;
+    private final ArchivoMovimientosService archivoMovimientosService;
+    private final BusquedaMovimientosService busquedaMovimientosService;
 
-    public MovimientoController(MovimientoService movimientoService) {
+    public MovimientoController(MovimientoService movimientoService,
+                                ArchivoMovimientosService archivoMovimientosService,
+                                BusquedaMovimientosService busquedaMovimientosService) {
         this.movimientoService = movimientoService;
+        this.archivoMovimientosService = archivoMovimientosService;
+        this.busquedaMovimientosService = busquedaMovimientosService;
     }
 
     /**
@@ -53,6 +65,32 @@ public class MovimientoController {
         return ResponseEntity.ok(movimientos);
     }
 
+    /**
+     * GET /api/movimientos/busqueda - Búsqueda por varios criterios, paginada por cursor
+     * ?cuentaIds=1,2&tipoMovimiento=&valorMinimo=&valorMaximo=&fechaDesde=&fechaHasta=&descripcion=
+     * &cursor=&tamano=50
+     * Responde 400 si ningún índice conduce la combinación de criterios
+     */
+    @GetMapping("/busqueda")
+    public ResponseEntity<Map<String, Object>> buscar(
+            @ModelAttribute FiltroMovimientos filtro,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return ResponseEntity.ok(busquedaMovimientosService.buscar(filtro, cursor, tamano));
+    }
+
+    /**
+     * POST /api/movimientos/busqueda/trabajos - Búsqueda completa en segundo plano, con los
+     * mismos criterios y sin exigir índice; el resultado se descarga desde /api/reportes/trabajos
+     */
+    @PostMapping("/busqueda/trabajos")
+    public ResponseEntity<Map<String, Object>> crearTrabajoBusqueda(@ModelAttribute FiltroMovimientos filtro) {
+        Trabajo trabajo = busquedaMovimientosService.crearBusqueda(filtro);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reportes/trabajos/" + trabajo.getId()))
+                .body(trabajo.aMapa());
+    }
+
     /**
      * GET /api/movimientos/{id} - Obtener movimiento por ID
      */
@@ -66,13 +104,15 @@ public class MovimientoController {
      * POST /api/movimientos/registrar - Registrar nuevo movimiento (depósito o retiro)
      * F2: Registro de movimientos
      * F3: Validación de saldo
+     * moneda (opcional): moneda del valor si difiere de la de la cuenta
      */
     @PostMapping("/registrar")
     public ResponseEntity<Movimiento> registrarMovimiento(
             @RequestParam Long cuentaId,
             @RequestParam String tipoMovimiento,
-            @RequestParam BigDecimal valor) {
-        Movimiento movimiento = movimientoService.registrarMovimiento(cuentaId, tipoMovimiento, valor);
+            @RequestParam BigDecimal valor,
+            @RequestParam(required = false) String moneda) {
+        Movimiento movimiento = movimientoService.registrarMovimiento(cuentaId, tipoMovimiento, valor, moneda);
         return ResponseEntity.status(HttpStatus.CREATED).body(movimiento);
     }
 
@@ -96,4 +136,12 @@ public class MovimientoController {
         List<Movimiento> movimientos = movimientoService.obtenerMovimientosPorTipo(cuentaId, tipoMovimiento);
         return ResponseEntity.ok(movimientos);
     }
+
+    /**
+     * POST /api/movimientos/archivo - Archivar ahora los movimientos anteriores al horizonte
+     */
+    @PostMapping("/archivo")
+    public ResponseEntity<Map<String, Object>> archivarMovimientos() {
+        return ResponseEntity.ok(archivoMovimientosService.archivar());
+    }
 }
@@ -1,88 +1,207 @@
 package com.banksystem.cuenta.controller;
 
-import com.banksystem.cuenta.entity.Cuenta;
-import com.banksystem.cuenta.entity.Movimiento;
-import com.banksystem.cuenta.service.CuentaService;
-import com.banksystem.cuenta.service.MovimientoService;
+import com.banksystem.cuenta.service.AgregadoService;
+import com.banksystem.cuenta.service.CierreMesService;
+import com.banksystem.cuenta.service.EstadoCuentaCerradoService;
+import com.banksystem.cuenta.service.InteresService;
+import com.banksystem.cuenta.service.ReporteService;
+import com.banksystem.cuenta.service.TrabajoReporteService;
+import com.banksystem.cuenta.service.VerificacionSaldosService;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.time.YearMonth;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/reportes")
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class ReporteController {
 
-    private final CuentaService cuentaService;
-    private final MovimientoService movimientoService;
+    private final ReporteService reporteService;
+    private final TrabajoReporteService trabajoReporteService;
+    private final AgregadoService agregadoService;
+    private final CierreMesService cierreMesService;
+    private final EstadoCuentaCerradoService estadoCuentaCerradoService;
+    private final InteresService interesService;
+    private final VerificacionSaldosService verificacionSaldosService;
 
-    public ReporteController(CuentaService cuentaService, MovimientoService movimientoService) {
-        this.cuentaService = cuentaService;
-        this.movimientoService = movimientoService;
+    public ReporteController(ReporteService reporteService, TrabajoReporteService trabajoReporteService,
+                             AgregadoService agregadoService, CierreMesService cierreMesService,
+                             EstadoCuentaCerradoService estadoCuentaCerradoService, InteresService interesService,
+                             VerificacionSaldosService verificacionSaldosService) {
+        this.reporteService = reporteService;
+        this.trabajoReporteService = trabajoReporteService;
+        this.agregadoService = agregadoService;
+        this.cierreMesService = cierreMesService;
+        this.estadoCuentaCerradoService = estadoCuentaCerradoService;
+        this.interesService = interesService;
+        this.verificacionSaldosService = verificacionSaldosService;
     }
 
     /**
      * GET /api/reportes/estado-cuenta - Reporte de estado de cuenta
      * F4: Reportes - Estado de cuenta por rango de fechas y cliente
+     * Los períodos cerrados se sirven ya serializados y comprimidos desde la cache de estados,
+     * sin fecha del reporte ni tipo, estado y saldo actual de las cuentas
      */
     @GetMapping("/estado-cuenta")
-    public ResponseEntity<Map<String, Object>> obtenerEstadoCuenta(
+    public ResponseEntity<?> obtenerEstadoCuenta(
             @RequestParam Long clienteId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String acepta,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion)
+            throws IOException {
+        EstadoCuentaCerradoService.Formato formato = estadoCuentaCerradoService.esCerrado(fechaFin)
+                ? estadoCuentaCerradoService.negociar(acepta)
+                : null;
+        if (formato == null) {
+            Map<String, Object> reporte = reporteService.generarEstadoCuenta(clienteId, fechaInicio, fechaFin);
+            return ResponseEntity.ok(reporte);
+        }
+        byte[] comprimido = estadoCuentaCerradoService.obtenerComprimido(clienteId, fechaInicio, fechaFin, formato);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(formato.getTipo())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (aceptaCodificacion != null && aceptaCodificacion.contains("gzip")) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(comprimido.length)
+                    .body(new ByteArrayResource(comprimido));
+        }
+        return respuesta.body(new InputStreamResource(new GZIPInputStream(new ByteArrayInputStream(comprimido))));
+    }
 
-        // Obtener cuentas del cliente
-        List<Cuenta> cuentas = cuentaService.obtenerCuentasPorCliente(clienteId);
+    /**
+     * POST /api/reportes/estado-cuenta/trabajos - Generar estado de cuenta en segundo plano
+     * Para rangos largos: responde 202 con el trabajo y su URL de consulta
+     */
+    @PostMapping("/estado-cuenta/trabajos")
+    public ResponseEntity<Map<String, Object>> crearTrabajoEstadoCuenta(
+            @RequestParam Long clienteId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
+        Trabajo trabajo = trabajoReporteService.crearEstadoCuenta(clienteId, fechaInicio, fechaFin);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reportes/trabajos/" + trabajo.getId()))
+                .body(trabajo.aMapa());
+    }
 
-        // Construir reporte
-        Map<String, Object> reporte = new HashMap<>();
-        reporte.put("clienteId", clienteId);
-        reporte.put("fechaInicio", fechaInicio);
-        reporte.put("fechaFin", fechaFin);
-        reporte.put("fechaReporte", LocalDateTime.now());
+    /**
+     * POST /api/reportes/cierre-mes - Generar los estados de cuenta del mes para todos los clientes
+     * Se consulta como cualquier trabajo; el detalle incluye clientes/segundo y ETA
+     */
+    @PostMapping("/cierre-mes")
+    public ResponseEntity<Map<String, Object>> iniciarCierreMes(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth periodo) {
+        Trabajo trabajo = cierreMesService.iniciar(periodo);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reportes/trabajos/" + trabajo.getId()))
+                .body(trabajo.aMapa());
+    }
 
-        List<Map<String, Object>> detallesCuentas = new ArrayList<>();
+    /**
+     * POST /api/reportes/intereses - Devengar los intereses de un día cerrado en las cuentas de ahorro
+     * Repetir un día sólo abona las cuentas que faltaron; el detalle incluye cuentas/segundo
+     */
+    @PostMapping("/intereses")
+    public ResponseEntity<Map<String, Object>> iniciarDevengoIntereses(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        Trabajo trabajo = interesService.iniciar(fecha);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reportes/trabajos/" + trabajo.getId()))
+                .body(trabajo.aMapa());
+    }
 
-        // Convertir fechas a LocalDateTime
-        LocalDateTime inicioDateTime = fechaInicio.atStartOfDay();
-        LocalDateTime finDateTime = fechaFin.atTime(LocalTime.MAX);
+    /**
+     * POST /api/reportes/verificacion-saldos - Verificar la cadena de saldos de todas las cuentas
+     * El informe de diferencias se descarga como resultado; con reparar=true también se corrigen
+     */
+    @PostMapping("/verificacion-saldos")
+    public ResponseEntity<Map<String, Object>> iniciarVerificacionSaldos(
+            @RequestParam(defaultValue = "false") boolean reparar) {
+        Trabajo trabajo = verificacionSaldosService.iniciar(reparar);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reportes/trabajos/" + trabajo.getId()))
+                .body(trabajo.aMapa());
+    }
 
-        for (Cuenta cuenta : cuentas) {
-            Map<String, Object> detalleCuenta = new HashMap<>();
-            detalleCuenta.put("numeroCuenta", cuenta.getNumeroCuenta());
-            detalleCuenta.put("tipoCuenta", cuenta.getTipoCuenta());
-            detalleCuenta.put("saldoInicial", cuenta.getSaldoInicial());
-            detalleCuenta.put("saldoActual", cuenta.getSaldoDisponible());
-            detalleCuenta.put("estado", cuenta.getEstado());
+    /**
+     * GET /api/reportes/trabajos/{id} - Estado y avance de un trabajo
+     */
+    @GetMapping("/trabajos/{id}")
+    public ResponseEntity<Map<String, Object>> obtenerTrabajo(@PathVariable String id) {
+        return ResponseEntity.ok(trabajoReporteService.obtener(id).aMapa());
+    }
 
-            // Obtener movimientos del período
-            List<Movimiento> movimientos = movimientoService.obtenerMovimientosPorFechas(
-                    cuenta.getId(), inicioDateTime, finDateTime);
+    /**
+     * GET /api/reportes/trabajos/{id}/resultado - Descargar el reporte generado
+     * Se envía comprimido tal como está en disco si el cliente acepta gzip
+     */
+    @GetMapping("/trabajos/{id}/resultado")
+    public ResponseEntity<Resource> descargarResultado(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion)
+            throws IOException {
+        Path archivo = trabajoReporteService.obtenerResultado(id);
+        String nombre = trabajoReporteService.obtener(id).getTipo().toLowerCase().replace('_', '-');
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + nombre + "-" + id + ".json\"");
+        if (aceptaCodificacion != null && aceptaCodificacion.contains("gzip")) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(Files.size(archivo))
+                    .body(new FileSystemResource(archivo));
+        }
+        return respuesta.body(new InputStreamResource(new GZIPInputStream(Files.newInputStream(archivo))));
+    }
 
-            List<Map<String, Object>> detallesMovimientos = new ArrayList<>();
-            for (Movimiento mov : movimientos) {
-                Map<String, Object> detalleMovimiento = new HashMap<>();
-                detalleMovimiento.put("fecha", mov.getFecha());
-                detalleMovimiento.put("tipo", mov.getTipoMovimiento());
-                detalleMovimiento.put("valor", mov.getValor());
-                detalleMovimiento.put("saldo", mov.getSaldo());
-                detalleMovimiento.put("descripcion", mov.getDescripcion());
-                detallesMovimientos.add(detalleMovimiento);
-            }
+    /**
+     * DELETE /api/reportes/trabajos/{id} - Cancelar un trabajo en cola o en ejecución
+     */
+    @DeleteMapping("/trabajos/{id}")
+    public ResponseEntity<Map<String, Object>> cancelarTrabajo(@PathVariable String id) {
+        return ResponseEntity.ok(trabajoReporteService.cancelar(id).aMapa());
+    }
 
-            detalleCuenta.put("movimientos", detallesMovimientos);
-            detallesCuentas.add(detalleCuenta);
-        }
+    /**
+     * GET /api/reportes/agregados - Totales de depósitos y retiros por período
+     * granularidad: DIA | MES | ANIO, agrupacion: TOTAL | CUENTA | TIPO_CUENTA
+     */
+    @GetMapping("/agregados")
+    public ResponseEntity<Map<String, Object>> obtenerAgregados(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(defaultValue = "DIA") String granularidad,
+            @RequestParam(defaultValue = "TOTAL") String agrupacion,
+            @RequestParam(required = false) Long cuentaId,
+            @RequestParam(required = false) String tipoCuenta) {
+        return ResponseEntity.ok(agregadoService.consultar(fechaInicio, fechaFin, granularidad,
+                agrupacion, cuentaId, tipoCuenta));
+    }
 
-        reporte.put("cuentas", detallesCuentas);
-        return ResponseEntity.ok(reporte);
+    /**
+     * POST /api/reportes/agregados/reconstruir - Recalcular agregados desde los movimientos
+     */
+    @PostMapping("/agregados/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirAgregados(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
+        return ResponseEntity.ok(agregadoService.reconstruir(fechaInicio, fechaFin));
     }
 }
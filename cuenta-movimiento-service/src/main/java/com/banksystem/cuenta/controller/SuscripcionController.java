@@ -0,0 +1,29 @@
+package com.banksystem.cuenta.controller;
+
+import com.banksystem.cuenta.notificacion.DifusorMovimientos;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/suscripciones")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class SuscripcionController {
+
+    private final DifusorMovimientos difusorMovimientos;
+
+    public SuscripcionController(DifusorMovimientos difusorMovimientos) {
+        this.difusorMovimientos = difusorMovimientos;
+    }
+
+    /**
+     * GET /api/suscripciones?cuentaIds=1,2 - Flujo SSE con los movimientos confirmados de las
+     * cuentas y su saldo disponible, en lugar de consultar periódicamente
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribir(@RequestParam List<Long> cuentaIds) {
+        return difusorMovimientos.suscribir(cuentaIds);
+    }
+}
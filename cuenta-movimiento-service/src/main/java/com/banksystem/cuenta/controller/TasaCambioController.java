@@ -0,0 +1,72 @@
+package com.banksystem.cuenta.controller;
+
+import com.banksystem.cuenta.cambio.Conversion;
+import com.banksystem.cuenta.cambio.TablaTasas;
+import com.banksystem.cuenta.cambio.TasasCambio;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/tasas-cambio")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class TasaCambioController {
+
+    private final TasasCambio tasasCambio;
+
+    public TasaCambioController(TasasCambio tasasCambio) {
+        this.tasasCambio = tasasCambio;
+    }
+
+    /**
+     * GET /api/tasas-cambio - Tabla de tasas vigente (unidades de cada moneda por unidad base)
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> obtenerTabla() {
+        return ResponseEntity.ok(aMapa(tasasCambio.getTabla()));
+    }
+
+    /**
+     * PUT /api/tasas-cambio/{moneda} - Publicar la tasa de una moneda
+     */
+    @PutMapping("/{moneda}")
+    public ResponseEntity<Map<String, Object>> actualizar(@PathVariable String moneda,
+                                                          @RequestParam BigDecimal unidadesPorBase) {
+        return ResponseEntity.ok(aMapa(tasasCambio.actualizar(Map.of(moneda, unidadesPorBase))));
+    }
+
+    /**
+     * POST /api/tasas-cambio/carga - Releer ya la fuente local de tasas
+     */
+    @PostMapping("/carga")
+    public ResponseEntity<Map<String, Object>> cargar() {
+        return ResponseEntity.ok(tasasCambio.cargarArchivo());
+    }
+
+    /**
+     * GET /api/tasas-cambio/conversion - Cotizar un importe con la tabla vigente
+     */
+    @GetMapping("/conversion")
+    public ResponseEntity<Conversion> convertir(@RequestParam BigDecimal valor,
+                                                @RequestParam String origen,
+                                                @RequestParam String destino) {
+        Conversion conversion = tasasCambio.convertir(valor, origen, destino);
+        if (conversion == null) {
+            String moneda = TasasCambio.validarMoneda(origen);
+            conversion = new Conversion(moneda, valor, moneda, valor, BigDecimal.ONE);
+        }
+        return ResponseEntity.ok(conversion);
+    }
+
+    private static Map<String, Object> aMapa(TablaTasas tabla) {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("monedaBase", tabla.getMonedaBase());
+        resultado.put("version", tabla.getVersion());
+        resultado.put("tasas", new TreeMap<>(tabla.getTasas()));
+        return resultado;
+    }
+}
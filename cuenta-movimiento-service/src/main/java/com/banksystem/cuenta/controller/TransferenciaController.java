@@ -0,0 +1,41 @@
+package com.banksystem.cuenta.controller;
+
+import com.banksystem.cuenta.dto.TransferenciaRequest;
+import com.banksystem.cuenta.service.TransferenciaService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/transferencias")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class TransferenciaController {
+
+    private final TransferenciaService transferenciaService;
+
+    public TransferenciaController(TransferenciaService transferenciaService) {
+        this.transferenciaService = transferenciaService;
+    }
+
+    /**
+     * POST /api/transferencias - Transferir entre cuentas en una sola transacción
+     * F3: Validación de saldo en la cuenta de origen
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> transferir(@Valid @RequestBody TransferenciaRequest request) {
+        Map<String, Object> transferencia = transferenciaService.transferir(
+                request.getCuentaOrigenId(), request.getCuentaDestinoId(), request.getValor());
+        return ResponseEntity.status(HttpStatus.CREATED).body(transferencia);
+    }
+
+    /**
+     * GET /api/transferencias/{id} - Movimientos enlazados de una transferencia
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> obtener(@PathVariable String id) {
+        return ResponseEntity.ok(transferenciaService.obtener(id));
+    }
+}
@@ -0,0 +1,35 @@
+package com.banksystem.cuenta.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consulta en lote de saldos: cada cuenta se evalúa en cada una de las fechas
+ */
+public class ConsultaSaldosRequest {
+
+    @NotEmpty(message = "Debe indicar al menos una cuenta")
+    private List<@NotNull Long> cuentaIds;
+
+    @NotEmpty(message = "Debe indicar al menos una fecha")
+    private List<@NotNull LocalDateTime> fechas;
+
+    public List<Long> getCuentaIds() {
+        return cuentaIds;
+    }
+
+    public void setCuentaIds(List<Long> cuentaIds) {
+        this.cuentaIds = cuentaIds;
+    }
+
+    public List<LocalDateTime> getFechas() {
+        return fechas;
+    }
+
+    public void setFechas(List<LocalDateTime> fechas) {
+        this.fechas = fechas;
+    }
+}
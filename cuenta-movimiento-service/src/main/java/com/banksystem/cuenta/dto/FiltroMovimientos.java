@@ -0,0 +1,122 @@
+package com.banksystem.cuenta.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Criterios de búsqueda de movimientos; los nulos no filtran.
+ * Se enlaza desde los parámetros de la petición (?cuentaIds=1,2&tipoMovimiento=...)
+ */
+public class FiltroMovimientos {
+
+    private List<Long> cuentaIds;
+    private String tipoMovimiento;
+    private BigDecimal valorMinimo;
+    private BigDecimal valorMaximo;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime fechaDesde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime fechaHasta;
+
+    private String descripcion;
+
+    public boolean tieneCuentas() {
+        return cuentaIds != null && !cuentaIds.isEmpty();
+    }
+
+    public boolean tieneDescripcion() {
+        return descripcion != null && !descripcion.isBlank();
+    }
+
+    /**
+     * Criterios informados, para mostrarlos como parámetros de un trabajo
+     */
+    public Map<String, Object> aMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        if (tieneCuentas()) {
+            mapa.put("cuentaIds", cuentaIds);
+        }
+        if (tipoMovimiento != null) {
+            mapa.put("tipoMovimiento", tipoMovimiento);
+        }
+        if (valorMinimo != null) {
+            mapa.put("valorMinimo", valorMinimo);
+        }
+        if (valorMaximo != null) {
+            mapa.put("valorMaximo", valorMaximo);
+        }
+        if (fechaDesde != null) {
+            mapa.put("fechaDesde", fechaDesde);
+        }
+        if (fechaHasta != null) {
+            mapa.put("fechaHasta", fechaHasta);
+        }
+        if (tieneDescripcion()) {
+            mapa.put("descripcion", descripcion);
+        }
+        return mapa;
+    }
+
+    public List<Long> getCuentaIds() {
+        return cuentaIds;
+    }
+
+    public void setCuentaIds(List<Long> cuentaIds) {
+        this.cuentaIds = cuentaIds;
+    }
+
+    public String getTipoMovimiento() {
+        return tipoMovimiento;
+    }
+
+    public void setTipoMovimiento(String tipoMovimiento) {
+        this.tipoMovimiento = tipoMovimiento;
+    }
+
+    public BigDecimal getValorMinimo() {
+        return valorMinimo;
+    }
+
+    public void setValorMinimo(BigDecimal valorMinimo) {
+        this.valorMinimo = valorMinimo;
+    }
+
+    public BigDecimal getValorMaximo() {
+        return valorMaximo;
+    }
+
+    public void setValorMaximo(BigDecimal valorMaximo) {
+        this.valorMaximo = valorMaximo;
+    }
+
+    public LocalDateTime getFechaDesde() {
+        return fechaDesde;
+    }
+
+    public void setFechaDesde(LocalDateTime fechaDesde) {
+        this.fechaDesde = fechaDesde;
+    }
+
+    public LocalDateTime getFechaHasta() {
+        return fechaHasta;
+    }
+
+    public void setFechaHasta(LocalDateTime fechaHasta) {
+        this.fechaHasta = fechaHasta;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public void setDescripcion(String descripcion) {
+        this.descripcion = descripcion;
+    }
+}
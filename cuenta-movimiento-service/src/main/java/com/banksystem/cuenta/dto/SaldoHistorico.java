@@ -0,0 +1,50 @@
+package com.banksystem.cuenta.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Saldo de una cuenta en un instante dado
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SaldoHistorico {
+
+    private Long cuentaId;
+    private LocalDateTime fecha;
+    private BigDecimal saldo;
+
+    public SaldoHistorico() {
+    }
+
+    public SaldoHistorico(Long cuentaId, LocalDateTime fecha, BigDecimal saldo) {
+        this.cuentaId = cuentaId;
+        this.fecha = fecha;
+        this.saldo = saldo;
+    }
+
+    public Long getCuentaId() {
+        return cuentaId;
+    }
+
+    public void setCuentaId(Long cuentaId) {
+        this.cuentaId = cuentaId;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public void setSaldo(BigDecimal saldo) {
+        this.saldo = saldo;
+    }
+}
@@ -0,0 +1,46 @@
+package com.banksystem.cuenta.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Transferencia entre dos cuentas: débito en origen y crédito en destino
+ */
+public class TransferenciaRequest {
+
+    @NotNull(message = "La cuenta de origen es requerida")
+    private Long cuentaOrigenId;
+
+    @NotNull(message = "La cuenta de destino es requerida")
+    private Long cuentaDestinoId;
+
+    @NotNull(message = "El valor es requerido")
+    @DecimalMin(value = "0.01", message = "El valor debe ser mayor a cero")
+    private BigDecimal valor;
+
+    public Long getCuentaOrigenId() {
+        return cuentaOrigenId;
+    }
+
+    public void setCuentaOrigenId(Long cuentaOrigenId) {
+        this.cuentaOrigenId = cuentaOrigenId;
+    }
+
+    public Long getCuentaDestinoId() {
+        return cuentaDestinoId;
+    }
+
+    public void setCuentaDestinoId(Long cuentaDestinoId) {
+        this.cuentaDestinoId = cuentaDestinoId;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public void setValor(BigDecimal valor) {
+        this.valor = valor;
+    }
+}
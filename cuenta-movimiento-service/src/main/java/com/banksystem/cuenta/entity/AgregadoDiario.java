@@ -0,0 +1,139 @@
+package com.banksystem.cuenta.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totales pre-agregados de movimientos por cuenta, día y tipo de movimiento.
+ * Se actualizan en la misma transacción que registra el movimiento. Los importes están en la
+ * moneda de la cuenta, que se copia en la fila para que las sumas entre cuentas no la mezclen.
+ */
+@Entity
+@Table(name = "agregado_diario",
+        uniqueConstraints = @UniqueConstraint(name = "uk_agregado_cuenta_fecha_tipo",
+                columnNames = {"cuenta_id", "fecha", "tipo_movimiento"}),
+        indexes = @Index(name = "idx_agregado_fecha_tipo_cuenta", columnList = "fecha, tipo_cuenta"))
+public class AgregadoDiario implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cuenta_id", nullable = false)
+    private Long cuentaId;
+
+    @Column(name = "tipo_cuenta", nullable = false, length = 50)
+    private String tipoCuenta;
+
+    @ColumnDefault("'" + Cuenta.MONEDA_POR_DEFECTO + "'")
+    @Column(nullable = false, length = 3)
+    private String moneda;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "tipo_movimiento", nullable = false, length = 50)
+    private String tipoMovimiento;
+
+    @Column(nullable = false)
+    private Long cantidad;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal total;
+
+    // Constructores
+    public AgregadoDiario() {
+    }
+
+    public AgregadoDiario(Long cuentaId, String tipoCuenta, String moneda, LocalDate fecha, String tipoMovimiento,
+                          Long cantidad, BigDecimal total) {
+        this.cuentaId = cuentaId;
+        this.tipoCuenta = tipoCuenta;
+        this.moneda = moneda;
+        this.fecha = fecha;
+        this.tipoMovimiento = tipoMovimiento;
+        this.cantidad = cantidad;
+        this.total = total;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCuentaId() {
+        return cuentaId;
+    }
+
+    public void setCuentaId(Long cuentaId) {
+        this.cuentaId = cuentaId;
+    }
+
+    public String getTipoCuenta() {
+        return tipoCuenta;
+    }
+
+    public void setTipoCuenta(String tipoCuenta) {
+        this.tipoCuenta = tipoCuenta;
+    }
+
+    public String getMoneda() {
+        return moneda;
+    }
+
+    public void setMoneda(String moneda) {
+        this.moneda = moneda;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public String getTipoMovimiento() {
+        return tipoMovimiento;
+    }
+
+    public void setTipoMovimiento(String tipoMovimiento) {
+        this.tipoMovimiento = tipoMovimiento;
+    }
+
+    public Long getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Long cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    @Override
+    public String toString() {
+        return "AgregadoDiario{" +
+                "cuentaId=" + cuentaId +
+                ", tipoCuenta='" + tipoCuenta + '\'' +
+                ", moneda='" + moneda + '\'' +
+                ", fecha=" + fecha +
+                ", tipoMovimiento='" + tipoMovimiento + '\'' +
+                ", cantidad=" + cantidad +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+package com.banksystem.cuenta.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totales pre-agregados por tipo de cuenta, moneda, día y tipo de movimiento, para que los
+ * reportes TOTAL y TIPO_CUENTA lean unas pocas filas por día en lugar de una por cuenta.
+ * Cada clave se reparte en {@link #RANURAS} filas según la cuenta: todos los movimientos de
+ * un tipo de cuenta no compiten por el mismo bloqueo. Las consultas suman las ranuras.
+ */
+@Entity
+@Table(name = "agregado_tipo_cuenta_diario",
+        uniqueConstraints = @UniqueConstraint(name = "uk_agregado_tipo_cuenta",
+                columnNames = {"fecha", "tipo_cuenta", "moneda", "tipo_movimiento", "ranura"}))
+public class AgregadoTipoCuentaDiario implements Serializable {
+
+    public static final int RANURAS = 16;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tipo_cuenta", nullable = false, length = 50)
+    private String tipoCuenta;
+
+    @Column(nullable = false, length = 3)
+    private String moneda;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "tipo_movimiento", nullable = false, length = 50)
+    private String tipoMovimiento;
+
+    @Column(nullable = false)
+    private Integer ranura;
+
+    @Column(nullable = false)
+    private Long cantidad;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal total;
+
+    // Constructores
+    public AgregadoTipoCuentaDiario() {
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTipoCuenta() {
+        return tipoCuenta;
+    }
+
+    public void setTipoCuenta(String tipoCuenta) {
+        this.tipoCuenta = tipoCuenta;
+    }
+
+    public String getMoneda() {
+        return moneda;
+    }
+
+    public void setMoneda(String moneda) {
+        this.moneda = moneda;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public String getTipoMovimiento() {
+        return tipoMovimiento;
+    }
+
+    public void setTipoMovimiento(String tipoMovimiento) {
+        this.tipoMovimiento = tipoMovimiento;
+    }
+
+    public Integer getRanura() {
+        return ranura;
+    }
+
+    public void setRanura(Integer ranura) {
+        this.ranura = ranura;
+    }
+
+    public Long getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Long cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+}
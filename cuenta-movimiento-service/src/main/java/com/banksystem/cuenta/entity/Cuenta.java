@@ -1,15 +1,28 @@
 package com.banksystem.cuenta.entity;
 
+import com.banksystem.cuenta.cache.InvalidacionCuentaListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Formula;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cuenta")
+@EntityListeners(InvalidacionCuentaListener.class)
+@Table(name = "cuenta", indexes = {
+        @Index(name = "idx_cuenta_estado_tipo_fecha", columnList = "estado, tipo_cuenta, fecha_creacion"),
+        @Index(name = "idx_cuenta_cliente_estado_fecha", columnList = "cliente_id, estado, fecha_creacion"),
+        @Index(name = "idx_cuenta_fecha_creacion", columnList = "fecha_creacion")
+})
 public class Cuenta implements Serializable {
 
+    public static final String MONEDA_POR_DEFECTO = "USD";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -39,12 +52,75 @@ public class Cuenta implements Serializable {
     @Column(name = "cliente_id", nullable = false)
     private Long clienteId;
 
+    /**
+     * Moneda (ISO 4217) de todos los importes de la cuenta y de sus movimientos. No cambia
+     * después de creada; las filas anteriores a la columna quedan en la moneda por defecto
+     */
+    @Pattern(regexp = "[A-Z]{3}", message = "La moneda debe ser un código ISO 4217 de tres letras")
+    @ColumnDefault("'" + MONEDA_POR_DEFECTO + "'")
+    @Column(nullable = false, length = 3, updatable = false)
+    private String moneda;
+
     @Column(name = "fecha_creacion", nullable = false, updatable = false)
     private LocalDateTime fechaCreacion;
 
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false)
+    private Long version;
+
+    /**
+     * Cuenta caliente: cantidad de sub-saldos entre los que se reparten los depósitos.
+     * Null si nunca fue caliente, 0 si se desactivó (los sub-saldos quedan en cero)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "ranuras_saldo")
+    private Integer ranurasSaldo;
+
+    /**
+     * Último movimiento con saldo definitivo; los depósitos posteriores repartidos en
+     * sub-saldos llevan un saldo provisional hasta la siguiente consolidación
+     */
+    @JsonIgnore
+    @Column(name = "movimiento_conciliado_id")
+    private Long movimientoConciliadoId;
+
+    /**
+     * Depósitos acumulados en sub-saldos y aún no consolidados en saldoDisponible
+     */
+    @JsonIgnore
+    @Formula("(SELECT COALESCE(SUM(s.saldo), 0) FROM cuenta_sub_saldo s WHERE s.cuenta_id = id)")
+    private BigDecimal saldoRanuras;
+
+    /**
+     * Modo libro mayor: secuencia del último movimiento ya llevado a saldoDisponible.
+     * Null si la cuenta no está en modo libro
+     */
+    @JsonIgnore
+    @Column(name = "secuencia_compactada")
+    private Long secuenciaCompactada;
+
+    /**
+     * Saldo del último movimiento del libro aún no compactado (null si no hay): en modo
+     * libro los movimientos no actualizan esta fila y el saldo vigente sale del libro
+     */
+    @JsonIgnore
+    @Formula("(SELECT m.saldo FROM movimiento m WHERE m.cuenta_id = id AND m.secuencia = "
+            + "(SELECT MAX(l.secuencia) FROM movimiento l WHERE l.cuenta_id = id AND l.secuencia > secuencia_compactada))")
+    private BigDecimal saldoLibro;
+
+    /**
+     * Versión del ETag (fila, ranuras y libro) leída junto con la entidad; sólo la completa
+     * la carga de la cache local, para comparar su vigencia con la versión de la petición
+     */
+    @JsonIgnore
+    @Transient
+    private Long versionLeida;
+
     @PrePersist
     protected void onCreate() {
         this.fechaCreacion = LocalDateTime.now();
@@ -52,6 +128,9 @@ public class Cuenta implements Serializable {
         if (this.saldoDisponible == null) {
             this.saldoDisponible = this.saldoInicial;
         }
+        if (this.moneda == null) {
+            this.moneda = MONEDA_POR_DEFECTO;
+        }
     }
 
     @PreUpdate
@@ -106,8 +185,17 @@ public class Cuenta implements Serializable {
         this.saldoInicial = saldoInicial;
     }
 
+    /**
+     * Saldo disponible total: saldo consolidado más los sub-saldos pendientes
+     */
     public BigDecimal getSaldoDisponible() {
-        return saldoDisponible;
+        if (saldoLibro != null) {
+            return saldoLibro;
+        }
+        if (saldoRanuras == null || saldoDisponible == null) {
+            return saldoDisponible;
+        }
+        return saldoDisponible.add(saldoRanuras);
     }
 
     public void setSaldoDisponible(BigDecimal saldoDisponible) {
@@ -130,6 +218,14 @@ public class Cuenta implements Serializable {
         this.clienteId = clienteId;
     }
 
+    public String getMoneda() {
+        return moneda;
+    }
+
+    public void setMoneda(String moneda) {
+        this.moneda = moneda;
+    }
+
     public LocalDateTime getFechaCreacion() {
         return fechaCreacion;
     }
@@ -146,6 +242,76 @@ public class Cuenta implements Serializable {
         this.fechaActualizacion = fechaActualizacion;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getVersionLeida() {
+        return versionLeida;
+    }
+
+    public void setVersionLeida(Long versionLeida) {
+        this.versionLeida = versionLeida;
+    }
+
+    public Integer getRanurasSaldo() {
+        return ranurasSaldo;
+    }
+
+    public void setRanurasSaldo(Integer ranurasSaldo) {
+        this.ranurasSaldo = ranurasSaldo;
+    }
+
+    public Long getMovimientoConciliadoId() {
+        return movimientoConciliadoId;
+    }
+
+    public void setMovimientoConciliadoId(Long movimientoConciliadoId) {
+        this.movimientoConciliadoId = movimientoConciliadoId;
+    }
+
+    public BigDecimal getSaldoRanuras() {
+        return saldoRanuras;
+    }
+
+    public void setSaldoRanuras(BigDecimal saldoRanuras) {
+        this.saldoRanuras = saldoRanuras;
+    }
+
+    public Long getSecuenciaCompactada() {
+        return secuenciaCompactada;
+    }
+
+    public void setSecuenciaCompactada(Long secuenciaCompactada) {
+        this.secuenciaCompactada = secuenciaCompactada;
+    }
+
+    public BigDecimal getSaldoLibro() {
+        return saldoLibro;
+    }
+
+    public void setSaldoLibro(BigDecimal saldoLibro) {
+        this.saldoLibro = saldoLibro;
+    }
+
+    /**
+     * Los movimientos sólo se insertan en el libro en lugar de actualizar esta fila
+     */
+    public boolean esLibroMayor() {
+        return secuenciaCompactada != null;
+    }
+
+    /**
+     * Los depósitos se reparten en sub-saldos en lugar de actualizar esta fila
+     */
+    public boolean esCaliente() {
+        return ranurasSaldo != null && ranurasSaldo > 0;
+    }
+
     @Override
     public String toString() {
         return "Cuenta{" +
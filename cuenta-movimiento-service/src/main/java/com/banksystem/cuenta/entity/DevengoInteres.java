@@ -0,0 +1,107 @@
+package com.banksystem.cuenta.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Interés abonado a una cuenta por un día de devengo. La clave única (cuenta_id, fecha)
+ * hace que repetir el devengo de un día no abone dos veces.
+ */
+@Entity
+@Table(name = "devengo_interes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_devengo_cuenta_fecha", columnNames = {"cuenta_id", "fecha"}),
+        indexes = @Index(name = "idx_devengo_fecha", columnList = "fecha"))
+public class DevengoInteres implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cuenta_id", nullable = false)
+    private Long cuentaId;
+
+    /**
+     * Día devengado (no el día del abono)
+     */
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    /**
+     * Saldo al cierre del día sobre el que se calculó el interés
+     */
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal base;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valor;
+
+    @Column(name = "movimiento_id")
+    private Long movimientoId;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    // Constructores
+    public DevengoInteres() {
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCuentaId() {
+        return cuentaId;
+    }
+
+    public void setCuentaId(Long cuentaId) {
+        this.cuentaId = cuentaId;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public BigDecimal getBase() {
+        return base;
+    }
+
+    public void setBase(BigDecimal base) {
+        this.base = base;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public void setValor(BigDecimal valor) {
+        this.valor = valor;
+    }
+
+    public Long getMovimientoId() {
+        return movimientoId;
+    }
+
+    public void setMovimientoId(Long movimientoId) {
+        this.movimientoId = movimientoId;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+}
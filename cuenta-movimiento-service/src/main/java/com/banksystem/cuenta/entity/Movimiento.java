@@ -1,5 +1,6 @@
 package com.banksystem.cuenta.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
@@ -7,7 +8,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "movimiento")
+@Table(name = "movimiento", indexes = {
+        @Index(name = "idx_movimiento_cuenta_fecha", columnList = "cuenta_id, fecha, id"),
+        @Index(name = "idx_movimiento_transferencia", columnList = "transferencia_id"),
+        @Index(name = "idx_movimiento_fecha", columnList = "fecha"),
+        @Index(name = "idx_movimiento_tipo_fecha", columnList = "tipo_movimiento, fecha, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_movimiento_cuenta_secuencia", columnNames = {"cuenta_id", "secuencia"})
+})
 public class Movimiento implements Serializable {
 
     @Id
@@ -38,6 +46,35 @@ public class Movimiento implements Serializable {
     @Column(name = "descripcion", length = 255)
     private String descripcion;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "transferencia_id", length = 36, updatable = false)
+    private String transferenciaId;
+
+    /**
+     * Posición en el libro de la cuenta (sólo en modo libro mayor). La clave única
+     * (cuenta_id, secuencia) hace que de dos movimientos escritos sobre el mismo saldo
+     * anterior confirme uno solo
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "secuencia", updatable = false)
+    private Long secuencia;
+
+    /**
+     * Conversión de moneda: el importe tal como se pidió, en su moneda, y la tasa con que se
+     * llevó a la moneda de la cuenta (valor = valorOrigen × tasaCambio). Null si no hubo
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "moneda_origen", length = 3, updatable = false)
+    private String monedaOrigen;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "valor_origen", precision = 19, scale = 2, updatable = false)
+    private BigDecimal valorOrigen;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "tasa_cambio", precision = 19, scale = 10, updatable = false)
+    private BigDecimal tasaCambio;
+
     @Column(name = "fecha_creacion", nullable = false, updatable = false)
     private LocalDateTime fechaCreacion;
 
@@ -119,6 +156,46 @@ public class Movimiento implements Serializable {
         this.descripcion = descripcion;
     }
 
+    public String getTransferenciaId() {
+        return transferenciaId;
+    }
+
+    public void setTransferenciaId(String transferenciaId) {
+        this.transferenciaId = transferenciaId;
+    }
+
+    public Long getSecuencia() {
+        return secuencia;
+    }
+
+    public void setSecuencia(Long secuencia) {
+        this.secuencia = secuencia;
+    }
+
+    public String getMonedaOrigen() {
+        return monedaOrigen;
+    }
+
+    public void setMonedaOrigen(String monedaOrigen) {
+        this.monedaOrigen = monedaOrigen;
+    }
+
+    public BigDecimal getValorOrigen() {
+        return valorOrigen;
+    }
+
+    public void setValorOrigen(BigDecimal valorOrigen) {
+        this.valorOrigen = valorOrigen;
+    }
+
+    public BigDecimal getTasaCambio() {
+        return tasaCambio;
+    }
+
+    public void setTasaCambio(BigDecimal tasaCambio) {
+        this.tasaCambio = tasaCambio;
+    }
+
     public LocalDateTime getFechaCreacion() {
         return fechaCreacion;
     }
@@ -0,0 +1,108 @@
+package com.banksystem.cuenta.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sub-saldo de una cuenta caliente: los depósitos suman sobre una ranura al azar y sólo
+ * bloquean esa fila; los retiros y la consolidación los trasladan a Cuenta.saldoDisponible.
+ * La versión crece con cada cambio y forma parte del ETag de la cuenta.
+ */
+@Entity
+@Table(name = "cuenta_sub_saldo",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sub_saldo_cuenta_ranura",
+                columnNames = {"cuenta_id", "ranura"}))
+public class SubSaldo implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cuenta_id", nullable = false)
+    private Long cuentaId;
+
+    @Column(nullable = false)
+    private Integer ranura;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal saldo;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+
+    // Constructores
+    public SubSaldo() {
+    }
+
+    public SubSaldo(Long cuentaId, Integer ranura) {
+        this.cuentaId = cuentaId;
+        this.ranura = ranura;
+        this.saldo = BigDecimal.ZERO;
+        this.version = 0L;
+        this.fechaActualizacion = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCuentaId() {
+        return cuentaId;
+    }
+
+    public void setCuentaId(Long cuentaId) {
+        this.cuentaId = cuentaId;
+    }
+
+    public Integer getRanura() {
+        return ranura;
+    }
+
+    public void setRanura(Integer ranura) {
+        this.ranura = ranura;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public void setSaldo(BigDecimal saldo) {
+        this.saldo = saldo;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(LocalDateTime fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+
+    @Override
+    public String toString() {
+        return "SubSaldo{" +
+                "cuentaId=" + cuentaId +
+                ", ranura=" + ranura +
+                ", saldo=" + saldo +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,7 @@
+package com.banksystem.cuenta.exception;
+
+public class CupoDiarioExcedidoException extends RuntimeException {
+    public CupoDiarioExcedidoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.banksystem.cuenta.exception;
+
+public class LimiteTrabajosException extends RuntimeException {
+    public LimiteTrabajosException(String message) {
+        super(message);
+    }
+
+    public LimiteTrabajosException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
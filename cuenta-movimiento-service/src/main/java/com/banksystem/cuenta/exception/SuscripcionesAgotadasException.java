@@ -0,0 +1,7 @@
+package com.banksystem.cuenta.exception;
+
+public class SuscripcionesAgotadasException extends RuntimeException {
+    public SuscripcionesAgotadasException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.banksystem.cuenta.exception;
+
+public class TasaCambioNoDisponibleException extends RuntimeException {
+    public TasaCambioNoDisponibleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.banksystem.cuenta.exception;
+
+public class TrabajoNoFinalizadoException extends RuntimeException {
+    public TrabajoNoFinalizadoException(String message) {
+        super(message);
+    }
+
+    public TrabajoNoFinalizadoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.banksystem.cuenta.exception;
+
+public class TrabajoNotFoundException extends RuntimeException {
+    public TrabajoNotFoundException(String message) {
+        super(message);
+    }
+
+    public TrabajoNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
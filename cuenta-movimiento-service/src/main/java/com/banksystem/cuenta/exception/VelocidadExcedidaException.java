@@ -0,0 +1,7 @@
+package com.banksystem.cuenta.exception;
+
+public class VelocidadExcedidaException extends RuntimeException {
+    public VelocidadExcedidaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,100 @@
+package com.banksystem.cuenta.limite;
+
+/**
+ * Clases de tráfico con compartimento propio (hilos y conexiones): una clase saturada no
+ * consume lo que necesitan las otras. La clase del hilo actual decide de qué pool de
+ * conexiones sale la conexión; un hilo sin clase (tareas programadas) usa el de escrituras.
+ */
+public enum ClaseTrafico {
+
+    /**
+     * Escrituras transaccionales: movimientos, transferencias y cambios de cuentas
+     */
+    ESCRITURA(40, 40, 1000, 0),
+
+    /**
+     * Lecturas puntuales (GET que no son reportes)
+     */
+    LECTURA(40, 40, 500, 6),
+
+    /**
+     * Reportes, búsquedas y exportaciones, incluidos los trabajos de fondo
+     */
+    REPORTE(4, 8, 2000, 3);
+
+    private static final ThreadLocal<ClaseTrafico> ACTUAL = new ThreadLocal<>();
+
+    private final int hilos;
+    private final int cola;
+    private final long esperaMs;
+    private final int conexiones;
+
+    ClaseTrafico(int hilos, int cola, long esperaMs, int conexiones) {
+        this.hilos = hilos;
+        this.cola = cola;
+        this.esperaMs = esperaMs;
+        this.conexiones = conexiones;
+    }
+
+    /**
+     * Clase del hilo actual, o null si no se fijó
+     */
+    public static ClaseTrafico actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Fijar la clase del hilo actual (null la quita)
+     */
+    public static void fijar(ClaseTrafico clase) {
+        if (clase == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(clase);
+        }
+    }
+
+    public static void limpiar() {
+        ACTUAL.remove();
+    }
+
+    /**
+     * Ejecutar la tarea con esta clase fijada en el hilo (hilos de trabajos de fondo)
+     */
+    public Runnable envolver(Runnable tarea) {
+        return () -> {
+            fijar(this);
+            try {
+                tarea.run();
+            } finally {
+                limpiar();
+            }
+        };
+    }
+
+    /**
+     * Nombre en propiedades y métricas ({@code banco.compartimentos.<clave>.*})
+     */
+    public String getClave() {
+        return name().toLowerCase();
+    }
+
+    public int getHilos() {
+        return hilos;
+    }
+
+    public int getCola() {
+        return cola;
+    }
+
+    public long getEsperaMs() {
+        return esperaMs;
+    }
+
+    /**
+     * Tamaño por omisión del pool de conexiones; 0 = el de {@code spring.datasource.hikari}
+     */
+    public int getConexiones() {
+        return conexiones;
+    }
+}
@@ -0,0 +1,107 @@
+package com.banksystem.cuenta.limite;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compartimento de ejecución de una clase de tráfico: como máximo {@code hilos} solicitudes
+ * en curso y {@code cola} esperando un permiso, cada una a lo sumo {@code esperaMs}. Lo que
+ * no cabe en la cola o agota la espera se rechaza, así una clase nunca retiene más de
+ * hilos + cola hilos de Tomcat.
+ */
+public class Compartimento {
+
+    private final ClaseTrafico clase;
+    private final int hilos;
+    private final int cola;
+    private final long esperaMs;
+    private final Semaphore permisos;
+    private final AtomicInteger esperando = new AtomicInteger();
+    private final LongAdder aceptadas = new LongAdder();
+    private final LongAdder rechazadasPorCola = new LongAdder();
+    private final LongAdder rechazadasPorEspera = new LongAdder();
+
+    public Compartimento(ClaseTrafico clase, int hilos, int cola, long esperaMs) {
+        if (hilos < 1 || cola < 0 || esperaMs < 0) {
+            throw new IllegalArgumentException("Compartimento " + clase.getClave() + " inválido: hilos="
+                    + hilos + ", cola=" + cola + ", espera-ms=" + esperaMs);
+        }
+        this.clase = clase;
+        this.hilos = hilos;
+        this.cola = cola;
+        this.esperaMs = esperaMs;
+        // Justo: los que esperan entran en orden de llegada
+        this.permisos = new Semaphore(hilos, true);
+    }
+
+    /**
+     * Tomar un permiso, esperando en la cola si hay lugar; false si se rechaza
+     */
+    public boolean entrar() throws InterruptedException {
+        if (permisos.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            aceptadas.increment();
+            return true;
+        }
+        if (esperando.incrementAndGet() > cola) {
+            esperando.decrementAndGet();
+            rechazadasPorCola.increment();
+            return false;
+        }
+        try {
+            if (permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                aceptadas.increment();
+                return true;
+            }
+            rechazadasPorEspera.increment();
+            return false;
+        } finally {
+            esperando.decrementAndGet();
+        }
+    }
+
+    public void salir() {
+        permisos.release();
+    }
+
+    public ClaseTrafico getClase() {
+        return clase;
+    }
+
+    public int getHilos() {
+        return hilos;
+    }
+
+    public int getCola() {
+        return cola;
+    }
+
+    public int getEnCurso() {
+        return hilos - permisos.availablePermits();
+    }
+
+    public int getEsperando() {
+        return esperando.get();
+    }
+
+    public long getAceptadas() {
+        return aceptadas.sum();
+    }
+
+    public long getRechazadas() {
+        return rechazadasPorCola.sum() + rechazadasPorEspera.sum();
+    }
+
+    LongAdder contadorAceptadas() {
+        return aceptadas;
+    }
+
+    LongAdder contadorRechazadasPorCola() {
+        return rechazadasPorCola;
+    }
+
+    LongAdder contadorRechazadasPorEspera() {
+        return rechazadasPorEspera;
+    }
+}
@@ -0,0 +1,114 @@
+package com.banksystem.cuenta.limite;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compartimentos de ejecución por clase de tráfico ({@code banco.compartimentos.<clase>.hilos},
+ * {@code .cola}, {@code .espera-ms}) y la clasificación de las solicitudes: las rutas de
+ * {@code banco.compartimentos.reporte.rutas} son reportes, el resto de GET lecturas y lo
+ * demás escrituras.
+ */
+@Component
+public class Compartimentos implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(Compartimentos.class);
+    static final String PREFIJO = "banco.compartimentos.";
+
+    private final Map<ClaseTrafico, Compartimento> compartimentos = new EnumMap<>(ClaseTrafico.class);
+    private final List<PathPattern> rutasReporte = new ArrayList<>();
+
+    public Compartimentos(Environment entorno,
+                          @Value("${banco.compartimentos.reporte.rutas:/api/reportes/**}") String rutasReporte,
+                          @Value("${server.tomcat.threads.max:200}") int hilosTomcat) {
+        int reservados = 0;
+        for (ClaseTrafico clase : ClaseTrafico.values()) {
+            String prefijo = PREFIJO + clase.getClave();
+            Compartimento compartimento = new Compartimento(clase,
+                    entorno.getProperty(prefijo + ".hilos", Integer.class, clase.getHilos()),
+                    entorno.getProperty(prefijo + ".cola", Integer.class, clase.getCola()),
+                    entorno.getProperty(prefijo + ".espera-ms", Long.class, clase.getEsperaMs()));
+            compartimentos.put(clase, compartimento);
+            reservados += compartimento.getHilos() + compartimento.getCola();
+        }
+        if (reservados > hilosTomcat) {
+            log.warn("Los compartimentos admiten {} solicitudes entre en curso y en cola, más que los {} hilos "
+                    + "de Tomcat: una clase saturada puede dejar sin hilos a las demás", reservados, hilosTomcat);
+        }
+
+        PathPatternParser parser = new PathPatternParser();
+        for (String ruta : rutasReporte.split(",")) {
+            if (!ruta.isBlank()) {
+                this.rutasReporte.add(parser.parse(ruta.trim()));
+            }
+        }
+    }
+
+    /**
+     * Clase de una solicitud a la API por método y ruta (sin el context path)
+     */
+    public ClaseTrafico clasificar(String metodo, String ruta) {
+        PathContainer camino = PathContainer.parsePath(ruta);
+        for (PathPattern patron : rutasReporte) {
+            if (patron.matches(camino)) {
+                return ClaseTrafico.REPORTE;
+            }
+        }
+        return HttpMethod.GET.matches(metodo) || HttpMethod.HEAD.matches(metodo)
+                ? ClaseTrafico.LECTURA
+                : ClaseTrafico.ESCRITURA;
+    }
+
+    public Compartimento obtener(ClaseTrafico clase) {
+        return compartimentos.get(clase);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        compartimentos.forEach((clase, compartimento) -> {
+            Gauge.builder("banco.compartimentos.en_curso", compartimento, Compartimento::getEnCurso)
+                    .tag("clase", clase.getClave())
+                    .description("Solicitudes de la clase en ejecución")
+                    .register(registry);
+            Gauge.builder("banco.compartimentos.esperando", compartimento, Compartimento::getEsperando)
+                    .tag("clase", clase.getClave())
+                    .description("Solicitudes de la clase esperando un permiso")
+                    .register(registry);
+            Gauge.builder("banco.compartimentos.hilos", compartimento, Compartimento::getHilos)
+                    .tag("clase", clase.getClave())
+                    .description("Solicitudes de la clase permitidas en ejecución")
+                    .register(registry);
+            FunctionCounter.builder("banco.compartimentos.solicitudes", compartimento.contadorAceptadas(), LongAdder::sum)
+                    .tag("clase", clase.getClave())
+                    .tag("resultado", "aceptada")
+                    .register(registry);
+            FunctionCounter.builder("banco.compartimentos.solicitudes", compartimento.contadorRechazadasPorCola(),
+                            LongAdder::sum)
+                    .tag("clase", clase.getClave())
+                    .tag("resultado", "cola_llena")
+                    .register(registry);
+            FunctionCounter.builder("banco.compartimentos.solicitudes", compartimento.contadorRechazadasPorEspera(),
+                            LongAdder::sum)
+                    .tag("clase", clase.getClave())
+                    .tag("resultado", "espera_agotada")
+                    .register(registry);
+        });
+    }
+}
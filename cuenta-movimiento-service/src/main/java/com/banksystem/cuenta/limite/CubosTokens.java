@@ -0,0 +1,92 @@
+package com.banksystem.cuenta.limite;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cubos de tokens de una regla, uno por clave, con GCRA (generic cell rate algorithm):
+ * cada cubo es un único long, el instante teórico en que el cubo vuelve a estar lleno.
+ * Consumir es un compareAndSet sin bloqueos ni hilos de recarga.
+ * <p>
+ * Un cubo cuyo instante teórico ya pasó está lleno y equivale a uno nuevo, por eso se
+ * puede descartar sin perder información: así la memoria queda acotada a las claves
+ * activas. Si aun así se supera el máximo de claves, las nuevas comparten un cubo de
+ * desborde en lugar de crecer sin límite.
+ */
+public class CubosTokens {
+
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final int maximoClaves;
+    private final Map<String, AtomicLong> cubos = new ConcurrentHashMap<>();
+    private final AtomicLong desborde = new AtomicLong();
+    private final AtomicBoolean purgando = new AtomicBoolean();
+
+    /**
+     * @param porSegundo tasa sostenida de solicitudes por clave
+     * @param rafaga     solicitudes que se admiten seguidas con el cubo lleno
+     */
+    public CubosTokens(double porSegundo, int rafaga, int maximoClaves) {
+        if (porSegundo <= 0 || rafaga < 1) {
+            throw new IllegalArgumentException("Tasa inválida: " + porSegundo + "/s, ráfaga " + rafaga);
+        }
+        this.intervaloNanos = (long) (1_000_000_000L / porSegundo);
+        this.toleranciaNanos = intervaloNanos * (rafaga - 1);
+        this.maximoClaves = maximoClaves;
+    }
+
+    /**
+     * Consumir un token de la clave. Devuelve 0 si se admite o los nanosegundos que faltan
+     * para el siguiente token. {@code ahora} es un reloj monótono no negativo.
+     */
+    public long consumir(String clave, long ahora) {
+        AtomicLong cubo = cubos.get(clave);
+        if (cubo == null) {
+            cubo = crear(clave, ahora);
+        }
+        while (true) {
+            long lleno = cubo.get();
+            long base = Math.max(lleno, ahora);
+            long exceso = base - ahora - toleranciaNanos;
+            if (exceso > 0) {
+                return exceso;
+            }
+            if (cubo.compareAndSet(lleno, base + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong crear(String clave, long ahora) {
+        if (cubos.size() >= maximoClaves) {
+            purgar(ahora);
+            if (cubos.size() >= maximoClaves) {
+                return desborde;
+            }
+        }
+        return cubos.computeIfAbsent(clave, k -> new AtomicLong());
+    }
+
+    /**
+     * Descartar los cubos llenos. Un consumo concurrente sobre un cubo recién descartado
+     * se pierde, lo que a lo sumo concede un token de más a esa clave.
+     */
+    public int purgar(long ahora) {
+        if (!purgando.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int antes = cubos.size();
+            cubos.values().removeIf(cubo -> cubo.get() <= ahora);
+            return antes - cubos.size();
+        } finally {
+            purgando.set(false);
+        }
+    }
+
+    public int getClaves() {
+        return cubos.size();
+    }
+}
@@ -0,0 +1,96 @@
+package com.banksystem.cuenta.limite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Clasifica cada solicitud a /api en su {@link ClaseTrafico}, la hace pasar por el
+ * compartimento de esa clase y fija la clase en el hilo para que sus conexiones salgan del
+ * pool de la clase. Va después del límite de tasa y antes del límite adaptativo de
+ * escrituras. Las suscripciones SSE (asíncronas, sin hilo retenido) y /actuator no pasan.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 150)
+public class FiltroCompartimentos extends OncePerRequestFilter {
+
+    private final Compartimentos compartimentos;
+    private final ObjectMapper objectMapper;
+    private final boolean habilitado;
+    private final String reintentarSegundos;
+
+    public FiltroCompartimentos(Compartimentos compartimentos,
+                                ObjectMapper objectMapper,
+                                @Value("${banco.compartimentos.habilitado:true}") boolean habilitado,
+                                @Value("${banco.compartimentos.reintentar-segundos:1}") int reintentarSegundos) {
+        this.compartimentos = compartimentos;
+        this.objectMapper = objectMapper;
+        this.habilitado = habilitado;
+        this.reintentarSegundos = String.valueOf(reintentarSegundos);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = ruta(request);
+        return !habilitado || !ruta.startsWith("/api/") || ruta.startsWith("/api/suscripciones");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ClaseTrafico clase = compartimentos.clasificar(request.getMethod(), ruta(request));
+        Compartimento compartimento = compartimentos.obtener(clase);
+        boolean admitida;
+        try {
+            admitida = compartimento.entrar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitida = false;
+        }
+        if (!admitida) {
+            rechazar(response, clase);
+            return;
+        }
+        ClaseTrafico anterior = ClaseTrafico.actual();
+        ClaseTrafico.fijar(clase);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ClaseTrafico.fijar(anterior);
+            compartimento.salir();
+        }
+    }
+
+    private static String ruta(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private void rechazar(HttpServletResponse response, ClaseTrafico clase) throws IOException {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorResponse.put("error", "Servicio saturado");
+        errorResponse.put("message", "Demasiadas operaciones de tipo " + clase.getClave()
+                + " en curso, reintente en " + reintentarSegundos + " s");
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, reintentarSegundos);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
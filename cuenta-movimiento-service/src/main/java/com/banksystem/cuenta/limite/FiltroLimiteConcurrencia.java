@@ -0,0 +1,92 @@
+package com.banksystem.cuenta.limite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aplica el {@link LimitadorConcurrencia} a las escrituras de cuentas, movimientos y
+ * transferencias. Lecturas y /actuator (health, métricas) no pasan por el límite, así
+ * los chequeos de salud siguen respondiendo aunque las escrituras se estén descartando.
+ * El exceso recibe 503 con Retry-After en el formato de error habitual.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 200)
+public class FiltroLimiteConcurrencia extends OncePerRequestFilter {
+
+    private static final List<String> RUTAS_LIMITADAS = List.of(
+            "/api/movimientos", "/api/transferencias", "/api/cuentas");
+
+    private final LimitadorConcurrencia limitador;
+    private final ObjectMapper objectMapper;
+    private final boolean habilitado;
+    private final String reintentarSegundos;
+
+    public FiltroLimiteConcurrencia(LimitadorConcurrencia limitador,
+                                    ObjectMapper objectMapper,
+                                    @Value("${banco.limite.habilitado:true}") boolean habilitado,
+                                    @Value("${banco.limite.reintentar-segundos:1}") int reintentarSegundos) {
+        this.limitador = limitador;
+        this.objectMapper = objectMapper;
+        this.habilitado = habilitado;
+        this.reintentarSegundos = String.valueOf(reintentarSegundos);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!habilitado || HttpMethod.GET.matches(request.getMethod())
+                || HttpMethod.HEAD.matches(request.getMethod())
+                || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return RUTAS_LIMITADAS.stream().noneMatch(ruta::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!limitador.intentarAdquirir()) {
+            rechazar(response);
+            return;
+        }
+        long inicio = System.nanoTime();
+        boolean fallida = true;
+        try {
+            filterChain.doFilter(request, response);
+            fallida = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            limitador.liberar(inicio, System.nanoTime(), fallida);
+        }
+    }
+
+    private void rechazar(HttpServletResponse response) throws IOException {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorResponse.put("error", "Servicio saturado");
+        errorResponse.put("message", "Demasiadas operaciones en curso, reintente en " + reintentarSegundos + " s");
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, reintentarSegundos);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
@@ -0,0 +1,108 @@
+package com.banksystem.cuenta.limite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica el {@link LimitadorTasa} antes que el límite de concurrencia: rechazar por tasa
+ * no consume permisos ni conexiones. La clave es el nombre del integrador si la cabecera
+ * X-API-Key trae una clave registrada en {@code banco.tasa.api-keys} y, si no, la dirección
+ * remota: nada que el cliente elija libremente (clave inventada, clienteId, cuentaId) le da
+ * un cubo nuevo.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+public class FiltroLimiteTasa extends OncePerRequestFilter {
+
+    static final String CABECERA_API_KEY = "X-API-Key";
+
+    private final LimitadorTasa limitador;
+    private final ObjectMapper objectMapper;
+    private final Map<String, String> integradores;
+
+    public FiltroLimiteTasa(LimitadorTasa limitador, ObjectMapper objectMapper,
+                            @Value("${banco.tasa.api-keys:}") String apiKeys) {
+        this.limitador = limitador;
+        this.objectMapper = objectMapper;
+        this.integradores = interpretar(apiKeys);
+    }
+
+    /**
+     * {@code nombre:clave} separados por comas → clave a nombre del integrador
+     */
+    private static Map<String, String> interpretar(String texto) {
+        Map<String, String> integradores = new HashMap<>();
+        for (String definicion : texto.split(",")) {
+            if (definicion.isBlank()) {
+                continue;
+            }
+            int dosPuntos = definicion.indexOf(':');
+            if (dosPuntos <= 0 || dosPuntos == definicion.length() - 1) {
+                throw new IllegalArgumentException("API key inválida en banco.tasa.api-keys (nombre:clave)");
+            }
+            integradores.put(definicion.substring(dosPuntos + 1).trim(), definicion.substring(0, dosPuntos).trim());
+        }
+        return Map.copyOf(integradores);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return limitador.isVacio();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        PathContainer ruta = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        LimitadorTasa.Regla regla = limitador.buscar(ruta);
+        if (regla != null) {
+            long espera = limitador.consumir(regla, clave(request));
+            if (espera > 0) {
+                rechazar(response, espera);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String clave(HttpServletRequest request) {
+        String apiKey = request.getHeader(CABECERA_API_KEY);
+        String integrador = apiKey != null ? integradores.get(apiKey.trim()) : null;
+        if (integrador != null) {
+            return "k:" + integrador;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void rechazar(HttpServletResponse response, long esperaNanos) throws IOException {
+        long segundos = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(esperaNanos + 999_999_999L));
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        errorResponse.put("error", "Demasiadas solicitudes");
+        errorResponse.put("message", "Límite de solicitudes excedido, reintente en " + segundos + " s");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(segundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
@@ -0,0 +1,129 @@
+package com.banksystem.cuenta.limite;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite adaptativo de solicitudes concurrentes (AIMD con objetivo de latencia).
+ * <ul>
+ *   <li>Cada respuesta rápida con el límite en uso suma {@code 1/limite}: un permiso más por
+ *   cada ronda completa de solicitudes.</li>
+ *   <li>Una respuesta lenta (sobre la latencia objetivo) o fallida multiplica el límite por
+ *   {@value #FACTOR_RECORTE}, una sola vez por ronda: las solicitudes iniciadas antes del último
+ *   recorte ya reflejan el límite anterior y no vuelven a recortar.</li>
+ *   <li>Lo que excede el límite se rechaza de inmediato en lugar de esperar en Tomcat o en Hikari.</li>
+ * </ul>
+ */
+@Component
+public class LimitadorConcurrencia implements MeterBinder {
+
+    static final double FACTOR_RECORTE = 0.9;
+
+    private final int minimo;
+    private final int maximo;
+    private final long objetivoNanos;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final LongAdder aceptadas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder lentasOFallidas = new LongAdder();
+    private volatile double limite;
+    private boolean recortado;
+    private long ultimoRecorte;
+
+    public LimitadorConcurrencia(@Value("${banco.limite.inicial:20}") int inicial,
+                                 @Value("${banco.limite.minimo:4}") int minimo,
+                                 @Value("${banco.limite.maximo:200}") int maximo,
+                                 @Value("${banco.limite.latencia-objetivo-ms:250}") long latenciaObjetivoMs) {
+        if (minimo < 1 || maximo < minimo) {
+            throw new IllegalArgumentException("Límites de concurrencia inválidos: " + minimo + ".." + maximo);
+        }
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.objetivoNanos = TimeUnit.MILLISECONDS.toNanos(latenciaObjetivoMs);
+        this.limite = Math.max(minimo, Math.min(maximo, inicial));
+    }
+
+    /**
+     * Tomar un permiso; false si ya hay tantas solicitudes en curso como el límite actual
+     */
+    public boolean intentarAdquirir() {
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= (int) limite) {
+                rechazadas.increment();
+                return false;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                aceptadas.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Devolver el permiso con la medición de la solicitud (instantes de {@link System#nanoTime()})
+     */
+    public void liberar(long inicioNanos, long finNanos, boolean fallida) {
+        int enVuelo = enCurso.getAndDecrement();
+        if (fallida || finNanos - inicioNanos > objetivoNanos) {
+            lentasOFallidas.increment();
+            recortar(inicioNanos, finNanos);
+        } else if (enVuelo * 2 >= limite) {
+            // Sólo crecer si el límite se está usando; con poco tráfico no hay evidencia
+            ampliar();
+        }
+    }
+
+    private synchronized void recortar(long inicioNanos, long finNanos) {
+        if (recortado && inicioNanos - ultimoRecorte < 0) {
+            return;
+        }
+        recortado = true;
+        ultimoRecorte = finNanos;
+        limite = Math.max(minimo, limite * FACTOR_RECORTE);
+    }
+
+    private synchronized void ampliar() {
+        limite = Math.min(maximo, limite + 1 / limite);
+    }
+
+    public int getLimite() {
+        return (int) limite;
+    }
+
+    public int getEnCurso() {
+        return enCurso.get();
+    }
+
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banco.concurrencia.limite", this, LimitadorConcurrencia::getLimite)
+                .description("Solicitudes de escritura concurrentes permitidas")
+                .register(registry);
+        Gauge.builder("banco.concurrencia.en_curso", this, LimitadorConcurrencia::getEnCurso)
+                .description("Solicitudes de escritura en curso")
+                .register(registry);
+        FunctionCounter.builder("banco.concurrencia.solicitudes", aceptadas, LongAdder::sum)
+                .tag("resultado", "aceptada")
+                .register(registry);
+        FunctionCounter.builder("banco.concurrencia.solicitudes", rechazadas, LongAdder::sum)
+                .tag("resultado", "rechazada")
+                .register(registry);
+        FunctionCounter.builder("banco.concurrencia.solicitudes", lentasOFallidas, LongAdder::sum)
+                .tag("resultado", "lenta_o_fallida")
+                .register(registry);
+    }
+}
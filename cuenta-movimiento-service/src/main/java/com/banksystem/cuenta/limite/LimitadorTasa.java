@@ -0,0 +1,133 @@
+package com.banksystem.cuenta.limite;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite de tasa por endpoint y por clave (integrador con API key registrada o IP).
+ * Las reglas se configuran como {@code ruta=porSegundo:rafaga} separadas por comas, por ejemplo
+ * {@code /api/movimientos/cuenta/{cuentaId}/**=20:40}; gana la primera ruta que coincide.
+ */
+@Component
+public class LimitadorTasa implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(LimitadorTasa.class);
+
+    /**
+     * Regla de un endpoint con sus cubos
+     */
+    public static final class Regla {
+        private final String ruta;
+        private final PathPattern patron;
+        private final CubosTokens cubos;
+        private final LongAdder rechazadas = new LongAdder();
+
+        Regla(String ruta, PathPattern patron, CubosTokens cubos) {
+            this.ruta = ruta;
+            this.patron = patron;
+            this.cubos = cubos;
+        }
+
+        public String getRuta() {
+            return ruta;
+        }
+    }
+
+    private final List<Regla> reglas;
+    private final long origen = System.nanoTime();
+
+    public LimitadorTasa(@Value("${banco.tasa.reglas:}") String reglas,
+                         @Value("${banco.tasa.maximo-claves:1000000}") int maximoClaves) {
+        this.reglas = interpretar(reglas, maximoClaves);
+    }
+
+    private static List<Regla> interpretar(String texto, int maximoClaves) {
+        List<Regla> reglas = new ArrayList<>();
+        PathPatternParser parser = new PathPatternParser();
+        for (String definicion : texto.split(",")) {
+            if (definicion.isBlank()) {
+                continue;
+            }
+            int igual = definicion.lastIndexOf('=');
+            int dosPuntos = definicion.lastIndexOf(':');
+            if (igual < 0 || dosPuntos < igual) {
+                throw new IllegalArgumentException("Regla de tasa inválida (ruta=porSegundo:rafaga): " + definicion);
+            }
+            String ruta = definicion.substring(0, igual).trim();
+            double porSegundo = Double.parseDouble(definicion.substring(igual + 1, dosPuntos).trim());
+            int rafaga = Integer.parseInt(definicion.substring(dosPuntos + 1).trim());
+            reglas.add(new Regla(ruta, parser.parse(ruta), new CubosTokens(porSegundo, rafaga, maximoClaves)));
+        }
+        return List.copyOf(reglas);
+    }
+
+    /**
+     * Primera regla que coincide con la ruta, o null si no está limitada
+     */
+    public Regla buscar(PathContainer ruta) {
+        for (Regla regla : reglas) {
+            if (regla.patron.matches(ruta)) {
+                return regla;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consumir un token; 0 si se admite o los nanosegundos de espera sugeridos
+     */
+    public long consumir(Regla regla, String clave) {
+        long espera = regla.cubos.consumir(clave, System.nanoTime() - origen);
+        if (espera > 0) {
+            regla.rechazadas.increment();
+        }
+        return espera;
+    }
+
+    public boolean isVacio() {
+        return reglas.isEmpty();
+    }
+
+    /**
+     * Descartar cubos inactivos (llenos) de todas las reglas
+     */
+    @Scheduled(fixedDelayString = "${banco.tasa.limpieza-ms:60000}")
+    public void purgar() {
+        long ahora = System.nanoTime() - origen;
+        int descartados = 0;
+        for (Regla regla : reglas) {
+            descartados += regla.cubos.purgar(ahora);
+        }
+        if (descartados > 0) {
+            log.debug("Límite de tasa: {} cubos inactivos descartados", descartados);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Regla regla : reglas) {
+            Gauge.builder("banco.tasa.claves", regla.cubos, CubosTokens::getClaves)
+                    .description("Claves con cubo activo")
+                    .tag("ruta", regla.ruta)
+                    .register(registry);
+            FunctionCounter.builder("banco.tasa.rechazadas", regla.rechazadas, LongAdder::sum)
+                    .description("Solicitudes rechazadas por límite de tasa")
+                    .tag("ruta", regla.ruta)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.banksystem.cuenta.limite;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contadores de ventana deslizante por cuenta para las reglas de velocidad.
+ * <p>
+ * Cada regla divide su ventana en {@code cubetas} cubetas de igual ancho guardadas en un anillo:
+ * la cubeta de un instante es {@code instante / ancho}, y su posición en el anillo ese número
+ * módulo la cantidad de cubetas. Una posición cuya época quedó fuera de la ventana se reutiliza
+ * poniéndola en cero, así que no hay que desplazar nada ni guardar cada movimiento. La ventana
+ * efectiva cubre la cubeta en curso y las {@code cubetas - 1} anteriores: la precisión es de
+ * una cubeta.
+ * <p>
+ * Los anillos de todas las reglas de una cuenta van en tres arreglos planos y se sincronizan
+ * por cuenta. Una cuenta sin movimientos en la ventana más larga equivale a una nueva y se
+ * descarta al purgar; si aun así se alcanza el máximo de cuentas, las nuevas no se controlan
+ * (se admiten) hasta la próxima purga.
+ */
+public class VentanasVelocidad {
+
+    /**
+     * Límites de una regla sobre los movimientos de un tipo (o de cualquier tipo si es null)
+     */
+    public static final class Regla {
+        private final String tipo;
+        private final long ventanaMs;
+        private final int maximoCantidad;
+        private final long maximoMontoCentavos;
+        private final String descripcion;
+
+        /**
+         * @param maximoCantidad      movimientos admitidos en la ventana; 0 sin límite
+         * @param maximoMontoCentavos suma admitida en la ventana, en centavos; 0 sin límite
+         */
+        public Regla(String tipo, long ventanaMs, int maximoCantidad, long maximoMontoCentavos, String descripcion) {
+            if (ventanaMs <= 0 || maximoCantidad < 0 || maximoMontoCentavos < 0
+                    || (maximoCantidad == 0 && maximoMontoCentavos == 0)) {
+                throw new IllegalArgumentException("Regla de velocidad inválida: " + descripcion);
+            }
+            this.tipo = tipo;
+            this.ventanaMs = ventanaMs;
+            this.maximoCantidad = maximoCantidad;
+            this.maximoMontoCentavos = maximoMontoCentavos;
+            this.descripcion = descripcion;
+        }
+
+        boolean aplica(String tipoMovimiento) {
+            return tipo == null || tipo.equalsIgnoreCase(tipoMovimiento);
+        }
+
+        public long getVentanaMs() {
+            return ventanaMs;
+        }
+
+        public String getDescripcion() {
+            return descripcion;
+        }
+    }
+
+    /**
+     * Anillos de una cuenta: la regla r ocupa las posiciones [r * cubetas, (r + 1) * cubetas)
+     */
+    private static final class Contadores {
+        final long[] epocas;
+        final int[] cantidades;
+        final long[] montos;
+        long ultimoInstante;
+        boolean descartado;
+
+        Contadores(int posiciones) {
+            epocas = new long[posiciones];
+            cantidades = new int[posiciones];
+            montos = new long[posiciones];
+            Arrays.fill(epocas, Long.MIN_VALUE);
+        }
+    }
+
+    private final Regla[] reglas;
+    /** Ancho de cubeta de cada regla, en milisegundos */
+    private final long[] anchos;
+    private final int cubetas;
+    private final int maximoCuentas;
+    private final long ventanaMaximaMs;
+    private final Map<Long, Contadores> cuentas = new ConcurrentHashMap<>();
+
+    public VentanasVelocidad(List<Regla> reglas, int cubetas, int maximoCuentas) {
+        if (cubetas < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos 2 cubetas por ventana");
+        }
+        this.reglas = reglas.toArray(new Regla[0]);
+        this.cubetas = cubetas;
+        this.maximoCuentas = maximoCuentas;
+        this.anchos = new long[this.reglas.length];
+        long ventanaMaxima = 0;
+        for (int r = 0; r < this.reglas.length; r++) {
+            anchos[r] = Math.max(1, this.reglas[r].ventanaMs / cubetas);
+            ventanaMaxima = Math.max(ventanaMaxima, this.reglas[r].ventanaMs);
+        }
+        this.ventanaMaximaMs = ventanaMaxima;
+    }
+
+    /**
+     * Registrar el movimiento si ninguna regla se excede. Devuelve null si se admitió (y quedó
+     * contado) o la primera regla que excedería, sin contar nada.
+     * {@code instante} en milisegundos de época.
+     */
+    public Regla registrar(long cuentaId, String tipo, long centavos, long instante) {
+        return registrar(cuentaId, tipo, centavos, instante, false);
+    }
+
+    /**
+     * Como {@link #registrar(long, String, long, long)}; con {@code sinComodin} el movimiento se
+     * cuenta en todas las reglas pero sólo se valida contra las de su tipo, no contra las de
+     * cualquier tipo (cuentas de alto volumen)
+     */
+    public Regla registrar(long cuentaId, String tipo, long centavos, long instante, boolean sinComodin) {
+        if (!aplica(tipo)) {
+            return null;
+        }
+        while (true) {
+            Contadores contadores = obtener(cuentaId);
+            if (contadores == null) {
+                return null;
+            }
+            synchronized (contadores) {
+                if (contadores.descartado) {
+                    continue;
+                }
+                for (int r = 0; r < reglas.length; r++) {
+                    Regla regla = reglas[r];
+                    if (regla.aplica(tipo) && !(sinComodin && regla.tipo == null)
+                            && excede(contadores, r, regla, centavos, instante)) {
+                        return regla;
+                    }
+                }
+                sumar(contadores, tipo, 1, centavos, instante);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Contar un movimiento ya ocurrido sin validar límites (reconstrucción al arrancar)
+     */
+    public void cargar(long cuentaId, String tipo, long centavos, long instante) {
+        if (!aplica(tipo)) {
+            return;
+        }
+        while (true) {
+            Contadores contadores = obtener(cuentaId);
+            if (contadores == null) {
+                return;
+            }
+            synchronized (contadores) {
+                if (!contadores.descartado) {
+                    sumar(contadores, tipo, 1, centavos, instante);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Descontar un movimiento registrado que no llegó a confirmarse. Si su cubeta ya se
+     * reutilizó no hay nada que descontar
+     */
+    public void deshacer(long cuentaId, String tipo, long centavos, long instante) {
+        Contadores contadores = cuentas.get(cuentaId);
+        if (contadores == null) {
+            return;
+        }
+        synchronized (contadores) {
+            sumar(contadores, tipo, -1, -centavos, instante);
+        }
+    }
+
+    private boolean aplica(String tipo) {
+        for (Regla regla : reglas) {
+            if (regla.aplica(tipo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean excede(Contadores contadores, int r, Regla regla, long centavos, long instante) {
+        long epoca = instante / anchos[r];
+        long primera = epoca - cubetas + 1;
+        int base = r * cubetas;
+        long cantidad = 1;
+        long monto = centavos;
+        for (int i = base; i < base + cubetas; i++) {
+            long epocaCubeta = contadores.epocas[i];
+            if (epocaCubeta >= primera && epocaCubeta <= epoca) {
+                cantidad += contadores.cantidades[i];
+                monto += contadores.montos[i];
+            }
+        }
+        return (regla.maximoCantidad > 0 && cantidad > regla.maximoCantidad)
+                || (regla.maximoMontoCentavos > 0 && monto > regla.maximoMontoCentavos);
+    }
+
+    private void sumar(Contadores contadores, String tipo, int cantidad, long centavos, long instante) {
+        for (int r = 0; r < reglas.length; r++) {
+            Regla regla = reglas[r];
+            if (!regla.aplica(tipo)) {
+                continue;
+            }
+            long epoca = instante / anchos[r];
+            int i = r * cubetas + (int) Math.floorMod(epoca, (long) cubetas);
+            if (contadores.epocas[i] != epoca) {
+                // Descontar de una cubeta ya reutilizada, o contar en una más vieja que la que
+                // ocupa la posición: ese instante ya salió del anillo
+                if (cantidad < 0 || contadores.epocas[i] > epoca) {
+                    continue;
+                }
+                contadores.epocas[i] = epoca;
+                contadores.cantidades[i] = 0;
+                contadores.montos[i] = 0;
+            }
+            contadores.cantidades[i] += cantidad;
+            contadores.montos[i] += centavos;
+        }
+        if (cantidad > 0) {
+            contadores.ultimoInstante = Math.max(contadores.ultimoInstante, instante);
+        }
+    }
+
+    private Contadores obtener(long cuentaId) {
+        Contadores contadores = cuentas.get(cuentaId);
+        if (contadores != null) {
+            return contadores;
+        }
+        if (cuentas.size() >= maximoCuentas) {
+            return null;
+        }
+        return cuentas.computeIfAbsent(cuentaId, id -> new Contadores(reglas.length * cubetas));
+    }
+
+    /**
+     * Descartar las cuentas sin movimientos dentro de la ventana más larga. Devuelve cuántas
+     */
+    public int purgar(long ahora) {
+        long limite = ahora - ventanaMaximaMs;
+        int descartadas = 0;
+        Iterator<Map.Entry<Long, Contadores>> iterador = cuentas.entrySet().iterator();
+        while (iterador.hasNext()) {
+            Contadores contadores = iterador.next().getValue();
+            synchronized (contadores) {
+                if (contadores.ultimoInstante < limite) {
+                    contadores.descartado = true;
+                    iterador.remove();
+                    descartadas++;
+                }
+            }
+        }
+        return descartadas;
+    }
+
+    public long getVentanaMaximaMs() {
+        return ventanaMaximaMs;
+    }
+
+    public int getCuentas() {
+        return cuentas.size();
+    }
+
+    public boolean isVacio() {
+        return reglas.length == 0;
+    }
+}
@@ -0,0 +1,364 @@
+package com.banksystem.cuenta.notificacion;
+
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.CuentaNotFoundException;
+import com.banksystem.cuenta.exception.SuscripcionesAgotadasException;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Difusión por SSE de los movimientos confirmados a los suscriptores de cada cuenta.
+ * <ul>
+ *   <li>Índice cuenta → suscriptores: publicar cuesta una búsqueda más una inserción por
+ *   suscriptor de esa cuenta, sin recorrer el resto.</li>
+ *   <li>El evento se serializa una vez y se encola; el hilo que confirmó el movimiento nunca
+ *   escribe en un socket. Un pool chico drena las colas, a lo sumo un hilo por suscriptor a la
+ *   vez, así que el orden de los eventos se conserva.</li>
+ *   <li>Cada suscriptor tiene una cola acotada: si se llena, el cliente no da abasto y se le
+ *   cierra la conexión (debe reconectarse y releer la cuenta) en lugar de acumular memoria.</li>
+ *   <li>La escritura en el socket bloquea mientras el cliente no lee. Un envío que pasa de
+ *   {@code banco.suscripciones.envio-maximo-ms} descarta al suscriptor y el pool suma un hilo
+ *   mientras ese envío siga trabado, así un cliente lento no retiene a los demás. Sólo el hilo
+ *   que drena toca el emisor: quien publica nunca espera a un envío.</li>
+ * </ul>
+ */
+@Component
+public class DifusorMovimientos implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(DifusorMovimientos.class);
+    private static final int MAXIMO_CUENTAS_POR_SUSCRIPCION = 50;
+
+    /**
+     * Conexión de un cliente con su cola de eventos pendientes
+     */
+    private static final class Suscriptor {
+        final Set<Long> cuentaIds;
+        final SseEmitter emisor;
+        final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> cola;
+        final AtomicBoolean programado = new AtomicBoolean();
+        final AtomicBoolean cerrado = new AtomicBoolean();
+        final AtomicBoolean atascado = new AtomicBoolean();
+        final AtomicBoolean completado = new AtomicBoolean();
+        // System.nanoTime() al empezar el envío en curso; 0 sin envío
+        volatile long envioDesde;
+        // Protegido por el monitor del difusor
+        boolean hiloRepuesto;
+
+        Suscriptor(Set<Long> cuentaIds, SseEmitter emisor, int capacidad) {
+            this.cuentaIds = cuentaIds;
+            this.emisor = emisor;
+            this.cola = new ArrayBlockingQueue<>(capacidad);
+        }
+    }
+
+    private final CuentaRepository cuentaRepository;
+    private final ObjectMapper objectMapper;
+    private final int maximoSuscriptores;
+    private final int capacidadCola;
+    private final long tiempoMaximoMs;
+    private final long envioMaximoNanos;
+    private final int hilos;
+    private final ThreadPoolExecutor pool;
+    private final Map<Long, Set<Suscriptor>> porCuenta = new ConcurrentHashMap<>();
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activos = new AtomicInteger();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder enviados = new LongAdder();
+
+    public DifusorMovimientos(CuentaRepository cuentaRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${banco.suscripciones.maximo:10000}") int maximoSuscriptores,
+                              @Value("${banco.suscripciones.cola:64}") int capacidadCola,
+                              @Value("${banco.suscripciones.tiempo-maximo-ms:1800000}") long tiempoMaximoMs,
+                              @Value("${banco.suscripciones.hilos:4}") int hilos,
+                              @Value("${banco.suscripciones.envio-maximo-ms:5000}") long envioMaximoMs) {
+        this.cuentaRepository = cuentaRepository;
+        this.objectMapper = objectMapper;
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.capacidadCola = capacidadCola;
+        this.tiempoMaximoMs = tiempoMaximoMs;
+        this.envioMaximoNanos = TimeUnit.MILLISECONDS.toNanos(envioMaximoMs);
+        this.hilos = hilos;
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), tarea -> {
+            Thread hilo = new Thread(tarea, "difusion-" + numeroHilo.getAndIncrement());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        pool.shutdownNow();
+        suscriptores.forEach(suscriptor -> suscriptor.emisor.complete());
+    }
+
+    /**
+     * Abrir una suscripción a los movimientos de las cuentas indicadas
+     */
+    public SseEmitter suscribir(List<Long> cuentaIds) {
+        Set<Long> ids = new LinkedHashSet<>(cuentaIds);
+        if (ids.isEmpty() || ids.size() > MAXIMO_CUENTAS_POR_SUSCRIPCION) {
+            throw new IllegalArgumentException(
+                    "Indique entre 1 y " + MAXIMO_CUENTAS_POR_SUSCRIPCION + " cuentas por suscripción");
+        }
+        if (cuentaRepository.countByIdIn(ids) != ids.size()) {
+            throw new CuentaNotFoundException("Alguna de las cuentas no existe: " + ids);
+        }
+        if (activos.incrementAndGet() > maximoSuscriptores) {
+            activos.decrementAndGet();
+            throw new SuscripcionesAgotadasException(
+                    "Se alcanzó el máximo de " + maximoSuscriptores + " suscripciones, intente más tarde");
+        }
+
+        SseEmitter emisor = crearEmisor(tiempoMaximoMs);
+        Suscriptor suscriptor = new Suscriptor(Set.copyOf(ids), emisor, capacidadCola);
+        emisor.onCompletion(() -> quitar(suscriptor));
+        emisor.onTimeout(() -> quitar(suscriptor));
+        emisor.onError(error -> quitar(suscriptor));
+        suscriptores.add(suscriptor);
+        for (Long cuentaId : suscriptor.cuentaIds) {
+            // Dentro de compute: quitar() no puede descartar el conjunto entre crearlo y agregar
+            porCuenta.compute(cuentaId, (id, conjunto) -> {
+                Set<Suscriptor> resultado = conjunto != null ? conjunto : ConcurrentHashMap.newKeySet();
+                resultado.add(suscriptor);
+                return resultado;
+            });
+        }
+        if (suscriptor.cerrado.get()) {
+            // Se cerró mientras se indexaba: no dejarlo en los conjuntos
+            desindexar(suscriptor);
+        }
+        encolar(suscriptor, SseEmitter.event().name("suscrito").data(ids).build());
+        return emisor;
+    }
+
+    /**
+     * Difundir el movimiento una vez confirmada su transacción
+     */
+    @TransactionalEventListener
+    public void alRegistrarMovimiento(MovimientoRegistradoEvent evento) {
+        Movimiento movimiento = evento.getMovimiento();
+        Set<Suscriptor> destinatarios = porCuenta.get(movimiento.getCuentaId());
+        if (destinatarios == null || destinatarios.isEmpty()) {
+            return;
+        }
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("cuentaId", movimiento.getCuentaId());
+        datos.put("movimientoId", movimiento.getId());
+        datos.put("fecha", movimiento.getFecha());
+        datos.put("tipoMovimiento", movimiento.getTipoMovimiento());
+        datos.put("valor", movimiento.getValor());
+        datos.put("saldo", movimiento.getSaldo());
+        datos.put("saldoDisponible", evento.getSaldoDisponible());
+        datos.put("transferenciaId", movimiento.getTransferenciaId());
+        Set<ResponseBodyEmitter.DataWithMediaType> mensaje;
+        try {
+            mensaje = SseEmitter.event()
+                    .name("movimiento")
+                    .id(String.valueOf(movimiento.getId()))
+                    .data(objectMapper.writeValueAsString(datos))
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.warn("No se pudo serializar el movimiento {}: {}", movimiento.getId(), e.getMessage());
+            return;
+        }
+        for (Suscriptor suscriptor : destinatarios) {
+            encolar(suscriptor, mensaje);
+        }
+    }
+
+    /**
+     * Latido para que proxies y balanceadores no corten las conexiones inactivas
+     */
+    @Scheduled(fixedDelayString = "${banco.suscripciones.latido-ms:15000}")
+    public void latido() {
+        Set<ResponseBodyEmitter.DataWithMediaType> latido = SseEmitter.event().comment("latido").build();
+        for (Suscriptor suscriptor : suscriptores) {
+            encolar(suscriptor, latido);
+        }
+    }
+
+    /**
+     * Descartar a los suscriptores con un envío trabado más de lo permitido. El hilo sigue
+     * bloqueado hasta que el contenedor corte la escritura, por eso se repone con uno nuevo
+     * (a lo sumo tantos extra como hilos base)
+     */
+    @Scheduled(fixedDelayString = "${banco.suscripciones.vigilancia-ms:1000}")
+    public void vigilarEnvios() {
+        long ahora = System.nanoTime();
+        for (Suscriptor suscriptor : suscriptores) {
+            long desde = suscriptor.envioDesde;
+            if (desde != 0 && ahora - desde > envioMaximoNanos && suscriptor.atascado.compareAndSet(false, true)) {
+                descartados.increment();
+                log.debug("Suscriptor con envío trabado descartado (cuentas {})", suscriptor.cuentaIds);
+                quitar(suscriptor);
+                reponerHilo(suscriptor);
+            }
+        }
+    }
+
+    /**
+     * Emisor de una suscripción nueva
+     */
+    protected SseEmitter crearEmisor(long tiempoMaximoMs) {
+        return new SseEmitter(tiempoMaximoMs);
+    }
+
+    private void encolar(Suscriptor suscriptor, Set<ResponseBodyEmitter.DataWithMediaType> mensaje) {
+        if (suscriptor.cerrado.get()) {
+            return;
+        }
+        if (!suscriptor.cola.offer(mensaje)) {
+            descartados.increment();
+            log.debug("Suscriptor lento descartado (cuentas {})", suscriptor.cuentaIds);
+            quitar(suscriptor);
+            // El hilo que drena completa el emisor: aquí podría quedar esperando a un envío
+            programar(suscriptor);
+            return;
+        }
+        programar(suscriptor);
+    }
+
+    private void programar(Suscriptor suscriptor) {
+        if (suscriptor.programado.compareAndSet(false, true)) {
+            pool.execute(() -> drenar(suscriptor));
+        }
+    }
+
+    private void drenar(Suscriptor suscriptor) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> mensaje;
+            while (!suscriptor.cerrado.get() && (mensaje = suscriptor.cola.poll()) != null) {
+                suscriptor.envioDesde = System.nanoTime();
+                suscriptor.emisor.send(mensaje);
+                suscriptor.envioDesde = 0;
+                enviados.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado o emisor ya completado
+            quitar(suscriptor);
+        } finally {
+            liberarEnvio(suscriptor);
+            suscriptor.programado.set(false);
+        }
+        if (suscriptor.cerrado.get()) {
+            completar(suscriptor);
+        } else if (!suscriptor.cola.isEmpty()) {
+            // Lo encolado entre el último poll y liberar la marca no debe quedar esperando
+            programar(suscriptor);
+        }
+    }
+
+    private void completar(Suscriptor suscriptor) {
+        if (!suscriptor.completado.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            suscriptor.emisor.complete();
+        } catch (IllegalStateException e) {
+            // Ya completado por el contenedor
+        }
+    }
+
+    /**
+     * Sumar un hilo mientras el envío siga trabado; se devuelve en {@link #liberarEnvio}
+     */
+    private synchronized void reponerHilo(Suscriptor suscriptor) {
+        if (suscriptor.envioDesde != 0 && !suscriptor.hiloRepuesto) {
+            suscriptor.hiloRepuesto = ajustarHilos(1);
+        }
+    }
+
+    private synchronized void liberarEnvio(Suscriptor suscriptor) {
+        suscriptor.envioDesde = 0;
+        if (suscriptor.hiloRepuesto) {
+            suscriptor.hiloRepuesto = false;
+            ajustarHilos(-1);
+        }
+    }
+
+    /**
+     * Sumar o quitar un hilo al pool; false si ya tiene todos los extra permitidos
+     */
+    private boolean ajustarHilos(int cambio) {
+        int tamano = pool.getMaximumPoolSize() + cambio;
+        if (cambio > 0 && tamano > hilos * 2) {
+            return false;
+        }
+        if (cambio > 0) {
+            pool.setMaximumPoolSize(tamano);
+            pool.setCorePoolSize(tamano);
+        } else {
+            pool.setCorePoolSize(tamano);
+            pool.setMaximumPoolSize(tamano);
+        }
+        return true;
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        if (!suscriptor.cerrado.compareAndSet(false, true)) {
+            return;
+        }
+        suscriptores.remove(suscriptor);
+        desindexar(suscriptor);
+        suscriptor.cola.clear();
+        activos.decrementAndGet();
+    }
+
+    private void desindexar(Suscriptor suscriptor) {
+        for (Long cuentaId : suscriptor.cuentaIds) {
+            porCuenta.computeIfPresent(cuentaId, (id, conjunto) -> {
+                conjunto.remove(suscriptor);
+                return conjunto.isEmpty() ? null : conjunto;
+            });
+        }
+    }
+
+    public int getActivos() {
+        return activos.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banco.suscripciones.activas", activos, AtomicInteger::get)
+                .description("Suscripciones SSE abiertas")
+                .register(registry);
+        FunctionCounter.builder("banco.suscripciones.descartadas", descartados, LongAdder::sum)
+                .description("Suscriptores desconectados por no consumir a tiempo")
+                .register(registry);
+        FunctionCounter.builder("banco.suscripciones.enviados", enviados, LongAdder::sum)
+                .description("Eventos escritos a suscriptores")
+                .register(registry);
+    }
+}
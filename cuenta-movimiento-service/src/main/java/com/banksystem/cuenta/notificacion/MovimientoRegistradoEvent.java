@@ -0,0 +1,28 @@
+package com.banksystem.cuenta.notificacion;
+
+import com.banksystem.cuenta.entity.Movimiento;
+
+import java.math.BigDecimal;
+
+/**
+ * Movimiento registrado con el saldo disponible resultante de la cuenta. Se publica dentro
+ * de la transacción del movimiento y se difunde sólo si ésta confirma.
+ */
+public class MovimientoRegistradoEvent {
+
+    private final Movimiento movimiento;
+    private final BigDecimal saldoDisponible;
+
+    public MovimientoRegistradoEvent(Movimiento movimiento, BigDecimal saldoDisponible) {
+        this.movimiento = movimiento;
+        this.saldoDisponible = saldoDisponible;
+    }
+
+    public Movimiento getMovimiento() {
+        return movimiento;
+    }
+
+    public BigDecimal getSaldoDisponible() {
+        return saldoDisponible;
+    }
+}
@@ -0,0 +1,98 @@
+package com.banksystem.cuenta.repository;
+
+import com.banksystem.cuenta.entity.AgregadoDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AgregadoDiarioRepository extends JpaRepository<AgregadoDiario, Long> {
+
+    /**
+     * Sumar un movimiento al agregado del día; crea la fila si no existe
+     */
+    @Modifying
+    @Query(value = "INSERT INTO agregado_diario (cuenta_id, tipo_cuenta, moneda, fecha, tipo_movimiento, cantidad, total) " +
+            "VALUES (:cuentaId, :tipoCuenta, :moneda, :fecha, :tipoMovimiento, 1, :valor) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + 1, total = total + VALUES(total)",
+            nativeQuery = true)
+    int sumarMovimiento(@Param("cuentaId") Long cuentaId,
+                        @Param("tipoCuenta") String tipoCuenta,
+                        @Param("moneda") String moneda,
+                        @Param("fecha") LocalDate fecha,
+                        @Param("tipoMovimiento") String tipoMovimiento,
+                        @Param("valor") BigDecimal valor);
+
+    /**
+     * Sumar varios movimientos del mismo día y tipo en una sola sentencia
+     */
+    @Modifying
+    @Query(value = "INSERT INTO agregado_diario (cuenta_id, tipo_cuenta, moneda, fecha, tipo_movimiento, cantidad, total) " +
+            "VALUES (:cuentaId, :tipoCuenta, :moneda, :fecha, :tipoMovimiento, :cantidad, :total) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad), total = total + VALUES(total)",
+            nativeQuery = true)
+    int sumarMovimientos(@Param("cuentaId") Long cuentaId,
+                         @Param("tipoCuenta") String tipoCuenta,
+                         @Param("moneda") String moneda,
+                         @Param("fecha") LocalDate fecha,
+                         @Param("tipoMovimiento") String tipoMovimiento,
+                         @Param("cantidad") long cantidad,
+                         @Param("total") BigDecimal total);
+
+    /**
+     * Total de la cuenta en un día y tipo (uk_agregado_cuenta_fecha_tipo)
+     */
+    @Query("SELECT a.total FROM AgregadoDiario a " +
+            "WHERE a.cuentaId = :cuentaId AND a.fecha = :fecha AND a.tipoMovimiento = :tipoMovimiento")
+    Optional<BigDecimal> findTotal(@Param("cuentaId") Long cuentaId,
+                                   @Param("fecha") LocalDate fecha,
+                                   @Param("tipoMovimiento") String tipoMovimiento);
+
+    /**
+     * Sumas por día, tipo de movimiento y moneda: [fecha, tipoMovimiento, cantidad, total, moneda]
+     * (las variantes por cuenta y por tipo de cuenta agregan el grupo al final)
+     */
+    @Query("SELECT a.fecha, a.tipoMovimiento, SUM(a.cantidad), SUM(a.total), a.moneda FROM AgregadoDiario a " +
+            "WHERE a.fecha BETWEEN :desde AND :hasta " +
+            "AND (:cuentaId IS NULL OR a.cuentaId = :cuentaId) " +
+            "AND (:tipoCuenta IS NULL OR a.tipoCuenta = :tipoCuenta) " +
+            "GROUP BY a.fecha, a.tipoMovimiento, a.moneda")
+    List<Object[]> sumarPorDia(@Param("desde") LocalDate desde,
+                               @Param("hasta") LocalDate hasta,
+                               @Param("cuentaId") Long cuentaId,
+                               @Param("tipoCuenta") String tipoCuenta);
+
+    @Query("SELECT a.fecha, a.tipoMovimiento, SUM(a.cantidad), SUM(a.total), a.moneda, a.cuentaId FROM AgregadoDiario a " +
+            "WHERE a.fecha BETWEEN :desde AND :hasta " +
+            "AND (:cuentaId IS NULL OR a.cuentaId = :cuentaId) " +
+            "AND (:tipoCuenta IS NULL OR a.tipoCuenta = :tipoCuenta) " +
+            "GROUP BY a.fecha, a.tipoMovimiento, a.moneda, a.cuentaId")
+    List<Object[]> sumarPorDiaYCuenta(@Param("desde") LocalDate desde,
+                                      @Param("hasta") LocalDate hasta,
+                                      @Param("cuentaId") Long cuentaId,
+                                      @Param("tipoCuenta") String tipoCuenta);
+
+    @Query("SELECT a.fecha, a.tipoMovimiento, SUM(a.cantidad), SUM(a.total), a.moneda, a.tipoCuenta FROM AgregadoDiario a " +
+            "WHERE a.fecha BETWEEN :desde AND :hasta " +
+            "AND (:cuentaId IS NULL OR a.cuentaId = :cuentaId) " +
+            "AND (:tipoCuenta IS NULL OR a.tipoCuenta = :tipoCuenta) " +
+            "GROUP BY a.fecha, a.tipoMovimiento, a.moneda, a.tipoCuenta")
+    List<Object[]> sumarPorDiaYTipoCuenta(@Param("desde") LocalDate desde,
+                                          @Param("hasta") LocalDate hasta,
+                                          @Param("cuentaId") Long cuentaId,
+                                          @Param("tipoCuenta") String tipoCuenta);
+
+    @Modifying
+    @Query("DELETE FROM AgregadoDiario a WHERE a.cuentaId IN :cuentaIds AND a.fecha BETWEEN :desde AND :hasta")
+    int eliminarRango(@Param("cuentaIds") Collection<Long> cuentaIds,
+                      @Param("desde") LocalDate desde,
+                      @Param("hasta") LocalDate hasta);
+}
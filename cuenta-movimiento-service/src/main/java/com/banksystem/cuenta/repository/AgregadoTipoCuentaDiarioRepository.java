@@ -0,0 +1,71 @@
+package com.banksystem.cuenta.repository;
+
+import com.banksystem.cuenta.entity.AgregadoTipoCuentaDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AgregadoTipoCuentaDiarioRepository extends JpaRepository<AgregadoTipoCuentaDiario, Long> {
+
+    /**
+     * Sumar movimientos a la ranura del tipo de cuenta en el día; crea la fila si no existe
+     */
+    @Modifying
+    @Query(value = "INSERT INTO agregado_tipo_cuenta_diario " +
+            "(tipo_cuenta, moneda, fecha, tipo_movimiento, ranura, cantidad, total) " +
+            "VALUES (:tipoCuenta, :moneda, :fecha, :tipoMovimiento, :ranura, :cantidad, :total) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad), total = total + VALUES(total)",
+            nativeQuery = true)
+    int sumarMovimientos(@Param("tipoCuenta") String tipoCuenta,
+                         @Param("moneda") String moneda,
+                         @Param("fecha") LocalDate fecha,
+                         @Param("tipoMovimiento") String tipoMovimiento,
+                         @Param("ranura") int ranura,
+                         @Param("cantidad") long cantidad,
+                         @Param("total") BigDecimal total);
+
+    /**
+     * Mismas filas que {@link AgregadoDiarioRepository#sumarPorDia} sin filtro de cuenta
+     */
+    @Query("SELECT a.fecha, a.tipoMovimiento, SUM(a.cantidad), SUM(a.total), a.moneda FROM AgregadoTipoCuentaDiario a " +
+            "WHERE a.fecha BETWEEN :desde AND :hasta " +
+            "AND (:tipoCuenta IS NULL OR a.tipoCuenta = :tipoCuenta) " +
+            "GROUP BY a.fecha, a.tipoMovimiento, a.moneda")
+    List<Object[]> sumarPorDia(@Param("desde") LocalDate desde,
+                               @Param("hasta") LocalDate hasta,
+                               @Param("tipoCuenta") String tipoCuenta);
+
+    @Query("SELECT a.fecha, a.tipoMovimiento, SUM(a.cantidad), SUM(a.total), a.moneda, a.tipoCuenta " +
+            "FROM AgregadoTipoCuentaDiario a " +
+            "WHERE a.fecha BETWEEN :desde AND :hasta " +
+            "AND (:tipoCuenta IS NULL OR a.tipoCuenta = :tipoCuenta) " +
+            "GROUP BY a.fecha, a.tipoMovimiento, a.moneda, a.tipoCuenta")
+    List<Object[]> sumarPorDiaYTipoCuenta(@Param("desde") LocalDate desde,
+                                          @Param("hasta") LocalDate hasta,
+                                          @Param("tipoCuenta") String tipoCuenta);
+
+    @Modifying
+    @Query("DELETE FROM AgregadoTipoCuentaDiario a WHERE a.fecha BETWEEN :desde AND :hasta")
+    int eliminarRango(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    /**
+     * Volver a plegar los agregados por cuenta del rango, con la misma ranura que al registrar
+     */
+    @Modifying
+    @Query(value = "INSERT INTO agregado_tipo_cuenta_diario " +
+            "(tipo_cuenta, moneda, fecha, tipo_movimiento, ranura, cantidad, total) " +
+            "SELECT a.tipo_cuenta, a.moneda, a.fecha, a.tipo_movimiento, " +
+            "MOD(a.cuenta_id, " + AgregadoTipoCuentaDiario.RANURAS + "), SUM(a.cantidad), SUM(a.total) " +
+            "FROM agregado_diario a WHERE a.fecha BETWEEN :desde AND :hasta " +
+            "GROUP BY a.tipo_cuenta, a.moneda, a.fecha, a.tipo_movimiento, " +
+            "MOD(a.cuenta_id, " + AgregadoTipoCuentaDiario.RANURAS + ")",
+            nativeQuery = true)
+    int plegarRango(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+}
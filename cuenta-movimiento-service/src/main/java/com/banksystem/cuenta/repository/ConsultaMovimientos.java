@@ -0,0 +1,187 @@
+package com.banksystem.cuenta.repository;
+
+import com.banksystem.cuenta.dto.FiltroMovimientos;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL nativo de la búsqueda de movimientos, armado según los criterios informados.
+ * <p>
+ * El plan elige el índice que conduce la consulta: el primero aplicable en el orden de
+ * {@link Plan}, que va de más a menos selectivo para los datos del banco. Ese índice se fija
+ * con USE INDEX y el resto de criterios queda como filtro residual. Si ningún índice aplica
+ * la combinación no se ejecuta en línea: sólo puede recorrerse en segundo plano por ID.
+ * <p>
+ * Las páginas en línea se ordenan por (fecha, id) descendente y continúan por clave, sin OFFSET.
+ * Por eso sólo conducen índices que entregan ese orden o un rango acotado por la ventana de
+ * fechas: descripción y valor nunca conducen (sin acotar, cada página leería y ordenaría todas
+ * las coincidencias) y sólo filtran.
+ * <p>
+ * Ambos caminos leen la tabla {@code movimiento}: los movimientos ya pasados al archivo frío
+ * no aparecen en la búsqueda.
+ */
+public final class ConsultaMovimientos {
+
+    /**
+     * Índice conductor; requiere los criterios indicados
+     */
+    public enum Plan {
+        /**
+         * una sola cuenta (en orden por el índice), o varias con ventana de fechas acotada:
+         * rango por cuenta sobre (cuenta_id, fecha, id)
+         */
+        CUENTAS("idx_movimiento_cuenta_fecha"),
+        /** tipoMovimiento + ventana de fechas acotada: igualdad y rango sobre (tipo_movimiento, fecha, id) */
+        TIPO_FECHA("idx_movimiento_tipo_fecha"),
+        /** ventana de fechas acotada: rango sobre (fecha) */
+        FECHA("idx_movimiento_fecha");
+
+        private final String indice;
+
+        Plan(String indice) {
+            this.indice = indice;
+        }
+
+        public String getIndice() {
+            return indice;
+        }
+    }
+
+    private static final String COLUMNAS = "SELECT m.* FROM movimiento m";
+
+    private final String sql;
+    private final Map<String, Object> parametros;
+    private final Plan plan;
+
+    private ConsultaMovimientos(String sql, Map<String, Object> parametros, Plan plan) {
+        this.sql = sql;
+        this.parametros = Collections.unmodifiableMap(parametros);
+        this.plan = plan;
+    }
+
+    /**
+     * Índice con el que puede resolverse la búsqueda en línea, o null si ninguno aplica.
+     * Una ventana de fechas sólo conduce la consulta si no supera la ventana máxima; varias
+     * cuentas también la necesitan, porque sus rangos se mezclan y ordenan en cada página.
+     */
+    public static Plan elegirPlan(FiltroMovimientos filtro, Duration ventanaMaxima) {
+        validar(filtro);
+        boolean ventanaAcotada = filtro.getFechaDesde() != null && filtro.getFechaHasta() != null
+                && Duration.between(filtro.getFechaDesde(), filtro.getFechaHasta()).compareTo(ventanaMaxima) <= 0;
+
+        if (filtro.tieneCuentas() && (filtro.getCuentaIds().size() == 1 || ventanaAcotada)) {
+            return Plan.CUENTAS;
+        }
+        if (ventanaAcotada && filtro.getTipoMovimiento() != null) {
+            return Plan.TIPO_FECHA;
+        }
+        if (ventanaAcotada) {
+            return Plan.FECHA;
+        }
+        return null;
+    }
+
+    /**
+     * Página en línea con el plan dado: movimientos anteriores a la clave (fecha, id) en orden
+     * descendente, o desde el más reciente si la clave es nula. El límite se fija al ejecutar.
+     */
+    public static ConsultaMovimientos pagina(FiltroMovimientos filtro, Plan plan,
+                                             LocalDateTime antesDeFecha, Long antesDeId) {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder(COLUMNAS)
+                .append(" USE INDEX (").append(plan.getIndice()).append(")")
+                .append(" WHERE 1 = 1");
+        agregarFiltros(sql, parametros, filtro);
+        if (antesDeFecha != null) {
+            sql.append(" AND (m.fecha < :claveFecha OR (m.fecha = :claveFecha AND m.id < :claveId))");
+            parametros.put("claveFecha", antesDeFecha);
+            parametros.put("claveId", antesDeId);
+        }
+        sql.append(" ORDER BY m.fecha DESC, m.id DESC");
+        return new ConsultaMovimientos(sql.toString(), parametros, plan);
+    }
+
+    /**
+     * Recorrido completo por clave primaria para combinaciones sin índice (sólo en segundo
+     * plano): movimientos con ID mayor al dado que cumplen todos los criterios, por ID ascendente
+     */
+    public static ConsultaMovimientos recorrido(FiltroMovimientos filtro, Long despuesDeId) {
+        validar(filtro);
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder(COLUMNAS).append(" WHERE m.id > :despuesDeId");
+        parametros.put("despuesDeId", despuesDeId);
+        agregarFiltros(sql, parametros, filtro);
+        sql.append(" ORDER BY m.id ASC");
+        return new ConsultaMovimientos(sql.toString(), parametros, null);
+    }
+
+    private static void agregarFiltros(StringBuilder sql, Map<String, Object> parametros,
+                                       FiltroMovimientos filtro) {
+        if (filtro.tieneCuentas()) {
+            sql.append(" AND m.cuenta_id IN (:cuentaIds)");
+            parametros.put("cuentaIds", filtro.getCuentaIds());
+        }
+        if (filtro.getTipoMovimiento() != null) {
+            sql.append(" AND m.tipo_movimiento = :tipoMovimiento");
+            parametros.put("tipoMovimiento", filtro.getTipoMovimiento());
+        }
+        if (filtro.getFechaDesde() != null) {
+            sql.append(" AND m.fecha >= :fechaDesde");
+            parametros.put("fechaDesde", filtro.getFechaDesde());
+        }
+        if (filtro.getFechaHasta() != null) {
+            sql.append(" AND m.fecha <= :fechaHasta");
+            parametros.put("fechaHasta", filtro.getFechaHasta());
+        }
+        if (filtro.getValorMinimo() != null) {
+            sql.append(" AND m.valor >= :valorMinimo");
+            parametros.put("valorMinimo", filtro.getValorMinimo());
+        }
+        if (filtro.getValorMaximo() != null) {
+            sql.append(" AND m.valor <= :valorMaximo");
+            parametros.put("valorMaximo", filtro.getValorMaximo());
+        }
+        if (filtro.tieneDescripcion()) {
+            // Residual sobre filas ya acotadas por el índice: coincidencia por subcadena
+            sql.append(" AND m.descripcion LIKE :patron");
+            parametros.put("patron", "%" + escaparLike(filtro.getDescripcion().trim()) + "%");
+        }
+    }
+
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Rangos coherentes: falla con IllegalArgumentException
+     */
+    public static void validar(FiltroMovimientos filtro) {
+        if (filtro.getFechaDesde() != null && filtro.getFechaHasta() != null
+                && filtro.getFechaDesde().isAfter(filtro.getFechaHasta())) {
+            throw new IllegalArgumentException("La fecha inicial es posterior a la final");
+        }
+        if (filtro.getValorMinimo() != null && filtro.getValorMaximo() != null
+                && filtro.getValorMinimo().compareTo(filtro.getValorMaximo()) > 0) {
+            throw new IllegalArgumentException("El valor mínimo es mayor al máximo");
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Map<String, Object> getParametros() {
+        return parametros;
+    }
+
+    /**
+     * Plan de la página en línea; null en un recorrido
+     */
+    public Plan getPlan() {
+        return plan;
+    }
+}
@@ -1,19 +1,38 @@
 package com.banksystem.cuenta.repository;
 
+import com.banksystem.comun.condicional.VersionColeccion;
+import com.banksystem.comun.condicional.VersionRecurso;
 import com.banksystem.cuenta.entity.Cuenta;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CuentaRepository extends JpaRepository<Cuenta, Long> {
+public interface CuentaRepository extends JpaRepository<Cuenta, Long>, JpaSpecificationExecutor<Cuenta> {
 
     Optional<Cuenta> findByNumeroCuenta(String numeroCuenta);
 
+    long countByIdIn(Collection<Long> ids);
+
+    /**
+     * Leer la cuenta con bloqueo exclusivo de fila (SELECT ... FOR UPDATE) hasta el fin de
+     * la transacción; serializa las operaciones que modifican el saldo
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cuenta c WHERE c.id = :id")
+    Optional<Cuenta> findByIdParaActualizar(@Param("id") Long id);
+
     @Query("SELECT c FROM Cuenta c WHERE c.clienteId = :clienteId AND c.estado = true")
     List<Cuenta> findByClienteIdAndEstadoTrue(@Param("clienteId") Long clienteId);
 
@@ -26,4 +45,124 @@ public interface CuentaRepository extends JpaRepository<Cuenta, Long> {
     boolean existsByNumeroCuenta(String numeroCuenta);
 
     long countByClienteId(Long clienteId);
+
+    /**
+     * Sub-saldos de la cuenta sin cargar la entidad: decide si un depósito va a una ranura
+     */
+    @Query("SELECT c.ranurasSaldo FROM Cuenta c WHERE c.id = :id")
+    Optional<Integer> findRanurasSaldo(@Param("id") Long id);
+
+    /**
+     * Modo de saldo de la cuenta (sub-saldos o libro mayor) sin cargar la entidad
+     */
+    @Query("SELECT c.ranurasSaldo AS ranurasSaldo, c.secuenciaCompactada AS secuenciaCompactada, " +
+            "c.moneda AS moneda FROM Cuenta c WHERE c.id = :id")
+    Optional<ModoSaldo> findModoSaldo(@Param("id") Long id);
+
+    /**
+     * Versión de la cuenta; los depósitos en sub-saldos y los movimientos del libro mayor no
+     * tocan la fila de la cuenta, por eso se suman las versiones de sus ranuras y la última
+     * secuencia del libro, y se toma la última actualización de ranuras y libro
+     */
+    @Query("SELECT c.version + COALESCE((SELECT SUM(s.version) FROM SubSaldo s WHERE s.cuentaId = c.id), 0) " +
+            "+ COALESCE((SELECT MAX(m.secuencia) FROM Movimiento m WHERE m.cuentaId = c.id), 0) AS version, " +
+            "greatest(c.fechaActualizacion, COALESCE((SELECT MAX(s.fechaActualizacion) FROM SubSaldo s " +
+            "WHERE s.cuentaId = c.id), c.fechaActualizacion), COALESCE((SELECT MAX(m.fechaCreacion) FROM Movimiento m " +
+            "WHERE m.cuentaId = c.id AND m.secuencia > c.secuenciaCompactada), c.fechaActualizacion)) AS fechaActualizacion " +
+            "FROM Cuenta c WHERE c.id = :id")
+    Optional<VersionRecurso> findVersionById(@Param("id") Long id);
+
+    /**
+     * Versión de los listados: como en {@link #findVersionById}, cada cuenta en modo libro
+     * aporta su última secuencia y la fecha de su último movimiento sin compactar; las ranuras
+     * sólo suman las de las cuentas listadas
+     */
+    @Query("SELECT COUNT(c) AS cantidad, MAX(c.id) AS maximoId, " +
+            "SUM(c.version + CASE WHEN c.secuenciaCompactada IS NULL THEN 0 ELSE " +
+            "COALESCE((SELECT MAX(m.secuencia) FROM Movimiento m WHERE m.cuentaId = c.id), 0) END) " +
+            "+ (SELECT COALESCE(SUM(s.version), 0) FROM SubSaldo s " +
+            "WHERE s.cuentaId IN (SELECT c2.id FROM Cuenta c2)) AS sumaVersiones, " +
+            "MAX(greatest(c.fechaActualizacion, CASE WHEN c.secuenciaCompactada IS NULL THEN c.fechaActualizacion ELSE " +
+            "COALESCE((SELECT MAX(m.fechaCreacion) FROM Movimiento m WHERE m.cuentaId = c.id " +
+            "AND m.secuencia > c.secuenciaCompactada), c.fechaActualizacion) END)) AS ultimaActualizacion " +
+            "FROM Cuenta c")
+    VersionColeccion obtenerVersionColeccion();
+
+    @Query("SELECT COUNT(c) AS cantidad, MAX(c.id) AS maximoId, " +
+            "SUM(c.version + CASE WHEN c.secuenciaCompactada IS NULL THEN 0 ELSE " +
+            "COALESCE((SELECT MAX(m.secuencia) FROM Movimiento m WHERE m.cuentaId = c.id), 0) END) " +
+            "+ (SELECT COALESCE(SUM(s.version), 0) FROM SubSaldo s " +
+            "WHERE s.cuentaId IN (SELECT c2.id FROM Cuenta c2 WHERE c2.estado = true)) AS sumaVersiones, " +
+            "MAX(greatest(c.fechaActualizacion, CASE WHEN c.secuenciaCompactada IS NULL THEN c.fechaActualizacion ELSE " +
+            "COALESCE((SELECT MAX(m.fechaCreacion) FROM Movimiento m WHERE m.cuentaId = c.id " +
+            "AND m.secuencia > c.secuenciaCompactada), c.fechaActualizacion) END)) AS ultimaActualizacion " +
+            "FROM Cuenta c WHERE c.estado = true")
+    VersionColeccion obtenerVersionColeccionActivas();
+
+    @Query("SELECT COUNT(c) AS cantidad, MAX(c.id) AS maximoId, " +
+            "SUM(c.version + CASE WHEN c.secuenciaCompactada IS NULL THEN 0 ELSE " +
+            "COALESCE((SELECT MAX(m.secuencia) FROM Movimiento m WHERE m.cuentaId = c.id), 0) END) " +
+            "+ (SELECT COALESCE(SUM(s.version), 0) FROM SubSaldo s " +
+            "WHERE s.cuentaId IN (SELECT c2.id FROM Cuenta c2 WHERE c2.clienteId = :clienteId)) AS sumaVersiones, " +
+            "MAX(greatest(c.fechaActualizacion, CASE WHEN c.secuenciaCompactada IS NULL THEN c.fechaActualizacion ELSE " +
+            "COALESCE((SELECT MAX(m.fechaCreacion) FROM Movimiento m WHERE m.cuentaId = c.id " +
+            "AND m.secuencia > c.secuenciaCompactada), c.fechaActualizacion) END)) AS ultimaActualizacion " +
+            "FROM Cuenta c WHERE c.clienteId = :clienteId")
+    VersionColeccion obtenerVersionColeccionPorCliente(@Param("clienteId") Long clienteId);
+
+    /**
+     * Total aproximado de filas según las estadísticas de InnoDB (sin recorrer la tabla)
+     */
+    @Query(value = "SELECT table_rows FROM information_schema.tables " +
+            "WHERE table_schema = DATABASE() AND table_name = 'cuenta'", nativeQuery = true)
+    Long estimarTotal();
+
+    /**
+     * Cuentas en modo libro mayor con movimientos sin compactar
+     */
+    @Query("SELECT c.id FROM Cuenta c WHERE c.secuenciaCompactada IS NOT NULL AND EXISTS " +
+            "(SELECT 1 FROM Movimiento m WHERE m.cuentaId = c.id AND m.secuencia > c.secuenciaCompactada)")
+    List<Long> findCuentasLibroPendientes();
+
+    /**
+     * Cuentas con ID mayor al dado, ordenadas por ID, para recorridos por clave
+     */
+    @Query("SELECT c FROM Cuenta c WHERE c.id > :desdeId ORDER BY c.id ASC")
+    List<Cuenta> findSiguientes(@Param("desdeId") Long desdeId, Pageable pageable);
+
+    @Query("SELECT MIN(c.clienteId) AS minimo, MAX(c.clienteId) AS maximo, " +
+            "COUNT(DISTINCT c.clienteId) AS cantidad FROM Cuenta c")
+    RangoClientes obtenerRangoClientes();
+
+    /**
+     * IDs de cliente en (desde, hasta], ordenados, para recorrer una partición por clave
+     */
+    @Query("SELECT DISTINCT c.clienteId FROM Cuenta c WHERE c.clienteId > :desde AND c.clienteId <= :hasta " +
+            "ORDER BY c.clienteId")
+    List<Long> findClientesEnRango(@Param("desde") Long desde, @Param("hasta") Long hasta, Pageable pageable);
+
+    @Query("SELECT MIN(c.id) AS minimo, MAX(c.id) AS maximo, COUNT(c) AS cantidad FROM Cuenta c")
+    RangoCuentas obtenerRangoCuentas();
+
+    /**
+     * Cuentas con ID en (desde, hasta], ordenadas, para recorrer una partición por clave
+     */
+    @Query("SELECT c FROM Cuenta c WHERE c.id > :desde AND c.id <= :hasta ORDER BY c.id ASC")
+    List<Cuenta> findEnRango(@Param("desde") Long desde, @Param("hasta") Long hasta, Pageable pageable);
+
+    @Query("SELECT c FROM Cuenta c WHERE c.clienteId IN :clienteIds ORDER BY c.clienteId, c.id")
+    List<Cuenta> findByClienteIdIn(@Param("clienteIds") Collection<Long> clienteIds);
+
+    /**
+     * IDs de cuentas activas del tipo, creadas antes del corte y sin interés devengado en la
+     * fecha, con ID mayor al dado: recorrido por clave sin cargar las entidades
+     */
+    @Query("SELECT c.id FROM Cuenta c WHERE c.id > :desdeId AND c.estado = true AND c.tipoCuenta = :tipoCuenta " +
+            "AND c.fechaCreacion < :creadaAntes AND NOT EXISTS " +
+            "(SELECT 1 FROM DevengoInteres d WHERE d.cuentaId = c.id AND d.fecha = :fecha) ORDER BY c.id")
+    List<Long> findPendientesDeInteres(@Param("desdeId") Long desdeId,
+                                       @Param("tipoCuenta") String tipoCuenta,
+                                       @Param("creadaAntes") LocalDateTime creadaAntes,
+                                       @Param("fecha") LocalDate fecha,
+                                       Pageable pageable);
 }
@@ -0,0 +1,18 @@
+package com.banksystem.cuenta.repository;
+
+import com.banksystem.cuenta.entity.DevengoInteres;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DevengoInteresRepository extends JpaRepository<DevengoInteres, Long> {
+
+    boolean existsByCuentaIdAndFecha(Long cuentaId, LocalDate fecha);
+
+    List<DevengoInteres> findByCuentaId(Long cuentaId);
+
+    long countByFecha(LocalDate fecha);
+}
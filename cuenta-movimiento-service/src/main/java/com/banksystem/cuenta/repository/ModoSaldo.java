@@ -0,0 +1,23 @@
+package com.banksystem.cuenta.repository;
+
+/**
+ * Proyección liviana con el modo en que la cuenta lleva su saldo: decide el camino de un
+ * movimiento antes de bloquear la fila
+ */
+public interface ModoSaldo {
+
+    /**
+     * Sub-saldos de una cuenta caliente (null o 0 si no lo es)
+     */
+    Integer getRanurasSaldo();
+
+    /**
+     * Última secuencia compactada del libro mayor (null si la cuenta no está en modo libro)
+     */
+    Long getSecuenciaCompactada();
+
+    /**
+     * Moneda de la cuenta: decide si el importe pedido se convierte antes de aplicarlo
+     */
+    String getMoneda();
+}
@@ -1,12 +1,17 @@
 package com.banksystem.cuenta.repository;
 
 import com.banksystem.cuenta.entity.Movimiento;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,4 +30,146 @@ public interface MovimientoRepository extends JpaRepository<Movimiento, Long> {
                                                      @Param("cuentaId") Long cuentaId);
 
     long countByCuentaId(Long cuentaId);
+
+    /**
+     * Cuentas con movimientos anteriores al corte de archivo, recorridas por rango de ID
+     */
+    @Query("SELECT DISTINCT m.cuentaId FROM Movimiento m WHERE m.fecha < :corte AND m.cuentaId > :desdeCuentaId " +
+            "ORDER BY m.cuentaId")
+    List<Long> findCuentasConMovimientosAntesDe(@Param("corte") LocalDateTime corte,
+                                                @Param("desdeCuentaId") Long desdeCuentaId,
+                                                Pageable pageable);
+
+    /**
+     * Movimientos anteriores al corte, paginados por clave (fecha, id) ascendente
+     */
+    @Query("SELECT m FROM Movimiento m WHERE m.cuentaId = :cuentaId AND m.fecha < :corte " +
+            "AND (m.fecha > :fecha OR (m.fecha = :fecha AND m.id > :id)) ORDER BY m.fecha ASC, m.id ASC")
+    List<Movimiento> findAntiguosPorCuentaDesde(@Param("cuentaId") Long cuentaId,
+                                                @Param("corte") LocalDateTime corte,
+                                                @Param("fecha") LocalDateTime fecha,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    /**
+     * Movimientos de la cuenta en [inicio, fin] posteriores a la clave (fecha, id), en orden
+     * ascendente, para recorrer rangos largos por páginas sin OFFSET
+     */
+    @Query("SELECT m FROM Movimiento m WHERE m.cuentaId = :cuentaId AND m.fecha BETWEEN :inicio AND :fin " +
+            "AND (m.fecha > :fecha OR (m.fecha = :fecha AND m.id > :id)) ORDER BY m.fecha ASC, m.id ASC")
+    List<Movimiento> findPorCuentaYFechasDesde(@Param("cuentaId") Long cuentaId,
+                                               @Param("inicio") LocalDateTime inicio,
+                                               @Param("fin") LocalDateTime fin,
+                                               @Param("fecha") LocalDateTime fecha,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    /**
+     * Movimientos de varias cuentas en [inicio, fin] por clave (cuenta_id, fecha, id), para
+     * leer de una vez los movimientos de un lote de clientes sin una consulta por cuenta
+     */
+    @Query("SELECT m FROM Movimiento m WHERE m.cuentaId IN :cuentaIds AND m.fecha BETWEEN :inicio AND :fin " +
+            "AND (m.cuentaId > :cuentaId OR (m.cuentaId = :cuentaId AND " +
+            "(m.fecha > :fecha OR (m.fecha = :fecha AND m.id > :id)))) " +
+            "ORDER BY m.cuentaId ASC, m.fecha ASC, m.id ASC")
+    List<Movimiento> findPorCuentasYFechasDesde(@Param("cuentaIds") Collection<Long> cuentaIds,
+                                                @Param("inicio") LocalDateTime inicio,
+                                                @Param("fin") LocalDateTime fin,
+                                                @Param("cuentaId") Long cuentaId,
+                                                @Param("fecha") LocalDateTime fecha,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    /**
+     * Saldo del último movimiento en o antes de la fecha (búsqueda descendente sobre
+     * idx_movimiento_cuenta_fecha); usar con PageRequest.of(0, 1)
+     */
+    @Query("SELECT m.saldo FROM Movimiento m WHERE m.cuentaId = :cuentaId AND m.fecha <= :fecha " +
+            "ORDER BY m.fecha DESC, m.id DESC")
+    List<BigDecimal> findUltimoSaldoHasta(@Param("cuentaId") Long cuentaId,
+                                          @Param("fecha") LocalDateTime fecha,
+                                          Pageable pageable);
+
+    /**
+     * Saldo de varias cuentas en un instante: por cada cuenta, el del último movimiento
+     * (fecha y luego ID) en o antes del instante; cada subconsulta recorre el índice por cuenta y fecha.
+     * Columnas: cuenta_id, saldo_inicial, saldo (null si no hay movimientos).
+     */
+    @Query("SELECT c.id, c.saldoInicial, (SELECT m.saldo FROM Movimiento m WHERE m.id = " +
+            "(SELECT MAX(m2.id) FROM Movimiento m2 WHERE m2.cuentaId = c.id AND m2.fecha = " +
+            "(SELECT MAX(m3.fecha) FROM Movimiento m3 WHERE m3.cuentaId = c.id AND m3.fecha <= :fecha))) " +
+            "FROM Cuenta c WHERE c.id IN :cuentaIds")
+    List<Object[]> findSaldosEnFecha(@Param("cuentaIds") Collection<Long> cuentaIds,
+                                     @Param("fecha") LocalDateTime fecha);
+
+    @Query("SELECT m FROM Movimiento m WHERE m.transferenciaId = :transferenciaId ORDER BY m.id")
+    List<Movimiento> findByTransferenciaId(@Param("transferenciaId") String transferenciaId);
+
+    /**
+     * Movimientos de la cuenta posteriores al ID dado, en orden de inserción. Lectura con
+     * bloqueo compartido para ver lo último confirmado y no una instantánea anterior
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT m FROM Movimiento m WHERE m.cuentaId = :cuentaId AND m.id > :desdeId ORDER BY m.id ASC")
+    List<Movimiento> findPendientesConciliacion(@Param("cuentaId") Long cuentaId, @Param("desdeId") Long desdeId);
+
+    @Query("SELECT MAX(m.id) FROM Movimiento m WHERE m.cuentaId = :cuentaId")
+    Long findUltimoId(@Param("cuentaId") Long cuentaId);
+
+    /**
+     * Movimientos del libro mayor posteriores a la secuencia dada, del más nuevo al más viejo
+     * (clave única cuenta_id, secuencia); con PageRequest.of(0, 1) es la cabeza del libro
+     */
+    @Query("SELECT m FROM Movimiento m WHERE m.cuentaId = :cuentaId AND m.secuencia > :desde " +
+            "ORDER BY m.secuencia DESC")
+    List<Movimiento> findUltimosDelLibro(@Param("cuentaId") Long cuentaId, @Param("desde") Long desde,
+                                         Pageable pageable);
+
+    /**
+     * Movimientos del libro mayor posteriores a la secuencia dada, en orden de secuencia
+     */
+    @Query("SELECT m FROM Movimiento m WHERE m.cuentaId = :cuentaId AND m.secuencia > :desde " +
+            "ORDER BY m.secuencia ASC")
+    List<Movimiento> findLibroDesde(@Param("cuentaId") Long cuentaId, @Param("desde") Long desde,
+                                    Pageable pageable);
+
+    @Query("SELECT MAX(m.secuencia) FROM Movimiento m WHERE m.cuentaId = :cuentaId")
+    Long findUltimaSecuencia(@Param("cuentaId") Long cuentaId);
+
+    /**
+     * Retiros del libro posteriores a la secuencia dada desde el instante indicado: lo que
+     * aún no llegó al agregado diario
+     */
+    @Query("SELECT COALESCE(SUM(m.valor), 0) FROM Movimiento m WHERE m.cuentaId = :cuentaId " +
+            "AND m.secuencia > :desde AND UPPER(m.tipoMovimiento) = 'RETIRO' AND m.fecha >= :inicio")
+    BigDecimal sumarRetirosDelLibro(@Param("cuentaId") Long cuentaId, @Param("desde") Long desde,
+                                    @Param("inicio") LocalDateTime inicio);
+
+    /**
+     * Primer ID con fecha igual o posterior a la dada (idx_movimiento_fecha)
+     */
+    @Query("SELECT MIN(m.id) FROM Movimiento m WHERE m.fecha >= :desde")
+    Long findPrimerIdDesde(@Param("desde") LocalDateTime desde);
+
+    /**
+     * Movimientos desde la fecha con ID mayor al dado, por ID ascendente.
+     * Columnas: id, cuentaId, tipoMovimiento, valor, fecha
+     */
+    @Query("SELECT m.id, m.cuentaId, m.tipoMovimiento, m.valor, m.fecha FROM Movimiento m " +
+            "WHERE m.id > :despuesDeId AND m.fecha >= :desde ORDER BY m.id ASC")
+    List<Object[]> findRecientesDesdeId(@Param("desde") LocalDateTime desde,
+                                        @Param("despuesDeId") Long despuesDeId,
+                                        Pageable pageable);
+
+    /**
+     * Cantidad y suma de movimientos por cuenta, día y tipo en el rango [desde, hasta).
+     * Columnas: cuenta_id, dia, tipo_movimiento, cantidad, total
+     */
+    @Query(value = "SELECT m.cuenta_id, DATE(m.fecha) AS dia, m.tipo_movimiento, COUNT(*) AS cantidad, " +
+            "SUM(m.valor) AS total FROM movimiento m " +
+            "WHERE m.cuenta_id IN (:cuentaIds) AND m.fecha >= :desde AND m.fecha < :hasta " +
+            "GROUP BY m.cuenta_id, DATE(m.fecha), m.tipo_movimiento", nativeQuery = true)
+    List<Object[]> sumarPorCuentaDiaYTipo(@Param("cuentaIds") Collection<Long> cuentaIds,
+                                          @Param("desde") LocalDateTime desde,
+                                          @Param("hasta") LocalDateTime hasta);
 }
@@ -0,0 +1,13 @@
+package com.banksystem.cuenta.repository;
+
+/**
+ * Rango de IDs de cliente con cuentas, para particionar procesos por lotes
+ */
+public interface RangoClientes {
+
+    Long getMinimo();
+
+    Long getMaximo();
+
+    Long getCantidad();
+}
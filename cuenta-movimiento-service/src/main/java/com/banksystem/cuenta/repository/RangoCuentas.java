@@ -0,0 +1,13 @@
+package com.banksystem.cuenta.repository;
+
+/**
+ * Rango de IDs de cuenta, para particionar procesos por lotes
+ */
+public interface RangoCuentas {
+
+    Long getMinimo();
+
+    Long getMaximo();
+
+    Long getCantidad();
+}
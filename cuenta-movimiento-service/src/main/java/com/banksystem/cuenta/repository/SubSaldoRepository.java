@@ -0,0 +1,50 @@
+package com.banksystem.cuenta.repository;
+
+import com.banksystem.cuenta.entity.SubSaldo;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SubSaldoRepository extends JpaRepository<SubSaldo, Long> {
+
+    /**
+     * Sumar un depósito a una ranura; bloquea sólo esa fila
+     */
+    @Modifying
+    @Query(value = "UPDATE cuenta_sub_saldo SET saldo = saldo + :valor, version = version + 1, " +
+            "fecha_actualizacion = :fecha WHERE cuenta_id = :cuentaId AND ranura = :ranura",
+            nativeQuery = true)
+    int sumar(@Param("cuentaId") Long cuentaId,
+              @Param("ranura") Integer ranura,
+              @Param("valor") BigDecimal valor,
+              @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Todas las ranuras de la cuenta bloqueadas en orden de ranura (SELECT ... FOR UPDATE)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SubSaldo s WHERE s.cuentaId = :cuentaId ORDER BY s.ranura")
+    List<SubSaldo> findParaConsolidar(@Param("cuentaId") Long cuentaId);
+
+    /**
+     * Saldo consolidado más sub-saldos, sin bloqueos (saldo provisional de un depósito)
+     */
+    @Query(value = "SELECT c.saldo_disponible + COALESCE((SELECT SUM(s.saldo) FROM cuenta_sub_saldo s " +
+            "WHERE s.cuenta_id = c.id), 0) FROM cuenta c WHERE c.id = :cuentaId", nativeQuery = true)
+    BigDecimal obtenerSaldoTotal(@Param("cuentaId") Long cuentaId);
+
+    /**
+     * Cuentas con depósitos repartidos aún sin consolidar
+     */
+    @Query("SELECT DISTINCT s.cuentaId FROM SubSaldo s WHERE s.saldo <> 0 ORDER BY s.cuentaId")
+    List<Long> findCuentasPendientes();
+}
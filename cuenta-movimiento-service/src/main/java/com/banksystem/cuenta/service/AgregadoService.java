@@ -0,0 +1,394 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.entity.AgregadoDiario;
+import com.banksystem.cuenta.entity.AgregadoTipoCuentaDiario;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.AgregadoDiarioRepository;
+import com.banksystem.cuenta.repository.AgregadoTipoCuentaDiarioRepository;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Agregados de movimientos (cantidad y suma por tipo) a grano diario.
+ * Los meses y años se responden sumando los días, nunca leyendo movimientos.
+ * Además del agregado por cuenta se mantiene uno por tipo de cuenta y moneda, en la misma
+ * transacción: TOTAL y TIPO_CUENTA sin filtro de cuenta lo leen en lugar de sumar todas las
+ * cuentas. Sus filas se actualizan al confirmar, en orden de clave, así dos transacciones
+ * que tocan varias ranuras no se bloquean en sentidos opuestos.
+ */
+@Service
+@Transactional
+public class AgregadoService {
+
+    private static final Logger log = LoggerFactory.getLogger(AgregadoService.class);
+
+    private static final int TAMANO_LOTE_CUENTAS = 5_000;
+    private static final int UMBRAL_TAREA = 250;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<List<Comparable<?>>> ORDEN_CLAVE = (a, b) -> {
+        for (int i = 0; i < a.size(); i++) {
+            int comparacion = ((Comparable) a.get(i)).compareTo(b.get(i));
+            if (comparacion != 0) {
+                return comparacion;
+            }
+        }
+        return 0;
+    };
+
+    private final AgregadoDiarioRepository agregadoDiarioRepository;
+    private final AgregadoTipoCuentaDiarioRepository agregadoTipoCuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final CuentaRepository cuentaRepository;
+    private final ArchivoMovimientosService archivoMovimientosService;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public AgregadoService(AgregadoDiarioRepository agregadoDiarioRepository,
+                           AgregadoTipoCuentaDiarioRepository agregadoTipoCuentaRepository,
+                           MovimientoRepository movimientoRepository,
+                           CuentaRepository cuentaRepository,
+                           ArchivoMovimientosService archivoMovimientosService,
+                           PlatformTransactionManager transactionManager) {
+        this.agregadoDiarioRepository = agregadoDiarioRepository;
+        this.agregadoTipoCuentaRepository = agregadoTipoCuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.cuentaRepository = cuentaRepository;
+        this.archivoMovimientosService = archivoMovimientosService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        pool.shutdown();
+    }
+
+    /**
+     * Sumar un movimiento recién registrado al agregado de su día
+     */
+    public void registrarMovimiento(Movimiento movimiento, Cuenta cuenta) {
+        LocalDate fecha = movimiento.getFecha().toLocalDate();
+        String tipo = normalizarTipo(movimiento.getTipoMovimiento());
+        agregadoDiarioRepository.sumarMovimiento(movimiento.getCuentaId(), cuenta.getTipoCuenta(),
+                cuenta.getMoneda(), fecha, tipo, movimiento.getValor());
+        sumarTipoCuenta(cuenta.getId(), cuenta.getTipoCuenta(), cuenta.getMoneda(), fecha, tipo, 1,
+                movimiento.getValor());
+    }
+
+    /**
+     * Sumar un lote de movimientos de una misma cuenta, agrupados por día y tipo
+     * (depósitos repartidos en sub-saldos, que se agregan al consolidar)
+     */
+    public void registrarMovimientos(List<Movimiento> movimientos, Cuenta cuenta) {
+        Map<List<Comparable<?>>, BigDecimal[]> grupos = new TreeMap<>(ORDEN_CLAVE);
+        for (Movimiento movimiento : movimientos) {
+            BigDecimal[] acumulado = grupos.computeIfAbsent(
+                    List.of(movimiento.getFecha().toLocalDate(), normalizarTipo(movimiento.getTipoMovimiento())),
+                    clave -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            acumulado[0] = acumulado[0].add(BigDecimal.ONE);
+            acumulado[1] = acumulado[1].add(movimiento.getValor());
+        }
+        for (Map.Entry<List<Comparable<?>>, BigDecimal[]> grupo : grupos.entrySet()) {
+            agregadoDiarioRepository.sumarMovimientos(movimientos.get(0).getCuentaId(), cuenta.getTipoCuenta(),
+                    cuenta.getMoneda(), (LocalDate) grupo.getKey().get(0), (String) grupo.getKey().get(1),
+                    grupo.getValue()[0].longValue(), grupo.getValue()[1]);
+            sumarTipoCuenta(cuenta.getId(), cuenta.getTipoCuenta(), cuenta.getMoneda(),
+                    (LocalDate) grupo.getKey().get(0), (String) grupo.getKey().get(1),
+                    grupo.getValue()[0].longValue(), grupo.getValue()[1]);
+        }
+    }
+
+    /**
+     * Sumar al agregado por tipo de cuenta un depósito cuyo agregado por cuenta se escribió
+     * por lote JDBC (abono de intereses), junto con el resto de la transacción
+     */
+    public void registrarDepositoTipoCuenta(Long cuentaId, String tipoCuenta, String moneda, LocalDate fecha,
+                                            BigDecimal valor) {
+        sumarTipoCuenta(cuentaId, tipoCuenta, moneda, fecha, "Deposito", 1, valor);
+    }
+
+    /**
+     * Acumular en el agregado por tipo de cuenta; dentro de una transacción se escribe al confirmar
+     */
+    private void sumarTipoCuenta(Long cuentaId, String tipoCuenta, String moneda, LocalDate fecha,
+                                 String tipoMovimiento, long cantidad, BigDecimal total) {
+        List<Comparable<?>> clave = List.of(fecha, tipoCuenta, moneda, tipoMovimiento,
+                Math.floorMod(cuentaId, AgregadoTipoCuentaDiario.RANURAS));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            escribirTipoCuenta(clave, new BigDecimal[]{BigDecimal.valueOf(cantidad), total});
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<List<Comparable<?>>, BigDecimal[]> pendientes =
+                (Map<List<Comparable<?>>, BigDecimal[]>) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null) {
+            Map<List<Comparable<?>>, BigDecimal[]> nuevos = new TreeMap<>(ORDEN_CLAVE);
+            TransactionSynchronizationManager.bindResource(this, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean soloLectura) {
+                    nuevos.forEach(AgregadoService.this::escribirTipoCuenta);
+                }
+
+                @Override
+                public void afterCompletion(int estado) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AgregadoService.this);
+                }
+            });
+            pendientes = nuevos;
+        }
+        BigDecimal[] acumulado = pendientes.computeIfAbsent(clave,
+                k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+        acumulado[0] = acumulado[0].add(BigDecimal.valueOf(cantidad));
+        acumulado[1] = acumulado[1].add(total);
+    }
+
+    private void escribirTipoCuenta(List<Comparable<?>> clave, BigDecimal[] acumulado) {
+        agregadoTipoCuentaRepository.sumarMovimientos((String) clave.get(1), (String) clave.get(2),
+                (LocalDate) clave.get(0), (String) clave.get(3), (Integer) clave.get(4),
+                acumulado[0].longValue(), acumulado[1]);
+    }
+
+    /**
+     * Totales por período (DIA, MES, ANIO) y grupo (TOTAL, CUENTA, TIPO_CUENTA) en el rango
+     * de días [desde, hasta], opcionalmente filtrados por cuenta o tipo de cuenta. Cada moneda
+     * se totaliza por separado: no se suman importes de monedas distintas
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> consultar(LocalDate desde, LocalDate hasta, String granularidad,
+                                         String agrupacion, Long cuentaId, String tipoCuenta) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial es posterior a la final");
+        }
+        Function<LocalDate, String> periodo = periodo(granularidad);
+
+        List<Object[]> filas;
+        String campoGrupo;
+        switch (agrupacion.toUpperCase()) {
+            case "TOTAL":
+                filas = cuentaId == null
+                        ? agregadoTipoCuentaRepository.sumarPorDia(desde, hasta, tipoCuenta)
+                        : agregadoDiarioRepository.sumarPorDia(desde, hasta, cuentaId, tipoCuenta);
+                campoGrupo = null;
+                break;
+            case "CUENTA":
+                filas = agregadoDiarioRepository.sumarPorDiaYCuenta(desde, hasta, cuentaId, tipoCuenta);
+                campoGrupo = "cuentaId";
+                break;
+            case "TIPO_CUENTA":
+                filas = cuentaId == null
+                        ? agregadoTipoCuentaRepository.sumarPorDiaYTipoCuenta(desde, hasta, tipoCuenta)
+                        : agregadoDiarioRepository.sumarPorDiaYTipoCuenta(desde, hasta, cuentaId, tipoCuenta);
+                campoGrupo = "tipoCuenta";
+                break;
+            default:
+                throw new IllegalArgumentException("Agrupación no válida: " + agrupacion);
+        }
+
+        // Plegar los días en el período pedido; la clave ordena por período, grupo, moneda y tipo
+        Map<List<Comparable<?>>, long[]> cantidades = new TreeMap<>(ORDEN_CLAVE);
+        Map<List<Comparable<?>>, BigDecimal> totales = new HashMap<>();
+        for (Object[] fila : filas) {
+            Comparable<?> grupo = fila.length > 5 ? (Comparable<?>) fila[5] : "";
+            List<Comparable<?>> clave = List.of(periodo.apply((LocalDate) fila[0]), grupo, (String) fila[4],
+                    (String) fila[1]);
+            cantidades.computeIfAbsent(clave, k -> new long[1])[0] += ((Number) fila[2]).longValue();
+            totales.merge(clave, (BigDecimal) fila[3], BigDecimal::add);
+        }
+
+        List<Map<String, Object>> resultados = new ArrayList<>(cantidades.size());
+        for (Map.Entry<List<Comparable<?>>, long[]> entrada : cantidades.entrySet()) {
+            List<Comparable<?>> clave = entrada.getKey();
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("periodo", clave.get(0));
+            if (campoGrupo != null) {
+                resultado.put(campoGrupo, clave.get(1));
+            }
+            resultado.put("moneda", clave.get(2));
+            resultado.put("tipoMovimiento", clave.get(3));
+            resultado.put("cantidad", entrada.getValue()[0]);
+            resultado.put("total", totales.get(clave));
+            resultados.add(resultado);
+        }
+
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("desde", desde);
+        respuesta.put("hasta", hasta);
+        respuesta.put("granularidad", granularidad.toUpperCase());
+        respuesta.put("agrupacion", agrupacion.toUpperCase());
+        respuesta.put("resultados", resultados);
+        return respuesta;
+    }
+
+    /**
+     * Recalcular los agregados del rango [desde, hasta] desde los movimientos (tabla y archivo).
+     * Las cuentas se recorren por clave en lotes; cada lote se calcula en paralelo con
+     * fork-join y se reemplaza en una transacción. Al final el agregado por tipo de cuenta
+     * se vuelve a plegar desde el de cuentas. Sólo admite días cerrados, para no competir
+     * con los movimientos que se están registrando hoy.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> reconstruir(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial es posterior a la final");
+        }
+        if (!hasta.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Sólo se pueden reconstruir días cerrados (anteriores a hoy)");
+        }
+        long inicio = System.nanoTime();
+        long cuentas = 0;
+        long filas = 0;
+        Long ultimoId = 0L;
+        List<Cuenta> lote;
+        do {
+            lote = cuentaRepository.findSiguientes(ultimoId, PageRequest.of(0, TAMANO_LOTE_CUENTAS));
+            if (lote.isEmpty()) {
+                break;
+            }
+            List<AgregadoDiario> agregados = pool.invoke(new TareaReconstruccion(lote, desde, hasta));
+            List<Long> ids = lote.stream().map(Cuenta::getId).collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> {
+                agregadoDiarioRepository.eliminarRango(ids, desde, hasta);
+                agregadoDiarioRepository.saveAll(agregados);
+            });
+            cuentas += lote.size();
+            filas += agregados.size();
+            ultimoId = lote.get(lote.size() - 1).getId();
+        } while (lote.size() == TAMANO_LOTE_CUENTAS);
+        transactionTemplate.executeWithoutResult(status -> {
+            agregadoTipoCuentaRepository.eliminarRango(desde, hasta);
+            agregadoTipoCuentaRepository.plegarRango(desde, hasta);
+        });
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Agregados reconstruidos de {} a {}: {} cuentas, {} filas en {} ms",
+                desde, hasta, cuentas, filas, duracionMs);
+        Map<String, Object> resumen = new HashMap<>();
+        resumen.put("desde", desde);
+        resumen.put("hasta", hasta);
+        resumen.put("cuentas", cuentas);
+        resumen.put("filas", filas);
+        resumen.put("duracionMs", duracionMs);
+        return resumen;
+    }
+
+    /**
+     * Divide el lote de cuentas hasta UMBRAL_TAREA y agrega cada parte con una consulta
+     * agrupada sobre la tabla más la lectura de sus segmentos archivados
+     */
+    private class TareaReconstruccion extends RecursiveTask<List<AgregadoDiario>> {
+
+        private final List<Cuenta> cuentas;
+        private final LocalDate desde;
+        private final LocalDate hasta;
+
+        TareaReconstruccion(List<Cuenta> cuentas, LocalDate desde, LocalDate hasta) {
+            this.cuentas = cuentas;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected List<AgregadoDiario> compute() {
+            if (cuentas.size() > UMBRAL_TAREA) {
+                int mitad = cuentas.size() / 2;
+                TareaReconstruccion izquierda = new TareaReconstruccion(cuentas.subList(0, mitad), desde, hasta);
+                izquierda.fork();
+                List<AgregadoDiario> resultado = new ArrayList<>(
+                        new TareaReconstruccion(cuentas.subList(mitad, cuentas.size()), desde, hasta).compute());
+                resultado.addAll(izquierda.join());
+                return resultado;
+            }
+
+            Map<Long, Cuenta> porId = cuentas.stream()
+                    .collect(Collectors.toMap(Cuenta::getId, Function.identity()));
+            LocalDateTime inicio = desde.atStartOfDay();
+            LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+            Map<List<Object>, AgregadoDiario> agregados = new HashMap<>();
+
+            for (Object[] fila : movimientoRepository.sumarPorCuentaDiaYTipo(porId.keySet(), inicio, fin)) {
+                sumar(agregados, porId.get(((Number) fila[0]).longValue()), aFecha(fila[1]), (String) fila[2],
+                        ((Number) fila[3]).longValue(), (BigDecimal) fila[4]);
+            }
+            for (Cuenta cuenta : cuentas) {
+                for (Movimiento movimiento : archivoMovimientosService.obtenerMovimientos(cuenta.getId(), inicio, fin)) {
+                    if (movimiento.getFecha().isBefore(fin)) {
+                        sumar(agregados, cuenta, movimiento.getFecha().toLocalDate(),
+                                movimiento.getTipoMovimiento(), 1, movimiento.getValor());
+                    }
+                }
+            }
+            return new ArrayList<>(agregados.values());
+        }
+
+        private void sumar(Map<List<Object>, AgregadoDiario> agregados, Cuenta cuenta,
+                           LocalDate fecha, String tipoMovimiento, long cantidad, BigDecimal total) {
+            String tipo = normalizarTipo(tipoMovimiento);
+            AgregadoDiario agregado = agregados.computeIfAbsent(List.of(cuenta.getId(), fecha, tipo),
+                    k -> new AgregadoDiario(cuenta.getId(), cuenta.getTipoCuenta(), cuenta.getMoneda(),
+                            fecha, tipo, 0L, BigDecimal.ZERO));
+            agregado.setCantidad(agregado.getCantidad() + cantidad);
+            agregado.setTotal(agregado.getTotal().add(total));
+        }
+    }
+
+    private static Function<LocalDate, String> periodo(String granularidad) {
+        switch (granularidad.toUpperCase()) {
+            case "DIA":
+                return LocalDate::toString;
+            case "MES":
+                return fecha -> YearMonth.from(fecha).toString();
+            case "ANIO":
+                return fecha -> String.valueOf(fecha.getYear());
+            default:
+                throw new IllegalArgumentException("Granularidad no válida: " + granularidad);
+        }
+    }
+
+    private static LocalDate aFecha(Object valor) {
+        return valor instanceof Date ? ((Date) valor).toLocalDate() : (LocalDate) valor;
+    }
+
+    /**
+     * Misma grafía para un tipo sin importar cómo llegó al registrar ("deposito", "DEPOSITO"...)
+     */
+    static String normalizarTipo(String tipoMovimiento) {
+        if ("Deposito".equalsIgnoreCase(tipoMovimiento)) {
+            return "Deposito";
+        }
+        if ("Retiro".equalsIgnoreCase(tipoMovimiento)) {
+            return "Retiro";
+        }
+        return Objects.requireNonNullElse(tipoMovimiento, "");
+    }
+}
@@ -0,0 +1,407 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.comun.cache.CacheInvalidable;
+import com.banksystem.cuenta.archivo.IndiceArchivo;
+import com.banksystem.cuenta.archivo.SegmentoMovimientos;
+import com.banksystem.cuenta.config.CacheConfig;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Archivo frío de movimientos.
+ * Los movimientos de meses completos anteriores al horizonte configurado se mueven de la tabla
+ * movimiento a segmentos columnares comprimidos en disco local, uno por cuenta y mes
+ * ({directorio}/{cuentaId / 1000}/{cuentaId}/{yyyy-MM}.seg), con un índice por cuenta.
+ * Las consultas de movimientos y de saldo histórico combinan ambos niveles.
+ * <p>
+ * Archivar borra las filas de la base compartida, así que el directorio tiene que ser el mismo
+ * para todas las instancias (un volumen compartido): sólo se archiva con
+ * {@code banco.archivo.compartido=true}. Los índices leídos, incluida la ausencia de índice,
+ * se guardan en memoria y se invalidan en todas las instancias cuando se archiva la cuenta.
+ */
+@Service
+public class ArchivoMovimientosService implements CacheInvalidable {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivoMovimientosService.class);
+
+    private static final LocalDateTime INICIO_CLAVE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int TAMANO_PAGINA = 5_000;
+    private static final int TAMANO_LOTE_CUENTAS = 500;
+    private static final int TAMANO_LOTE_BORRADO = 1_000;
+    private static final int MAXIMO_INDICES_EN_MEMORIA = 10_000;
+    private static final String ARCHIVO_INDICE = "indice.idx";
+    private static final Comparator<Movimiento> ORDEN_ARCHIVO =
+            Comparator.comparing(Movimiento::getFecha).thenComparing(Movimiento::getId);
+
+    private final MovimientoRepository movimientoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final BusInvalidacion bus;
+    private final Path directorio;
+    private final boolean habilitado;
+    private final boolean compartido;
+    private final int horizonteMeses;
+    private final AtomicBoolean enEjecucion = new AtomicBoolean(false);
+    private final AtomicLong generacionIndices = new AtomicLong();
+    private volatile boolean cacheIndicesHabilitada = true;
+    private final Map<Long, IndiceArchivo> indices = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, IndiceArchivo> eldest) {
+                    return size() > MAXIMO_INDICES_EN_MEMORIA;
+                }
+            });
+
+    public ArchivoMovimientosService(MovimientoRepository movimientoRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     EntityManager entityManager,
+                                     BusInvalidacion bus,
+                                     @Value("${banco.archivo.directorio:archivo-movimientos}") String directorio,
+                                     @Value("${banco.archivo.habilitado:false}") boolean habilitado,
+                                     @Value("${banco.archivo.compartido:false}") boolean compartido,
+                                     @Value("${banco.archivo.horizonte-meses:12}") int horizonteMeses) {
+        if (habilitado && !compartido) {
+            throw new IllegalArgumentException("banco.archivo.habilitado requiere banco.archivo.compartido=true: "
+                    + "las filas archivadas se borran de la base y las demás instancias deben poder leer "
+                    + directorio);
+        }
+        this.movimientoRepository = movimientoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.bus = bus;
+        this.directorio = Paths.get(directorio);
+        this.habilitado = habilitado;
+        this.compartido = compartido;
+        this.horizonteMeses = horizonteMeses;
+        bus.registrar(this);
+    }
+
+    /**
+     * Movimientos archivados de la cuenta dentro del rango (extremos nulos = sin límite),
+     * ordenados por (fecha, id) ascendente
+     */
+    public List<Movimiento> obtenerMovimientos(Long cuentaId, LocalDateTime desde, LocalDateTime hasta) {
+        IndiceArchivo indice = obtenerIndice(cuentaId);
+        if (indice.estaVacio()) {
+            return Collections.emptyList();
+        }
+        long desdeMicros = desde != null ? SegmentoMovimientos.aMicros(desde) : Long.MIN_VALUE;
+        long hastaMicros = hasta != null ? SegmentoMovimientos.aMicros(hasta) : Long.MAX_VALUE;
+
+        List<Movimiento> movimientos = new ArrayList<>();
+        for (IndiceArchivo.Entrada entrada : indice.getEntradas()) {
+            if (entrada.getFechaMaxima() < desdeMicros || entrada.getFechaMinima() > hastaMicros) {
+                continue;
+            }
+            for (Movimiento movimiento : leerSegmento(cuentaId, entrada.getMes())) {
+                long fecha = SegmentoMovimientos.aMicros(movimiento.getFecha());
+                if (fecha >= desdeMicros && fecha <= hastaMicros) {
+                    movimientos.add(movimiento);
+                }
+            }
+        }
+        return movimientos;
+    }
+
+    /**
+     * Saldo del último movimiento archivado en o antes de la fecha; el saldo final de cada
+     * mes está en el índice, así que sólo se abre un segmento si la fecha cae dentro de él
+     */
+    public Optional<BigDecimal> obtenerUltimoSaldoHasta(Long cuentaId, LocalDateTime fecha) {
+        List<IndiceArchivo.Entrada> entradas = obtenerIndice(cuentaId).getEntradas();
+        long micros = SegmentoMovimientos.aMicros(fecha);
+        for (int i = entradas.size() - 1; i >= 0; i--) {
+            IndiceArchivo.Entrada entrada = entradas.get(i);
+            if (entrada.getFechaMinima() > micros) {
+                continue;
+            }
+            if (entrada.getFechaMaxima() <= micros) {
+                return Optional.of(BigDecimal.valueOf(entrada.getSaldoFinal(), 2));
+            }
+            List<Movimiento> segmento = leerSegmento(cuentaId, entrada.getMes());
+            for (int j = segmento.size() - 1; j >= 0; j--) {
+                if (SegmentoMovimientos.aMicros(segmento.get(j).getFecha()) <= micros) {
+                    return Optional.of(segmento.get(j).getSaldo());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Scheduled(cron = "${banco.archivo.cron:0 30 2 * * *}")
+    public void archivarProgramado() {
+        if (habilitado) {
+            archivar();
+        }
+    }
+
+    /**
+     * Archivar los movimientos de meses completos anteriores al horizonte.
+     * Cada cuenta se procesa en su propia transacción: primero se escriben y sincronizan los
+     * segmentos e índice, luego se borran las filas. Si el proceso se interrumpe entre ambos
+     * pasos, la siguiente ejecución vuelve a fusionar las mismas filas sin duplicarlas.
+     * Sin directorio compartido no se archiva nada: las demás instancias perderían el historial.
+     */
+    public Map<String, Object> archivar() {
+        Map<String, Object> resumen = new HashMap<>();
+        if (!compartido) {
+            log.warn("Archivo de movimientos omitido: {} no está declarado como compartido (banco.archivo.compartido)",
+                    directorio);
+            resumen.put("estado", "DIRECTORIO_NO_COMPARTIDO");
+            return resumen;
+        }
+        if (!enEjecucion.compareAndSet(false, true)) {
+            resumen.put("estado", "EN_EJECUCION");
+            return resumen;
+        }
+        try {
+            LocalDateTime corte = YearMonth.now().minusMonths(horizonteMeses).atDay(1).atStartOfDay();
+            long inicio = System.nanoTime();
+            long cuentas = 0;
+            long movimientos = 0;
+            Long ultimaCuenta = 0L;
+            List<Long> lote;
+            do {
+                lote = movimientoRepository.findCuentasConMovimientosAntesDe(
+                        corte, ultimaCuenta, PageRequest.of(0, TAMANO_LOTE_CUENTAS));
+                for (Long cuentaId : lote) {
+                    movimientos += archivarCuenta(cuentaId, corte);
+                    cuentas++;
+                }
+                if (!lote.isEmpty()) {
+                    ultimaCuenta = lote.get(lote.size() - 1);
+                }
+            } while (lote.size() == TAMANO_LOTE_CUENTAS);
+
+            long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+            log.info("Archivo de movimientos: {} movimientos de {} cuentas anteriores a {} en {} ms",
+                    movimientos, cuentas, corte, duracionMs);
+            resumen.put("estado", "COMPLETADO");
+            resumen.put("corte", corte);
+            resumen.put("cuentas", cuentas);
+            resumen.put("movimientosArchivados", movimientos);
+            resumen.put("duracionMs", duracionMs);
+            return resumen;
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+
+    private int archivarCuenta(Long cuentaId, LocalDateTime corte) {
+        Integer archivados = transactionTemplate.execute(status -> {
+            try {
+                return archivarCuentaEnTransaccion(cuentaId, corte);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo archivar la cuenta " + cuentaId, e);
+            }
+        });
+        return archivados != null ? archivados : 0;
+    }
+
+    private int archivarCuentaEnTransaccion(Long cuentaId, LocalDateTime corte) throws IOException {
+        IndiceArchivo indice = cargarIndice(cuentaId);
+        List<Long> ids = new ArrayList<>();
+        List<Movimiento> movimientosMes = new ArrayList<>();
+        YearMonth mes = null;
+        LocalDateTime ultimaFecha = INICIO_CLAVE;
+        Long ultimoId = 0L;
+        List<Movimiento> pagina;
+        do {
+            pagina = movimientoRepository.findAntiguosPorCuentaDesde(
+                    cuentaId, corte, ultimaFecha, ultimoId, PageRequest.of(0, TAMANO_PAGINA));
+            for (Movimiento movimiento : pagina) {
+                YearMonth mesMovimiento = YearMonth.from(movimiento.getFecha());
+                if (mes != null && !mesMovimiento.equals(mes)) {
+                    indice = escribirMes(cuentaId, mes, movimientosMes, indice);
+                    movimientosMes = new ArrayList<>();
+                }
+                mes = mesMovimiento;
+                movimientosMes.add(movimiento);
+                ids.add(movimiento.getId());
+            }
+            if (!pagina.isEmpty()) {
+                Movimiento ultimo = pagina.get(pagina.size() - 1);
+                ultimaFecha = ultimo.getFecha();
+                ultimoId = ultimo.getId();
+            }
+            entityManager.clear();
+        } while (pagina.size() == TAMANO_PAGINA);
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        indice = escribirMes(cuentaId, mes, movimientosMes, indice);
+        guardarIndice(cuentaId, indice);
+        bus.invalidarAlConfirmar(CacheConfig.CACHE_INDICES_ARCHIVO, cuentaId);
+
+        for (int i = 0; i < ids.size(); i += TAMANO_LOTE_BORRADO) {
+            movimientoRepository.deleteAllByIdInBatch(ids.subList(i, Math.min(i + TAMANO_LOTE_BORRADO, ids.size())));
+        }
+        return ids.size();
+    }
+
+    /**
+     * Fusionar los movimientos con el segmento existente del mes (sin duplicar IDs)
+     * y reemplazarlo de forma atómica
+     */
+    private IndiceArchivo escribirMes(Long cuentaId, YearMonth mes, List<Movimiento> nuevos,
+                                      IndiceArchivo indice) throws IOException {
+        Path segmento = rutaSegmento(cuentaId, mes);
+        Files.createDirectories(segmento.getParent());
+
+        Map<Long, Movimiento> porId = new HashMap<>();
+        if (Files.exists(segmento)) {
+            for (Movimiento existente : SegmentoMovimientos.leer(segmento, cuentaId)) {
+                porId.put(existente.getId(), existente);
+            }
+        }
+        for (Movimiento nuevo : nuevos) {
+            porId.put(nuevo.getId(), nuevo);
+        }
+        List<Movimiento> filas = new ArrayList<>(porId.values());
+        filas.sort(ORDEN_ARCHIVO);
+
+        Path temporal = segmento.resolveSibling(segmento.getFileName() + ".tmp");
+        SegmentoMovimientos.escribir(temporal, filas);
+        reemplazar(temporal, segmento);
+
+        Movimiento primero = filas.get(0);
+        Movimiento ultimo = filas.get(filas.size() - 1);
+        long idMinimo = filas.stream().mapToLong(Movimiento::getId).min().orElse(0);
+        long idMaximo = filas.stream().mapToLong(Movimiento::getId).max().orElse(0);
+        return indice.con(new IndiceArchivo.Entrada(mes, filas.size(),
+                SegmentoMovimientos.aMicros(primero.getFecha()), SegmentoMovimientos.aMicros(ultimo.getFecha()),
+                idMinimo, idMaximo, SegmentoMovimientos.aCentavos(ultimo.getSaldo())));
+    }
+
+    private void guardarIndice(Long cuentaId, IndiceArchivo indice) throws IOException {
+        Path archivo = rutaCuenta(cuentaId).resolve(ARCHIVO_INDICE);
+        Path temporal = archivo.resolveSibling(ARCHIVO_INDICE + ".tmp");
+        indice.escribir(temporal);
+        reemplazar(temporal, archivo);
+    }
+
+    private void reemplazar(Path temporal, Path destino) throws IOException {
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Índice de la cuenta, de memoria si está; la mayoría de las cuentas no tiene archivo y su
+     * índice vacío también se guarda para no consultar el disco en cada lectura
+     */
+    private IndiceArchivo obtenerIndice(Long cuentaId) {
+        if (!cacheIndicesHabilitada) {
+            return cargarIndice(cuentaId);
+        }
+        IndiceArchivo indice = indices.get(cuentaId);
+        if (indice != null) {
+            return indice;
+        }
+        long generacionCarga = generacionIndices.get();
+        indice = cargarIndice(cuentaId);
+        // Bajo el mismo bloqueo que la invalidación: o ve la generación nueva, o la invalidación
+        // borra lo recién guardado
+        synchronized (indices) {
+            if (generacionIndices.get() == generacionCarga) {
+                indices.put(cuentaId, indice);
+            }
+        }
+        return indice;
+    }
+
+    private IndiceArchivo cargarIndice(Long cuentaId) {
+        Path archivo = rutaCuenta(cuentaId).resolve(ARCHIVO_INDICE);
+        if (!Files.exists(archivo)) {
+            return IndiceArchivo.vacio();
+        }
+        try {
+            return IndiceArchivo.leer(archivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el índice de archivo de la cuenta " + cuentaId, e);
+        }
+    }
+
+    private List<Movimiento> leerSegmento(Long cuentaId, YearMonth mes) {
+        try {
+            return SegmentoMovimientos.leer(rutaSegmento(cuentaId, mes), cuentaId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el segmento " + mes + " de la cuenta " + cuentaId, e);
+        }
+    }
+
+    @Override
+    public String getNombre() {
+        return CacheConfig.CACHE_INDICES_ARCHIVO;
+    }
+
+    @Override
+    public void invalidar(Collection<Long> ids) {
+        synchronized (indices) {
+            generacionIndices.incrementAndGet();
+            ids.forEach(indices::remove);
+        }
+    }
+
+    @Override
+    public void invalidarTodo() {
+        synchronized (indices) {
+            generacionIndices.incrementAndGet();
+            indices.clear();
+        }
+    }
+
+    @Override
+    public void habilitar() {
+        invalidarTodo();
+        cacheIndicesHabilitada = true;
+    }
+
+    @Override
+    public void deshabilitar() {
+        cacheIndicesHabilitada = false;
+    }
+
+    private Path rutaCuenta(Long cuentaId) {
+        return directorio.resolve(String.valueOf(cuentaId / 1000)).resolve(String.valueOf(cuentaId));
+    }
+
+    private Path rutaSegmento(Long cuentaId, YearMonth mes) {
+        return rutaCuenta(cuentaId).resolve(mes + ".seg");
+    }
+}
@@ -0,0 +1,200 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.dto.FiltroMovimientos;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.ConsultaMovimientos;
+import com.banksystem.cuenta.trabajo.EjecutorTrabajos;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Búsqueda de movimientos por varios criterios. En línea sólo se ejecutan las combinaciones
+ * que algún índice puede conducir (ver {@link ConsultaMovimientos}); el resto se rechaza o,
+ * si se pide como trabajo, se resuelve en segundo plano recorriendo la tabla por ID. Ninguno de
+ * los dos caminos incluye los movimientos archivados en el almacenamiento frío.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BusquedaMovimientosService {
+
+    public static final String TIPO_BUSQUEDA_MOVIMIENTOS = "BUSQUEDA_MOVIMIENTOS";
+    private static final Long PROPIETARIO_BUSQUEDAS = -1L;
+    /** Las búsquedas completas esperan detrás de estados de cuenta de hasta una hora de rango */
+    private static final long PENALIDAD_PRIORIDAD_SEGUNDOS = 3_600;
+    private static final int TAMANO_MAXIMO_PAGINA = 500;
+    private static final int MAXIMO_CUENTAS = 100;
+    private static final int TAMANO_LOTE_RECORRIDO = 1_000;
+    private static final String EXTENSION = ".json.gz";
+
+    private final EntityManager entityManager;
+    private final EjecutorTrabajos ejecutorTrabajos;
+    private final ObjectMapper objectMapper;
+    private final Duration ventanaMaxima;
+    private final Path directorio;
+
+    public BusquedaMovimientosService(EntityManager entityManager,
+                                      EjecutorTrabajos ejecutorTrabajos,
+                                      ObjectMapper objectMapper,
+                                      @Value("${banco.busqueda.ventana-maxima-dias:31}") long ventanaMaximaDias,
+                                      @Value("${banco.reportes.directorio:reportes-generados}") String directorio) {
+        this.entityManager = entityManager;
+        this.ejecutorTrabajos = ejecutorTrabajos;
+        this.objectMapper = objectMapper;
+        this.ventanaMaxima = Duration.ofDays(ventanaMaximaDias);
+        this.directorio = Paths.get(directorio);
+    }
+
+    /**
+     * Página de resultados en orden (fecha, id) descendente. El cursor es el valor "siguiente"
+     * de la página anterior; la respuesta informa el índice con que se resolvió.
+     */
+    public Map<String, Object> buscar(FiltroMovimientos filtro, String cursor, int tamano) {
+        if (tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("El tamaño debe estar entre 1 y " + TAMANO_MAXIMO_PAGINA);
+        }
+        validarCuentas(filtro);
+        ConsultaMovimientos.Plan plan = ConsultaMovimientos.elegirPlan(filtro, ventanaMaxima);
+        if (plan == null) {
+            throw new IllegalArgumentException("La combinación de criterios no usa ningún índice: indique " +
+                    "una sola cuenta en cuentaIds, o fechaDesde y fechaHasta con hasta " + ventanaMaxima.toDays() +
+                    " días (obligatorias para varias cuentas, descripcion o valor); o solicítela como trabajo en " +
+                    "POST /api/movimientos/busqueda/trabajos");
+        }
+
+        LocalDateTime claveFecha = null;
+        Long claveId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] clave = decodificarCursor(cursor);
+            claveFecha = LocalDateTime.parse(clave[0]);
+            claveId = Long.parseLong(clave[1]);
+        }
+
+        List<Movimiento> filas = ejecutar(ConsultaMovimientos.pagina(filtro, plan, claveFecha, claveId), tamano + 1);
+        boolean hayMas = filas.size() > tamano;
+        List<Movimiento> contenido = hayMas ? filas.subList(0, tamano) : filas;
+
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("contenido", contenido);
+        respuesta.put("tamano", tamano);
+        respuesta.put("numeroElementos", contenido.size());
+        respuesta.put("hayMas", hayMas);
+        respuesta.put("indice", plan.getIndice());
+        if (hayMas) {
+            Movimiento ultimo = contenido.get(contenido.size() - 1);
+            respuesta.put("siguiente", codificarCursor(ultimo.getFecha(), ultimo.getId()));
+        }
+        return respuesta;
+    }
+
+    /**
+     * Encolar la búsqueda completa, con o sin índice, como trabajo de fondo; el resultado
+     * (arreglo JSON comprimido) se descarga como el de cualquier otro trabajo
+     */
+    public Trabajo crearBusqueda(FiltroMovimientos filtro) {
+        validarCuentas(filtro);
+        ConsultaMovimientos.validar(filtro);
+        long prioridad = Instant.now().getEpochSecond() + PENALIDAD_PRIORIDAD_SEGUNDOS;
+        return ejecutorTrabajos.enviar(new Trabajo(TIPO_BUSQUEDA_MOVIMIENTOS, PROPIETARIO_BUSQUEDAS, prioridad,
+                filtro.aMapa(), trabajo -> escribirResultado(trabajo, filtro)));
+    }
+
+    /**
+     * Recorrer la tabla por ID en lotes fuera de transacción, escribiendo las filas que cumplen
+     */
+    private void escribirResultado(Trabajo trabajo, FiltroMovimientos filtro) throws IOException {
+        Long maximoId = entityManager.createQuery("SELECT MAX(m.id) FROM Movimiento m", Long.class)
+                .getSingleResult();
+        Files.createDirectories(directorio);
+        Path destino = directorio.resolve(trabajo.getId() + EXTENSION);
+        Path temporal = directorio.resolve(trabajo.getId() + EXTENSION + ".tmp");
+        long encontrados = 0;
+        try {
+            try (OutputStream salida = new GZIPOutputStream(Files.newOutputStream(temporal), 64 * 1024);
+                 JsonGenerator json = objectMapper.createGenerator(salida)) {
+                json.writeStartArray();
+                long ultimoId = 0;
+                List<Movimiento> lote;
+                do {
+                    if (trabajo.cancelado()) {
+                        throw new CancellationException("Búsqueda cancelada");
+                    }
+                    lote = ejecutar(ConsultaMovimientos.recorrido(filtro, ultimoId), TAMANO_LOTE_RECORRIDO);
+                    for (Movimiento movimiento : lote) {
+                        json.writeObject(movimiento);
+                        ultimoId = movimiento.getId();
+                    }
+                    encontrados += lote.size();
+                    if (maximoId != null && maximoId > 0) {
+                        trabajo.setProgreso(ultimoId / (double) maximoId);
+                    }
+                } while (lote.size() == TAMANO_LOTE_RECORRIDO);
+                json.writeEndArray();
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trabajo.setResultado(destino);
+            Map<String, Object> detalle = new LinkedHashMap<>();
+            detalle.put("encontrados", encontrados);
+            trabajo.setDetalle(detalle);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Movimiento> ejecutar(ConsultaMovimientos consulta, int limite) {
+        Query query = entityManager.createNativeQuery(consulta.getSql(), Movimiento.class);
+        consulta.getParametros().forEach(query::setParameter);
+        query.setMaxResults(limite);
+        return query.getResultList();
+    }
+
+    private void validarCuentas(FiltroMovimientos filtro) {
+        if (filtro.tieneCuentas() && filtro.getCuentaIds().size() > MAXIMO_CUENTAS) {
+            throw new IllegalArgumentException("Se admiten hasta " + MAXIMO_CUENTAS + " cuentas por búsqueda");
+        }
+    }
+
+    private static String codificarCursor(LocalDateTime fecha, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((fecha + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodificarCursor(String cursor) {
+        try {
+            String[] clave = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (clave.length == 2) {
+                LocalDateTime.parse(clave[0]);
+                Long.parseLong(clave[1]);
+                return clave;
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // cae al error de abajo
+        }
+        throw new IllegalArgumentException("Cursor no válido");
+    }
+}
@@ -0,0 +1,309 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.limite.ClaseTrafico;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.repository.RangoClientes;
+import com.banksystem.cuenta.trabajo.EjecutorTrabajos;
+import com.banksystem.cuenta.trabajo.PuntoControl;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cierre de mes: un estado de cuenta por cliente en
+ * {directorio}/{yyyy-MM}/{clienteId / 1000}/{clienteId}.json.gz.
+ * <p>
+ * Los IDs de cliente se dividen en particiones de rango fijo que se procesan en paralelo.
+ * Cada partición recorre sus clientes por clave en lotes: una consulta para los IDs, otra
+ * para todas sus cuentas y otra paginada por (cuenta_id, fecha, id) para sus movimientos,
+ * sin consultas por cliente. Tras cada lote se guarda el último cliente escrito en el punto
+ * de control, de modo que una ejecución interrumpida continúa donde quedó.
+ */
+@Service
+public class CierreMesService {
+
+    private static final Logger log = LoggerFactory.getLogger(CierreMesService.class);
+
+    public static final String TIPO_CIERRE_MES = "CIERRE_MES";
+    private static final Long PROPIETARIO_SISTEMA = 0L;
+    private static final int TAMANO_PAGINA_MOVIMIENTOS = 5_000;
+    private static final LocalDateTime INICIO_CLAVE = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final ArchivoMovimientosService archivoMovimientosService;
+    private final ReporteService reporteService;
+    private final EjecutorTrabajos ejecutorTrabajos;
+    private final Path directorio;
+    private final int particiones;
+    private final int hilos;
+    private final int clientesPorLote;
+    private final boolean habilitado;
+
+    public CierreMesService(CuentaRepository cuentaRepository,
+                            MovimientoRepository movimientoRepository,
+                            ArchivoMovimientosService archivoMovimientosService,
+                            ReporteService reporteService,
+                            EjecutorTrabajos ejecutorTrabajos,
+                            @Value("${banco.cierre.directorio:estados-cuenta}") String directorio,
+                            @Value("${banco.cierre.particiones:16}") int particiones,
+                            @Value("${banco.cierre.hilos:4}") int hilos,
+                            @Value("${banco.cierre.clientes-por-lote:200}") int clientesPorLote,
+                            @Value("${banco.cierre.habilitado:false}") boolean habilitado) {
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.archivoMovimientosService = archivoMovimientosService;
+        this.reporteService = reporteService;
+        this.ejecutorTrabajos = ejecutorTrabajos;
+        this.directorio = Paths.get(directorio);
+        this.particiones = particiones;
+        this.hilos = hilos;
+        this.clientesPorLote = clientesPorLote;
+        this.habilitado = habilitado;
+    }
+
+    /**
+     * El día 1 de cada mes genera el cierre del mes anterior
+     */
+    @Scheduled(cron = "${banco.cierre.cron:0 0 3 1 * *}")
+    public void cierreProgramado() {
+        if (habilitado) {
+            iniciar(YearMonth.now().minusMonths(1));
+        }
+    }
+
+    /**
+     * Encolar el cierre de un mes en el ejecutor de trabajos (un cierre a la vez).
+     * Si ya existe un punto de control para el mes, la ejecución lo retoma.
+     */
+    public Trabajo iniciar(YearMonth periodo) {
+        if (!periodo.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Sólo se pueden cerrar meses terminados");
+        }
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("periodo", periodo.toString());
+        return ejecutorTrabajos.enviar(new Trabajo(TIPO_CIERRE_MES, PROPIETARIO_SISTEMA, Long.MAX_VALUE,
+                parametros, trabajo -> ejecutar(trabajo, periodo)));
+    }
+
+    private void ejecutar(Trabajo trabajo, YearMonth periodo) throws Exception {
+        Path carpeta = directorio.resolve(periodo.toString());
+        PuntoControl puntoControl = PuntoControl.abrir(carpeta.resolve("punto-control.properties"));
+
+        // Los límites de las particiones se fijan en la primera ejecución y se reutilizan al retomar
+        if (puntoControl.estaVacio()) {
+            RangoClientes rango = cuentaRepository.obtenerRangoClientes();
+            if (rango.getMinimo() == null) {
+                return;
+            }
+            puntoControl.poner("minimo", rango.getMinimo());
+            puntoControl.poner("maximo", rango.getMaximo());
+            puntoControl.poner("clientes", rango.getCantidad());
+            puntoControl.poner("particiones", particiones);
+            puntoControl.guardar();
+        }
+        long minimo = puntoControl.obtenerLong("minimo", 0);
+        long maximo = puntoControl.obtenerLong("maximo", 0);
+        long totalClientes = puntoControl.obtenerLong("clientes", 0);
+        int numeroParticiones = (int) puntoControl.obtenerLong("particiones", particiones);
+        long anchura = Math.max(1, (maximo - minimo + numeroParticiones) / numeroParticiones);
+
+        AtomicLong procesados = new AtomicLong();
+        for (int i = 0; i < numeroParticiones; i++) {
+            procesados.addAndGet(puntoControl.obtenerLong("particion." + i + ".clientes", 0));
+        }
+        long procesadosAlIniciar = procesados.get();
+        long inicio = System.nanoTime();
+
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(ClaseTrafico.REPORTE.envolver(tarea),
+                    "cierre-" + periodo + "-" + numeroHilo.getAndIncrement());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            List<Future<?>> resultados = new ArrayList<>();
+            for (int i = 0; i < numeroParticiones; i++) {
+                int particion = i;
+                long desde = minimo - 1 + particion * anchura;
+                long hasta = particion == numeroParticiones - 1 ? maximo : desde + anchura;
+                resultados.add(pool.submit(() -> {
+                    procesarParticion(trabajo, periodo, carpeta, puntoControl, particion, desde, hasta, procesados);
+                    return null;
+                }));
+            }
+            // Esperar informando avance; la primera partición fallida detiene el cierre
+            while (!todosTerminados(resultados)) {
+                actualizarAvance(trabajo, procesados.get(), procesadosAlIniciar, totalClientes, inicio);
+                Thread.sleep(1_000);
+            }
+        } catch (InterruptedException | CancellationException e) {
+            throw new CancellationException("Cierre de mes cancelado");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        actualizarAvance(trabajo, procesados.get(), procesadosAlIniciar, totalClientes, inicio);
+        log.info("Cierre {}: {} clientes en {} s", periodo, procesados.get(),
+                (System.nanoTime() - inicio) / 1_000_000_000);
+    }
+
+    private void procesarParticion(Trabajo trabajo, YearMonth periodo, Path carpeta, PuntoControl puntoControl,
+                                   int particion, long desde, long hasta, AtomicLong procesados) throws IOException {
+        String prefijo = "particion." + particion + ".";
+        if (Boolean.parseBoolean(puntoControl.obtener(prefijo + "completa"))) {
+            return;
+        }
+        LocalDate fechaInicio = periodo.atDay(1);
+        LocalDate fechaFin = periodo.atEndOfMonth();
+        LocalDateTime inicio = fechaInicio.atStartOfDay();
+        LocalDateTime fin = fechaFin.atTime(LocalTime.MAX);
+
+        long ultimoCliente = puntoControl.obtenerLong(prefijo + "ultimo", desde);
+        long clientesParticion = puntoControl.obtenerLong(prefijo + "clientes", 0);
+        List<Long> clienteIds;
+        do {
+            if (trabajo.cancelado()) {
+                throw new CancellationException("Cierre de mes cancelado");
+            }
+            clienteIds = cuentaRepository.findClientesEnRango(ultimoCliente, hasta, PageRequest.of(0, clientesPorLote));
+            if (clienteIds.isEmpty()) {
+                break;
+            }
+            List<Cuenta> cuentas = cuentaRepository.findByClienteIdIn(clienteIds);
+            Map<Long, List<Movimiento>> movimientos = leerMovimientos(cuentas, inicio, fin);
+            Map<Long, List<Cuenta>> cuentasPorCliente = cuentas.stream()
+                    .collect(Collectors.groupingBy(Cuenta::getClienteId, LinkedHashMap::new, Collectors.toList()));
+
+            for (Map.Entry<Long, List<Cuenta>> cliente : cuentasPorCliente.entrySet()) {
+                escribirCliente(carpeta, cliente.getKey(), fechaInicio, fechaFin, cliente.getValue(), movimientos);
+            }
+
+            ultimoCliente = clienteIds.get(clienteIds.size() - 1);
+            clientesParticion += clienteIds.size();
+            procesados.addAndGet(clienteIds.size());
+            puntoControl.poner(prefijo + "ultimo", ultimoCliente);
+            puntoControl.poner(prefijo + "clientes", clientesParticion);
+            puntoControl.guardar();
+        } while (clienteIds.size() == clientesPorLote);
+
+        puntoControl.poner(prefijo + "completa", true);
+        puntoControl.guardar();
+    }
+
+    /**
+     * Movimientos del lote agrupados por cuenta: tabla por páginas de clave más archivo frío
+     */
+    private Map<Long, List<Movimiento>> leerMovimientos(List<Cuenta> cuentas, LocalDateTime inicio,
+                                                        LocalDateTime fin) {
+        List<Long> cuentaIds = cuentas.stream().map(Cuenta::getId).collect(Collectors.toList());
+        Map<Long, List<Movimiento>> porCuenta = new HashMap<>();
+        Set<Long> archivados = new HashSet<>();
+        for (Long cuentaId : cuentaIds) {
+            for (Movimiento movimiento : archivoMovimientosService.obtenerMovimientos(cuentaId, inicio, fin)) {
+                porCuenta.computeIfAbsent(cuentaId, k -> new ArrayList<>()).add(movimiento);
+                archivados.add(movimiento.getId());
+            }
+        }
+
+        Long ultimaCuenta = 0L;
+        LocalDateTime ultimaFecha = INICIO_CLAVE;
+        Long ultimoId = 0L;
+        List<Movimiento> pagina;
+        do {
+            pagina = movimientoRepository.findPorCuentasYFechasDesde(cuentaIds, inicio, fin,
+                    ultimaCuenta, ultimaFecha, ultimoId, PageRequest.of(0, TAMANO_PAGINA_MOVIMIENTOS));
+            for (Movimiento movimiento : pagina) {
+                // Una fila puede seguir en la tabla si un archivado se interrumpió antes del borrado
+                if (!archivados.contains(movimiento.getId())) {
+                    porCuenta.computeIfAbsent(movimiento.getCuentaId(), k -> new ArrayList<>()).add(movimiento);
+                }
+            }
+            if (!pagina.isEmpty()) {
+                Movimiento ultimo = pagina.get(pagina.size() - 1);
+                ultimaCuenta = ultimo.getCuentaId();
+                ultimaFecha = ultimo.getFecha();
+                ultimoId = ultimo.getId();
+            }
+        } while (pagina.size() == TAMANO_PAGINA_MOVIMIENTOS);
+        return porCuenta;
+    }
+
+    private void escribirCliente(Path carpeta, Long clienteId, LocalDate fechaInicio, LocalDate fechaFin,
+                                 List<Cuenta> cuentas, Map<Long, List<Movimiento>> movimientos) throws IOException {
+        Path destino = carpeta.resolve(String.valueOf(clienteId / 1000)).resolve(clienteId + ".json.gz");
+        Files.createDirectories(destino.getParent());
+        Path temporal = destino.resolveSibling(clienteId + ".json.gz.tmp");
+        try (OutputStream salida = new GZIPOutputStream(Files.newOutputStream(temporal), 16 * 1024)) {
+            reporteService.escribirEstadoCuenta(clienteId, fechaInicio, fechaFin, cuentas, movimientos, salida);
+        }
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void actualizarAvance(Trabajo trabajo, long procesados, long procesadosAlIniciar,
+                                  long totalClientes, long inicio) {
+        double segundos = Math.max(0.001, (System.nanoTime() - inicio) / 1_000_000_000.0);
+        double clientesPorSegundo = (procesados - procesadosAlIniciar) / segundos;
+        long restantes = Math.max(0, totalClientes - procesados);
+
+        Map<String, Object> detalle = new LinkedHashMap<>();
+        detalle.put("clientesProcesados", procesados);
+        detalle.put("clientesTotales", totalClientes);
+        detalle.put("clientesPorSegundo", Math.round(clientesPorSegundo * 10) / 10.0);
+        detalle.put("etaSegundos", clientesPorSegundo > 0 ? Math.round(restantes / clientesPorSegundo) : null);
+        trabajo.setDetalle(detalle);
+        if (totalClientes > 0) {
+            trabajo.setProgreso(procesados / (double) totalClientes);
+        }
+    }
+
+    private static boolean todosTerminados(List<Future<?>> resultados)
+            throws InterruptedException, ExecutionException {
+        boolean terminados = true;
+        for (Future<?> resultado : resultados) {
+            if (resultado.isDone()) {
+                resultado.get();
+            } else {
+                terminados = false;
+            }
+        }
+        return terminados;
+    }
+}
@@ -0,0 +1,190 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.exception.VelocidadExcedidaException;
+import com.banksystem.cuenta.limite.VentanasVelocidad;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reglas de velocidad antifraude sobre el registro de movimientos, por ejemplo "más de 5
+ * retiros o más de 2000 retirados de una cuenta en 10 minutos". Se configuran como
+ * {@code tipo@minutos=maximoCantidad:maximoMonto} separadas por comas ({@code *} es cualquier
+ * tipo y 0 deja ese límite sin efecto), p. ej. {@code Retiro@10=5:2000}.
+ * <p>
+ * Los contadores viven en memoria ({@link VentanasVelocidad}); al arrancar se reconstruyen
+ * con los movimientos de la ventana más larga. Un movimiento admitido cuenta de inmediato y
+ * se descuenta si su transacción no confirma. Con varias instancias cada una lleva sus
+ * propios contadores.
+ * <p>
+ * Las cuentas calientes y las de libro mayor existen para recibir muchos movimientos por
+ * minuto: sus movimientos se validan sólo contra las reglas de su tipo, no contra las de
+ * {@code *}.
+ */
+@Service
+public class ControlVelocidadService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ControlVelocidadService.class);
+    private static final int TAMANO_LOTE_RECONSTRUCCION = 5_000;
+
+    private final MovimientoRepository movimientoRepository;
+    private final VentanasVelocidad ventanas;
+    private final Map<String, LongAdder> rechazados = new LinkedHashMap<>();
+
+    public ControlVelocidadService(MovimientoRepository movimientoRepository,
+                                   @Value("${banco.velocidad.reglas:}") String reglas,
+                                   @Value("${banco.velocidad.cubetas:20}") int cubetas,
+                                   @Value("${banco.velocidad.maximo-cuentas:200000}") int maximoCuentas) {
+        this.movimientoRepository = movimientoRepository;
+        List<VentanasVelocidad.Regla> interpretadas = interpretar(reglas);
+        for (VentanasVelocidad.Regla regla : interpretadas) {
+            rechazados.put(regla.getDescripcion(), new LongAdder());
+        }
+        this.ventanas = new VentanasVelocidad(interpretadas, cubetas, maximoCuentas);
+    }
+
+    private static List<VentanasVelocidad.Regla> interpretar(String texto) {
+        List<VentanasVelocidad.Regla> reglas = new ArrayList<>();
+        for (String definicion : texto.split(",")) {
+            if (definicion.isBlank()) {
+                continue;
+            }
+            int arroba = definicion.indexOf('@');
+            int igual = definicion.indexOf('=');
+            int dosPuntos = definicion.lastIndexOf(':');
+            if (arroba < 0 || igual < arroba || dosPuntos < igual) {
+                throw new IllegalArgumentException(
+                        "Regla de velocidad inválida (tipo@minutos=maximoCantidad:maximoMonto): " + definicion);
+            }
+            String tipo = definicion.substring(0, arroba).trim();
+            long minutos = Long.parseLong(definicion.substring(arroba + 1, igual).trim());
+            int maximoCantidad = Integer.parseInt(definicion.substring(igual + 1, dosPuntos).trim());
+            long maximoMonto = centavos(new BigDecimal(definicion.substring(dosPuntos + 1).trim()));
+            reglas.add(new VentanasVelocidad.Regla("*".equals(tipo) ? null : tipo, minutos * 60_000L,
+                    maximoCantidad, maximoMonto, definicion.trim()));
+        }
+        return reglas;
+    }
+
+    /**
+     * Contar el movimiento o rechazarlo con {@link VelocidadExcedidaException} si excede alguna
+     * regla. Dentro de una transacción, el conteo se revierte si ésta no confirma.
+     */
+    public void registrar(Long cuentaId, String tipoMovimiento, BigDecimal valor) {
+        registrar(cuentaId, tipoMovimiento, valor, false);
+    }
+
+    /**
+     * Como {@link #registrar(Long, String, BigDecimal)}; con {@code altoVolumen} (cuentas
+     * calientes y de libro mayor) no se aplican las reglas de cualquier tipo
+     */
+    public void registrar(Long cuentaId, String tipoMovimiento, BigDecimal valor, boolean altoVolumen) {
+        if (ventanas.isVacio()) {
+            return;
+        }
+        long monto = centavos(valor);
+        long instante = System.currentTimeMillis();
+        VentanasVelocidad.Regla excedida = ventanas.registrar(cuentaId, tipoMovimiento, monto, instante, altoVolumen);
+        if (excedida != null) {
+            rechazados.get(excedida.getDescripcion()).increment();
+            log.warn("Movimiento rechazado por velocidad: cuenta {}, {} de {}, regla {}",
+                    cuentaId, tipoMovimiento, valor, excedida.getDescripcion());
+            throw new VelocidadExcedidaException("La cuenta " + cuentaId + " excede el límite de movimientos ("
+                    + excedida.getDescripcion() + ")");
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        ventanas.deshacer(cuentaId, tipoMovimiento, monto, instante);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Reconstruir los contadores con los movimientos de la ventana más larga, por ID
+     * ascendente en lotes, desde el primero de la ventana (índice de fecha)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        if (ventanas.isVacio()) {
+            return;
+        }
+        long inicio = System.currentTimeMillis();
+        ZoneId zona = ZoneId.systemDefault();
+        LocalDateTime desde = LocalDateTime.ofInstant(Instant.ofEpochMilli(inicio - ventanas.getVentanaMaximaMs()), zona);
+        Long primerId = movimientoRepository.findPrimerIdDesde(desde);
+        if (primerId == null) {
+            return;
+        }
+
+        long ultimoId = primerId - 1;
+        long cargados = 0;
+        List<Object[]> lote;
+        do {
+            lote = movimientoRepository.findRecientesDesdeId(desde, ultimoId,
+                    PageRequest.of(0, TAMANO_LOTE_RECONSTRUCCION));
+            for (Object[] fila : lote) {
+                ultimoId = (Long) fila[0];
+                long instante = ((LocalDateTime) fila[4]).atZone(zona).toInstant().toEpochMilli();
+                ventanas.cargar((Long) fila[1], (String) fila[2], centavos((BigDecimal) fila[3]), instante);
+            }
+            cargados += lote.size();
+        } while (lote.size() == TAMANO_LOTE_RECONSTRUCCION);
+        log.info("Control de velocidad: {} movimientos recientes de {} cuentas cargados en {} ms",
+                cargados, ventanas.getCuentas(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Descartar contadores de cuentas sin movimientos en la ventana más larga
+     */
+    @Scheduled(fixedDelayString = "${banco.velocidad.limpieza-ms:60000}")
+    public void purgar() {
+        int descartadas = ventanas.purgar(System.currentTimeMillis());
+        if (descartadas > 0) {
+            log.debug("Control de velocidad: {} cuentas inactivas descartadas", descartadas);
+        }
+    }
+
+    private static long centavos(BigDecimal valor) {
+        return valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banco.velocidad.cuentas", ventanas, VentanasVelocidad::getCuentas)
+                .description("Cuentas con contadores de velocidad en memoria")
+                .register(registry);
+        rechazados.forEach((regla, contador) -> FunctionCounter.builder("banco.velocidad.rechazados",
+                        contador, LongAdder::sum)
+                .description("Movimientos rechazados por reglas de velocidad")
+                .tag("regla", regla)
+                .register(registry));
+    }
+}
@@ -0,0 +1,221 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.cambio.Conversion;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.entity.SubSaldo;
+import com.banksystem.cuenta.exception.CuentaNotFoundException;
+import com.banksystem.cuenta.notificacion.MovimientoRegistradoEvent;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.repository.SubSaldoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cuentas calientes (recaudadoras con miles de depósitos por segundo).
+ * <ul>
+ *   <li>Un depósito suma sobre un sub-saldo al azar y sólo bloquea esa fila, no la de la cuenta.
+ *   Su {@code Movimiento.saldo} es provisional: el saldo visible al registrarlo.</li>
+ *   <li>Consolidar bloquea la cuenta y todas sus ranuras en orden, traslada los sub-saldos a
+ *   {@code saldoDisponible} y recalcula hacia atrás el saldo de los depósitos pendientes a
+ *   partir del total exacto, de modo que la cadena de saldos vuelve a ser la de siempre.</li>
+ *   <li>Todo retiro (y toda escritura con la cuenta bloqueada) consolida antes de validar F3,
+ *   así la validación usa el saldo exacto. Además se consolida periódicamente.</li>
+ * </ul>
+ * Orden de bloqueo global: filas de cuenta (por ID) antes que ranuras (por número de ranura).
+ */
+@Service
+@Transactional
+public class CuentaCalienteService {
+
+    private static final Logger log = LoggerFactory.getLogger(CuentaCalienteService.class);
+
+    private final CuentaRepository cuentaRepository;
+    private final SubSaldoRepository subSaldoRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final AgregadoService agregadoService;
+    private final ControlVelocidadService controlVelocidadService;
+    private final ApplicationEventPublisher eventos;
+    private final TransactionTemplate transactionTemplate;
+    private final int maximoRanuras;
+
+    public CuentaCalienteService(CuentaRepository cuentaRepository,
+                                 SubSaldoRepository subSaldoRepository,
+                                 MovimientoRepository movimientoRepository,
+                                 AgregadoService agregadoService,
+                                 ControlVelocidadService controlVelocidadService,
+                                 ApplicationEventPublisher eventos,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${banco.cuentas-calientes.maximo-ranuras:64}") int maximoRanuras) {
+        this.cuentaRepository = cuentaRepository;
+        this.subSaldoRepository = subSaldoRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.agregadoService = agregadoService;
+        this.controlVelocidadService = controlVelocidadService;
+        this.eventos = eventos;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maximoRanuras = maximoRanuras;
+    }
+
+    /**
+     * Activar (ranuras &gt; 0), cambiar o desactivar (0) el modo caliente. Siempre consolida
+     * primero; las ranuras sobrantes quedan en cero y no se borran para que la versión de
+     * la cuenta (ETag) nunca retroceda
+     */
+    public Cuenta configurar(Long cuentaId, int ranuras) {
+        if (ranuras < 0 || ranuras > maximoRanuras) {
+            throw new IllegalArgumentException("Las ranuras deben estar entre 0 y " + maximoRanuras);
+        }
+        Cuenta cuenta = cuentaRepository.findByIdParaActualizar(cuentaId)
+                .orElseThrow(() -> new CuentaNotFoundException("Cuenta no encontrada con ID: " + cuentaId));
+        if (cuenta.esLibroMayor()) {
+            throw new IllegalArgumentException("La cuenta está en modo libro mayor");
+        }
+        if (cuenta.getRanurasSaldo() != null) {
+            consolidar(cuenta);
+        } else {
+            Long ultimoId = movimientoRepository.findUltimoId(cuentaId);
+            cuenta.setMovimientoConciliadoId(ultimoId != null ? ultimoId : 0L);
+        }
+
+        Set<Integer> existentes = new HashSet<>();
+        for (SubSaldo subSaldo : subSaldoRepository.findParaConsolidar(cuentaId)) {
+            existentes.add(subSaldo.getRanura());
+        }
+        for (int ranura = 0; ranura < ranuras; ranura++) {
+            if (!existentes.contains(ranura)) {
+                subSaldoRepository.save(new SubSaldo(cuentaId, ranura));
+            }
+        }
+        cuenta.setRanurasSaldo(ranuras);
+        return cuentaRepository.save(cuenta);
+    }
+
+    /**
+     * Depósito en una ranura al azar, sin bloquear la fila de la cuenta
+     */
+    public Movimiento depositar(Long cuentaId, int ranuras, BigDecimal valor,
+                                String descripcion, String transferenciaId, Conversion conversion) {
+        if (valor == null || valor.signum() <= 0) {
+            throw new IllegalArgumentException("El valor debe ser mayor a cero");
+        }
+        controlVelocidadService.registrar(cuentaId, "Deposito", valor, true);
+        LocalDateTime ahora = LocalDateTime.now();
+        int ranura = ThreadLocalRandom.current().nextInt(ranuras);
+        if (subSaldoRepository.sumar(cuentaId, ranura, valor, ahora) == 0) {
+            throw new IllegalStateException("La cuenta " + cuentaId + " no tiene la ranura " + ranura);
+        }
+
+        Movimiento movimiento = new Movimiento();
+        movimiento.setFecha(ahora);
+        movimiento.setTipoMovimiento("Deposito");
+        movimiento.setValor(valor);
+        movimiento.setSaldo(subSaldoRepository.obtenerSaldoTotal(cuentaId));
+        movimiento.setCuentaId(cuentaId);
+        movimiento.setDescripcion(descripcion);
+        movimiento.setTransferenciaId(transferenciaId);
+        if (conversion != null) {
+            conversion.anotarEn(movimiento);
+        }
+        Movimiento guardado = movimientoRepository.save(movimiento);
+        eventos.publishEvent(new MovimientoRegistradoEvent(guardado, guardado.getSaldo()));
+        return guardado;
+    }
+
+    /**
+     * Consolidar una cuenta ya bloqueada en la transacción actual. Devuelve la cantidad de
+     * depósitos cuyo saldo provisional se corrigió
+     */
+    public int consolidar(Cuenta cuenta) {
+        List<SubSaldo> ranuras = subSaldoRepository.findParaConsolidar(cuenta.getId());
+        BigDecimal pendiente = BigDecimal.ZERO;
+        for (SubSaldo subSaldo : ranuras) {
+            pendiente = pendiente.add(subSaldo.getSaldo());
+        }
+        // Con todas las ranuras bloqueadas, todo depósito que las tocó ya confirmó su movimiento
+        Long desdeId = cuenta.getMovimientoConciliadoId() != null ? cuenta.getMovimientoConciliadoId() : 0L;
+        List<Movimiento> pendientes = movimientoRepository.findPendientesConciliacion(cuenta.getId(), desdeId);
+        if (pendiente.signum() == 0 && pendientes.isEmpty()) {
+            cuenta.setSaldoRanuras(BigDecimal.ZERO);
+            return 0;
+        }
+
+        cuenta.setSaldoRanuras(pendiente);
+        BigDecimal total = cuenta.getSaldoDisponible();
+        cuenta.setSaldoDisponible(total);
+        cuenta.setSaldoRanuras(BigDecimal.ZERO);
+
+        // Saldos hacia atrás desde el total exacto
+        BigDecimal saldo = total;
+        for (int i = pendientes.size() - 1; i >= 0; i--) {
+            Movimiento movimiento = pendientes.get(i);
+            movimiento.setSaldo(saldo);
+            saldo = "Retiro".equalsIgnoreCase(movimiento.getTipoMovimiento())
+                    ? saldo.add(movimiento.getValor())
+                    : saldo.subtract(movimiento.getValor());
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        for (SubSaldo subSaldo : ranuras) {
+            if (subSaldo.getSaldo().signum() != 0) {
+                subSaldo.setSaldo(BigDecimal.ZERO);
+                subSaldo.setVersion(subSaldo.getVersion() + 1);
+                subSaldo.setFechaActualizacion(ahora);
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            cuenta.setMovimientoConciliadoId(pendientes.get(pendientes.size() - 1).getId());
+            agregadoService.registrarMovimientos(pendientes, cuenta);
+        }
+        cuentaRepository.save(cuenta);
+        return pendientes.size();
+    }
+
+    /**
+     * Consolidar periódicamente las cuentas con sub-saldos pendientes, una transacción por
+     * cuenta, para que los saldos provisionales no duren más que el intervalo
+     */
+    @Scheduled(fixedDelayString = "${banco.cuentas-calientes.consolidacion-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void consolidarProgramado() {
+        consolidarPendientes();
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> consolidarPendientes() {
+        int cuentas = 0;
+        int movimientos = 0;
+        for (Long cuentaId : subSaldoRepository.findCuentasPendientes()) {
+            Integer corregidos = transactionTemplate.execute(estado -> cuentaRepository.findByIdParaActualizar(cuentaId)
+                    .map(this::consolidar)
+                    .orElse(0));
+            cuentas++;
+            movimientos += corregidos != null ? corregidos : 0;
+        }
+        if (cuentas > 0) {
+            log.debug("Cuentas calientes: {} cuentas consolidadas, {} movimientos", cuentas, movimientos);
+        }
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("cuentas", cuentas);
+        resultado.put("movimientos", movimientos);
+        return resultado;
+    }
+}
@@ -1,23 +1,48 @@
 package com.banksystem.cuenta.service;
 
+import com.banksystem.comun.cache.CacheCercana;
+import com.banksystem.comun.condicional.VersionColeccion;
+import com.banksystem.comun.condicional.VersionRecurso;
+import com.banksystem.comun.paginacion.Filtros;
+import com.banksystem.comun.paginacion.PaginadorCursor;
+import com.banksystem.cuenta.cambio.TasasCambio;
 import com.banksystem.cuenta.entity.Cuenta;
 import com.banksystem.cuenta.exception.CuentaAlreadyExistsException;
 import com.banksystem.cuenta.exception.CuentaNotFoundException;
+import com.banksystem.cuenta.exception.PrecondicionFallidaException;
 import com.banksystem.cuenta.repository.CuentaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 @Transactional
 public class CuentaService {
 
+    private static final PaginadorCursor PAGINADOR = new PaginadorCursor(Map.of(
+            "fechaCreacion", LocalDateTime::parse,
+            "numeroCuenta", valor -> valor));
+
     private final CuentaRepository cuentaRepository;
+    private final CacheCercana<Cuenta> cacheCuentas;
+    private final TasasCambio tasasCambio;
+    private final boolean totalEstimadoHabilitado;
 
-    public CuentaService(CuentaRepository cuentaRepository) {
+    public CuentaService(CuentaRepository cuentaRepository, CacheCercana<Cuenta> cacheCuentas,
+                         TasasCambio tasasCambio,
+                         @Value("${banco.paginacion.total-estimado:false}") boolean totalEstimadoHabilitado) {
         this.cuentaRepository = cuentaRepository;
+        this.cacheCuentas = cacheCuentas;
+        this.tasasCambio = tasasCambio;
+        this.totalEstimadoHabilitado = totalEstimadoHabilitado;
     }
 
     /**
@@ -37,14 +62,59 @@ public class CuentaService {
     }
 
     /**
-     * Obtener cuenta por ID
+     * Obtener cuenta por ID (cache local; sólo lectura, no modificar la instancia devuelta)
      */
     @Transactional(readOnly = true)
     public Cuenta obtenerPorId(Long id) {
-        return cuentaRepository.findById(id)
+        return cacheCuentas.obtener(id, this::cargarVersionada);
+    }
+
+    /**
+     * Obtener cuenta por ID con al menos la versión indicada (la del ETag): la copia en cache
+     * de una cuenta que otra instancia modificó y cuyo aviso aún no llegó, o que recibió
+     * depósitos en ranuras o en el libro sin tocar su fila, se vuelve a leer
+     */
+    @Transactional(readOnly = true)
+    public Cuenta obtenerPorId(Long id, Long versionMinima) {
+        return cacheCuentas.obtener(id,
+                cuenta -> versionMinima == null
+                        || (cuenta.getVersionLeida() != null && cuenta.getVersionLeida() >= versionMinima),
+                this::cargarVersionada);
+    }
+
+    /**
+     * Obtener la versión de la cuenta sin cargar la entidad (peticiones condicionales)
+     */
+    @Transactional(readOnly = true)
+    public VersionRecurso obtenerVersion(Long id) {
+        return cuentaRepository.findVersionById(id)
                 .orElseThrow(() -> new CuentaNotFoundException("Cuenta no encontrada con ID: " + id));
     }
 
+    /**
+     * Versión agregada del listado de todas las cuentas
+     */
+    @Transactional(readOnly = true)
+    public VersionColeccion obtenerVersionTodas() {
+        return cuentaRepository.obtenerVersionColeccion();
+    }
+
+    /**
+     * Versión agregada del listado de cuentas activas
+     */
+    @Transactional(readOnly = true)
+    public VersionColeccion obtenerVersionActivas() {
+        return cuentaRepository.obtenerVersionColeccionActivas();
+    }
+
+    /**
+     * Versión agregada del listado de cuentas de un cliente
+     */
+    @Transactional(readOnly = true)
+    public VersionColeccion obtenerVersionPorCliente(Long clienteId) {
+        return cuentaRepository.obtenerVersionColeccionPorCliente(clienteId);
+    }
+
     /**
      * Obtener cuenta por número de cuenta
      */
@@ -71,6 +141,31 @@ public class CuentaService {
         return cuentaRepository.findByClienteIdAndEstadoTrue(clienteId);
     }
 
+    /**
+     * Listado filtrado por estado, tipo, cliente y rango de creación, paginado por cursor
+     * (sin OFFSET ni COUNT); orden por id, fechaCreacion o numeroCuenta
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> filtrarCuentas(Boolean estado, String tipoCuenta, Long clienteId,
+                                              LocalDate fechaDesde, LocalDate fechaHasta,
+                                              String cursor, int tamano, String orden, String direccion) {
+        Specification<Cuenta> filtro = Specification.where(Filtros.<Cuenta>igual("estado", estado))
+                .and(Filtros.igual("tipoCuenta", tipoCuenta))
+                .and(Filtros.igual("clienteId", clienteId))
+                .and(Filtros.desde("fechaCreacion", fechaDesde != null ? fechaDesde.atStartOfDay() : null))
+                .and(Filtros.antes("fechaCreacion", fechaHasta != null ? fechaHasta.plusDays(1).atStartOfDay() : null));
+        return PAGINADOR.listar(cuentaRepository, filtro, cursor, tamano, orden, direccion);
+    }
+
+    /**
+     * Total estimado de cuentas (estadísticas de InnoDB, no exacto), o null si
+     * banco.paginacion.total-estimado está deshabilitado (base que no es MySQL)
+     */
+    @Transactional(readOnly = true)
+    public Long estimarTotalCuentas() {
+        return totalEstimadoHabilitado ? cuentaRepository.estimarTotal() : null;
+    }
+
     /**
      * Crear nueva cuenta
      */
@@ -81,6 +176,10 @@ public class CuentaService {
                     "Ya existe una cuenta con número: " + cuenta.getNumeroCuenta());
         }
 
+        // Sin moneda, la base; la moneda ya no cambia después de creada la cuenta
+        cuenta.setMoneda(cuenta.getMoneda() == null
+                ? tasasCambio.getMonedaBase()
+                : TasasCambio.validarMoneda(cuenta.getMoneda()));
         cuenta.setEstado(true);
         return cuentaRepository.save(cuenta);
     }
@@ -89,7 +188,15 @@ public class CuentaService {
      * Actualizar cuenta (sin cambiar saldo)
      */
     public Cuenta actualizarCuenta(Long id, Cuenta cuentaActualizada) {
-        Cuenta cuentaExistente = obtenerPorId(id);
+        return actualizarCuenta(id, cuentaActualizada, null);
+    }
+
+    /**
+     * Actualizar cuenta sólo si sigue en una de las versiones que el cliente leyó (null: sin condición)
+     */
+    public Cuenta actualizarCuenta(Long id, Cuenta cuentaActualizada, Set<Long> versionesEsperadas) {
+        Cuenta cuentaExistente = cargar(id);
+        verificarVersion(id, versionesEsperadas);
 
         // Validar número de cuenta único
         if (!cuentaExistente.getNumeroCuenta().equals(cuentaActualizada.getNumeroCuenta()) &&
@@ -107,7 +214,15 @@ public class CuentaService {
      * Cambiar estado de la cuenta
      */
     public Cuenta cambiarEstado(Long id, Boolean nuevoEstado) {
-        Cuenta cuenta = obtenerPorId(id);
+        return cambiarEstado(id, nuevoEstado, null);
+    }
+
+    /**
+     * Cambiar estado sólo si la cuenta sigue en una de las versiones que el cliente leyó (null: sin condición)
+     */
+    public Cuenta cambiarEstado(Long id, Boolean nuevoEstado, Set<Long> versionesEsperadas) {
+        Cuenta cuenta = cargar(id);
+        verificarVersion(id, versionesEsperadas);
         cuenta.setEstado(nuevoEstado);
         return cuentaRepository.save(cuenta);
     }
@@ -116,7 +231,37 @@ public class CuentaService {
      * Eliminar cuenta
      */
     public void eliminarCuenta(Long id) {
-        Cuenta cuenta = obtenerPorId(id);
+        Cuenta cuenta = cargar(id);
         cuentaRepository.delete(cuenta);
     }
+
+    /**
+     * La versión del If-Match es la misma del ETag (incluye ranuras y libro mayor); si la cuenta
+     * cambió desde que el cliente la leyó la precondición falla
+     */
+    private void verificarVersion(Long id, Set<Long> versionesEsperadas) {
+        if (versionesEsperadas != null && !versionesEsperadas.contains(obtenerVersion(id).getVersion())) {
+            throw new PrecondicionFallidaException("La cuenta " + id + " cambió desde que se leyó su ETag");
+        }
+    }
+
+    /**
+     * Leer la cuenta para la cache junto con la versión del ETag. La versión se lee primero:
+     * si la cuenta cambia entre ambas lecturas queda anotada una versión vieja y la próxima
+     * petición con la nueva vuelve a leerla
+     */
+    private Cuenta cargarVersionada(Long id) {
+        Long version = obtenerVersion(id).getVersion();
+        Cuenta cuenta = cargar(id);
+        cuenta.setVersionLeida(version);
+        return cuenta;
+    }
+
+    /**
+     * Leer la cuenta de la base (entidad administrada, para modificarla)
+     */
+    private Cuenta cargar(Long id) {
+        return cuentaRepository.findById(id)
+                .orElseThrow(() -> new CuentaNotFoundException("Cuenta no encontrada con ID: " + id));
+    }
 }
@@ -0,0 +1,178 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.cambio.TasasCambio;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.exception.CupoDiarioExcedidoException;
+import com.banksystem.cuenta.repository.AgregadoDiarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cupo diario de retiros por tipo de cuenta ({@code banco.cupo-diario.limites}, como
+ * {@code tipoCuenta[@MONEDA]:limite} separados por comas; un tipo sin límite no se controla).
+ * Un límite sin moneda está en la moneda base; en cuentas de otra moneda sin límite propio se
+ * convierte con la tasa vigente, y sin tasa el retiro no se admite.
+ * <p>
+ * Lo retirado en el día sale del agregado diario de la cuenta, que se actualiza en la misma
+ * transacción que el movimiento: una lectura por clave única en lugar de sumar los retiros
+ * del día. Tras confirmar se guarda en memoria junto con la versión de la cuenta; mientras la
+ * cuenta bloqueada conserve esa versión ninguna otra escritura (de ésta u otra instancia) la
+ * tocó y el valor en memoria es exacto. Al cambiar el día el acumulado vuelve a cero.
+ */
+@Service
+public class CupoDiarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(CupoDiarioService.class);
+
+    /**
+     * Retirado en un día, válido para una versión de la cuenta
+     */
+    private static final class Acumulado {
+        final LocalDate dia;
+        final BigDecimal retirado;
+        final Long version;
+
+        Acumulado(LocalDate dia, BigDecimal retirado, Long version) {
+            this.dia = dia;
+            this.retirado = retirado;
+            this.version = version;
+        }
+    }
+
+    private final AgregadoDiarioRepository agregadoDiarioRepository;
+    private final TasasCambio tasasCambio;
+    /** Límite por "tipoCuenta@MONEDA", con el tipo en minúsculas */
+    private final Map<String, BigDecimal> limites;
+    private final int maximoCuentas;
+    private final Map<Long, Acumulado> acumulados = new ConcurrentHashMap<>();
+
+    public CupoDiarioService(AgregadoDiarioRepository agregadoDiarioRepository,
+                             TasasCambio tasasCambio,
+                             @Value("${banco.cupo-diario.limites:}") String limites,
+                             @Value("${banco.cupo-diario.maximo-cuentas:500000}") int maximoCuentas) {
+        this.agregadoDiarioRepository = agregadoDiarioRepository;
+        this.tasasCambio = tasasCambio;
+        this.limites = interpretar(limites, tasasCambio.getMonedaBase());
+        this.maximoCuentas = maximoCuentas;
+    }
+
+    private static Map<String, BigDecimal> interpretar(String texto, String monedaBase) {
+        Map<String, BigDecimal> limites = new HashMap<>();
+        for (String definicion : texto.split(",")) {
+            if (definicion.isBlank()) {
+                continue;
+            }
+            int dosPuntos = definicion.lastIndexOf(':');
+            if (dosPuntos < 0) {
+                throw new IllegalArgumentException("Cupo diario inválido (tipoCuenta[@MONEDA]:limite): " + definicion);
+            }
+            String tipo = definicion.substring(0, dosPuntos).trim();
+            int arroba = tipo.indexOf('@');
+            String moneda = arroba < 0 ? monedaBase : TasasCambio.validarMoneda(tipo.substring(arroba + 1));
+            if (arroba >= 0) {
+                tipo = tipo.substring(0, arroba).trim();
+            }
+            limites.put(tipo.toLowerCase() + "@" + moneda, new BigDecimal(definicion.substring(dosPuntos + 1).trim()));
+        }
+        return limites;
+    }
+
+    /**
+     * Validar un retiro sobre una cuenta ya bloqueada en la transacción actual; falla con
+     * {@link CupoDiarioExcedidoException} si con él se supera el cupo del día
+     */
+    public void validarRetiro(Cuenta cuenta, BigDecimal valor, LocalDate dia) {
+        BigDecimal limite = limite(cuenta);
+        if (limite == null) {
+            return;
+        }
+        Long cuentaId = cuenta.getId();
+        Acumulado acumulado = acumulados.get(cuentaId);
+        BigDecimal retirado;
+        if (acumulado != null && acumulado.dia.equals(dia) && acumulado.version != null
+                && acumulado.version.equals(cuenta.getVersion())) {
+            retirado = acumulado.retirado;
+        } else {
+            retirado = agregadoDiarioRepository.findTotal(cuentaId, dia, "Retiro").orElse(BigDecimal.ZERO);
+        }
+
+        BigDecimal nuevoRetirado = retirado.add(valor);
+        if (nuevoRetirado.compareTo(limite) > 0) {
+            throw new CupoDiarioExcedidoException("Cupo diario excedido");
+        }
+
+        // La versión nueva de la cuenta se conoce al confirmar; si no confirma, no se guarda nada
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (acumulados.size() < maximoCuentas || acumulados.containsKey(cuentaId)) {
+                        acumulados.put(cuentaId, new Acumulado(dia, nuevoRetirado, cuenta.getVersion()));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Validar un retiro de una cuenta en modo libro mayor. Sus movimientos no cambian la
+     * versión de la cuenta, así que no se usa lo guardado en memoria: al agregado diario se
+     * suma lo retirado en el día en movimientos del libro aún no compactados
+     */
+    public void validarRetiroLibro(Cuenta cuenta, BigDecimal valor, LocalDate dia,
+                                   Supplier<BigDecimal> retiradoSinCompactar) {
+        BigDecimal limite = limite(cuenta);
+        if (limite == null) {
+            return;
+        }
+        BigDecimal retirado = agregadoDiarioRepository.findTotal(cuenta.getId(), dia, "Retiro").orElse(BigDecimal.ZERO);
+        if (retirado.add(retiradoSinCompactar.get()).add(valor).compareTo(limite) > 0) {
+            throw new CupoDiarioExcedidoException("Cupo diario excedido");
+        }
+    }
+
+    /**
+     * Límite del tipo de cuenta en la moneda de la cuenta: el propio de esa moneda o el de la
+     * moneda base convertido; null si el tipo no tiene límite
+     */
+    private BigDecimal limite(Cuenta cuenta) {
+        if (cuenta.getTipoCuenta() == null) {
+            return null;
+        }
+        String tipo = cuenta.getTipoCuenta().toLowerCase();
+        String moneda = cuenta.getMoneda() != null ? cuenta.getMoneda() : Cuenta.MONEDA_POR_DEFECTO;
+        BigDecimal propio = limites.get(tipo + "@" + moneda);
+        if (propio != null) {
+            return propio;
+        }
+        String base = tasasCambio.getMonedaBase();
+        BigDecimal enBase = limites.get(tipo + "@" + base);
+        if (enBase == null || moneda.equals(base)) {
+            return enBase;
+        }
+        return tasasCambio.convertir(enBase, base, moneda).valorDestino();
+    }
+
+    /**
+     * Al cambiar el día, descartar los acumulados de días anteriores
+     */
+    @Scheduled(cron = "${banco.cupo-diario.limpieza-cron:5 0 0 * * *}")
+    public void cambiarDia() {
+        LocalDate hoy = LocalDate.now();
+        int antes = acumulados.size();
+        acumulados.values().removeIf(acumulado -> acumulado.dia.isBefore(hoy));
+        log.debug("Cupo diario: {} acumulados de días anteriores descartados", antes - acumulados.size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.cuenta.cache.CacheEstadosCuenta;
+import com.banksystem.cuenta.config.CacheConfig;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.notificacion.MovimientoRegistradoEvent;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estados de cuenta de períodos cerrados servidos desde {@link CacheEstadosCuenta}.
+ * Un período está cerrado cuando terminó hace más de {@code banco.cache.estados.dias-gracia}
+ * días: ya no se esperan movimientos con fecha dentro de él. Si aun así se registra uno,
+ * se invalidan los estados del cliente en todas las instancias.
+ * <p>
+ * Lo guardado no lleva datos vigentes (fecha del reporte, tipo, estado y saldo actual de las
+ * cuentas; ver {@link ReporteService#generarEstadoCuentaCerrado}). La lista de cuentas sí, y
+ * se invalida al crear o eliminar una cuenta del cliente.
+ */
+@Service
+public class EstadoCuentaCerradoService {
+
+    /**
+     * Formatos que se guardan ya serializados, con el mismo ObjectMapper que su conversor HTTP
+     */
+    public enum Formato {
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.APPLICATION_CBOR),
+        SMILE(new MediaType("application", "x-jackson-smile"));
+
+        private final MediaType tipo;
+
+        Formato(MediaType tipo) {
+            this.tipo = tipo;
+        }
+
+        public MediaType getTipo() {
+            return tipo;
+        }
+
+        public String getClave() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final ReporteService reporteService;
+    private final CuentaRepository cuentaRepository;
+    private final CacheEstadosCuenta cache;
+    private final BusInvalidacion bus;
+    private final Map<Formato, ObjectMapper> mappers = new EnumMap<>(Formato.class);
+    private final boolean habilitado;
+    private final int diasGracia;
+
+    public EstadoCuentaCerradoService(ReporteService reporteService,
+                                      CuentaRepository cuentaRepository,
+                                      CacheEstadosCuenta cache,
+                                      BusInvalidacion bus,
+                                      ObjectMapper objectMapper,
+                                      HttpMessageConverters conversores,
+                                      @Value("${banco.cache.estados.habilitado:true}") boolean habilitado,
+                                      @Value("${banco.cache.estados.dias-gracia:1}") int diasGracia) {
+        this.reporteService = reporteService;
+        this.cuentaRepository = cuentaRepository;
+        this.cache = cache;
+        this.bus = bus;
+        this.habilitado = habilitado;
+        this.diasGracia = diasGracia;
+        mappers.put(Formato.JSON, objectMapper);
+        for (HttpMessageConverter<?> conversor : conversores.getConverters()) {
+            if (conversor instanceof MappingJackson2CborHttpMessageConverter cbor) {
+                mappers.putIfAbsent(Formato.CBOR, cbor.getObjectMapper());
+            } else if (conversor instanceof MappingJackson2SmileHttpMessageConverter smile) {
+                mappers.putIfAbsent(Formato.SMILE, smile.getObjectMapper());
+            }
+        }
+    }
+
+    /**
+     * Si el período terminó antes de la gracia y su estado de cuenta puede servirse de la cache
+     */
+    public boolean esCerrado(LocalDate fechaFin) {
+        return habilitado && fechaFin.plusDays(diasGracia).isBefore(LocalDate.now());
+    }
+
+    /**
+     * Primer formato guardable aceptado por el cliente, en el orden de la cabecera Accept
+     * (JSON si no la envía); null si no acepta ninguno
+     */
+    public Formato negociar(String aceptados) {
+        if (aceptados == null || aceptados.isBlank()) {
+            return Formato.JSON;
+        }
+        List<MediaType> tipos;
+        try {
+            tipos = MediaType.parseMediaTypes(aceptados);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        for (MediaType tipo : tipos) {
+            for (Formato formato : Formato.values()) {
+                if (tipo.includes(formato.getTipo())) {
+                    return formato;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Estado de cuenta serializado y comprimido con gzip, de la cache o generado y guardado
+     */
+    public byte[] obtenerComprimido(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin, Formato formato) {
+        return cache.obtener(new CacheEstadosCuenta.Clave(clienteId, fechaInicio, fechaFin, formato.getClave()),
+                () -> serializar(formato, reporteService.generarEstadoCuentaCerrado(clienteId, fechaInicio, fechaFin)));
+    }
+
+    /**
+     * Movimiento con fecha de un período cerrado: invalidar los estados del cliente al confirmar
+     */
+    @EventListener
+    public void alRegistrarMovimiento(MovimientoRegistradoEvent evento) {
+        Movimiento movimiento = evento.getMovimiento();
+        if (movimiento.getFecha() == null || !esCerrado(movimiento.getFecha().toLocalDate())) {
+            return;
+        }
+        cuentaRepository.findById(movimiento.getCuentaId()).ifPresent(cuenta ->
+                bus.invalidarAlConfirmar(CacheConfig.CACHE_ESTADOS_CUENTA, cuenta.getClienteId()));
+    }
+
+    private byte[] serializar(Formato formato, Map<String, Object> reporte) {
+        try {
+            return mappers.get(formato).writeValueAsBytes(reporte);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.cuenta.config.CacheConfig;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.limite.ClaseTrafico;
+import com.banksystem.cuenta.notificacion.MovimientoRegistradoEvent;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.DevengoInteresRepository;
+import com.banksystem.cuenta.trabajo.EjecutorTrabajos;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Devengo diario de intereses de las cuentas de ahorro: interés del día = saldo al cierre del
+ * día × tasa anual / días del año, redondeado al centavo, abonado como un depósito.
+ * <ul>
+ *   <li>Las cuentas pendientes se recorren por clave en lotes; cada lote se procesa en un hilo
+ *   del pool (clase de tráfico de reportes, con sus propias conexiones) y, si el pool está
+ *   ocupado, en el hilo que recorre, así nunca se leen más lotes de los que se procesan.</li>
+ *   <li>Un lote es una transacción: bloquea sus cuentas con {@code FOR UPDATE SKIP LOCKED} (una
+ *   cuenta que un movimiento tiene bloqueada se salta, no se espera) y escribe saldos,
+ *   movimientos, devengos y agregados en lotes JDBC.</li>
+ *   <li>Las cuentas saltadas, las calientes y las de libro mayor se abonan después una a una
+ *   por el camino normal de los movimientos.</li>
+ *   <li>La clave única (cuenta, fecha) de {@code devengo_interes} hace idempotente el día:
+ *   repetirlo sólo abona las cuentas que faltaron.</li>
+ * </ul>
+ */
+@Service
+public class InteresService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(InteresService.class);
+
+    public static final String TIPO_DEVENGO_INTERES = "DEVENGO_INTERES";
+    private static final Long PROPIETARIO_SISTEMA = 0L;
+    private static final int REINTENTOS = 5;
+
+    private static final String SQL_BLOQUEAR = "SELECT id, saldo_disponible, tipo_cuenta, moneda FROM cuenta " +
+            "WHERE id IN (:ids) AND estado = TRUE AND ranuras_saldo IS NULL AND secuencia_compactada IS NULL " +
+            "ORDER BY id FOR UPDATE SKIP LOCKED";
+    private static final String SQL_FLUJOS = "SELECT cuenta_id, " +
+            "SUM(CASE WHEN UPPER(tipo_movimiento) = 'RETIRO' THEN -valor ELSE valor END) FROM movimiento " +
+            "WHERE cuenta_id IN (:ids) AND fecha >= :desde GROUP BY cuenta_id";
+    private static final String SQL_SALDO = "UPDATE cuenta SET saldo_disponible = ?, version = version + 1, " +
+            "fecha_actualizacion = ? WHERE id = ?";
+    private static final String SQL_MOVIMIENTO = "INSERT INTO movimiento " +
+            "(fecha, tipo_movimiento, valor, saldo, cuenta_id, descripcion, fecha_creacion) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_MOVIMIENTOS_ABONADOS = "SELECT cuenta_id, id FROM movimiento " +
+            "WHERE cuenta_id IN (:ids) AND fecha >= :desde AND descripcion = :descripcion";
+    private static final String SQL_DEVENGO = "INSERT INTO devengo_interes " +
+            "(cuenta_id, fecha, base, valor, movimiento_id, fecha_creacion) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_AGREGADO = "INSERT INTO agregado_diario " +
+            "(cuenta_id, tipo_cuenta, moneda, fecha, tipo_movimiento, cantidad, total) VALUES (?, ?, ?, ?, 'Deposito', 1, ?) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + 1, total = total + VALUES(total)";
+
+    private final CuentaRepository cuentaRepository;
+    private final DevengoInteresRepository devengoInteresRepository;
+    private final MovimientoService movimientoService;
+    private final AgregadoService agregadoService;
+    private final EjecutorTrabajos ejecutorTrabajos;
+    private final BusInvalidacion bus;
+    private final ApplicationEventPublisher eventos;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final String tipoCuenta;
+    private final BigDecimal tasaAnual;
+    private final int diasAnio;
+    private final int hilos;
+    private final int tamanoLote;
+    private final boolean habilitado;
+    private final AtomicBoolean enEjecucion = new AtomicBoolean(false);
+    private final LongAdder abonos = new LongAdder();
+    private final LongAdder individuales = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+
+    public InteresService(CuentaRepository cuentaRepository,
+                          DevengoInteresRepository devengoInteresRepository,
+                          MovimientoService movimientoService,
+                          AgregadoService agregadoService,
+                          EjecutorTrabajos ejecutorTrabajos,
+                          BusInvalidacion bus,
+                          ApplicationEventPublisher eventos,
+                          NamedParameterJdbcTemplate jdbc,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${banco.intereses.tipo-cuenta:Ahorros}") String tipoCuenta,
+                          @Value("${banco.intereses.tasa-anual:0.03}") BigDecimal tasaAnual,
+                          @Value("${banco.intereses.dias-anio:365}") int diasAnio,
+                          @Value("${banco.intereses.hilos:4}") int hilos,
+                          @Value("${banco.intereses.lote:500}") int tamanoLote,
+                          @Value("${banco.intereses.habilitado:false}") boolean habilitado) {
+        this.cuentaRepository = cuentaRepository;
+        this.devengoInteresRepository = devengoInteresRepository;
+        this.movimientoService = movimientoService;
+        this.agregadoService = agregadoService;
+        this.ejecutorTrabajos = ejecutorTrabajos;
+        this.bus = bus;
+        this.eventos = eventos;
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tipoCuenta = tipoCuenta;
+        this.tasaAnual = tasaAnual;
+        this.diasAnio = diasAnio;
+        this.hilos = hilos;
+        this.tamanoLote = tamanoLote;
+        this.habilitado = habilitado;
+    }
+
+    /**
+     * Cada madrugada devenga el día anterior
+     */
+    @Scheduled(cron = "${banco.intereses.cron:0 15 0 * * *}")
+    public void devengoProgramado() {
+        if (habilitado) {
+            iniciar(LocalDate.now().minusDays(1));
+        }
+    }
+
+    /**
+     * Encolar el devengo de un día en el ejecutor de trabajos; el resumen queda en el detalle
+     */
+    public Trabajo iniciar(LocalDate fecha) {
+        validarFecha(fecha);
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("fecha", fecha.toString());
+        return ejecutorTrabajos.enviar(new Trabajo(TIPO_DEVENGO_INTERES, PROPIETARIO_SISTEMA, Long.MAX_VALUE,
+                parametros, trabajo -> trabajo.setDetalle(devengar(fecha, trabajo))));
+    }
+
+    /**
+     * Devengar un día cerrado en el hilo actual
+     */
+    public Map<String, Object> devengar(LocalDate fecha) {
+        return devengar(fecha, null);
+    }
+
+    private Map<String, Object> devengar(LocalDate fecha, Trabajo trabajo) {
+        validarFecha(fecha);
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("fecha", fecha);
+        if (!enEjecucion.compareAndSet(false, true)) {
+            resumen.put("estado", "EN_EJECUCION");
+            return resumen;
+        }
+        Avance avance = new Avance();
+        String descripcion = "Interés devengado del " + fecha;
+        LocalDateTime creadaAntes = fecha.plusDays(1).atStartOfDay();
+        long inicio = System.nanoTime();
+
+        // Cola del tamaño del pool: con todo ocupado el lote lo procesa quien recorre
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(hilos), tarea -> {
+                    Thread hilo = new Thread(ClaseTrafico.REPORTE.envolver(tarea),
+                            "intereses-" + fecha + "-" + numeroHilo.getAndIncrement());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            Long ultimoId = 0L;
+            List<Long> lote;
+            do {
+                if (trabajo != null && trabajo.cancelado()) {
+                    throw new CancellationException("Devengo de intereses cancelado");
+                }
+                lote = cuentaRepository.findPendientesDeInteres(ultimoId, tipoCuenta, creadaAntes, fecha,
+                        PageRequest.of(0, tamanoLote));
+                if (lote.isEmpty()) {
+                    break;
+                }
+                ultimoId = lote.get(lote.size() - 1);
+                avance.revisadas.add(lote.size());
+                List<Long> ids = lote;
+                pool.execute(() -> procesarLote(ids, fecha, descripcion, avance));
+                if (trabajo != null) {
+                    trabajo.setDetalle(avance.aMapa(inicio));
+                }
+            } while (lote.size() == tamanoLote);
+
+            pool.shutdown();
+            if (!pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("El devengo de intereses no terminó");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Devengo de intereses cancelado");
+        } finally {
+            pool.shutdownNow();
+            enEjecucion.set(false);
+        }
+
+        log.info("Intereses del {}: {} cuentas revisadas, {} abonadas ({} una a una), {} fallidas en {} ms",
+                fecha, avance.revisadas.sum(), avance.abonadas.sum(), avance.individuales.sum(),
+                avance.fallidas.sum(), (System.nanoTime() - inicio) / 1_000_000);
+        resumen.put("estado", "COMPLETADO");
+        resumen.putAll(avance.aMapa(inicio));
+        return resumen;
+    }
+
+    /**
+     * Abonar un lote en una transacción y, después, una a una las cuentas que quedaron fuera
+     */
+    private void procesarLote(List<Long> ids, LocalDate fecha, String descripcion, Avance avance) {
+        List<Long> restantes;
+        try {
+            restantes = transactionTemplate.execute(estado -> abonarLote(ids, fecha, descripcion, avance));
+        } catch (DataAccessException e) {
+            // Otra ejecución abonó alguna cuenta del lote, o la base abortó la transacción
+            log.debug("Lote de intereses desde la cuenta {} revertido: {}", ids.get(0), e.getMessage());
+            restantes = ids;
+        }
+        if (restantes != null) {
+            for (Long cuentaId : restantes) {
+                abonarCuenta(cuentaId, fecha, descripcion, avance);
+            }
+        }
+    }
+
+    /**
+     * Abonar las cuentas del lote que se pudieron bloquear sin esperar. Devuelve las demás
+     */
+    private List<Long> abonarLote(List<Long> ids, LocalDate fecha, String descripcion, Avance avance) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource("ids", ids)
+                .addValue("desde", fecha.plusDays(1).atStartOfDay());
+        Set<Long> restantes = new LinkedHashSet<>(ids);
+        List<Abono> bloqueadas = jdbc.query(SQL_BLOQUEAR, parametros, (fila, numero) -> new Abono(
+                fila.getLong(1), fila.getString(3), fila.getString(4), fila.getBigDecimal(2), null, null));
+        if (bloqueadas.isEmpty()) {
+            return new ArrayList<>(restantes);
+        }
+
+        // Saldo al cierre del día = saldo actual menos lo movido después (con la fila bloqueada, exacto)
+        Map<Long, BigDecimal> flujos = new HashMap<>();
+        jdbc.query(SQL_FLUJOS, parametros, fila -> {
+            flujos.put(fila.getLong(1), fila.getBigDecimal(2));
+        });
+        List<Abono> abonos = new ArrayList<>();
+        for (Abono cuenta : bloqueadas) {
+            restantes.remove(cuenta.cuentaId());
+            BigDecimal base = cuenta.base().subtract(flujos.getOrDefault(cuenta.cuentaId(), BigDecimal.ZERO));
+            BigDecimal interes = calcular(base);
+            if (interes.signum() > 0) {
+                abonos.add(new Abono(cuenta.cuentaId(), cuenta.tipoCuenta(), cuenta.moneda(), base, interes,
+                        cuenta.base().add(interes)));
+            }
+        }
+        if (abonos.isEmpty()) {
+            return new ArrayList<>(restantes);
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        var lotes = jdbc.getJdbcTemplate();
+        lotes.batchUpdate(SQL_SALDO, abonos, abonos.size(), (ps, abono) -> {
+            ps.setBigDecimal(1, abono.saldo());
+            ps.setObject(2, ahora);
+            ps.setLong(3, abono.cuentaId());
+        });
+        lotes.batchUpdate(SQL_MOVIMIENTO, abonos, abonos.size(), (ps, abono) -> {
+            ps.setObject(1, ahora);
+            ps.setString(2, "Deposito");
+            ps.setBigDecimal(3, abono.valor());
+            ps.setBigDecimal(4, abono.saldo());
+            ps.setLong(5, abono.cuentaId());
+            ps.setString(6, descripcion);
+            ps.setObject(7, ahora);
+        });
+        // La descripción lleva el día devengado: una sola por cuenta gracias a la clave del devengo
+        Map<Long, Long> movimientoIds = new HashMap<>();
+        jdbc.query(SQL_MOVIMIENTOS_ABONADOS, new MapSqlParameterSource("ids", ids)
+                .addValue("desde", ahora.toLocalDate().atStartOfDay())
+                .addValue("descripcion", descripcion), fila -> {
+            movimientoIds.put(fila.getLong(1), fila.getLong(2));
+        });
+        lotes.batchUpdate(SQL_DEVENGO, abonos, abonos.size(), (ps, abono) -> {
+            ps.setLong(1, abono.cuentaId());
+            ps.setObject(2, fecha);
+            ps.setBigDecimal(3, abono.base());
+            ps.setBigDecimal(4, abono.valor());
+            ps.setObject(5, movimientoIds.get(abono.cuentaId()));
+            ps.setObject(6, ahora);
+        });
+        lotes.batchUpdate(SQL_AGREGADO, abonos, abonos.size(), (ps, abono) -> {
+            ps.setLong(1, abono.cuentaId());
+            ps.setString(2, abono.tipoCuenta());
+            ps.setString(3, abono.moneda());
+            ps.setObject(4, ahora.toLocalDate());
+            ps.setBigDecimal(5, abono.valor());
+        });
+
+        for (Abono abono : abonos) {
+            // Las filas no pasan por Hibernate: la cache y los suscriptores se avisan aquí
+            bus.invalidarAlConfirmar(CacheConfig.CACHE_CUENTAS, abono.cuentaId());
+            // El agregado por tipo de cuenta se escribe al confirmar, en orden de clave
+            agregadoService.registrarDepositoTipoCuenta(abono.cuentaId(), abono.tipoCuenta(), abono.moneda(),
+                    ahora.toLocalDate(), abono.valor());
+            Movimiento movimiento = new Movimiento(ahora, "Deposito", abono.valor(), abono.saldo(), abono.cuentaId());
+            movimiento.setId(movimientoIds.get(abono.cuentaId()));
+            movimiento.setDescripcion(descripcion);
+            movimiento.setFechaCreacion(ahora);
+            eventos.publishEvent(new MovimientoRegistradoEvent(movimiento, abono.saldo()));
+            avance.sumar(abono.valor());
+        }
+        return new ArrayList<>(restantes);
+    }
+
+    /**
+     * Abonar una cuenta por el camino de los movimientos (bloqueo propio, sub-saldos, libro
+     * mayor), con el saldo al cierre del día como base
+     */
+    private void abonarCuenta(Long cuentaId, LocalDate fecha, String descripcion, Avance avance) {
+        for (int intento = 1; ; intento++) {
+            try {
+                BigDecimal abonado = transactionTemplate.execute(estado -> {
+                    if (devengoInteresRepository.existsByCuentaIdAndFecha(cuentaId, fecha)) {
+                        return null;
+                    }
+                    Cuenta cuenta = cuentaRepository.findByIdParaActualizar(cuentaId).orElse(null);
+                    if (cuenta == null || !Boolean.TRUE.equals(cuenta.getEstado())) {
+                        return null;
+                    }
+                    BigDecimal base = movimientoService.obtenerSaldoEnFecha(cuentaId, fecha.atTime(LocalTime.MAX))
+                            .getSaldo();
+                    BigDecimal interes = calcular(base);
+                    if (interes.signum() <= 0) {
+                        return null;
+                    }
+                    Movimiento movimiento = movimientoService.aplicarMovimiento(cuenta, "Deposito", interes,
+                            descripcion, null, null);
+                    jdbc.getJdbcTemplate().update(SQL_DEVENGO, cuentaId, fecha, base, interes,
+                            movimiento.getId(), LocalDateTime.now());
+                    return interes;
+                });
+                if (abonado != null) {
+                    avance.individuales.increment();
+                    individuales.increment();
+                    avance.sumar(abonado);
+                }
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Otra ejecución abonó la cuenta primero
+                return;
+            } catch (ConcurrencyFailureException e) {
+                if (intento >= REINTENTOS) {
+                    registrarFallo(cuentaId, e);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                registrarFallo(cuentaId, e);
+                return;
+            }
+        }
+    }
+
+    private void registrarFallo(Long cuentaId, RuntimeException e) {
+        fallidos.increment();
+        log.warn("No se pudo abonar el interés de la cuenta {}: {}", cuentaId, e.getMessage());
+    }
+
+    BigDecimal calcular(BigDecimal base) {
+        if (base == null || base.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return base.multiply(tasaAnual).divide(BigDecimal.valueOf(diasAnio), 2, RoundingMode.HALF_EVEN);
+    }
+
+    private static void validarFecha(LocalDate fecha) {
+        if (!fecha.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Sólo se devengan días cerrados (anteriores a hoy)");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("banco.intereses.abonos", abonos, LongAdder::sum)
+                .description("Cuentas abonadas por el devengo de intereses")
+                .register(registry);
+        FunctionCounter.builder("banco.intereses.individuales", individuales, LongAdder::sum)
+                .description("Abonos hechos cuenta por cuenta (bloqueadas, calientes o en libro mayor)")
+                .register(registry);
+        FunctionCounter.builder("banco.intereses.fallidos", fallidos, LongAdder::sum)
+                .description("Cuentas que el devengo no pudo abonar; se reintentan al repetir el día")
+                .register(registry);
+    }
+
+    /**
+     * Cuenta bloqueada (base = saldo actual) o abono calculado
+     */
+    private record Abono(Long cuentaId, String tipoCuenta, String moneda, BigDecimal base, BigDecimal valor,
+                         BigDecimal saldo) {
+    }
+
+    /**
+     * Contadores de una ejecución, compartidos por los hilos del pool
+     */
+    private final class Avance {
+
+        private final LongAdder revisadas = new LongAdder();
+        private final LongAdder abonadas = new LongAdder();
+        private final LongAdder individuales = new LongAdder();
+        private final LongAdder fallidas = new LongAdder();
+        private final LongAdder centavos = new LongAdder();
+        private final long fallidosAlIniciar = fallidos.sum();
+
+        private void sumar(BigDecimal interes) {
+            abonadas.increment();
+            abonos.increment();
+            centavos.add(interes.unscaledValue().longValueExact());
+        }
+
+        private Map<String, Object> aMapa(long inicio) {
+            fallidas.reset();
+            fallidas.add(fallidos.sum() - fallidosAlIniciar);
+            double segundos = Math.max(0.001, (System.nanoTime() - inicio) / 1_000_000_000.0);
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            mapa.put("cuentasRevisadas", revisadas.sum());
+            mapa.put("cuentasAbonadas", abonadas.sum());
+            mapa.put("abonosIndividuales", individuales.sum());
+            mapa.put("cuentasFallidas", fallidas.sum());
+            mapa.put("interesTotal", BigDecimal.valueOf(centavos.sum(), 2));
+            mapa.put("cuentasPorSegundo", Math.round(revisadas.sum() / segundos * 10) / 10.0);
+            mapa.put("duracionMs", Math.round(segundos * 1000));
+            return mapa;
+        }
+    }
+}
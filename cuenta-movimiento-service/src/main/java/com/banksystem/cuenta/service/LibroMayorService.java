@@ -0,0 +1,264 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.cuenta.cambio.Conversion;
+import com.banksystem.cuenta.config.CacheConfig;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.CuentaNotFoundException;
+import com.banksystem.cuenta.exception.SaldoNoDisponibleException;
+import com.banksystem.cuenta.notificacion.MovimientoRegistradoEvent;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cuentas en modo libro mayor (muchas escrituras concurrentes, depósitos y retiros).
+ * <ul>
+ *   <li>Un movimiento es sólo un INSERT en {@code movimiento} con la secuencia siguiente a la
+ *   cabeza del libro: la fila de la cuenta no se bloquea ni se actualiza. Dos movimientos
+ *   calculados sobre la misma cabeza chocan en la clave única (cuenta_id, secuencia); confirma
+ *   uno y el otro se reintenta en una transacción nueva sobre la cabeza nueva.</li>
+ *   <li>El saldo vigente es el del último movimiento del libro o, si todo está compactado,
+ *   {@code saldoDisponible}; la entidad lo devuelve en {@code getSaldoDisponible()}.</li>
+ *   <li>La compactación periódica lleva la cabeza a {@code saldoDisponible} y los movimientos
+ *   al agregado diario, que en este modo no se actualiza por movimiento.</li>
+ * </ul>
+ * A diferencia de las cuentas calientes, también los retiros evitan el bloqueo y cada
+ * movimiento tiene su saldo definitivo desde que confirma. El modo no se desactiva: sin
+ * bloqueo de la cuenta, un movimiento calculado sobre la cabeza del libro podría confirmar
+ * después de volver al saldo en la fila.
+ */
+@Service
+@Transactional
+public class LibroMayorService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(LibroMayorService.class);
+
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final AgregadoService agregadoService;
+    private final ControlVelocidadService controlVelocidadService;
+    private final CupoDiarioService cupoDiarioService;
+    private final BusInvalidacion bus;
+    private final ApplicationEventPublisher eventos;
+    private final TransactionTemplate transactionTemplate;
+    private final int reintentos;
+    private final int loteCompactacion;
+    private final LongAdder conflictos = new LongAdder();
+
+    public LibroMayorService(CuentaRepository cuentaRepository,
+                             MovimientoRepository movimientoRepository,
+                             AgregadoService agregadoService,
+                             ControlVelocidadService controlVelocidadService,
+                             CupoDiarioService cupoDiarioService,
+                             BusInvalidacion bus,
+                             ApplicationEventPublisher eventos,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${banco.libro-mayor.reintentos:50}") int reintentos,
+                             @Value("${banco.libro-mayor.lote-compactacion:1000}") int loteCompactacion) {
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.agregadoService = agregadoService;
+        this.controlVelocidadService = controlVelocidadService;
+        this.cupoDiarioService = cupoDiarioService;
+        this.bus = bus;
+        this.eventos = eventos;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reintentos = reintentos;
+        this.loteCompactacion = loteCompactacion;
+    }
+
+    /**
+     * Pasar la cuenta a modo libro mayor. El libro empieza después de la última secuencia
+     * usada, con el saldo disponible actual como base
+     */
+    public Cuenta activar(Long cuentaId) {
+        Cuenta cuenta = cuentaRepository.findByIdParaActualizar(cuentaId)
+                .orElseThrow(() -> new CuentaNotFoundException("Cuenta no encontrada con ID: " + cuentaId));
+        if (cuenta.esLibroMayor()) {
+            return cuenta;
+        }
+        if (cuenta.esCaliente()) {
+            throw new IllegalArgumentException("Desactive las ranuras de la cuenta caliente antes de pasar a modo libro");
+        }
+        // Ranuras desactivadas (en cero): la cuenta deja de consolidar sub-saldos
+        cuenta.setRanurasSaldo(null);
+        Long ultima = movimientoRepository.findUltimaSecuencia(cuentaId);
+        cuenta.setSecuenciaCompactada(ultima != null ? ultima : 0L);
+        return cuentaRepository.save(cuenta);
+    }
+
+    /**
+     * Registrar un movimiento sin bloquear la cuenta: cada intento en su propia transacción,
+     * reintentando mientras otro movimiento gane la misma secuencia
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Movimiento registrar(Long cuentaId, String tipoMovimiento, BigDecimal valor, String descripcion,
+                                Conversion conversion) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return transactionTemplate.execute(estado -> anotar(
+                        cuentaRepository.findById(cuentaId).orElseThrow(() ->
+                                new CuentaNotFoundException("Cuenta no encontrada con ID: " + cuentaId)),
+                        tipoMovimiento, valor, descripcion, null, conversion));
+            } catch (ConcurrencyFailureException e) {
+                conflictos.increment();
+                if (intento >= reintentos) {
+                    log.warn("Libro de la cuenta {}: {} intentos sin ganar la secuencia", cuentaId, intento);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Anotar un movimiento en el libro dentro de la transacción actual: valida saldo (F3),
+     * cupo diario y reglas de velocidad contra la cabeza del libro e inserta con la secuencia
+     * siguiente. Si otro movimiento confirmó esa secuencia falla con
+     * {@link ObjectOptimisticLockingFailureException}. {@code conversion} (o null) deja
+     * constancia del importe en su moneda original
+     */
+    public Movimiento anotar(Cuenta cuenta, String tipoMovimiento, BigDecimal valor,
+                             String descripcion, String transferenciaId, Conversion conversion) {
+        Long cuentaId = cuenta.getId();
+        Long compactada = cuenta.getSecuenciaCompactada();
+        Movimiento cabeza = movimientoRepository.findUltimosDelLibro(cuentaId, compactada, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .orElse(null);
+        // Sin movimientos por compactar el saldo es el de la fila (la fórmula del libro es nula)
+        BigDecimal saldo = cabeza != null ? cabeza.getSaldo() : cuenta.getSaldoDisponible();
+        long secuencia = cabeza != null ? cabeza.getSecuencia() : compactada;
+
+        LocalDateTime ahora = LocalDateTime.now();
+        BigDecimal nuevoSaldo;
+        if ("Deposito".equalsIgnoreCase(tipoMovimiento)) {
+            nuevoSaldo = saldo.add(valor);
+        } else if ("Retiro".equalsIgnoreCase(tipoMovimiento)) {
+            if (saldo.compareTo(valor) < 0) {
+                throw new SaldoNoDisponibleException("Saldo no disponible");
+            }
+            LocalDate dia = ahora.toLocalDate();
+            cupoDiarioService.validarRetiroLibro(cuenta, valor, dia,
+                    () -> movimientoRepository.sumarRetirosDelLibro(cuentaId, compactada, dia.atStartOfDay()));
+            nuevoSaldo = saldo.subtract(valor);
+        } else {
+            throw new IllegalArgumentException("Tipo de movimiento no válido: " + tipoMovimiento);
+        }
+
+        controlVelocidadService.registrar(cuentaId, tipoMovimiento, valor, true);
+
+        Movimiento movimiento = new Movimiento();
+        movimiento.setFecha(ahora);
+        movimiento.setTipoMovimiento(tipoMovimiento);
+        movimiento.setValor(valor);
+        movimiento.setSaldo(nuevoSaldo);
+        movimiento.setCuentaId(cuentaId);
+        movimiento.setDescripcion(descripcion);
+        movimiento.setTransferenciaId(transferenciaId);
+        movimiento.setSecuencia(secuencia + 1);
+        if (conversion != null) {
+            conversion.anotarEn(movimiento);
+        }
+        Movimiento guardado;
+        try {
+            guardado = movimientoRepository.saveAndFlush(movimiento);
+        } catch (DataIntegrityViolationException e) {
+            throw new ObjectOptimisticLockingFailureException(Cuenta.class, cuentaId, e);
+        }
+
+        // La fila de la cuenta no cambia: la cache se invalida explícitamente
+        bus.invalidarAlConfirmar(CacheConfig.CACHE_CUENTAS, cuentaId);
+        eventos.publishEvent(new MovimientoRegistradoEvent(guardado, nuevoSaldo));
+        return guardado;
+    }
+
+    /**
+     * Compactar una cuenta ya bloqueada en la transacción actual: hasta un lote de movimientos
+     * del libro pasan al agregado diario y el último deja su saldo en saldoDisponible.
+     * Devuelve la cantidad de movimientos compactados
+     */
+    public int compactar(Cuenta cuenta) {
+        List<Movimiento> pendientes = movimientoRepository.findLibroDesde(cuenta.getId(),
+                cuenta.getSecuenciaCompactada(), PageRequest.of(0, loteCompactacion));
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+        Movimiento ultimo = pendientes.get(pendientes.size() - 1);
+        cuenta.setSaldoDisponible(ultimo.getSaldo());
+        cuenta.setSecuenciaCompactada(ultimo.getSecuencia());
+        cuenta.setSaldoLibro(null);
+        agregadoService.registrarMovimientos(pendientes, cuenta);
+        cuentaRepository.save(cuenta);
+        return pendientes.size();
+    }
+
+    /**
+     * Compactar periódicamente las cuentas con movimientos en el libro, una transacción por
+     * lote, para acotar el retraso del agregado diario y lo que lee la fórmula del saldo
+     */
+    @Scheduled(fixedDelayString = "${banco.libro-mayor.compactacion-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void compactarProgramado() {
+        compactarPendientes();
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> compactarPendientes() {
+        int cuentas = 0;
+        int movimientos = 0;
+        for (Long cuentaId : cuentaRepository.findCuentasLibroPendientes()) {
+            Integer compactados;
+            do {
+                compactados = transactionTemplate.execute(estado -> cuentaRepository.findByIdParaActualizar(cuentaId)
+                        .map(this::compactar)
+                        .orElse(0));
+                movimientos += compactados != null ? compactados : 0;
+            } while (compactados != null && compactados == loteCompactacion);
+            cuentas++;
+        }
+        if (cuentas > 0) {
+            log.debug("Libro mayor: {} cuentas compactadas, {} movimientos", cuentas, movimientos);
+        }
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("cuentas", cuentas);
+        resultado.put("movimientos", movimientos);
+        return resultado;
+    }
+
+    public long getConflictos() {
+        return conflictos.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("banco.libro.conflictos", conflictos, LongAdder::sum)
+                .description("Intentos de movimiento en modo libro que perdieron la secuencia y se reintentaron")
+                .register(registry);
+    }
+}
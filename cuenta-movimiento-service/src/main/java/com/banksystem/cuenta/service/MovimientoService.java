@@ -1,29 +1,68 @@
 package com.banksystem.cuenta.service;
 
+import com.banksystem.cuenta.cambio.Conversion;
+import com.banksystem.cuenta.cambio.TasasCambio;
+import com.banksystem.cuenta.dto.SaldoHistorico;
 import com.banksystem.cuenta.entity.Cuenta;
 import com.banksystem.cuenta.entity.Movimiento;
 import com.banksystem.cuenta.exception.CuentaNotFoundException;
 import com.banksystem.cuenta.exception.SaldoNoDisponibleException;
+import com.banksystem.cuenta.notificacion.MovimientoRegistradoEvent;
 import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.ModoSaldo;
 import com.banksystem.cuenta.repository.MovimientoRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class MovimientoService {
 
+    private static final int MAXIMO_CONSULTAS_SALDO = 10_000;
+    private static final int MAXIMO_FECHAS_SALDO = 100;
+
     private final MovimientoRepository movimientoRepository;
     private final CuentaRepository cuentaRepository;
+    private final ArchivoMovimientosService archivoMovimientosService;
+    private final AgregadoService agregadoService;
+    private final CuentaCalienteService cuentaCalienteService;
+    private final ControlVelocidadService controlVelocidadService;
+    private final CupoDiarioService cupoDiarioService;
+    private final LibroMayorService libroMayorService;
+    private final TasasCambio tasasCambio;
+    private final ApplicationEventPublisher eventos;
 
     public MovimientoService(MovimientoRepository movimientoRepository,
-                            CuentaRepository cuentaRepository) {
+                            CuentaRepository cuentaRepository,
+                            ArchivoMovimientosService archivoMovimientosService,
+                            AgregadoService agregadoService,
+                            CuentaCalienteService cuentaCalienteService,
+                            ControlVelocidadService controlVelocidadService,
+                            CupoDiarioService cupoDiarioService,
+                            LibroMayorService libroMayorService,
+                            TasasCambio tasasCambio,
+                            ApplicationEventPublisher eventos) {
         this.movimientoRepository = movimientoRepository;
         this.cuentaRepository = cuentaRepository;
+        this.archivoMovimientosService = archivoMovimientosService;
+        this.agregadoService = agregadoService;
+        this.cuentaCalienteService = cuentaCalienteService;
+        this.controlVelocidadService = controlVelocidadService;
+        this.cupoDiarioService = cupoDiarioService;
+        this.libroMayorService = libroMayorService;
+        this.tasasCambio = tasasCambio;
+        this.eventos = eventos;
     }
 
     /**
@@ -39,7 +78,8 @@ public class MovimientoService {
      */
     @Transactional(readOnly = true)
     public List<Movimiento> obtenerMovimientosPorCuenta(Long cuentaId) {
-        return movimientoRepository.findByCuentaId(cuentaId);
+        return combinarConArchivo(archivoMovimientosService.obtenerMovimientos(cuentaId, null, null),
+                movimientoRepository.findByCuentaId(cuentaId));
     }
 
     /**
@@ -49,7 +89,57 @@ public class MovimientoService {
     public List<Movimiento> obtenerMovimientosPorFechas(Long cuentaId,
                                                         LocalDateTime fechaInicio,
                                                         LocalDateTime fechaFin) {
-        return movimientoRepository.findByCuentaIdAndFechaBetween(cuentaId, fechaInicio, fechaFin);
+        return combinarConArchivo(archivoMovimientosService.obtenerMovimientos(cuentaId, fechaInicio, fechaFin),
+                movimientoRepository.findByCuentaIdAndFechaBetween(cuentaId, fechaInicio, fechaFin));
+    }
+
+    /**
+     * Saldo de la cuenta en un instante: saldo del último movimiento en o antes de la fecha,
+     * buscando primero en la tabla y luego en el archivo frío, o el saldo inicial si hasta
+     * entonces no hubo movimientos
+     */
+    @Transactional(readOnly = true)
+    public SaldoHistorico obtenerSaldoEnFecha(Long cuentaId, LocalDateTime fecha) {
+        Cuenta cuenta = cuentaRepository.findById(cuentaId)
+                .orElseThrow(() -> new CuentaNotFoundException("Cuenta no encontrada con ID: " + cuentaId));
+
+        BigDecimal saldo = movimientoRepository.findUltimoSaldoHasta(cuentaId, fecha, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .or(() -> archivoMovimientosService.obtenerUltimoSaldoHasta(cuentaId, fecha))
+                .orElse(cuenta.getSaldoInicial());
+        return new SaldoHistorico(cuentaId, fecha, saldo);
+    }
+
+    /**
+     * Saldos de varias cuentas en varios instantes, con una consulta por instante distinto.
+     * Las cuentas inexistentes se omiten del resultado.
+     */
+    @Transactional(readOnly = true)
+    public List<SaldoHistorico> obtenerSaldosEnFechas(List<Long> cuentaIds, List<LocalDateTime> fechas) {
+        List<Long> ids = cuentaIds.stream().distinct().collect(Collectors.toList());
+        List<LocalDateTime> instantes = fechas.stream().distinct().collect(Collectors.toList());
+        if (instantes.size() > MAXIMO_FECHAS_SALDO) {
+            throw new IllegalArgumentException(
+                    "La consulta excede el máximo de " + MAXIMO_FECHAS_SALDO + " fechas");
+        }
+        if ((long) ids.size() * instantes.size() > MAXIMO_CONSULTAS_SALDO) {
+            throw new IllegalArgumentException(
+                    "La consulta excede el máximo de " + MAXIMO_CONSULTAS_SALDO + " combinaciones cuenta/fecha");
+        }
+
+        List<SaldoHistorico> saldos = new ArrayList<>();
+        for (LocalDateTime fecha : instantes) {
+            for (Object[] fila : movimientoRepository.findSaldosEnFecha(ids, fecha)) {
+                Long cuentaId = ((Number) fila[0]).longValue();
+                BigDecimal saldo = fila[2] != null
+                        ? (BigDecimal) fila[2]
+                        : archivoMovimientosService.obtenerUltimoSaldoHasta(cuentaId, fecha).orElse((BigDecimal) fila[1]);
+                saldos.add(new SaldoHistorico(cuentaId, fecha, saldo));
+            }
+        }
+        saldos.sort(Comparator.comparing(SaldoHistorico::getCuentaId).thenComparing(SaldoHistorico::getFecha));
+        return saldos;
     }
 
     /**
@@ -57,15 +147,78 @@ public class MovimientoService {
      * F2: Registro de movimientos - Actualizar saldo disponible
      */
     public Movimiento registrarMovimiento(Long cuentaId, String tipoMovimiento, BigDecimal valor) {
-        // Obtener cuenta
-        Cuenta cuenta = cuentaRepository.findById(cuentaId)
+        return registrarMovimiento(cuentaId, tipoMovimiento, valor, null);
+    }
+
+    /**
+     * Registrar un movimiento expresado en {@code moneda} (null = la de la cuenta). Si difiere
+     * de la moneda de la cuenta, el importe se convierte una sola vez con la tasa vigente y el
+     * movimiento guarda el importe original y la tasa; saldo, cupo y reglas de velocidad se
+     * evalúan sobre el importe convertido
+     */
+    public Movimiento registrarMovimiento(Long cuentaId, String tipoMovimiento, BigDecimal valor, String moneda) {
+        ModoSaldo modo = cuentaRepository.findModoSaldo(cuentaId).orElse(null);
+
+        Conversion conversion = null;
+        String descripcion = tipoMovimiento + " de " + valor;
+        if (moneda != null) {
+            if (modo == null) {
+                throw new CuentaNotFoundException("Cuenta no encontrada con ID: " + cuentaId);
+            }
+            conversion = tasasCambio.convertir(valor, moneda, modo.getMoneda());
+            if (conversion != null) {
+                valor = conversion.valorDestino();
+                descripcion += " " + conversion.monedaOrigen();
+            }
+        }
+
+        // Libro mayor: el movimiento sólo se inserta, sin bloquear ni actualizar la cuenta
+        if (modo != null && modo.getSecuenciaCompactada() != null) {
+            return libroMayorService.registrar(cuentaId, tipoMovimiento, valor, descripcion, conversion);
+        }
+
+        // Cuenta caliente: el depósito va a un sub-saldo sin bloquear la fila de la cuenta
+        if ("Deposito".equalsIgnoreCase(tipoMovimiento) && modo != null) {
+            Integer ranuras = modo.getRanurasSaldo();
+            if (ranuras != null && ranuras > 0) {
+                return cuentaCalienteService.depositar(cuentaId, ranuras, valor, descripcion, null, conversion);
+            }
+        }
+
+        // Obtener cuenta con bloqueo de fila: los movimientos concurrentes sobre la misma
+        // cuenta (incluidas transferencias) se aplican en serie sobre el saldo vigente
+        Cuenta cuenta = cuentaRepository.findByIdParaActualizar(cuentaId)
                 .orElseThrow(() -> new CuentaNotFoundException("Cuenta no encontrada con ID: " + cuentaId));
 
-        // Validar saldo (F3)
+        return aplicarMovimiento(cuenta, tipoMovimiento, valor, descripcion, null, conversion);
+    }
+
+    /**
+     * Aplicar un movimiento sobre una cuenta ya bloqueada en la transacción actual:
+     * valida saldo (F3), cupo diario y reglas de velocidad, actualiza el saldo disponible,
+     * guarda el movimiento y el agregado diario (en modo libro mayor sólo anota el movimiento).
+     * {@code valor} ya está en la moneda de la cuenta; {@code conversion} (o null) se anota
+     */
+    Movimiento aplicarMovimiento(Cuenta cuenta, String tipoMovimiento, BigDecimal valor,
+                                 String descripcion, String transferenciaId, Conversion conversion) {
+        // Libro mayor: el bloqueo no protege el saldo de la fila, se anota sobre la cabeza del libro
+        if (cuenta.esLibroMayor()) {
+            return libroMayorService.anotar(cuenta, tipoMovimiento, valor, descripcion, transferenciaId, conversion);
+        }
+
+        // Con la cuenta bloqueada, llevar los sub-saldos al saldo para validar con el valor exacto
+        boolean conRanuras = cuenta.getRanurasSaldo() != null;
+        if (conRanuras) {
+            cuentaCalienteService.consolidar(cuenta);
+        }
+
+        // Validar saldo (F3) y cupo diario de retiro
+        LocalDateTime ahora = LocalDateTime.now();
         if ("Retiro".equalsIgnoreCase(tipoMovimiento)) {
             if (cuenta.getSaldoDisponible().compareTo(valor) < 0) {
                 throw new SaldoNoDisponibleException("Saldo no disponible");
             }
+            cupoDiarioService.validarRetiro(cuenta, valor, ahora.toLocalDate());
         }
 
         // Calcular nuevo saldo
@@ -78,20 +231,35 @@ public class MovimientoService {
             throw new IllegalArgumentException("Tipo de movimiento no válido: " + tipoMovimiento);
         }
 
+        // Reglas de velocidad antifraude: cuenta el movimiento o lo rechaza
+        controlVelocidadService.registrar(cuenta.getId(), tipoMovimiento, valor);
+
         // Actualizar saldo de la cuenta
         cuenta.setSaldoDisponible(nuevoSaldo);
         cuentaRepository.save(cuenta);
 
         // Registrar movimiento
         Movimiento movimiento = new Movimiento();
-        movimiento.setFecha(LocalDateTime.now());
+        movimiento.setFecha(ahora);
         movimiento.setTipoMovimiento(tipoMovimiento);
         movimiento.setValor(valor);
         movimiento.setSaldo(nuevoSaldo);
-        movimiento.setCuentaId(cuentaId);
-        movimiento.setDescripcion(tipoMovimiento + " de " + valor);
+        movimiento.setCuentaId(cuenta.getId());
+        movimiento.setDescripcion(descripcion);
+        movimiento.setTransferenciaId(transferenciaId);
+        if (conversion != null) {
+            conversion.anotarEn(movimiento);
+        }
+        Movimiento guardado = movimientoRepository.save(movimiento);
 
-        return movimientoRepository.save(movimiento);
+        // Agregados diarios en la misma transacción
+        agregadoService.registrarMovimiento(guardado, cuenta);
+        if (conRanuras) {
+            cuenta.setMovimientoConciliadoId(guardado.getId());
+        }
+        // Se difunde a los suscriptores sólo si la transacción confirma
+        eventos.publishEvent(new MovimientoRegistradoEvent(guardado, nuevoSaldo));
+        return guardado;
     }
 
     /**
@@ -99,7 +267,27 @@ public class MovimientoService {
      */
     @Transactional(readOnly = true)
     public List<Movimiento> obtenerMovimientosPorTipo(Long cuentaId, String tipoMovimiento) {
-        return movimientoRepository.findByTipoMovimientoAndCuentaId(tipoMovimiento, cuentaId);
+        List<Movimiento> archivados = archivoMovimientosService.obtenerMovimientos(cuentaId, null, null).stream()
+                .filter(movimiento -> tipoMovimiento.equalsIgnoreCase(movimiento.getTipoMovimiento()))
+                .collect(Collectors.toList());
+        return combinarConArchivo(archivados,
+                movimientoRepository.findByTipoMovimientoAndCuentaId(tipoMovimiento, cuentaId));
+    }
+
+    /**
+     * Unir movimientos archivados y de la tabla en orden (fecha, id); si una fila aparece en
+     * ambos niveles (archivado interrumpido antes del borrado) prevalece la de la tabla
+     */
+    private List<Movimiento> combinarConArchivo(List<Movimiento> archivados, List<Movimiento> activos) {
+        if (archivados.isEmpty()) {
+            return activos;
+        }
+        Map<Long, Movimiento> porId = new LinkedHashMap<>();
+        archivados.forEach(movimiento -> porId.put(movimiento.getId(), movimiento));
+        activos.forEach(movimiento -> porId.put(movimiento.getId(), movimiento));
+        List<Movimiento> movimientos = new ArrayList<>(porId.values());
+        movimientos.sort(Comparator.comparing(Movimiento::getFecha).thenComparing(Movimiento::getId));
+        return movimientos;
     }
 
     /**
@@ -0,0 +1,247 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+/**
+ * F4: Reportes - Estado de cuenta por rango de fechas y cliente
+ */
+@Service
+@Transactional(readOnly = true)
+public class ReporteService {
+
+    private static final int TAMANO_PAGINA = 1_000;
+    private static final LocalDateTime INICIO_CLAVE = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final CuentaService cuentaService;
+    private final MovimientoService movimientoService;
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final ArchivoMovimientosService archivoMovimientosService;
+    private final ObjectMapper objectMapper;
+
+    public ReporteService(CuentaService cuentaService,
+                          MovimientoService movimientoService,
+                          CuentaRepository cuentaRepository,
+                          MovimientoRepository movimientoRepository,
+                          ArchivoMovimientosService archivoMovimientosService,
+                          ObjectMapper objectMapper) {
+        this.cuentaService = cuentaService;
+        this.movimientoService = movimientoService;
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.archivoMovimientosService = archivoMovimientosService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Estado de cuenta completo en memoria, para rangos cortos servidos en línea
+     */
+    public Map<String, Object> generarEstadoCuenta(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin) {
+        return generarEstadoCuenta(clienteId, fechaInicio, fechaFin, true);
+    }
+
+    /**
+     * Estado de cuenta de un período cerrado, sólo con lo que ya no cambia: sin fecha del
+     * reporte ni tipo, estado y saldo actual de las cuentas, para poder guardarlo serializado
+     */
+    public Map<String, Object> generarEstadoCuentaCerrado(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin) {
+        return generarEstadoCuenta(clienteId, fechaInicio, fechaFin, false);
+    }
+
+    private Map<String, Object> generarEstadoCuenta(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin,
+                                                    boolean conDatosVigentes) {
+        // Obtener cuentas del cliente
+        List<Cuenta> cuentas = cuentaService.obtenerCuentasPorCliente(clienteId);
+
+        // Construir reporte
+        Map<String, Object> reporte = new HashMap<>();
+        reporte.put("clienteId", clienteId);
+        reporte.put("fechaInicio", fechaInicio);
+        reporte.put("fechaFin", fechaFin);
+        if (conDatosVigentes) {
+            reporte.put("fechaReporte", LocalDateTime.now());
+        }
+
+        List<Map<String, Object>> detallesCuentas = new ArrayList<>();
+
+        // Convertir fechas a LocalDateTime
+        LocalDateTime inicioDateTime = fechaInicio.atStartOfDay();
+        LocalDateTime finDateTime = fechaFin.atTime(LocalTime.MAX);
+
+        for (Cuenta cuenta : cuentas) {
+            Map<String, Object> detalleCuenta = new HashMap<>();
+            detalleCuenta.put("numeroCuenta", cuenta.getNumeroCuenta());
+            detalleCuenta.put("moneda", cuenta.getMoneda());
+            detalleCuenta.put("saldoInicial", cuenta.getSaldoInicial());
+            if (conDatosVigentes) {
+                detalleCuenta.put("tipoCuenta", cuenta.getTipoCuenta());
+                detalleCuenta.put("saldoActual", cuenta.getSaldoDisponible());
+                detalleCuenta.put("estado", cuenta.getEstado());
+            }
+
+            // Obtener movimientos del período
+            List<Movimiento> movimientos = movimientoService.obtenerMovimientosPorFechas(
+                    cuenta.getId(), inicioDateTime, finDateTime);
+
+            List<Map<String, Object>> detallesMovimientos = new ArrayList<>();
+            for (Movimiento mov : movimientos) {
+                Map<String, Object> detalleMovimiento = new HashMap<>();
+                detalleMovimiento.put("fecha", mov.getFecha());
+                detalleMovimiento.put("tipo", mov.getTipoMovimiento());
+                detalleMovimiento.put("valor", mov.getValor());
+                detalleMovimiento.put("saldo", mov.getSaldo());
+                detalleMovimiento.put("descripcion", mov.getDescripcion());
+                detallesMovimientos.add(detalleMovimiento);
+            }
+
+            detalleCuenta.put("movimientos", detallesMovimientos);
+            detallesCuentas.add(detalleCuenta);
+        }
+
+        reporte.put("cuentas", detallesCuentas);
+        return reporte;
+    }
+
+    /**
+     * Escribir el mismo estado de cuenta como JSON en streaming, sin cargarlo en memoria:
+     * los movimientos se leen por páginas de clave (fecha, id) fuera de transacción para
+     * no acumular entidades en el contexto de persistencia.
+     * Informa avance por cuenta procesada y se detiene con CancellationException si se cancela.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void escribirEstadoCuenta(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin,
+                                     OutputStream salida, DoubleConsumer progreso,
+                                     BooleanSupplier cancelado) throws IOException {
+        List<Cuenta> cuentas = cuentaRepository.findByClienteId(clienteId);
+        LocalDateTime inicio = fechaInicio.atStartOfDay();
+        LocalDateTime fin = fechaFin.atTime(LocalTime.MAX);
+
+        try (JsonGenerator json = objectMapper.createGenerator(salida)) {
+            escribirCabecera(json, clienteId, fechaInicio, fechaFin);
+
+            for (int i = 0; i < cuentas.size(); i++) {
+                Cuenta cuenta = cuentas.get(i);
+                escribirInicioCuenta(json, cuenta);
+
+                // Primero el archivo frío (meses más antiguos), luego la tabla sin repetir IDs
+                Set<Long> archivados = new HashSet<>();
+                for (Movimiento movimiento : archivoMovimientosService.obtenerMovimientos(cuenta.getId(), inicio, fin)) {
+                    escribirMovimiento(json, movimiento);
+                    archivados.add(movimiento.getId());
+                }
+                LocalDateTime ultimaFecha = INICIO_CLAVE;
+                Long ultimoId = 0L;
+                List<Movimiento> pagina;
+                do {
+                    if (cancelado.getAsBoolean()) {
+                        throw new CancellationException("Reporte cancelado");
+                    }
+                    pagina = movimientoRepository.findPorCuentaYFechasDesde(cuenta.getId(), inicio, fin,
+                            ultimaFecha, ultimoId, PageRequest.of(0, TAMANO_PAGINA));
+                    for (Movimiento movimiento : pagina) {
+                        if (!archivados.contains(movimiento.getId())) {
+                            escribirMovimiento(json, movimiento);
+                        }
+                    }
+                    if (!pagina.isEmpty()) {
+                        Movimiento ultimo = pagina.get(pagina.size() - 1);
+                        ultimaFecha = ultimo.getFecha();
+                        ultimoId = ultimo.getId();
+                    }
+                } while (pagina.size() == TAMANO_PAGINA);
+
+                escribirFinCuenta(json);
+                progreso.accept((i + 1) / (double) cuentas.size());
+            }
+
+            escribirFin(json);
+        }
+    }
+
+    /**
+     * Escribir el estado de cuenta con cuentas y movimientos ya cargados (procesos por lotes
+     * que leen muchos clientes a la vez); los movimientos de cada cuenta deben venir ordenados
+     */
+    public void escribirEstadoCuenta(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin,
+                                     List<Cuenta> cuentas, Map<Long, List<Movimiento>> movimientosPorCuenta,
+                                     OutputStream salida) throws IOException {
+        try (JsonGenerator json = objectMapper.createGenerator(salida)) {
+            escribirCabecera(json, clienteId, fechaInicio, fechaFin);
+            for (Cuenta cuenta : cuentas) {
+                escribirInicioCuenta(json, cuenta);
+                for (Movimiento movimiento : movimientosPorCuenta.getOrDefault(cuenta.getId(), List.of())) {
+                    escribirMovimiento(json, movimiento);
+                }
+                escribirFinCuenta(json);
+            }
+            escribirFin(json);
+        }
+    }
+
+    private void escribirCabecera(JsonGenerator json, Long clienteId, LocalDate fechaInicio,
+                                  LocalDate fechaFin) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("clienteId", clienteId);
+        json.writePOJOField("fechaInicio", fechaInicio);
+        json.writePOJOField("fechaFin", fechaFin);
+        json.writePOJOField("fechaReporte", LocalDateTime.now());
+        json.writeArrayFieldStart("cuentas");
+    }
+
+    private void escribirInicioCuenta(JsonGenerator json, Cuenta cuenta) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("numeroCuenta", cuenta.getNumeroCuenta());
+        json.writeStringField("tipoCuenta", cuenta.getTipoCuenta());
+        json.writeStringField("moneda", cuenta.getMoneda());
+        json.writeNumberField("saldoInicial", cuenta.getSaldoInicial());
+        json.writeNumberField("saldoActual", cuenta.getSaldoDisponible());
+        json.writeBooleanField("estado", cuenta.getEstado());
+        json.writeArrayFieldStart("movimientos");
+    }
+
+    private void escribirFinCuenta(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void escribirFin(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void escribirMovimiento(JsonGenerator json, Movimiento movimiento) throws IOException {
+        json.writeStartObject();
+        json.writePOJOField("fecha", movimiento.getFecha());
+        json.writeStringField("tipo", movimiento.getTipoMovimiento());
+        json.writeNumberField("valor", movimiento.getValor());
+        json.writeNumberField("saldo", movimiento.getSaldo());
+        if (movimiento.getDescripcion() != null) {
+            json.writeStringField("descripcion", movimiento.getDescripcion());
+        }
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,165 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.exception.TrabajoNoFinalizadoException;
+import com.banksystem.cuenta.exception.TrabajoNotFoundException;
+import com.banksystem.cuenta.trabajo.EjecutorTrabajos;
+import com.banksystem.cuenta.trabajo.EstadoTrabajo;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Estados de cuenta asíncronos: el POST crea un trabajo en el ejecutor de fondo, el
+ * resultado se guarda comprimido en disco local y se conserva según la retención.
+ */
+@Service
+public class TrabajoReporteService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrabajoReporteService.class);
+
+    public static final String TIPO_ESTADO_CUENTA = "ESTADO_CUENTA";
+    private static final String EXTENSION = ".json.gz";
+
+    private final EjecutorTrabajos ejecutorTrabajos;
+    private final ReporteService reporteService;
+    private final Path directorio;
+    private final Duration retencion;
+
+    public TrabajoReporteService(EjecutorTrabajos ejecutorTrabajos,
+                                 ReporteService reporteService,
+                                 @Value("${banco.reportes.directorio:reportes-generados}") String directorio,
+                                 @Value("${banco.reportes.retencion-horas:24}") long retencionHoras) {
+        this.ejecutorTrabajos = ejecutorTrabajos;
+        this.reporteService = reporteService;
+        this.directorio = Paths.get(directorio);
+        this.retencion = Duration.ofHours(retencionHoras);
+    }
+
+    /**
+     * Encolar un estado de cuenta. La prioridad es un plazo virtual: instante de creación
+     * más un segundo por cada día del rango. Los rangos cortos pasan delante de los largos,
+     * pero un trabajo largo nunca espera indefinidamente porque los nuevos llegan con plazos mayores.
+     */
+    public Trabajo crearEstadoCuenta(Long clienteId, LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaInicio.isAfter(fechaFin)) {
+            throw new IllegalArgumentException("La fecha inicial es posterior a la final");
+        }
+        long dias = ChronoUnit.DAYS.between(fechaInicio, fechaFin) + 1;
+        long prioridad = Instant.now().getEpochSecond() + dias;
+
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("fechaInicio", fechaInicio);
+        parametros.put("fechaFin", fechaFin);
+
+        return ejecutorTrabajos.enviar(new Trabajo(TIPO_ESTADO_CUENTA, clienteId, prioridad, parametros,
+                trabajo -> generarArchivo(trabajo, clienteId, fechaInicio, fechaFin)));
+    }
+
+    public Trabajo obtener(String id) {
+        return ejecutorTrabajos.obtener(id)
+                .orElseThrow(() -> new TrabajoNotFoundException("Trabajo no encontrado con ID: " + id));
+    }
+
+    public Trabajo cancelar(String id) {
+        obtener(id);
+        return ejecutorTrabajos.cancelar(id);
+    }
+
+    /**
+     * Archivo del resultado; sólo para trabajos completados
+     */
+    public Path obtenerResultado(String id) {
+        Trabajo trabajo = obtener(id);
+        if (trabajo.getEstado() != EstadoTrabajo.COMPLETADO || trabajo.getResultado() == null) {
+            throw new TrabajoNoFinalizadoException("El trabajo " + id + " está en estado " + trabajo.getEstado());
+        }
+        return trabajo.getResultado();
+    }
+
+    private void generarArchivo(Trabajo trabajo, Long clienteId, LocalDate fechaInicio, LocalDate fechaFin)
+            throws IOException {
+        Files.createDirectories(directorio);
+        Path destino = directorio.resolve(trabajo.getId() + EXTENSION);
+        Path temporal = directorio.resolve(trabajo.getId() + EXTENSION + ".tmp");
+        try {
+            try (OutputStream salida = new GZIPOutputStream(Files.newOutputStream(temporal), 64 * 1024)) {
+                reporteService.escribirEstadoCuenta(clienteId, fechaInicio, fechaFin, salida,
+                        trabajo::setProgreso, trabajo::cancelado);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trabajo.setResultado(destino);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Retención: olvidar trabajos finalizados hace más de la retención configurada y borrar
+     * sus archivos, incluidos los que quedaron huérfanos tras un reinicio
+     */
+    @Scheduled(fixedDelayString = "${banco.reportes.limpieza-ms:600000}")
+    public void limpiar() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        List<Trabajo> vencidos = new ArrayList<>();
+        for (Trabajo trabajo : ejecutorTrabajos.listar()) {
+            if (trabajo.getEstado().esFinal() && trabajo.getFechaFin() != null
+                    && trabajo.getFechaFin().isBefore(limite)) {
+                vencidos.add(trabajo);
+            }
+        }
+        for (Trabajo trabajo : vencidos) {
+            ejecutorTrabajos.eliminar(trabajo.getId());
+        }
+
+        if (!Files.isDirectory(directorio)) {
+            return;
+        }
+        Instant limiteArchivo = Instant.now().minus(retencion);
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.filter(archivo -> esAnterior(archivo, limiteArchivo)).forEach(this::borrar);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo limpiar " + directorio, e);
+        }
+        if (!vencidos.isEmpty()) {
+            log.info("Retención de reportes: {} trabajos eliminados", vencidos.size());
+        }
+    }
+
+    private boolean esAnterior(Path archivo, Instant limite) {
+        try {
+            return Files.getLastModifiedTime(archivo).toInstant().isBefore(limite);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el reporte {}", archivo, e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.cuenta.cambio.Conversion;
+import com.banksystem.cuenta.cambio.TasasCambio;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.CuentaNotFoundException;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Transferencias entre cuentas: retiro en origen y depósito en destino en una sola
+ * transacción, enlazados por un identificador de transferencia común.
+ */
+@Service
+@Transactional
+public class TransferenciaService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferenciaService.class);
+
+    private final CuentaRepository cuentaRepository;
+    private final MovimientoRepository movimientoRepository;
+    private final MovimientoService movimientoService;
+    private final CuentaCalienteService cuentaCalienteService;
+    private final TasasCambio tasasCambio;
+    private final TransactionTemplate transactionTemplate;
+    private final int reintentos;
+
+    public TransferenciaService(CuentaRepository cuentaRepository,
+                                MovimientoRepository movimientoRepository,
+                                MovimientoService movimientoService,
+                                CuentaCalienteService cuentaCalienteService,
+                                TasasCambio tasasCambio,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${banco.libro-mayor.reintentos:50}") int reintentos) {
+        this.cuentaRepository = cuentaRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.movimientoService = movimientoService;
+        this.cuentaCalienteService = cuentaCalienteService;
+        this.tasasCambio = tasasCambio;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reintentos = reintentos;
+    }
+
+    /**
+     * Transferir entre dos cuentas.
+     * Las filas se bloquean siempre en orden ascendente de ID, sin importar el sentido:
+     * dos transferencias cruzadas A→B y B→A esperan por la misma primera fila en lugar
+     * de bloquearse mutuamente. También con cuentas calientes: las ranuras de una cuenta sólo
+     * se toman con su fila ya bloqueada, así dos transferencias entre las mismas cuentas nunca
+     * sostienen las ranuras de una esperando las de la otra; el crédito a un destino caliente
+     * va igualmente a un sub-saldo.
+     * F3: si el origen no tiene saldo no se escribe nada.
+     * El valor está en la moneda del origen; si el destino lleva otra, se acredita el importe
+     * convertido con la tasa vigente, que queda anotada en el depósito.
+     * Una cuenta en modo libro mayor no se protege con el bloqueo de su fila: si otro movimiento
+     * gana la secuencia del libro, la transferencia completa se repite en una transacción nueva.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> transferir(Long cuentaOrigenId, Long cuentaDestinoId, BigDecimal valor) {
+        if (cuentaOrigenId.equals(cuentaDestinoId)) {
+            throw new IllegalArgumentException("La cuenta de origen y la de destino deben ser distintas");
+        }
+        if (valor == null || valor.signum() <= 0) {
+            throw new IllegalArgumentException("El valor debe ser mayor a cero");
+        }
+
+        for (int intento = 1; ; intento++) {
+            try {
+                return transactionTemplate.execute(estado ->
+                        ejecutar(cuentaOrigenId, cuentaDestinoId, valor));
+            } catch (PessimisticLockingFailureException e) {
+                // Bloqueo agotado o interbloqueo: ya se esperó por la fila, no se insiste
+                throw e;
+            } catch (ConcurrencyFailureException e) {
+                if (intento >= reintentos) {
+                    log.warn("Transferencia {} -> {}: {} intentos sin ganar la secuencia del libro",
+                            cuentaOrigenId, cuentaDestinoId, intento);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> ejecutar(Long cuentaOrigenId, Long cuentaDestinoId, BigDecimal valor) {
+        String transferenciaId = UUID.randomUUID().toString();
+        Long primeraId = Math.min(cuentaOrigenId, cuentaDestinoId);
+        Long segundaId = Math.max(cuentaOrigenId, cuentaDestinoId);
+        Cuenta primera = bloquear(primeraId);
+        Cuenta segunda = bloquear(segundaId);
+        Cuenta origen = primera.getId().equals(cuentaOrigenId) ? primera : segunda;
+        Cuenta destino = origen == primera ? segunda : primera;
+
+        // Conversión antes de escribir: sin tasa vigente no se mueve nada
+        Conversion conversion = tasasCambio.convertir(valor, origen.getMoneda(), destino.getMoneda());
+
+        // El retiro valida F3 antes de escribir nada (y consolida las ranuras del origen)
+        Movimiento retiro = movimientoService.aplicarMovimiento(origen, "Retiro", valor,
+                "Transferencia a cuenta " + destino.getNumeroCuenta(), transferenciaId, null);
+        Movimiento deposito;
+        Integer ranurasDestino = destino.getRanurasSaldo();
+        if (ranurasDestino != null && ranurasDestino > 0) {
+            // Destino caliente: el crédito va a un sub-saldo en lugar de actualizar su fila
+            deposito = cuentaCalienteService.depositar(cuentaDestinoId, ranurasDestino, acreditar(valor, conversion),
+                    "Transferencia de cuenta " + origen.getNumeroCuenta(), transferenciaId, conversion);
+        } else {
+            deposito = movimientoService.aplicarMovimiento(destino, "Deposito", acreditar(valor, conversion),
+                    "Transferencia de cuenta " + origen.getNumeroCuenta(), transferenciaId, conversion);
+        }
+
+        return aMapa(transferenciaId, retiro, deposito);
+    }
+
+    /**
+     * Consultar una transferencia por su identificador
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> obtener(String transferenciaId) {
+        List<Movimiento> movimientos = movimientoRepository.findByTransferenciaId(transferenciaId);
+        Movimiento retiro = null;
+        Movimiento deposito = null;
+        for (Movimiento movimiento : movimientos) {
+            if ("Retiro".equalsIgnoreCase(movimiento.getTipoMovimiento())) {
+                retiro = movimiento;
+            } else {
+                deposito = movimiento;
+            }
+        }
+        if (retiro == null || deposito == null) {
+            throw new CuentaNotFoundException("Transferencia no encontrada con ID: " + transferenciaId);
+        }
+        return aMapa(transferenciaId, retiro, deposito);
+    }
+
+    private static BigDecimal acreditar(BigDecimal valor, Conversion conversion) {
+        return conversion != null ? conversion.valorDestino() : valor;
+    }
+
+    private Cuenta bloquear(Long cuentaId) {
+        return cuentaRepository.findByIdParaActualizar(cuentaId)
+                .orElseThrow(() -> new CuentaNotFoundException("Cuenta no encontrada con ID: " + cuentaId));
+    }
+
+    private static Map<String, Object> aMapa(String transferenciaId, Movimiento retiro, Movimiento deposito) {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("transferenciaId", transferenciaId);
+        resultado.put("cuentaOrigenId", retiro.getCuentaId());
+        resultado.put("cuentaDestinoId", deposito.getCuentaId());
+        resultado.put("valor", retiro.getValor());
+        if (deposito.getTasaCambio() != null) {
+            resultado.put("valorDestino", deposito.getValor());
+            resultado.put("tasaCambio", deposito.getTasaCambio());
+        }
+        resultado.put("fecha", retiro.getFecha());
+        resultado.put("movimientoOrigen", retiro);
+        resultado.put("movimientoDestino", deposito);
+        return resultado;
+    }
+}
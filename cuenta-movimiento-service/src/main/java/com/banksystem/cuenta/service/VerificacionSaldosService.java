@@ -0,0 +1,567 @@
+package com.banksystem.cuenta.service;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.cuenta.config.CacheConfig;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.limite.ClaseTrafico;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.RangoCuentas;
+import com.banksystem.cuenta.trabajo.EjecutorTrabajos;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Verificación de integridad de saldos: para cada cuenta recalcula el saldo corrido desde el
+ * saldo de apertura (inicial, o el último archivado) sumando los movimientos en orden
+ * (fecha, id) y compara:
+ * <ul>
+ *   <li>CADENA: el saldo de un movimiento no es el del anterior más o menos su valor (un hueco
+ *   en la cadena, p. ej. dos movimientos calculados sobre el mismo saldo).</li>
+ *   <li>SALDO_CUENTA: el saldo vigente de la cuenta no es el recalculado.</li>
+ * </ul>
+ * Los IDs de cuenta se dividen en particiones de rango fijo que se recorren en paralelo por
+ * lotes de cuentas y páginas de movimientos por clave (cuenta_id, fecha, id), sin bloqueos y
+ * con memoria acotada por lote. Una cuenta con diferencias se vuelve a verificar en una sola
+ * transacción REPEATABLE READ (una instantánea coherente), así lo que un movimiento en curso
+ * desordenó entre dos lecturas no se informa. En modo reparación esa transacción bloquea la
+ * cuenta, reescribe los saldos de los movimientos con el saldo recalculado (los valores son
+ * los hechos; los saldos, derivados) y corrige el saldo de la cuenta. Las cuentas calientes y
+ * las de libro mayor sólo se informan: sus escrituras no bloquean la fila de la cuenta y los
+ * depósitos calientes aún sin consolidar llevan un saldo provisional que no se verifica.
+ * El informe se escribe en streaming como JSON comprimido en el directorio de reportes.
+ */
+@Service
+public class VerificacionSaldosService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(VerificacionSaldosService.class);
+
+    public static final String TIPO_VERIFICACION_SALDOS = "VERIFICACION_SALDOS";
+    private static final Long PROPIETARIO_SISTEMA = 0L;
+    private static final String EXTENSION = ".json.gz";
+    private static final LocalDateTime INICIO_CLAVE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIN_CLAVE = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private static final String SQL_PAGINA = "SELECT id, cuenta_id, fecha, tipo_movimiento, valor, saldo " +
+            "FROM movimiento WHERE cuenta_id IN (:ids) AND (cuenta_id > :cuenta OR (cuenta_id = :cuenta AND " +
+            "(fecha > :fecha OR (fecha = :fecha AND id > :id)))) ORDER BY cuenta_id, fecha, id LIMIT :limite";
+    private static final String SQL_SALDO_MOVIMIENTO = "UPDATE movimiento SET saldo = ? WHERE id = ?";
+    private static final String SQL_SALDO_CUENTA = "UPDATE cuenta SET saldo_disponible = ?, " +
+            "version = version + 1, fecha_actualizacion = ? WHERE id = ?";
+
+    private final CuentaRepository cuentaRepository;
+    private final ArchivoMovimientosService archivoMovimientosService;
+    private final EjecutorTrabajos ejecutorTrabajos;
+    private final BusInvalidacion bus;
+    private final ObjectMapper objectMapper;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate lectura;
+    private final TransactionTemplate reparacion;
+    private final Path directorio;
+    private final int particiones;
+    private final int hilos;
+    private final int cuentasPorLote;
+    private final int movimientosPorPagina;
+    private final AtomicBoolean enEjecucion = new AtomicBoolean(false);
+    private final LongAdder divergencias = new LongAdder();
+    private final LongAdder reparaciones = new LongAdder();
+
+    public VerificacionSaldosService(CuentaRepository cuentaRepository,
+                                     ArchivoMovimientosService archivoMovimientosService,
+                                     EjecutorTrabajos ejecutorTrabajos,
+                                     BusInvalidacion bus,
+                                     ObjectMapper objectMapper,
+                                     NamedParameterJdbcTemplate jdbc,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${banco.reportes.directorio:reportes-generados}") String directorio,
+                                     @Value("${banco.verificacion.particiones:16}") int particiones,
+                                     @Value("${banco.verificacion.hilos:4}") int hilos,
+                                     @Value("${banco.verificacion.cuentas-por-lote:200}") int cuentasPorLote,
+                                     @Value("${banco.verificacion.movimientos-por-pagina:5000}") int movimientosPorPagina) {
+        this.cuentaRepository = cuentaRepository;
+        this.archivoMovimientosService = archivoMovimientosService;
+        this.ejecutorTrabajos = ejecutorTrabajos;
+        this.bus = bus;
+        this.objectMapper = objectMapper;
+        this.jdbc = jdbc;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.lectura.setReadOnly(true);
+        this.reparacion = new TransactionTemplate(transactionManager);
+        this.reparacion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.directorio = Paths.get(directorio);
+        this.particiones = particiones;
+        this.hilos = hilos;
+        this.cuentasPorLote = cuentasPorLote;
+        this.movimientosPorPagina = movimientosPorPagina;
+    }
+
+    /**
+     * Encolar una verificación de todas las cuentas; el informe se descarga como resultado
+     * del trabajo
+     */
+    public Trabajo iniciar(boolean reparar) {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("reparar", reparar);
+        return ejecutorTrabajos.enviar(new Trabajo(TIPO_VERIFICACION_SALDOS, PROPIETARIO_SISTEMA, Long.MAX_VALUE,
+                parametros, trabajo -> generarInforme(trabajo, reparar)));
+    }
+
+    private void generarInforme(Trabajo trabajo, boolean reparar) throws IOException {
+        Files.createDirectories(directorio);
+        Path destino = directorio.resolve(trabajo.getId() + EXTENSION);
+        Path temporal = directorio.resolve(trabajo.getId() + EXTENSION + ".tmp");
+        try {
+            try (OutputStream salida = new GZIPOutputStream(Files.newOutputStream(temporal), 64 * 1024)) {
+                verificar(reparar, salida, trabajo);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trabajo.setResultado(destino);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Verificar todas las cuentas en el hilo actual escribiendo el informe en la salida.
+     * Devuelve el resumen, que también cierra el informe
+     */
+    public Map<String, Object> verificar(boolean reparar, OutputStream salida) throws IOException {
+        return verificar(reparar, salida, null);
+    }
+
+    private Map<String, Object> verificar(boolean reparar, OutputStream salida, Trabajo trabajo) throws IOException {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una verificación de saldos en curso");
+        }
+        try (JsonGenerator json = objectMapper.createGenerator(salida)) {
+            json.writeStartObject();
+            json.writeStringField("generado", LocalDateTime.now().toString());
+            json.writeBooleanField("reparar", reparar);
+            json.writeArrayFieldStart("divergencias");
+            Informe informe = new Informe(json);
+            Map<String, Object> resumen = recorrer(reparar, informe, trabajo);
+            json.writeEndArray();
+            json.writeObjectField("resumen", resumen);
+            json.writeEndObject();
+            return resumen;
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+
+    private Map<String, Object> recorrer(boolean reparar, Informe informe, Trabajo trabajo) throws IOException {
+        Avance avance = new Avance();
+        RangoCuentas rango = cuentaRepository.obtenerRangoCuentas();
+        if (rango.getMinimo() == null) {
+            return avance.aMapa(0);
+        }
+        avance.totales = rango.getCantidad();
+        long minimo = rango.getMinimo();
+        long maximo = rango.getMaximo();
+        long anchura = Math.max(1, (maximo - minimo + particiones) / particiones);
+        BooleanSupplier cancelado = () -> trabajo != null && trabajo.cancelado();
+
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(ClaseTrafico.REPORTE.envolver(tarea),
+                    "verificacion-" + numeroHilo.getAndIncrement());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            List<Future<?>> resultados = new ArrayList<>();
+            for (int i = 0; i < particiones; i++) {
+                long desde = minimo - 1 + i * anchura;
+                long hasta = i == particiones - 1 ? maximo : desde + anchura;
+                resultados.add(pool.submit(() -> {
+                    verificarParticion(desde, hasta, reparar, informe, avance, cancelado);
+                    return null;
+                }));
+            }
+            // Esperar informando avance; la primera partición fallida detiene la verificación
+            while (!todosTerminados(resultados)) {
+                if (trabajo != null) {
+                    actualizarAvance(trabajo, avance);
+                }
+                Thread.sleep(200);
+            }
+        } catch (InterruptedException | CancellationException e) {
+            throw new CancellationException("Verificación de saldos cancelada");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                    : new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (trabajo != null) {
+            actualizarAvance(trabajo, avance);
+        }
+        log.info("Verificación de saldos: {} cuentas, {} movimientos, {} con diferencias, {} reparadas en {} ms",
+                avance.cuentas.sum(), avance.movimientos.sum(), avance.conDivergencias.sum(),
+                avance.reparadas.sum(), avance.milisegundos());
+        return avance.aMapa(avance.milisegundos());
+    }
+
+    /**
+     * Primera pasada, sin transacción: las cuentas con alguna diferencia se confirman después
+     * una a una
+     */
+    private void verificarParticion(long desde, long hasta, boolean reparar, Informe informe, Avance avance,
+                                    BooleanSupplier cancelado) {
+        long ultimaCuenta = desde;
+        List<Cuenta> cuentas;
+        do {
+            if (cancelado.getAsBoolean()) {
+                throw new CancellationException("Verificación de saldos cancelada");
+            }
+            cuentas = cuentaRepository.findEnRango(ultimaCuenta, hasta, PageRequest.of(0, cuentasPorLote));
+            if (cuentas.isEmpty()) {
+                break;
+            }
+            Map<Long, Cadena> cadenas = new LinkedHashMap<>();
+            List<Long> sospechosas = new ArrayList<>();
+            for (Cuenta cuenta : cuentas) {
+                cadenas.put(cuenta.getId(), new Cadena(cuenta, divergencia -> {
+                    if (sospechosas.isEmpty() || !sospechosas.get(sospechosas.size() - 1).equals(cuenta.getId())) {
+                        sospechosas.add(cuenta.getId());
+                    }
+                }, false));
+            }
+            recorrerMovimientos(new ArrayList<>(cadenas.keySet()), cadenas, () -> {
+            });
+            for (Cadena cadena : cadenas.values()) {
+                cadena.cerrar();
+                avance.movimientos.add(cadena.movimientos);
+            }
+            for (Long cuentaId : sospechosas) {
+                confirmar(cuentaId, reparar, informe, avance);
+            }
+            avance.cuentas.add(cuentas.size());
+            ultimaCuenta = cuentas.get(cuentas.size() - 1).getId();
+        } while (cuentas.size() == cuentasPorLote);
+    }
+
+    /**
+     * Segunda pasada sobre una cuenta, en una instantánea coherente (y con la cuenta bloqueada
+     * si se repara)
+     */
+    private void confirmar(Long cuentaId, boolean reparar, Informe informe, Avance avance) {
+        List<Divergencia> encontradas = new ArrayList<>();
+        AtomicBoolean reparada = new AtomicBoolean(false);
+        try {
+            (reparar ? reparacion : lectura).executeWithoutResult(estado -> {
+                Cuenta cuenta = (reparar ? cuentaRepository.findByIdParaActualizar(cuentaId)
+                        : cuentaRepository.findById(cuentaId)).orElse(null);
+                if (cuenta == null) {
+                    return;
+                }
+                boolean reparable = reparar && !cuenta.esCaliente() && !cuenta.esLibroMayor();
+                Cadena cadena = new Cadena(cuenta, encontradas::add, reparable);
+                recorrerMovimientos(List.of(cuentaId), Map.of(cuentaId, cadena), cadena::aplicarCorrecciones);
+                cadena.cerrar();
+                if (reparable && !encontradas.isEmpty()) {
+                    cadena.aplicarCorrecciones();
+                    if (cadena.saldoCuentaDistinto) {
+                        jdbc.getJdbcTemplate().update(SQL_SALDO_CUENTA, cadena.recalculado, LocalDateTime.now(),
+                                cuentaId);
+                    }
+                    bus.invalidarAlConfirmar(CacheConfig.CACHE_CUENTAS, cuentaId);
+                    bus.invalidarAlConfirmar(CacheConfig.CACHE_ESTADOS_CUENTA, cuenta.getClienteId());
+                    reparada.set(true);
+                    reparaciones.add(cadena.corregidos + (cadena.saldoCuentaDistinto ? 1 : 0));
+                    avance.movimientosReparados.add(cadena.corregidos);
+                }
+            });
+        } catch (RuntimeException e) {
+            avance.fallidas.increment();
+            log.warn("No se pudo verificar la cuenta {}: {}", cuentaId, e.getMessage());
+            return;
+        }
+        if (encontradas.isEmpty()) {
+            return;
+        }
+        avance.conDivergencias.increment();
+        avance.divergencias.add(encontradas.size());
+        divergencias.add(encontradas.size());
+        if (reparada.get()) {
+            avance.reparadas.increment();
+        }
+        informe.escribir(encontradas, reparada.get());
+    }
+
+    /**
+     * Movimientos de las cuentas por páginas de clave (cuenta_id, fecha, id)
+     */
+    private void recorrerMovimientos(List<Long> cuentaIds, Map<Long, Cadena> cadenas, Runnable alTerminarPagina) {
+        long ultimaCuenta = 0L;
+        LocalDateTime ultimaFecha = INICIO_CLAVE;
+        long ultimoId = 0L;
+        List<Fila> pagina;
+        do {
+            MapSqlParameterSource parametros = new MapSqlParameterSource("ids", cuentaIds)
+                    .addValue("cuenta", ultimaCuenta)
+                    .addValue("fecha", ultimaFecha)
+                    .addValue("id", ultimoId)
+                    .addValue("limite", movimientosPorPagina);
+            pagina = jdbc.query(SQL_PAGINA, parametros, (fila, numero) -> new Fila(fila.getLong(1), fila.getLong(2),
+                    fila.getObject(3, LocalDateTime.class), fila.getString(4), fila.getBigDecimal(5),
+                    fila.getBigDecimal(6)));
+            for (Fila fila : pagina) {
+                cadenas.get(fila.cuentaId()).aplicar(fila);
+            }
+            alTerminarPagina.run();
+            if (!pagina.isEmpty()) {
+                Fila ultima = pagina.get(pagina.size() - 1);
+                ultimaCuenta = ultima.cuentaId();
+                ultimaFecha = ultima.fecha();
+                ultimoId = ultima.id();
+            }
+        } while (pagina.size() == movimientosPorPagina);
+    }
+
+    private void actualizarAvance(Trabajo trabajo, Avance avance) {
+        Map<String, Object> detalle = avance.aMapa(avance.milisegundos());
+        double cuentasPorSegundo = avance.cuentas.sum() / Math.max(0.001, avance.milisegundos() / 1000.0);
+        long restantes = Math.max(0, avance.totales - avance.cuentas.sum());
+        detalle.put("etaSegundos", cuentasPorSegundo > 0 ? Math.round(restantes / cuentasPorSegundo) : null);
+        trabajo.setDetalle(detalle);
+        if (avance.totales > 0) {
+            trabajo.setProgreso(Math.min(1.0, avance.cuentas.sum() / (double) avance.totales));
+        }
+    }
+
+    private static boolean todosTerminados(List<Future<?>> resultados)
+            throws InterruptedException, ExecutionException {
+        boolean terminados = true;
+        for (Future<?> resultado : resultados) {
+            if (resultado.isDone()) {
+                resultado.get();
+            } else {
+                terminados = false;
+            }
+        }
+        return terminados;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("banco.verificacion.divergencias", divergencias, LongAdder::sum)
+                .description("Diferencias de saldo confirmadas por la verificación")
+                .register(registry);
+        FunctionCounter.builder("banco.verificacion.reparaciones", reparaciones, LongAdder::sum)
+                .description("Saldos de movimientos y cuentas reescritos por la verificación")
+                .register(registry);
+    }
+
+    /**
+     * Movimiento leído por la verificación (sólo las columnas que usa)
+     */
+    private record Fila(long id, long cuentaId, LocalDateTime fecha, String tipoMovimiento,
+                        BigDecimal valor, BigDecimal saldo) {
+    }
+
+    /**
+     * Diferencia encontrada. En CADENA el esperado es el saldo del movimiento anterior más o
+     * menos el valor; en SALDO_CUENTA, el saldo recalculado tras el último movimiento
+     */
+    private record Divergencia(String tipo, Long cuentaId, Long movimientoId, Long movimientoAnteriorId,
+                               BigDecimal saldoEsperado, BigDecimal saldoRegistrado) {
+    }
+
+    /**
+     * Saldo corrido de una cuenta mientras se recorren sus movimientos en orden
+     */
+    private final class Cadena {
+
+        private final Cuenta cuenta;
+        private final Consumer<Divergencia> destino;
+        private final List<Object[]> correcciones;
+        private BigDecimal recalculado;
+        private BigDecimal anterior;
+        private Long anteriorId;
+        private long movimientos;
+        private long corregidos;
+        private boolean saldoCuentaDistinto;
+
+        private Cadena(Cuenta cuenta, Consumer<Divergencia> destino, boolean reparar) {
+            this.cuenta = cuenta;
+            this.destino = destino;
+            this.correcciones = reparar ? new ArrayList<>() : null;
+        }
+
+        private void aplicar(Fila fila) {
+            if (recalculado == null) {
+                abrir(fila.fecha().minus(1, ChronoUnit.MICROS));
+            }
+            BigDecimal valor = "Retiro".equalsIgnoreCase(fila.tipoMovimiento()) ? fila.valor().negate() : fila.valor();
+            BigDecimal esperado = anterior.add(valor);
+            recalculado = recalculado.add(valor);
+            movimientos++;
+            if (!esProvisional(fila)) {
+                if (fila.saldo().compareTo(esperado) != 0) {
+                    destino.accept(new Divergencia("CADENA", cuenta.getId(), fila.id(), anteriorId,
+                            esperado, fila.saldo()));
+                }
+                if (correcciones != null && fila.saldo().compareTo(recalculado) != 0) {
+                    correcciones.add(new Object[]{recalculado, fila.id()});
+                }
+            }
+            anterior = fila.saldo();
+            anteriorId = fila.id();
+        }
+
+        private void cerrar() {
+            if (recalculado == null) {
+                abrir(FIN_CLAVE);
+            }
+            BigDecimal registrado = cuenta.getSaldoDisponible();
+            if (registrado == null || registrado.compareTo(recalculado) != 0) {
+                saldoCuentaDistinto = true;
+                destino.accept(new Divergencia("SALDO_CUENTA", cuenta.getId(), null, anteriorId,
+                        recalculado, registrado));
+            }
+        }
+
+        private void aplicarCorrecciones() {
+            if (correcciones != null && !correcciones.isEmpty()) {
+                jdbc.getJdbcTemplate().batchUpdate(SQL_SALDO_MOVIMIENTO, correcciones);
+                corregidos += correcciones.size();
+                correcciones.clear();
+            }
+        }
+
+        /**
+         * Saldo de apertura: el del último movimiento archivado antes del primero en la tabla,
+         * o el inicial
+         */
+        private void abrir(LocalDateTime antesDe) {
+            recalculado = archivoMovimientosService.obtenerUltimoSaldoHasta(cuenta.getId(), antesDe)
+                    .orElse(cuenta.getSaldoInicial());
+            anterior = recalculado;
+        }
+
+        /**
+         * Depósito caliente aún no consolidado: su saldo es el visible al registrarlo
+         */
+        private boolean esProvisional(Fila fila) {
+            Long conciliado = cuenta.getMovimientoConciliadoId();
+            return cuenta.esCaliente() && fila.id() > (conciliado != null ? conciliado : 0L);
+        }
+    }
+
+    /**
+     * Informe compartido por las particiones; las divergencias de una cuenta se escriben juntas
+     */
+    private static final class Informe {
+
+        private final JsonGenerator json;
+
+        private Informe(JsonGenerator json) {
+            this.json = json;
+        }
+
+        private synchronized void escribir(List<Divergencia> encontradas, boolean reparada) {
+            try {
+                for (Divergencia divergencia : encontradas) {
+                    json.writeStartObject();
+                    json.writeStringField("tipo", divergencia.tipo());
+                    json.writeNumberField("cuentaId", divergencia.cuentaId());
+                    if (divergencia.movimientoId() != null) {
+                        json.writeNumberField("movimientoId", divergencia.movimientoId());
+                    }
+                    if (divergencia.movimientoAnteriorId() != null) {
+                        json.writeNumberField("movimientoAnteriorId", divergencia.movimientoAnteriorId());
+                    }
+                    json.writeNumberField("saldoEsperado", divergencia.saldoEsperado());
+                    if (divergencia.saldoRegistrado() != null) {
+                        json.writeNumberField("saldoRegistrado", divergencia.saldoRegistrado());
+                    }
+                    json.writeBooleanField("reparada", reparada);
+                    json.writeEndObject();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escribir el informe de verificación", e);
+            }
+        }
+    }
+
+    /**
+     * Contadores de una ejecución, compartidos por las particiones
+     */
+    private static final class Avance {
+
+        private final long inicio = System.nanoTime();
+        private final LongAdder cuentas = new LongAdder();
+        private final LongAdder movimientos = new LongAdder();
+        private final LongAdder conDivergencias = new LongAdder();
+        private final LongAdder divergencias = new LongAdder();
+        private final LongAdder reparadas = new LongAdder();
+        private final LongAdder movimientosReparados = new LongAdder();
+        private final LongAdder fallidas = new LongAdder();
+        private volatile long totales;
+
+        private long milisegundos() {
+            return (System.nanoTime() - inicio) / 1_000_000;
+        }
+
+        private Map<String, Object> aMapa(long duracionMs) {
+            double segundos = Math.max(0.001, duracionMs / 1000.0);
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            mapa.put("cuentasVerificadas", cuentas.sum());
+            mapa.put("cuentasTotales", totales);
+            mapa.put("movimientosVerificados", movimientos.sum());
+            mapa.put("cuentasConDivergencias", conDivergencias.sum());
+            mapa.put("divergencias", divergencias.sum());
+            mapa.put("cuentasReparadas", reparadas.sum());
+            mapa.put("movimientosReparados", movimientosReparados.sum());
+            mapa.put("cuentasFallidas", fallidas.sum());
+            mapa.put("cuentasPorSegundo", Math.round(cuentas.sum() / segundos * 10) / 10.0);
+            mapa.put("duracionMs", duracionMs);
+            return mapa;
+        }
+    }
+}
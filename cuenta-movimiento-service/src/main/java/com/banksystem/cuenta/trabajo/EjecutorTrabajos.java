@@ -0,0 +1,221 @@
+package com.banksystem.cuenta.trabajo;
+
+import com.banksystem.cuenta.exception.LimiteTrabajosException;
+import com.banksystem.cuenta.limite.ClaseTrafico;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ejecutor acotado de trabajos de fondo.
+ * <ul>
+ *   <li>Un número fijo de hilos, menor que el pool de conexiones, para que el tráfico
+ *   interactivo siempre tenga conexiones y CPU disponibles.</li>
+ *   <li>Cola por prioridad (menor primero, FIFO en empates) con tope global y por cliente.</li>
+ *   <li>Como máximo {@code maximoPorCliente} trabajos en ejecución por cliente: un cliente con
+ *   muchos trabajos no acapara los hilos; sus trabajos esperan y pasan los de otros.</li>
+ * </ul>
+ */
+@Component
+public class EjecutorTrabajos {
+
+    private static final Logger log = LoggerFactory.getLogger(EjecutorTrabajos.class);
+
+    private final int hilos;
+    private final int maximoPorCliente;
+    private final int maximoPendientes;
+    private final int maximoPendientesPorCliente;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayTrabajo = lock.newCondition();
+    private final TreeSet<Trabajo> pendientes = new TreeSet<>(
+            Comparator.comparingLong(Trabajo::getPrioridad).thenComparingLong(Trabajo::getSecuencia));
+    private final Map<Long, Integer> enEjecucionPorCliente = new HashMap<>();
+    private final Map<Long, Integer> pendientesPorCliente = new HashMap<>();
+    private final Map<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+    private final List<Thread> trabajadores = new ArrayList<>();
+    private long secuencia;
+    private volatile boolean activo = true;
+
+    public EjecutorTrabajos(@Value("${banco.trabajos.hilos:2}") int hilos,
+                            @Value("${banco.trabajos.maximo-por-cliente:1}") int maximoPorCliente,
+                            @Value("${banco.trabajos.maximo-pendientes:100}") int maximoPendientes,
+                            @Value("${banco.trabajos.maximo-pendientes-por-cliente:5}") int maximoPendientesPorCliente) {
+        this.hilos = hilos;
+        this.maximoPorCliente = maximoPorCliente;
+        this.maximoPendientes = maximoPendientes;
+        this.maximoPendientesPorCliente = maximoPendientesPorCliente;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        for (int i = 0; i < hilos; i++) {
+            // Los trabajos son reportes: usan el compartimento de conexiones de los reportes
+            Thread hilo = new Thread(ClaseTrafico.REPORTE.envolver(this::atender), "trabajo-" + i);
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.NORM_PRIORITY - 1);
+            hilo.start();
+            trabajadores.add(hilo);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        trabajadores.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Encolar un trabajo; falla si la cola global o la del cliente están llenas
+     */
+    public Trabajo enviar(Trabajo trabajo) {
+        lock.lock();
+        try {
+            if (pendientes.size() >= maximoPendientes) {
+                throw new LimiteTrabajosException("La cola de trabajos está llena, intente más tarde");
+            }
+            if (pendientesPorCliente.getOrDefault(trabajo.getClienteId(), 0) >= maximoPendientesPorCliente) {
+                throw new LimiteTrabajosException("El cliente " + trabajo.getClienteId() +
+                        " ya tiene " + maximoPendientesPorCliente + " trabajos en espera");
+            }
+            trabajo.setSecuencia(secuencia++);
+            trabajos.put(trabajo.getId(), trabajo);
+            pendientes.add(trabajo);
+            pendientesPorCliente.merge(trabajo.getClienteId(), 1, Integer::sum);
+            hayTrabajo.signal();
+            return trabajo;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Trabajo> obtener(String id) {
+        return Optional.ofNullable(trabajos.get(id));
+    }
+
+    public Collection<Trabajo> listar() {
+        return trabajos.values();
+    }
+
+    /**
+     * Cancelar un trabajo: si está en cola se descarta, si está en ejecución se marca e
+     * interrumpe y la tarea termina en su siguiente punto de control
+     */
+    public Trabajo cancelar(String id) {
+        Trabajo trabajo = trabajos.get(id);
+        if (trabajo == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            trabajo.solicitarCancelacion();
+            if (pendientes.remove(trabajo)) {
+                decrementar(pendientesPorCliente, trabajo.getClienteId());
+                trabajo.setEstado(EstadoTrabajo.CANCELADO);
+                trabajo.setFechaFin(LocalDateTime.now());
+            } else if (trabajo.getEstado() == EstadoTrabajo.EN_EJECUCION && trabajo.getHilo() != null) {
+                trabajo.getHilo().interrupt();
+            }
+            return trabajo;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Olvidar un trabajo finalizado (política de retención)
+     */
+    public void eliminar(String id) {
+        trabajos.computeIfPresent(id, (clave, trabajo) -> trabajo.getEstado().esFinal() ? null : trabajo);
+    }
+
+    private void atender() {
+        while (activo) {
+            Trabajo trabajo;
+            try {
+                trabajo = tomarSiguiente();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            ejecutar(trabajo);
+        }
+    }
+
+    private Trabajo tomarSiguiente() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                Iterator<Trabajo> iterador = pendientes.iterator();
+                while (iterador.hasNext()) {
+                    Trabajo candidato = iterador.next();
+                    if (enEjecucionPorCliente.getOrDefault(candidato.getClienteId(), 0) < maximoPorCliente) {
+                        iterador.remove();
+                        decrementar(pendientesPorCliente, candidato.getClienteId());
+                        enEjecucionPorCliente.merge(candidato.getClienteId(), 1, Integer::sum);
+                        candidato.setHilo(Thread.currentThread());
+                        candidato.setEstado(EstadoTrabajo.EN_EJECUCION);
+                        candidato.setFechaInicio(LocalDateTime.now());
+                        return candidato;
+                    }
+                }
+                hayTrabajo.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ejecutar(Trabajo trabajo) {
+        try {
+            trabajo.getTarea().ejecutar(trabajo);
+            if (trabajo.cancelado()) {
+                trabajo.setEstado(EstadoTrabajo.CANCELADO);
+            } else {
+                trabajo.setProgreso(1);
+                trabajo.setEstado(EstadoTrabajo.COMPLETADO);
+            }
+        } catch (Exception e) {
+            if (trabajo.cancelado()) {
+                trabajo.setEstado(EstadoTrabajo.CANCELADO);
+            } else {
+                log.error("Trabajo {} ({}) fallido", trabajo.getId(), trabajo.getTipo(), e);
+                trabajo.setMensajeError(e.getMessage());
+                trabajo.setEstado(EstadoTrabajo.FALLIDO);
+            }
+        } finally {
+            trabajo.setFechaFin(LocalDateTime.now());
+            lock.lock();
+            try {
+                trabajo.setHilo(null);
+                decrementar(enEjecucionPorCliente, trabajo.getClienteId());
+                // Un cupo de cliente liberado puede habilitar un trabajo que estaba bloqueado
+                hayTrabajo.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            // Sin hilo asignado ya nadie puede interrumpirlo: limpiar una cancelación tardía
+            Thread.interrupted();
+        }
+    }
+
+    private static void decrementar(Map<Long, Integer> contadores, Long clienteId) {
+        contadores.computeIfPresent(clienteId, (clave, valor) -> valor > 1 ? valor - 1 : null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.banksystem.cuenta.trabajo;
+
+public enum EstadoTrabajo {
+    PENDIENTE,
+    EN_EJECUCION,
+    COMPLETADO,
+    FALLIDO,
+    CANCELADO;
+
+    public boolean esFinal() {
+        return this == COMPLETADO || this == FALLIDO || this == CANCELADO;
+    }
+}
@@ -0,0 +1,65 @@
+package com.banksystem.cuenta.trabajo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Punto de control de un proceso por lotes en un archivo de propiedades.
+ * Cada guardado reemplaza el archivo de forma atómica (temporal + fsync + rename), así que
+ * tras una caída siempre se lee un estado completo: el último confirmado.
+ */
+public class PuntoControl {
+
+    private final Path archivo;
+    private final Properties valores = new Properties();
+
+    private PuntoControl(Path archivo) {
+        this.archivo = archivo;
+    }
+
+    public static PuntoControl abrir(Path archivo) throws IOException {
+        PuntoControl puntoControl = new PuntoControl(archivo);
+        if (Files.exists(archivo)) {
+            try (InputStream entrada = Files.newInputStream(archivo)) {
+                puntoControl.valores.load(entrada);
+            }
+        }
+        return puntoControl;
+    }
+
+    public synchronized boolean estaVacio() {
+        return valores.isEmpty();
+    }
+
+    public synchronized String obtener(String clave) {
+        return valores.getProperty(clave);
+    }
+
+    public synchronized long obtenerLong(String clave, long porDefecto) {
+        String valor = valores.getProperty(clave);
+        return valor != null ? Long.parseLong(valor) : porDefecto;
+    }
+
+    public synchronized void poner(String clave, Object valor) {
+        valores.setProperty(clave, String.valueOf(valor));
+    }
+
+    public synchronized void guardar() throws IOException {
+        Files.createDirectories(archivo.getParent());
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (OutputStream salida = Files.newOutputStream(temporal)) {
+            valores.store(salida, null);
+        }
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
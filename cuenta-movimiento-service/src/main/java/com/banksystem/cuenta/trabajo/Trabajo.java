@@ -0,0 +1,186 @@
+package com.banksystem.cuenta.trabajo;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Trabajo de fondo: identidad, dueño, prioridad y estado observable desde otros hilos.
+ * La prioridad es un "plazo virtual": menor valor se ejecuta antes.
+ */
+public class Trabajo {
+
+    /**
+     * Unidad de trabajo. Debe consultar {@link Trabajo#cancelado()} con regularidad e
+     * informar avance con {@link Trabajo#setProgreso(double)}.
+     */
+    @FunctionalInterface
+    public interface Tarea {
+        void ejecutar(Trabajo trabajo) throws Exception;
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String tipo;
+    private final Long clienteId;
+    private final long prioridad;
+    private final Map<String, Object> parametros;
+    private final Tarea tarea;
+    private final LocalDateTime fechaCreacion = LocalDateTime.now();
+
+    private long secuencia;
+    private volatile EstadoTrabajo estado = EstadoTrabajo.PENDIENTE;
+    private volatile double progreso;
+    private volatile boolean cancelacionSolicitada;
+    private volatile LocalDateTime fechaInicio;
+    private volatile LocalDateTime fechaFin;
+    private volatile String mensajeError;
+    private volatile Path resultado;
+    private volatile Thread hilo;
+    private volatile Map<String, Object> detalle;
+
+    public Trabajo(String tipo, Long clienteId, long prioridad, Map<String, Object> parametros, Tarea tarea) {
+        this.tipo = tipo;
+        this.clienteId = clienteId;
+        this.prioridad = prioridad;
+        this.parametros = parametros;
+        this.tarea = tarea;
+    }
+
+    public boolean cancelado() {
+        return cancelacionSolicitada || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Resumen para la respuesta HTTP
+     */
+    public Map<String, Object> aMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("id", id);
+        mapa.put("tipo", tipo);
+        mapa.put("clienteId", clienteId);
+        mapa.put("parametros", parametros);
+        mapa.put("estado", estado);
+        mapa.put("progreso", Math.round(progreso * 1000) / 10.0);
+        mapa.put("fechaCreacion", fechaCreacion);
+        mapa.put("fechaInicio", fechaInicio);
+        mapa.put("fechaFin", fechaFin);
+        mapa.put("mensajeError", mensajeError);
+        if (detalle != null) {
+            mapa.put("detalle", detalle);
+        }
+        return mapa;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public Long getClienteId() {
+        return clienteId;
+    }
+
+    public long getPrioridad() {
+        return prioridad;
+    }
+
+    public Map<String, Object> getParametros() {
+        return parametros;
+    }
+
+    Tarea getTarea() {
+        return tarea;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    long getSecuencia() {
+        return secuencia;
+    }
+
+    void setSecuencia(long secuencia) {
+        this.secuencia = secuencia;
+    }
+
+    public EstadoTrabajo getEstado() {
+        return estado;
+    }
+
+    void setEstado(EstadoTrabajo estado) {
+        this.estado = estado;
+    }
+
+    public double getProgreso() {
+        return progreso;
+    }
+
+    public void setProgreso(double progreso) {
+        this.progreso = Math.max(0, Math.min(1, progreso));
+    }
+
+    boolean isCancelacionSolicitada() {
+        return cancelacionSolicitada;
+    }
+
+    void solicitarCancelacion() {
+        this.cancelacionSolicitada = true;
+    }
+
+    public LocalDateTime getFechaInicio() {
+        return fechaInicio;
+    }
+
+    void setFechaInicio(LocalDateTime fechaInicio) {
+        this.fechaInicio = fechaInicio;
+    }
+
+    public LocalDateTime getFechaFin() {
+        return fechaFin;
+    }
+
+    void setFechaFin(LocalDateTime fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    public String getMensajeError() {
+        return mensajeError;
+    }
+
+    void setMensajeError(String mensajeError) {
+        this.mensajeError = mensajeError;
+    }
+
+    public Path getResultado() {
+        return resultado;
+    }
+
+    public void setResultado(Path resultado) {
+        this.resultado = resultado;
+    }
+
+    public Map<String, Object> getDetalle() {
+        return detalle;
+    }
+
+    /**
+     * Métricas propias del tipo de trabajo (rendimiento, ETA...); reemplazar el mapa completo
+     */
+    public void setDetalle(Map<String, Object> detalle) {
+        this.detalle = detalle;
+    }
+
+    Thread getHilo() {
+        return hilo;
+    }
+
+    void setHilo(Thread hilo) {
+        this.hilo = hilo;
+    }
+}
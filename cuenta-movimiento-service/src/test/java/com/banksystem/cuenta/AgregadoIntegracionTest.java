@@ -0,0 +1,95 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.repository.AgregadoDiarioRepository;
+import com.banksystem.cuenta.service.AgregadoService;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.MovimientoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class AgregadoIntegracionTest {
+
+    @Autowired
+    private AgregadoService agregadoService;
+
+    @Autowired
+    private AgregadoDiarioRepository agregadoDiarioRepository;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testElAgregadoPorTipoDeCuentaSeActualizaAlConfirmarYSeReconstruye() {
+        // Arrange
+        LocalDate hoy = LocalDate.now();
+        LocalDate ayer = hoy.minusDays(1);
+        Map<String, Object> antes = depositosAhorros(hoy);
+        Long cuentaId = cuentaService.crearCuenta(
+                new Cuenta("G" + System.nanoTime(), "Ahorros", new BigDecimal("100.00"), true, 1L)).getId();
+
+        // Act
+        movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("30.00"));
+        movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("12.50"));
+        Map<String, Object> despues = depositosAhorros(hoy);
+        jdbcTemplate.update("UPDATE movimiento SET fecha = DATEADD('DAY', -1, fecha) WHERE cuenta_id = ?", cuentaId);
+        agregadoService.reconstruir(ayer, ayer);
+
+        // Assert
+        assertEquals(2L, (Long) despues.get("cantidad") - (Long) antes.get("cantidad"));
+        assertEquals(new BigDecimal("42.50"),
+                ((BigDecimal) despues.get("total")).subtract((BigDecimal) antes.get("total")));
+        assertEquals(porCuentas(ayer), porTipoCuenta(ayer));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> depositosAhorros(LocalDate dia) {
+        List<Map<String, Object>> resultados = (List<Map<String, Object>>) agregadoService
+                .consultar(dia, dia, "DIA", "TIPO_CUENTA", null, "Ahorros").get("resultados");
+        Map<String, Object> depositos = new HashMap<>(Map.of("cantidad", 0L, "total", BigDecimal.ZERO));
+        for (Map<String, Object> resultado : resultados) {
+            if ("Deposito".equals(resultado.get("tipoMovimiento")) && "USD".equals(resultado.get("moneda"))) {
+                depositos = resultado;
+            }
+        }
+        return depositos;
+    }
+
+    private Map<String, String> porCuentas(LocalDate dia) {
+        Map<String, String> sumas = new HashMap<>();
+        for (Object[] fila : agregadoDiarioRepository.sumarPorDia(dia, dia, null, null)) {
+            sumas.put(fila[1] + "@" + fila[4], fila[2] + ":" + fila[3]);
+        }
+        return sumas;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> porTipoCuenta(LocalDate dia) {
+        Map<String, String> sumas = new HashMap<>();
+        for (Map<String, Object> resultado : (List<Map<String, Object>>) agregadoService
+                .consultar(dia, dia, "DIA", "TOTAL", null, null).get("resultados")) {
+            sumas.put(resultado.get("tipoMovimiento") + "@" + resultado.get("moneda"),
+                    resultado.get("cantidad") + ":" + resultado.get("total"));
+        }
+        return sumas;
+    }
+}
@@ -0,0 +1,124 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.AgregadoDiarioRepository;
+import com.banksystem.cuenta.repository.AgregadoTipoCuentaDiarioRepository;
+import com.banksystem.cuenta.service.AgregadoService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AgregadoServiceTest {
+
+    @Mock
+    private AgregadoDiarioRepository agregadoDiarioRepository;
+
+    @Mock
+    private AgregadoTipoCuentaDiarioRepository agregadoTipoCuentaRepository;
+
+    @InjectMocks
+    private AgregadoService agregadoService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConsultaMensualSumaLosDias() {
+        // Arrange
+        LocalDate desde = LocalDate.of(2024, 1, 1);
+        LocalDate hasta = LocalDate.of(2024, 2, 29);
+        when(agregadoTipoCuentaRepository.sumarPorDiaYTipoCuenta(desde, hasta, null)).thenReturn(List.of(
+                new Object[]{LocalDate.of(2024, 2, 3), "Deposito", 1L, new BigDecimal("50.00"), "USD", "Ahorros"},
+                new Object[]{LocalDate.of(2024, 1, 5), "Deposito", 2L, new BigDecimal("100.00"), "USD", "Ahorros"},
+                new Object[]{LocalDate.of(2024, 1, 20), "Deposito", 3L, new BigDecimal("250.50"), "USD", "Ahorros"},
+                new Object[]{LocalDate.of(2024, 1, 20), "Retiro", 1L, new BigDecimal("75.00"), "USD", "Corriente"}));
+
+        // Act
+        Map<String, Object> respuesta = agregadoService.consultar(desde, hasta, "mes", "tipo_cuenta", null, null);
+
+        // Assert
+        List<Map<String, Object>> resultados = (List<Map<String, Object>>) respuesta.get("resultados");
+        assertEquals(3, resultados.size());
+        assertEquals("2024-01", resultados.get(0).get("periodo"));
+        assertEquals("Ahorros", resultados.get(0).get("tipoCuenta"));
+        assertEquals(5L, resultados.get(0).get("cantidad"));
+        assertEquals(new BigDecimal("350.50"), resultados.get(0).get("total"));
+        assertEquals("Corriente", resultados.get(1).get("tipoCuenta"));
+        assertEquals("2024-02", resultados.get(2).get("periodo"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testElTotalNoMezclaMonedas() {
+        // Arrange
+        LocalDate dia = LocalDate.of(2024, 1, 5);
+        when(agregadoTipoCuentaRepository.sumarPorDia(dia, dia, null)).thenReturn(List.of(
+                new Object[]{dia, "Deposito", 2L, new BigDecimal("100.00"), "USD"},
+                new Object[]{dia, "Deposito", 1L, new BigDecimal("15000"), "JPY"}));
+
+        // Act
+        Map<String, Object> respuesta = agregadoService.consultar(dia, dia, "DIA", "TOTAL", null, null);
+
+        // Assert
+        List<Map<String, Object>> resultados = (List<Map<String, Object>>) respuesta.get("resultados");
+        assertEquals(2, resultados.size());
+        assertEquals("JPY", resultados.get(0).get("moneda"));
+        assertEquals(new BigDecimal("15000"), resultados.get(0).get("total"));
+        assertEquals("USD", resultados.get(1).get("moneda"));
+        assertEquals(new BigDecimal("100.00"), resultados.get(1).get("total"));
+    }
+
+    @Test
+    public void testElTotalDeUnaCuentaLeeSuAgregado() {
+        // Arrange
+        LocalDate dia = LocalDate.of(2024, 1, 5);
+        when(agregadoDiarioRepository.sumarPorDia(dia, dia, 7L, null)).thenReturn(List.<Object[]>of(
+                new Object[]{dia, "Retiro", 1L, new BigDecimal("40.00"), "USD"}));
+
+        // Act
+        agregadoService.consultar(dia, dia, "DIA", "TOTAL", 7L, null);
+
+        // Assert
+        verifyNoInteractions(agregadoTipoCuentaRepository);
+    }
+
+    @Test
+    public void testRegistrarSumaTambienAlTipoDeCuentaEnLaRanuraDeLaCuenta() {
+        // Arrange
+        Cuenta cuenta = new Cuenta("A-1", "Ahorros", new BigDecimal("100.00"), true, 1L);
+        cuenta.setId(37L);
+        cuenta.setMoneda("USD");
+        Movimiento movimiento = new Movimiento(LocalDateTime.of(2024, 1, 5, 10, 0), "deposito",
+                new BigDecimal("25.00"), new BigDecimal("125.00"), 37L);
+
+        // Act
+        agregadoService.registrarMovimiento(movimiento, cuenta);
+
+        // Assert: 37 mod 16 = 5
+        verify(agregadoDiarioRepository).sumarMovimiento(37L, "Ahorros", "USD", LocalDate.of(2024, 1, 5),
+                "Deposito", new BigDecimal("25.00"));
+        verify(agregadoTipoCuentaRepository).sumarMovimientos("Ahorros", "USD", LocalDate.of(2024, 1, 5),
+                "Deposito", 5, 1L, new BigDecimal("25.00"));
+    }
+
+    @Test
+    public void testConsultaConGranularidadNoValida() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            agregadoService.consultar(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                    "SEMANA", "TOTAL", null, null);
+        });
+        verifyNoInteractions(agregadoDiarioRepository, agregadoTipoCuentaRepository);
+    }
+}
@@ -0,0 +1,77 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.archivo.SegmentoMovimientos;
+import com.banksystem.cuenta.entity.Movimiento;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tamaño en disco y latencia de lectura de un segmento archivado de un mes con mucho tráfico,
+ * frente al tamaño aproximado de las mismas filas en InnoDB (datos + índices secundarios).
+ * Ejecutar con: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+public class ArchivoBenchmarkTest {
+
+    private static final int MOVIMIENTOS = 20_000;
+    private static final int CALENTAMIENTO = 30;
+    private static final int ITERACIONES = 100;
+    /** Aproximación de fila + entradas en idx_movimiento_cuenta_fecha y en el índice de la FK */
+    private static final int BYTES_POR_FILA_INNODB = 180;
+
+    @Test
+    public void benchmarkSegmentoMensual() throws Exception {
+        List<Movimiento> movimientos = crearMovimientos();
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        SegmentoMovimientos.escribir(salida, movimientos);
+        byte[] segmento = salida.toByteArray();
+
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            SegmentoMovimientos.leer(new ByteArrayInputStream(segmento), 1L);
+        }
+        long inicio = System.nanoTime();
+        List<Movimiento> leidos = null;
+        for (int i = 0; i < ITERACIONES; i++) {
+            leidos = SegmentoMovimientos.leer(new ByteArrayInputStream(segmento), 1L);
+        }
+        double msPorLectura = (System.nanoTime() - inicio) / 1_000_000.0 / ITERACIONES;
+
+        long estimadoInnoDb = (long) MOVIMIENTOS * BYTES_POR_FILA_INNODB;
+        System.out.printf("movimientos: %d%n", MOVIMIENTOS);
+        System.out.printf("segmento: %d bytes (%.1f bytes/fila)%n", segmento.length, (double) segmento.length / MOVIMIENTOS);
+        System.out.printf("innodb estimado: %d bytes%n", estimadoInnoDb);
+        System.out.printf("lectura completa: %.2f ms%n", msPorLectura);
+
+        assertEquals(MOVIMIENTOS, leidos.size());
+        assertTrue(segmento.length < estimadoInnoDb / 4);
+    }
+
+    private List<Movimiento> crearMovimientos() {
+        List<Movimiento> movimientos = new ArrayList<>(MOVIMIENTOS);
+        LocalDateTime fecha = LocalDateTime.of(2023, 3, 1, 0, 0);
+        BigDecimal saldo = new BigDecimal("100000.00");
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            boolean deposito = i % 3 != 0;
+            BigDecimal valor = BigDecimal.valueOf(1000 + (i * 37L) % 50_000, 2);
+            saldo = deposito ? saldo.add(valor) : saldo.subtract(valor);
+            Movimiento movimiento = new Movimiento(fecha.plusSeconds(i * 120L + i % 7),
+                    deposito ? "Deposito" : "Retiro", valor, saldo, 1L);
+            movimiento.setId(1_000_000L + i * 3L);
+            movimiento.setDescripcion(movimiento.getTipoMovimiento() + " de " + valor);
+            movimiento.setFechaCreacion(movimiento.getFecha());
+            movimientos.add(movimiento);
+        }
+        return movimientos;
+    }
+}
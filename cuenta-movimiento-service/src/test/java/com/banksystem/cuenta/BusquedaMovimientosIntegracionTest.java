@@ -0,0 +1,153 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.dto.FiltroMovimientos;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.BusquedaMovimientosService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class BusquedaMovimientosIntegracionTest {
+
+    private static final int MOVIMIENTOS_POR_CUENTA = 10;
+
+    @Autowired
+    private BusquedaMovimientosService busquedaMovimientosService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    private final List<Long> cuentaIds = new ArrayList<>();
+    private LocalDateTime inicio;
+
+    @BeforeEach
+    public void setUp() {
+        // Movimientos en un año propio de cada ejecución para no mezclarse con otras pruebas
+        inicio = LocalDateTime.of(2000 + (int) Math.floorMod(System.nanoTime(), 500L), 3, 1, 10, 0);
+        for (int c = 0; c < 2; c++) {
+            Long cuentaId = cuentaRepository.save(
+                    new Cuenta("B" + System.nanoTime() + c, "Ahorros", new BigDecimal("1000.00"), true, 1L)).getId();
+            cuentaIds.add(cuentaId);
+            for (int i = 0; i < MOVIMIENTOS_POR_CUENTA; i++) {
+                // Pares de movimientos con la misma fecha: el ID desempata la clave del cursor
+                Movimiento movimiento = new Movimiento(inicio.plusHours(i / 2), i % 2 == 0 ? "Deposito" : "Retiro",
+                        new BigDecimal(10 + i), new BigDecimal("1000.00"), cuentaId);
+                movimiento.setDescripcion((i % 2 == 0 ? "Pago proveedor " : "Retiro cajero ") + i);
+                movimientoRepository.save(movimiento);
+            }
+        }
+    }
+
+    @Test
+    public void testPaginasPorCursorRecorrenTodoSinRepetirEnOrdenDescendente() {
+        // Arrange
+        FiltroMovimientos filtro = new FiltroMovimientos();
+        filtro.setCuentaIds(cuentaIds);
+        filtro.setFechaDesde(inicio);
+        filtro.setFechaHasta(inicio.plusDays(1));
+        List<Movimiento> leidos = new ArrayList<>();
+        String cursor = null;
+
+        // Act
+        Map<String, Object> pagina;
+        do {
+            pagina = busquedaMovimientosService.buscar(filtro, cursor, 3);
+            leidos.addAll(contenido(pagina));
+            cursor = (String) pagina.get("siguiente");
+        } while (Boolean.TRUE.equals(pagina.get("hayMas")));
+
+        // Assert
+        assertEquals("idx_movimiento_cuenta_fecha", pagina.get("indice"));
+        assertEquals(2 * MOVIMIENTOS_POR_CUENTA, leidos.size());
+        assertEquals(leidos.size(), leidos.stream().map(Movimiento::getId).distinct().count());
+        List<Movimiento> ordenados = new ArrayList<>(leidos);
+        ordenados.sort(Comparator.comparing(Movimiento::getFecha).thenComparing(Movimiento::getId).reversed());
+        assertEquals(ordenados, leidos);
+    }
+
+    @Test
+    public void testTipoYVentanaUsanIndiceCompuestoConDescripcionResidual() {
+        // Arrange
+        FiltroMovimientos filtro = new FiltroMovimientos();
+        filtro.setTipoMovimiento("Deposito");
+        filtro.setFechaDesde(inicio);
+        filtro.setFechaHasta(inicio.plusDays(1));
+        filtro.setDescripcion("proveedor");
+        filtro.setValorMinimo(new BigDecimal("12"));
+        filtro.setValorMaximo(new BigDecimal("100"));
+
+        // Act
+        Map<String, Object> pagina = busquedaMovimientosService.buscar(filtro, null, 50);
+
+        // Assert: depósitos de valor 12, 14, 16 y 18 en ambas cuentas
+        assertEquals("idx_movimiento_tipo_fecha", pagina.get("indice"));
+        List<Movimiento> movimientos = contenido(pagina);
+        assertEquals(8, movimientos.size());
+        assertTrue(movimientos.stream().allMatch(m -> "Deposito".equals(m.getTipoMovimiento())
+                && m.getValor().compareTo(new BigDecimal("12")) >= 0));
+        assertFalse((Boolean) pagina.get("hayMas"));
+    }
+
+    @Test
+    public void testCombinacionSinIndiceSeRechazaEnLinea() {
+        // Arrange: sólo tipo y una ventana mayor a la máxima
+        FiltroMovimientos filtro = new FiltroMovimientos();
+        filtro.setTipoMovimiento("Retiro");
+        filtro.setFechaDesde(inicio);
+        filtro.setFechaHasta(inicio.plusYears(1));
+
+        // Act & Assert
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> busquedaMovimientosService.buscar(filtro, null, 50));
+        assertTrue(error.getMessage().contains("/api/movimientos/busqueda/trabajos"));
+    }
+
+    @Test
+    public void testCriteriosSinVentanaAcotadaSeRechazanEnLinea() {
+        // Arrange: varias cuentas, descripción o valor sin ventana de fechas
+        FiltroMovimientos variasCuentas = new FiltroMovimientos();
+        variasCuentas.setCuentaIds(cuentaIds);
+        FiltroMovimientos descripcion = new FiltroMovimientos();
+        descripcion.setDescripcion("proveedor");
+        FiltroMovimientos valor = new FiltroMovimientos();
+        valor.setValorMinimo(new BigDecimal("12"));
+        valor.setValorMaximo(new BigDecimal("14"));
+        FiltroMovimientos unaCuenta = new FiltroMovimientos();
+        unaCuenta.setCuentaIds(List.of(cuentaIds.get(0)));
+        unaCuenta.setDescripcion("proveedor");
+
+        // Act & Assert
+        for (FiltroMovimientos filtro : List.of(variasCuentas, descripcion, valor)) {
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                    () -> busquedaMovimientosService.buscar(filtro, null, 50));
+            assertTrue(error.getMessage().contains("/api/movimientos/busqueda/trabajos"));
+        }
+        Map<String, Object> pagina = busquedaMovimientosService.buscar(unaCuenta, null, 50);
+        assertEquals("idx_movimiento_cuenta_fecha", pagina.get("indice"));
+        assertEquals(MOVIMIENTOS_POR_CUENTA / 2, contenido(pagina).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Movimiento> contenido(Map<String, Object> pagina) {
+        return (List<Movimiento>) pagina.get("contenido");
+    }
+}
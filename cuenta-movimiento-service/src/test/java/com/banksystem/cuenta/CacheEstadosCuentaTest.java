@@ -0,0 +1,107 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.cache.CacheEstadosCuenta;
+import com.banksystem.cuenta.cache.CacheEstadosCuenta.Clave;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheEstadosCuentaTest {
+
+    // Bytes aleatorios: gzip apenas los reduce, así cada estado ocupa ~1 KB en ambos niveles
+    private static final int TAMANO = 1_000;
+
+    @TempDir
+    private Path directorio;
+
+    @Test
+    public void testDesalojaPorUsoEnCadaNivelYElDiscoSobreviveAlReinicio() throws Exception {
+        // Arrange: memoria para 2 estados, disco para 3
+        CacheEstadosCuenta cache = new CacheEstadosCuenta("estado-cuenta", directorio, 2_200, 3_300);
+        cache.cargarDisco();
+        Clave enero = clave(1L, 1);
+        Clave febrero = clave(1L, 2);
+        Clave marzo = clave(1L, 3);
+        Clave abril = clave(1L, 4);
+        byte[] datosEnero = datos(1);
+
+        // Act
+        byte[] comprimido = cache.obtener(enero, () -> datosEnero);
+        cache.obtener(febrero, () -> datos(2));
+        cache.obtener(enero, this::noGenerar);
+        cache.obtener(marzo, () -> datos(3));
+        cache.obtener(abril, () -> datos(4));
+
+        // Assert: memoria conserva los dos últimos usados, disco los tres últimos escritos
+        assertArrayEquals(datosEnero, descomprimir(comprimido));
+        assertFalse(cache.enMemoria(enero));
+        assertTrue(cache.enMemoria(marzo) && cache.enMemoria(abril));
+        assertFalse(cache.enDisco(enero));
+        assertTrue(cache.enDisco(febrero) && cache.enDisco(marzo) && cache.enDisco(abril));
+        assertTrue(cache.getBytesMemoria() <= 2_200 && cache.getBytesDisco() <= 3_300);
+        assertEquals(1, cache.getAciertosMemoria());
+
+        // Act: otra instancia sobre el mismo directorio lee febrero del disco
+        CacheEstadosCuenta reiniciada = new CacheEstadosCuenta("estado-cuenta", directorio, 2_200, 3_300);
+        reiniciada.cargarDisco();
+        byte[] leido = reiniciada.obtener(febrero, this::noGenerar);
+
+        // Assert
+        assertArrayEquals(datos(2), descomprimir(leido));
+        assertEquals(1, reiniciada.getAciertosDisco());
+        assertTrue(reiniciada.enMemoria(febrero));
+    }
+
+    @Test
+    public void testInvalidarBorraLosEstadosDelClienteYDescartaGeneracionesEnCurso() throws Exception {
+        // Arrange
+        CacheEstadosCuenta cache = new CacheEstadosCuenta("estado-cuenta", directorio, 100_000, 100_000);
+        cache.cargarDisco();
+        Clave delCliente = clave(1L, 1);
+        Clave deOtro = clave(2L, 1);
+        cache.obtener(delCliente, () -> datos(1));
+        cache.obtener(deOtro, () -> datos(2));
+
+        // Act: una generación que empezó antes de la invalidación
+        Clave enCurso = clave(1L, 2);
+        cache.obtener(enCurso, () -> {
+            cache.invalidar(List.of(1L));
+            return datos(3);
+        });
+
+        // Assert
+        assertFalse(cache.enMemoria(delCliente) || cache.enDisco(delCliente));
+        assertFalse(cache.enMemoria(enCurso) || cache.enDisco(enCurso));
+        assertTrue(cache.enMemoria(deOtro) && cache.enDisco(deOtro));
+        assertEquals(1, directorio.toFile().list().length);
+    }
+
+    private byte[] noGenerar() {
+        return fail("Debía servirse de la cache");
+    }
+
+    private static Clave clave(Long clienteId, int mes) {
+        LocalDate inicio = LocalDate.of(2024, mes, 1);
+        return new Clave(clienteId, inicio, inicio.plusMonths(1).minusDays(1), "json");
+    }
+
+    private static byte[] datos(int semilla) {
+        byte[] datos = new byte[TAMANO];
+        new Random(semilla).nextBytes(datos);
+        return datos;
+    }
+
+    private static byte[] descomprimir(byte[] comprimido) throws Exception {
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(comprimido))) {
+            return entrada.readAllBytes();
+        }
+    }
+}
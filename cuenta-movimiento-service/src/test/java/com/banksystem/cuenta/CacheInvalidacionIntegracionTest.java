@@ -0,0 +1,185 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.comun.cache.BusInvalidacion;
+import com.banksystem.comun.cache.CacheCercana;
+import com.banksystem.comun.cache.TransporteInvalidacion;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.service.CuentaService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.ResolvableType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos instancias del servicio sobre la misma base, unidas por un broker en memoria
+ */
+public class CacheInvalidacionIntegracionTest {
+
+    private static final String BASE = "jdbc:h2:mem:cache-bus;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+
+    /**
+     * Broker en memoria: entrega cada mensaje a todas las instancias conectadas
+     */
+    static class TransporteMemoria implements TransporteInvalidacion {
+
+        static final List<TransporteMemoria> CONECTADOS = new CopyOnWriteArrayList<>();
+
+        private Oyente oyente;
+
+        @Override
+        public void iniciar(Oyente oyente) {
+            this.oyente = oyente;
+            reconectar();
+        }
+
+        @Override
+        public void publicar(String mensaje) {
+            CONECTADOS.forEach(transporte -> transporte.oyente.alRecibir(mensaje));
+        }
+
+        void desconectar() {
+            CONECTADOS.remove(this);
+            oyente.alDesconectar();
+        }
+
+        void reconectar() {
+            CONECTADOS.add(this);
+            oyente.alConectar();
+        }
+    }
+
+    private static ConfigurableApplicationContext instanciaA;
+    private static ConfigurableApplicationContext instanciaB;
+
+    @BeforeAll
+    public static void iniciar() {
+        instanciaA = iniciarInstancia("create-drop");
+        instanciaB = iniciarInstancia("none");
+    }
+
+    @AfterAll
+    public static void detener() {
+        instanciaB.close();
+        instanciaA.close();
+        TransporteMemoria.CONECTADOS.clear();
+    }
+
+    @Test
+    public void testCambioDeEstadoEnUnaInstanciaInvalidaLaCacheDeLaOtra() {
+        // Arrange
+        Long cuentaId = crearCuenta();
+        CuentaService servicioB = instanciaB.getBean(CuentaService.class);
+        assertTrue(servicioB.obtenerPorId(cuentaId).getEstado());
+        assertTrue(cache(instanciaB).contiene(cuentaId));
+
+        // Act
+        instanciaA.getBean(CuentaService.class).cambiarEstado(cuentaId, false);
+
+        // Assert
+        esperar(() -> !cache(instanciaB).contiene(cuentaId));
+        assertFalse(servicioB.obtenerPorId(cuentaId).getEstado());
+    }
+
+    @Test
+    public void testRafagaDeCambiosViajaAgrupada() {
+        // Arrange
+        CuentaService servicioA = instanciaA.getBean(CuentaService.class);
+        CuentaService servicioB = instanciaB.getBean(CuentaService.class);
+        List<Long> cuentaIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Long cuentaId = crearCuenta();
+            servicioB.obtenerPorId(cuentaId);
+            cuentaIds.add(cuentaId);
+        }
+        esperar(() -> cuentaIds.stream().allMatch(cache(instanciaB)::contiene));
+        long enviadosAntes = instanciaA.getBean(BusInvalidacion.class).getEnviados();
+
+        // Act: veinte transacciones seguidas
+        for (Long cuentaId : cuentaIds) {
+            servicioA.cambiarEstado(cuentaId, false);
+        }
+
+        // Assert: todas invalidadas con menos mensajes que transacciones
+        esperar(() -> cuentaIds.stream().noneMatch(cache(instanciaB)::contiene));
+        long enviados = instanciaA.getBean(BusInvalidacion.class).getEnviados() - enviadosAntes;
+        assertTrue(enviados >= 1 && enviados < cuentaIds.size(), "mensajes: " + enviados);
+    }
+
+    @Test
+    public void testSinConexionLeeDeLaBaseYAlReconectarResincroniza() {
+        // Arrange
+        Long cuentaId = crearCuenta();
+        CuentaService servicioB = instanciaB.getBean(CuentaService.class);
+        CacheCercana<Cuenta> cacheB = cache(instanciaB);
+        TransporteMemoria transporteB = instanciaB.getBean(TransporteMemoria.class);
+        servicioB.obtenerPorId(cuentaId);
+        long resincronizacionesAntes = instanciaB.getBean(BusInvalidacion.class).getResincronizaciones();
+
+        // Act: el aviso del cambio se pierde mientras B está desconectada
+        transporteB.desconectar();
+        try {
+            instanciaA.getBean(CuentaService.class).cambiarEstado(cuentaId, false);
+
+            // Assert
+            assertFalse(cacheB.isHabilitada());
+            assertFalse(servicioB.obtenerPorId(cuentaId).getEstado());
+            assertEquals(0, cacheB.getTamano());
+        } finally {
+            transporteB.reconectar();
+        }
+        assertTrue(cacheB.isHabilitada());
+        assertEquals(resincronizacionesAntes + 1,
+                instanciaB.getBean(BusInvalidacion.class).getResincronizaciones());
+        assertFalse(servicioB.obtenerPorId(cuentaId).getEstado());
+    }
+
+    private static ConfigurableApplicationContext iniciarInstancia(String ddl) {
+        return new SpringApplicationBuilder(CuentaMovimientoServiceApplication.class)
+                .profiles("test")
+                .properties("spring.main.web-application-type=none",
+                        "spring.datasource.url=" + BASE,
+                        "spring.jpa.hibernate.ddl-auto=" + ddl,
+                        "banco.cache.transporte=memoria",
+                        "banco.cache.ventana-ms=200")
+                .initializers(contexto -> ((GenericApplicationContext) contexto)
+                        .registerBean(TransporteMemoria.class, TransporteMemoria::new))
+                .run();
+    }
+
+    private static Long crearCuenta() {
+        return instanciaA.getBean(CuentaRepository.class).save(new Cuenta("C" + System.nanoTime(),
+                "Ahorros", new BigDecimal("100.00"), true, 1L)).getId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CacheCercana<Cuenta> cache(ConfigurableApplicationContext contexto) {
+        return (CacheCercana<Cuenta>) contexto.getBeanProvider(
+                ResolvableType.forClassWithGenerics(CacheCercana.class, Cuenta.class)).getObject();
+    }
+
+    private static void esperar(BooleanSupplier condicion) {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (!condicion.getAsBoolean() && System.currentTimeMillis() < limite) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        assertTrue(condicion.getAsBoolean());
+    }
+}
@@ -0,0 +1,93 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.cambio.TasasCambio;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.TasaCambioNoDisponibleException;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.MovimientoService;
+import com.banksystem.cuenta.service.TransferenciaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class CambioMonedaIntegracionTest {
+
+    @Autowired
+    private TasasCambio tasasCambio;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private TransferenciaService transferenciaService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Test
+    public void testTransferenciaEntreMonedasAcreditaElImporteConvertidoYAnotaLaTasa() {
+        // Arrange
+        tasasCambio.actualizar(Map.of("EUR", new BigDecimal("0.80")));
+        Long dolaresId = crearCuenta(null, "1000.00");
+        Long eurosId = crearCuenta("eur", "0.00");
+
+        // Act
+        Map<String, Object> transferencia = transferenciaService.transferir(dolaresId, eurosId, new BigDecimal("250.00"));
+
+        // Assert
+        assertEquals("USD", cuentaRepository.findById(dolaresId).orElseThrow().getMoneda());
+        assertEquals(new BigDecimal("750.00"), cuentaRepository.findById(dolaresId).orElseThrow().getSaldoDisponible());
+        assertEquals(new BigDecimal("200.00"), cuentaRepository.findById(eurosId).orElseThrow().getSaldoDisponible());
+        assertEquals(new BigDecimal("200.00"), transferencia.get("valorDestino"));
+        Movimiento deposito = (Movimiento) transferencia.get("movimientoDestino");
+        Movimiento guardado = movimientoRepository.findById(deposito.getId()).orElseThrow();
+        assertEquals("USD", guardado.getMonedaOrigen());
+        assertEquals(new BigDecimal("250.00"), guardado.getValorOrigen());
+        assertEquals(0, new BigDecimal("0.80").compareTo(guardado.getTasaCambio()));
+        Movimiento retiro = (Movimiento) transferencia.get("movimientoOrigen");
+        assertNull(movimientoRepository.findById(retiro.getId()).orElseThrow().getTasaCambio());
+    }
+
+    @Test
+    public void testMovimientoEnOtraMonedaSeConvierteYSinTasaNoSeRegistra() {
+        // Arrange
+        tasasCambio.actualizar(Map.of("EUR", new BigDecimal("0.80")));
+        Long dolaresId = crearCuenta("USD", "100.00");
+        long movimientos = movimientoRepository.findByCuentaId(dolaresId).size();
+
+        // Act
+        Movimiento deposito = movimientoService.registrarMovimiento(dolaresId, "Deposito", new BigDecimal("40.00"), "EUR");
+
+        // Assert
+        assertEquals(new BigDecimal("50.00"), deposito.getValor());
+        assertEquals(new BigDecimal("150.00"), cuentaRepository.findById(dolaresId).orElseThrow().getSaldoDisponible());
+        assertEquals("EUR", deposito.getMonedaOrigen());
+        assertEquals(new BigDecimal("40.00"), deposito.getValorOrigen());
+        assertThrows(TasaCambioNoDisponibleException.class,
+                () -> movimientoService.registrarMovimiento(dolaresId, "Retiro", BigDecimal.TEN, "CHF"));
+        assertEquals(movimientos + 1, movimientoRepository.findByCuentaId(dolaresId).size());
+    }
+
+    private Long crearCuenta(String moneda, String saldo) {
+        Cuenta cuenta = new Cuenta("M" + System.nanoTime(), "Ahorros", new BigDecimal(saldo), true, 1L);
+        cuenta.setMoneda(moneda);
+        return cuentaService.crearCuenta(cuenta).getId();
+    }
+}
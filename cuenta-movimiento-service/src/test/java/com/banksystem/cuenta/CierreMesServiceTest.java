@@ -0,0 +1,119 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.repository.RangoClientes;
+import com.banksystem.cuenta.service.ArchivoMovimientosService;
+import com.banksystem.cuenta.service.CierreMesService;
+import com.banksystem.cuenta.service.ReporteService;
+import com.banksystem.cuenta.trabajo.EjecutorTrabajos;
+import com.banksystem.cuenta.trabajo.EstadoTrabajo;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CierreMesServiceTest {
+
+    @Mock
+    private CuentaRepository cuentaRepository;
+
+    @Mock
+    private MovimientoRepository movimientoRepository;
+
+    @Mock
+    private ArchivoMovimientosService archivoMovimientosService;
+
+    @TempDir
+    Path directorio;
+
+    private EjecutorTrabajos ejecutorTrabajos;
+    private CierreMesService cierreMesService;
+    private final YearMonth periodo = YearMonth.of(2024, 1);
+
+    @BeforeEach
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ReporteService reporteService = new ReporteService(null, null, cuentaRepository,
+                movimientoRepository, archivoMovimientosService, objectMapper);
+        ejecutorTrabajos = new EjecutorTrabajos(1, 1, 10, 5);
+        ejecutorTrabajos.iniciar();
+        cierreMesService = new CierreMesService(cuentaRepository, movimientoRepository, archivoMovimientosService,
+                reporteService, ejecutorTrabajos, directorio.toString(), 1, 2, 200, false);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ejecutorTrabajos.detener();
+    }
+
+    @Test
+    public void testCierreEscribeUnArchivoPorClienteYRetomaDesdePuntoDeControl() throws Exception {
+        // Arrange
+        Cuenta ahorros = new Cuenta("478758", "Ahorros", new BigDecimal("2000.00"), true, 1L);
+        ahorros.setId(10L);
+        Cuenta corriente = new Cuenta("225487", "Corriente", new BigDecimal("100.00"), true, 2L);
+        corriente.setId(20L);
+        Movimiento retiro = new Movimiento(LocalDateTime.of(2024, 1, 15, 10, 0),
+                "Retiro", new BigDecimal("575.00"), new BigDecimal("1425.00"), 10L);
+        retiro.setId(1L);
+
+        RangoClientes rango = mock(RangoClientes.class);
+        when(rango.getMinimo()).thenReturn(1L);
+        when(rango.getMaximo()).thenReturn(2L);
+        when(rango.getCantidad()).thenReturn(2L);
+        when(cuentaRepository.obtenerRangoClientes()).thenReturn(rango);
+        when(cuentaRepository.findClientesEnRango(eq(0L), eq(2L), any())).thenReturn(List.of(1L, 2L));
+        when(cuentaRepository.findByClienteIdIn(List.of(1L, 2L))).thenReturn(List.of(ahorros, corriente));
+        when(movimientoRepository.findPorCuentasYFechasDesde(anyCollection(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(retiro));
+
+        // Act
+        esperarFin(cierreMesService.iniciar(periodo));
+        esperarFin(cierreMesService.iniciar(periodo));
+
+        // Assert
+        Path carpeta = directorio.resolve("2024-01").resolve("0");
+        assertTrue(Files.exists(carpeta.resolve("2.json.gz")));
+        JsonNode reporte;
+        try (InputStream entrada = new GZIPInputStream(Files.newInputStream(carpeta.resolve("1.json.gz")))) {
+            reporte = new ObjectMapper().readTree(entrada);
+        }
+        assertEquals(1, reporte.get("clienteId").asLong());
+        assertEquals(1425.00, reporte.get("cuentas").get(0).get("movimientos").get(0).get("saldo").asDouble());
+        // La segunda ejecución encuentra la partición completa y no vuelve a leer clientes
+        verify(cuentaRepository, times(1)).findClientesEnRango(any(), any(), any());
+        verify(cuentaRepository, times(1)).obtenerRangoClientes();
+    }
+
+    private void esperarFin(Trabajo trabajo) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!trabajo.getEstado().esFinal() && System.nanoTime() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(EstadoTrabajo.COMPLETADO, trabajo.getEstado(), trabajo.getMensajeError());
+    }
+}
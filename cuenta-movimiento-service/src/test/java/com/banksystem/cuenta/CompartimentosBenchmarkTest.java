@@ -0,0 +1,175 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.config.DataSourcePorClase;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.limite.ClaseTrafico;
+import com.banksystem.cuenta.limite.Compartimentos;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.service.ReporteService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Reportes lentos que saturan su compartimento (hilos y conexiones) mientras se registran
+ * movimientos: las escrituras no esperan detrás de los reportes.
+ * Ejecutar con: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:compartimentos;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "banco.compartimentos.reporte.hilos=2",
+        "banco.compartimentos.reporte.cola=2",
+        "banco.compartimentos.reporte.espera-ms=50",
+        "banco.compartimentos.reporte.conexiones=2",
+        "banco.tasa.reglas=",
+        "banco.limite.habilitado=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CompartimentosBenchmarkTest {
+
+    private static final long DURACION_REPORTE_MS = 300;
+    private static final int CLIENTES_REPORTE = 12;
+    private static final int ESCRITURAS = 40;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private DataSourcePorClase dataSource;
+
+    @Autowired
+    private Compartimentos compartimentos;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private ReporteService reporteService;
+
+    @Test
+    public void testReportesSaturadosNoFrenanLasEscrituras() throws Exception {
+        // Arrange: cada reporte retiene una conexión durante 300 ms
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        when(reporteService.generarEstadoCuentaCerrado(anyLong(), any(), any())).thenAnswer(invocacion ->
+                transaccion.execute(estado -> {
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cuenta", Long.class);
+                    dormir(DURACION_REPORTE_MS);
+                    return Map.<String, Object>of("clienteId", 1L);
+                }));
+        Long cuentaId = cuentaRepository.save(new Cuenta("K" + System.nanoTime(), "Corriente",
+                new BigDecimal("1000.00"), true, 1L)).getId();
+        // Calentamiento: las primeras escrituras sin carga no se miden
+        medirEscrituras(cuentaId);
+
+        AtomicBoolean activo = new AtomicBoolean(true);
+        AtomicInteger reportesAtendidos = new AtomicInteger();
+        AtomicInteger reportesRechazados = new AtomicInteger();
+        AtomicInteger maximoConexionesReporte = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        ExecutorService clientes = Executors.newFixedThreadPool(CLIENTES_REPORTE + 1);
+        for (int i = 0; i < CLIENTES_REPORTE; i++) {
+            clientes.submit(() -> {
+                while (activo.get()) {
+                    try {
+                        int estado = mockMvc.perform(get("/api/reportes/estado-cuenta").param("clienteId", "1")
+                                        .param("fechaInicio", "2024-01-01").param("fechaFin", "2024-12-31"))
+                                .andReturn().getResponse().getStatus();
+                        if (estado == 503) {
+                            // Un cliente real espera el Retry-After; aquí basta con no girar en vacío
+                            reportesRechazados.incrementAndGet();
+                            dormir(20);
+                        } else {
+                            reportesAtendidos.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        errores.add(e);
+                    }
+                }
+            });
+        }
+        clientes.submit(() -> {
+            while (activo.get()) {
+                maximoConexionesReporte.accumulateAndGet(
+                        dataSource.getPool(ClaseTrafico.REPORTE).getHikariPoolMXBean().getActiveConnections(), Math::max);
+                dormir(5);
+            }
+        });
+        dormir(DURACION_REPORTE_MS);
+
+        // Act
+        long[] conCarga;
+        try {
+            conCarga = medirEscrituras(cuentaId);
+        } finally {
+            activo.set(false);
+            clientes.shutdown();
+        }
+        assertTrue(clientes.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        assertTrue(reportesAtendidos.get() > 0);
+        assertTrue(reportesRechazados.get() > 0);
+        assertTrue(maximoConexionesReporte.get() <= 2, "conexiones de reporte: " + maximoConexionesReporte);
+        assertTrue(compartimentos.obtener(ClaseTrafico.REPORTE).getRechazadas() > 0);
+        assertEquals(0, compartimentos.obtener(ClaseTrafico.ESCRITURA).getRechazadas());
+        // Ninguna escritura esperó a que terminara un reporte
+        long maximo = conCarga[conCarga.length - 1];
+        assertTrue(maximo < TimeUnit.MILLISECONDS.toNanos(DURACION_REPORTE_MS), "máx " + maximo / 1e6 + " ms");
+    }
+
+    private long[] medirEscrituras(Long cuentaId) throws Exception {
+        long[] latencias = new long[ESCRITURAS];
+        for (int i = 0; i < ESCRITURAS; i++) {
+            long inicio = System.nanoTime();
+            int estado = mockMvc.perform(post("/api/movimientos/registrar").param("cuentaId", cuentaId.toString())
+                            .param("tipoMovimiento", "Deposito").param("valor", "1.00"))
+                    .andReturn().getResponse().getStatus();
+            latencias[i] = System.nanoTime() - inicio;
+            assertEquals(201, estado);
+        }
+        Arrays.sort(latencias);
+        return latencias;
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
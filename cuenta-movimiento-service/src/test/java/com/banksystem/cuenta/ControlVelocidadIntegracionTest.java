@@ -0,0 +1,103 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.VelocidadExcedidaException;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.ControlVelocidadService;
+import com.banksystem.cuenta.service.CuentaCalienteService;
+import com.banksystem.cuenta.service.LibroMayorService;
+import com.banksystem.cuenta.service.MovimientoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "banco.velocidad.reglas=*@1=30:0")
+@ActiveProfiles("test")
+public class ControlVelocidadIntegracionTest {
+
+    private static final BigDecimal VALOR = new BigDecimal("50.00");
+    private static final int DEPOSITOS = 40;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private CuentaCalienteService cuentaCalienteService;
+
+    @Autowired
+    private LibroMayorService libroMayorService;
+
+    @Test
+    public void testReconstruyeAlArrancarYRevierteConLaTransaccion() {
+        // Arrange: dos retiros recientes y uno viejo, anteriores al "arranque"
+        Long cuentaId = cuentaRepository.save(
+                new Cuenta("V" + System.nanoTime(), "Ahorros", new BigDecimal("1000.00"), true, 1L)).getId();
+        LocalDateTime ahora = LocalDateTime.now();
+        movimientoRepository.save(new Movimiento(ahora.minusHours(2), "Retiro", VALOR, new BigDecimal("950.00"), cuentaId));
+        movimientoRepository.save(new Movimiento(ahora.minusMinutes(3), "Retiro", VALOR, new BigDecimal("900.00"), cuentaId));
+        movimientoRepository.save(new Movimiento(ahora.minusMinutes(1), "Retiro", VALOR, new BigDecimal("850.00"), cuentaId));
+        ControlVelocidadService control = new ControlVelocidadService(movimientoRepository, "Retiro@10=3:0", 20, 1_000);
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+        // Act
+        control.reconstruir();
+        transaccion.executeWithoutResult(estado -> {
+            control.registrar(cuentaId, "Retiro", VALOR);
+            estado.setRollbackOnly();
+        });
+        control.registrar(cuentaId, "Retiro", VALOR);
+
+        // Assert: el retiro revertido liberó su lugar; el cuarto de la ventana se rechaza
+        assertThrows(VelocidadExcedidaException.class, () -> control.registrar(cuentaId, "Retiro", VALOR));
+        control.registrar(cuentaId, "Deposito", VALOR);
+    }
+
+    @Test
+    public void testCuentasCalientesYDeLibroNoQuedanLimitadasPorLaReglaDeCualquierTipo() {
+        // Arrange
+        Long calienteId = crearCuenta();
+        cuentaCalienteService.configurar(calienteId, 4);
+        Long libroId = crearCuenta();
+        libroMayorService.activar(libroId);
+        Long comunId = crearCuenta();
+
+        // Act: más depósitos en el minuto de los que admite *@1=30:0
+        for (int i = 0; i < DEPOSITOS; i++) {
+            movimientoService.registrarMovimiento(calienteId, "Deposito", VALOR);
+            movimientoService.registrarMovimiento(libroId, "Deposito", VALOR);
+        }
+        for (int i = 0; i < 30; i++) {
+            movimientoService.registrarMovimiento(comunId, "Deposito", VALOR);
+        }
+
+        // Assert
+        assertEquals(DEPOSITOS, movimientoRepository.findByCuentaId(calienteId).size());
+        assertEquals(DEPOSITOS, movimientoRepository.findByCuentaId(libroId).size());
+        assertThrows(VelocidadExcedidaException.class,
+                () -> movimientoService.registrarMovimiento(comunId, "Deposito", VALOR));
+    }
+
+    private Long crearCuenta() {
+        return cuentaRepository.save(
+                new Cuenta("V" + System.nanoTime(), "Ahorros", new BigDecimal("1000.00"), true, 1L)).getId();
+    }
+}
@@ -0,0 +1,54 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.limite.CubosTokens;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CubosTokensTest {
+
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    @Test
+    public void testRafagaYRecarga() {
+        // Arrange: 10 por segundo, ráfaga de 3
+        CubosTokens cubos = new CubosTokens(10, 3, 100);
+        long ahora = 5 * SEGUNDO;
+
+        // Act
+        long primera = cubos.consumir("c:1", ahora);
+        long segunda = cubos.consumir("c:1", ahora);
+        long tercera = cubos.consumir("c:1", ahora);
+        long cuarta = cubos.consumir("c:1", ahora);
+        long otraClave = cubos.consumir("c:2", ahora);
+        long trasRecarga = cubos.consumir("c:1", ahora + SEGUNDO / 10);
+
+        // Assert
+        assertEquals(0, primera);
+        assertEquals(0, segunda);
+        assertEquals(0, tercera);
+        assertEquals(SEGUNDO / 10, cuarta);
+        assertEquals(0, otraClave);
+        assertEquals(0, trasRecarga);
+    }
+
+    @Test
+    public void testPurgaCubosLlenosYDesborde() {
+        // Arrange
+        CubosTokens cubos = new CubosTokens(1, 1, 2);
+        long ahora = SEGUNDO;
+        cubos.consumir("a", ahora);
+        cubos.consumir("b", ahora);
+
+        // Act: sin espacio y sin cubos llenos, las claves nuevas comparten el desborde
+        long primeraDesborde = cubos.consumir("c", ahora);
+        long segundaDesborde = cubos.consumir("d", ahora);
+        int descartados = cubos.purgar(ahora + 2 * SEGUNDO);
+
+        // Assert
+        assertEquals(0, primeraDesborde);
+        assertTrue(segundaDesborde > 0);
+        assertEquals(2, descartados);
+        assertEquals(0, cubos.getClaves());
+    }
+}
@@ -0,0 +1,111 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.SaldoNoDisponibleException;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.repository.SubSaldoRepository;
+import com.banksystem.cuenta.service.CuentaCalienteService;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.MovimientoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class CuentaCalienteIntegracionTest {
+
+    private static final int HILOS = 8;
+    private static final int DEPOSITOS_POR_HILO = 50;
+    private static final BigDecimal DEPOSITO = new BigDecimal("10.00");
+    private static final BigDecimal RETIRO = new BigDecimal("35.00");
+
+    @Autowired
+    private CuentaCalienteService cuentaCalienteService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private SubSaldoRepository subSaldoRepository;
+
+    @Test
+    public void testDepositosRepartidosConservanSaldoYCadenaDeMovimientos() throws Exception {
+        // Arrange
+        Long cuentaId = cuentaRepository.save(
+                new Cuenta("H" + System.nanoTime(), "Corriente", new BigDecimal("100.00"), true, 1L)).getId();
+        cuentaCalienteService.configurar(cuentaId, 4);
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+
+        // Act: depósitos concurrentes con retiros intercalados que consolidan
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            hilos.submit(() -> {
+                try {
+                    salida.await();
+                    for (int i = 0; i < DEPOSITOS_POR_HILO; i++) {
+                        movimientoService.registrarMovimiento(cuentaId, "Deposito", DEPOSITO);
+                        if (hilo == 0 && i % 10 == 9) {
+                            try {
+                                movimientoService.registrarMovimiento(cuentaId, "Retiro", RETIRO);
+                            } catch (SaldoNoDisponibleException e) {
+                                // válido: F3 sobre el saldo exacto
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            });
+        }
+        salida.countDown();
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(2, TimeUnit.MINUTES));
+        BigDecimal saldoAntesDeConsolidar = cuentaService.obtenerPorId(cuentaId).getSaldoDisponible();
+        cuentaCalienteService.consolidarPendientes();
+
+        // Assert
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        Cuenta cuenta = cuentaService.obtenerPorId(cuentaId);
+        List<Movimiento> movimientos = new ArrayList<>(movimientoRepository.findByCuentaId(cuentaId));
+        movimientos.sort(Comparator.comparing(Movimiento::getId));
+
+        BigDecimal esperado = cuenta.getSaldoInicial();
+        for (Movimiento movimiento : movimientos) {
+            esperado = "Deposito".equals(movimiento.getTipoMovimiento())
+                    ? esperado.add(movimiento.getValor())
+                    : esperado.subtract(movimiento.getValor());
+            assertEquals(0, esperado.compareTo(movimiento.getSaldo()), "Saldo encadenado en " + movimiento.getId());
+        }
+        assertEquals(0, esperado.compareTo(cuenta.getSaldoDisponible()));
+        assertEquals(0, saldoAntesDeConsolidar.compareTo(cuenta.getSaldoDisponible()));
+        assertEquals(0, cuenta.getSaldoRanuras().signum());
+        assertTrue(subSaldoRepository.findCuentasPendientes().isEmpty());
+    }
+}
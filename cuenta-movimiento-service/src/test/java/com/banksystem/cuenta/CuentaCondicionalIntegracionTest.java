@@ -0,0 +1,177 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.LibroMayorService;
+import com.banksystem.cuenta.service.MovimientoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+@SpringBootTest(properties = "banco.tasa.reglas=")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CuentaCondicionalIntegracionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private LibroMayorService libroMayorService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testMovimientoDelLibroCambiaElETagDeLosListados() throws Exception {
+        // Arrange
+        Long clienteId = System.nanoTime();
+        Long cuentaId = crearCuenta(clienteId);
+        libroMayorService.activar(cuentaId);
+        List<String> urls = List.of("/api/cuentas", "/api/cuentas/activas", "/api/cuentas/cliente/" + clienteId);
+        String[] etags = new String[urls.size()];
+        for (int i = 0; i < urls.size(); i++) {
+            etags[i] = mockMvc.perform(get(urls.get(i))).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        }
+
+        // Act: el depósito del libro no toca la fila de la cuenta
+        movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("25.00"));
+
+        // Assert
+        for (int i = 0; i < urls.size(); i++) {
+            var respuesta = mockMvc.perform(get(urls.get(i)).header(HttpHeaders.IF_NONE_MATCH, etags[i]))
+                    .andReturn().getResponse();
+            assertEquals(200, respuesta.getStatus(), urls.get(i));
+            assertNotEquals(etags[i], respuesta.getHeader(HttpHeaders.ETAG), urls.get(i));
+        }
+    }
+
+    @Test
+    public void testCacheSirveLaCuentaDelLibroHastaQueCambiaSuVersion() throws Exception {
+        // Arrange
+        Long cuentaId = crearCuenta(System.nanoTime());
+        libroMayorService.activar(cuentaId);
+        movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("25.00"));
+        String url = "/api/cuentas/" + cuentaId;
+        mockMvc.perform(get(url));
+        double aciertosAntes = aciertosCacheCuentas();
+
+        // Act: la segunda lectura con la misma versión sale de la cache; el depósito en el
+        // libro no toca la fila ni invalida, pero cambia la versión y obliga a releer
+        String repetida = mockMvc.perform(get(url)).andReturn().getResponse().getContentAsString();
+        double aciertosRepetida = aciertosCacheCuentas();
+        movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("10.00"));
+        String posterior = mockMvc.perform(get(url)).andReturn().getResponse().getContentAsString();
+
+        // Assert
+        assertEquals(aciertosAntes + 1, aciertosRepetida);
+        assertEquals(aciertosRepetida, aciertosCacheCuentas());
+        assertEquals(0, new BigDecimal("125.00").compareTo(
+                objectMapper.readValue(repetida, Cuenta.class).getSaldoDisponible()));
+        assertEquals(0, new BigDecimal("135.00").compareTo(
+                objectMapper.readValue(posterior, Cuenta.class).getSaldoDisponible()));
+    }
+
+    @Test
+    public void testIfNoneMatchDevuelve304HastaQueUnaEscrituraCambiaLaVersion() throws Exception {
+        // Arrange
+        Long clienteId = System.nanoTime();
+        Long cuentaId = crearCuenta(clienteId);
+        Cuenta cuenta = cuentaService.obtenerPorId(cuentaId);
+        String url = "/api/cuentas/" + cuentaId;
+        String etag = mockMvc.perform(get(url)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String etagListado = mockMvc.perform(get("/api/cuentas/cliente/" + clienteId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        int antes = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn().getResponse().getStatus();
+        int listadoAntes = mockMvc.perform(get("/api/cuentas/cliente/" + clienteId)
+                .header(HttpHeaders.IF_NONE_MATCH, etagListado)).andReturn().getResponse().getStatus();
+
+        // Act: If-Match con una lista; basta que coincida uno de los ETags
+        var escritura = mockMvc.perform(put(url).header(HttpHeaders.IF_MATCH, "\"cuenta-0-v0\", " + etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuentaJson(cuenta.getNumeroCuenta(), "Corriente", clienteId))).andReturn().getResponse();
+        var despues = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse();
+        int listadoDespues = mockMvc.perform(get("/api/cuentas/cliente/" + clienteId)
+                .header(HttpHeaders.IF_NONE_MATCH, etagListado)).andReturn().getResponse().getStatus();
+
+        // Assert
+        assertEquals(304, antes);
+        assertEquals(304, listadoAntes);
+        assertEquals(200, escritura.getStatus());
+        assertNotEquals(etag, escritura.getHeader(HttpHeaders.ETAG));
+        assertEquals(200, despues.getStatus());
+        assertEquals(escritura.getHeader(HttpHeaders.ETAG), despues.getHeader(HttpHeaders.ETAG));
+        assertEquals(200, listadoDespues);
+    }
+
+    @Test
+    public void testIfMatchConVersionVencidaODebilDevuelve412SinModificar() throws Exception {
+        // Arrange: el ETag se leyó antes de otra modificación
+        Long clienteId = System.nanoTime();
+        Long cuentaId = crearCuenta(clienteId);
+        String numeroCuenta = cuentaService.obtenerPorId(cuentaId).getNumeroCuenta();
+        String url = "/api/cuentas/" + cuentaId;
+        String vencido = mockMvc.perform(get(url)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        cuentaService.cambiarEstado(cuentaId, false);
+
+        // Act
+        int actualizacion = mockMvc.perform(put(url).header(HttpHeaders.IF_MATCH, vencido)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuentaJson(numeroCuenta, "Corriente", clienteId))).andReturn().getResponse().getStatus();
+        int estado = mockMvc.perform(patch(url + "/estado").param("estado", "true")
+                .header(HttpHeaders.IF_MATCH, vencido)).andReturn().getResponse().getStatus();
+        int otroRecurso = mockMvc.perform(patch(url + "/estado").param("estado", "true")
+                .header(HttpHeaders.IF_MATCH, "\"cuenta-0-v0\"")).andReturn().getResponse().getStatus();
+        String vigente = mockMvc.perform(get(url)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        int debil = mockMvc.perform(patch(url + "/estado").param("estado", "true")
+                .header(HttpHeaders.IF_MATCH, "W/" + vigente)).andReturn().getResponse().getStatus();
+
+        // Assert
+        assertEquals(412, actualizacion);
+        assertEquals(412, estado);
+        assertEquals(412, otroRecurso);
+        assertEquals(412, debil);
+        Cuenta cuenta = cuentaService.obtenerPorId(cuentaId);
+        assertEquals("Ahorros", cuenta.getTipoCuenta());
+        assertFalse(cuenta.getEstado());
+    }
+
+    private double aciertosCacheCuentas() {
+        return meterRegistry.get("banco.cache.aciertos").tag("cache", "cuenta").functionCounter().count();
+    }
+
+    private String cuentaJson(String numeroCuenta, String tipoCuenta, Long clienteId) throws Exception {
+        return objectMapper.writeValueAsString(
+                new Cuenta(numeroCuenta, tipoCuenta, new BigDecimal("100.00"), true, clienteId));
+    }
+
+    private Long crearCuenta(Long clienteId) {
+        Cuenta cuenta = new Cuenta("E" + System.nanoTime(), "Ahorros", new BigDecimal("100.00"), true, clienteId);
+        return cuentaService.crearCuenta(cuenta).getId();
+    }
+}
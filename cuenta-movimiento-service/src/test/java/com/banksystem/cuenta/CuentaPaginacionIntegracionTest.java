@@ -0,0 +1,120 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.service.CuentaService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = "banco.tasa.reglas=")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CuentaPaginacionIntegracionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testRecorrerPorCursorDevuelveCadaCuentaUnaVezEnOrden() throws Exception {
+        // Arrange: siete cuentas del cliente, varias con la misma fecha de creación
+        long clienteId = System.nanoTime();
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Map<Long, LocalDateTime> fechas = new HashMap<>();
+        for (int i = 0; i < 7; i++) {
+            Long id = cuentaService.crearCuenta(new Cuenta("P" + System.nanoTime(), "Ahorros",
+                    new BigDecimal("10.00"), true, clienteId)).getId();
+            jdbcTemplate.update("UPDATE cuenta SET fecha_creacion = ? WHERE id = ?",
+                    Timestamp.valueOf(base.plusDays(i % 3)), id);
+            fechas.put(id, base.plusDays(i % 3));
+        }
+        // fechaCreacion descendente y, entre iguales, ID descendente
+        List<Long> esperados = new ArrayList<>(fechas.keySet());
+        esperados.sort(Comparator.comparing((Long id) -> fechas.get(id)).thenComparing(Comparator.<Long>naturalOrder()).reversed());
+
+        // Act
+        List<Long> recorridos = new ArrayList<>();
+        List<Integer> tamanos = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder pedido = get("/api/cuentas/pagina")
+                    .param("clienteId", String.valueOf(clienteId))
+                    .param("tamano", "3")
+                    .param("orden", "fechaCreacion")
+                    .param("direccion", "DESC");
+            if (cursor != null) {
+                pedido.param("cursor", cursor);
+            }
+            JsonNode pagina = objectMapper.readTree(mockMvc.perform(pedido).andReturn().getResponse().getContentAsString());
+            pagina.get("contenido").forEach(cuenta -> recorridos.add(cuenta.get("id").asLong()));
+            tamanos.add(pagina.get("numeroElementos").asInt());
+            cursor = pagina.get("hayMas").asBoolean() ? pagina.get("siguiente").asText() : null;
+        } while (cursor != null);
+
+        // Assert
+        assertEquals(esperados, recorridos);
+        assertEquals(List.of(3, 3, 1), tamanos);
+    }
+
+    @Test
+    public void testRechazaCampoDeOrdenTamanoYCursorDeOtroOrden() throws Exception {
+        // Arrange
+        long clienteId = System.nanoTime();
+        for (int i = 0; i < 2; i++) {
+            cuentaService.crearCuenta(new Cuenta("P" + System.nanoTime(), "Ahorros",
+                    new BigDecimal("10.00"), true, clienteId));
+        }
+        JsonNode primera = objectMapper.readTree(mockMvc.perform(get("/api/cuentas/pagina")
+                .param("clienteId", String.valueOf(clienteId)).param("tamano", "1").param("orden", "numeroCuenta"))
+                .andReturn().getResponse().getContentAsString());
+
+        // Act
+        int campo = estado(get("/api/cuentas/pagina").param("orden", "saldoInicial"));
+        int tamanoCero = estado(get("/api/cuentas/pagina").param("tamano", "0"));
+        int tamanoExcedido = estado(get("/api/cuentas/pagina").param("tamano", "201"));
+        int otroOrden = estado(get("/api/cuentas/pagina").param("orden", "fechaCreacion")
+                .param("cursor", primera.get("siguiente").asText()));
+        int cursorInvalido = estado(get("/api/cuentas/pagina").param("cursor", "no-es-un-cursor"));
+        int mismoOrden = estado(get("/api/cuentas/pagina").param("orden", "numeroCuenta")
+                .param("clienteId", String.valueOf(clienteId)).param("cursor", primera.get("siguiente").asText()));
+
+        // Assert
+        assertEquals(400, campo);
+        assertEquals(400, tamanoCero);
+        assertEquals(400, tamanoExcedido);
+        assertEquals(400, otroOrden);
+        assertEquals(400, cursorInvalido);
+        assertEquals(200, mismoOrden);
+    }
+
+    private int estado(MockHttpServletRequestBuilder pedido) throws Exception {
+        return mockMvc.perform(pedido).andReturn().getResponse().getStatus();
+    }
+}
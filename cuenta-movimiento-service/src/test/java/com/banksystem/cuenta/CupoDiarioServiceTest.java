@@ -0,0 +1,137 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.cambio.TasasCambio;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.exception.CupoDiarioExcedidoException;
+import com.banksystem.cuenta.repository.AgregadoDiarioRepository;
+import com.banksystem.cuenta.service.CupoDiarioService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CupoDiarioServiceTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 3, 15);
+
+    @Mock
+    private AgregadoDiarioRepository agregadoDiarioRepository;
+
+    private TasasCambio tasasCambio;
+    private CupoDiarioService cupoDiarioService;
+    private Cuenta cuenta;
+
+    @BeforeEach
+    public void setUp() {
+        tasasCambio = new TasasCambio("USD", "", 0);
+        cupoDiarioService = new CupoDiarioService(agregadoDiarioRepository, tasasCambio,
+                "Ahorros:1000,Ahorros@JPY:150000", 100);
+        cuenta = new Cuenta("478758", "Ahorros", new BigDecimal("5000.00"), true, 1L);
+        cuenta.setId(1L);
+        cuenta.setVersion(1L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testAcumuladoEnMemoriaMientrasLaVersionNoCambie() {
+        // Arrange: 800 retirados hoy según el agregado
+        when(agregadoDiarioRepository.findTotal(1L, HOY, "Retiro")).thenReturn(Optional.of(new BigDecimal("800.00")));
+
+        // Act: un retiro confirmado (la cuenta pasa a la versión 2) y otro que excede
+        confirmar(() -> cupoDiarioService.validarRetiro(cuenta, new BigDecimal("150.00"), HOY));
+        CupoDiarioExcedidoException error = assertThrows(CupoDiarioExcedidoException.class,
+                () -> cupoDiarioService.validarRetiro(cuenta, new BigDecimal("100.00"), HOY));
+        cupoDiarioService.validarRetiro(cuenta, new BigDecimal("50.00"), HOY);
+
+        // Assert: sólo la primera validación leyó el agregado
+        assertEquals("Cupo diario excedido", error.getMessage());
+        verify(agregadoDiarioRepository, times(1)).findTotal(any(), any(), any());
+    }
+
+    @Test
+    public void testOtraVersionUOtroDiaReleenElAgregado() {
+        // Arrange
+        when(agregadoDiarioRepository.findTotal(1L, HOY, "Retiro"))
+                .thenReturn(Optional.of(new BigDecimal("900.00")), Optional.of(new BigDecimal("1000.00")));
+        when(agregadoDiarioRepository.findTotal(1L, HOY.plusDays(1), "Retiro")).thenReturn(Optional.empty());
+        confirmar(() -> cupoDiarioService.validarRetiro(cuenta, new BigDecimal("100.00"), HOY));
+
+        // Act: otra escritura sobre la cuenta cambió su versión; luego cambia el día
+        cuenta.setVersion(cuenta.getVersion() + 1);
+        assertThrows(CupoDiarioExcedidoException.class,
+                () -> cupoDiarioService.validarRetiro(cuenta, new BigDecimal("1.00"), HOY));
+        cupoDiarioService.validarRetiro(cuenta, new BigDecimal("1000.00"), HOY.plusDays(1));
+
+        // Assert
+        verify(agregadoDiarioRepository, times(2)).findTotal(1L, HOY, "Retiro");
+        verify(agregadoDiarioRepository, times(1)).findTotal(1L, HOY.plusDays(1), "Retiro");
+    }
+
+    @Test
+    public void testTipoDeCuentaSinLimiteNoSeControla() {
+        // Arrange
+        Cuenta corriente = new Cuenta("225487", "Corriente", new BigDecimal("100.00"), true, 2L);
+        corriente.setId(2L);
+
+        // Act
+        cupoDiarioService.validarRetiro(corriente, new BigDecimal("100000.00"), HOY);
+
+        // Assert
+        verifyNoInteractions(agregadoDiarioRepository);
+    }
+
+    @Test
+    public void testElLimiteSeExpresaEnLaMonedaDeLaCuenta() {
+        // Arrange: el yen tiene límite propio; el euro usa el de la moneda base convertido
+        tasasCambio.actualizar(Map.of("EUR", new BigDecimal("0.50")));
+        Cuenta enYenes = new Cuenta("JP0001", "Ahorros", new BigDecimal("500000"), true, 3L);
+        enYenes.setId(3L);
+        enYenes.setMoneda("JPY");
+        Cuenta enEuros = new Cuenta("EU0001", "Ahorros", new BigDecimal("5000.00"), true, 4L);
+        enEuros.setId(4L);
+        enEuros.setMoneda("EUR");
+        when(agregadoDiarioRepository.findTotal(any(), eq(HOY), eq("Retiro"))).thenReturn(Optional.empty());
+
+        // Act
+        cupoDiarioService.validarRetiro(enYenes, new BigDecimal("150000"), HOY);
+        cupoDiarioService.validarRetiro(enEuros, new BigDecimal("500.00"), HOY);
+
+        // Assert: 1000 USD son 500 EUR
+        assertThrows(CupoDiarioExcedidoException.class,
+                () -> cupoDiarioService.validarRetiro(enYenes, new BigDecimal("150001"), HOY));
+        assertThrows(CupoDiarioExcedidoException.class,
+                () -> cupoDiarioService.validarRetiro(enEuros, new BigDecimal("500.01"), HOY));
+    }
+
+    /**
+     * Ejecutar dentro de una sincronización de transacción y simular la confirmación,
+     * que incrementa la versión de la cuenta
+     */
+    private void confirmar(Runnable operacion) {
+        TransactionSynchronizationManager.initSynchronization();
+        operacion.run();
+        cuenta.setVersion(cuenta.getVersion() + 1);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
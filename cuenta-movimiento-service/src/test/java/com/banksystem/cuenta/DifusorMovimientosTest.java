@@ -0,0 +1,190 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.controller.SuscripcionController;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.SuscripcionesAgotadasException;
+import com.banksystem.cuenta.notificacion.DifusorMovimientos;
+import com.banksystem.cuenta.notificacion.MovimientoRegistradoEvent;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+public class DifusorMovimientosTest {
+
+    @Mock
+    private CuentaRepository cuentaRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private DifusorMovimientos difusor;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        difusor = new DifusorMovimientos(cuentaRepository, objectMapper, 1, 16, 60_000, 2, 5_000);
+        mockMvc = MockMvcBuilders.standaloneSetup(new SuscripcionController(difusor)).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        difusor.cerrar();
+    }
+
+    @Test
+    public void testDifundeSoloLosMovimientosDeLasCuentasSuscritas() throws Exception {
+        // Arrange
+        when(cuentaRepository.countByIdIn(anyCollection())).thenReturn(2L);
+        MvcResult resultado = mockMvc.perform(get("/api/suscripciones").param("cuentaIds", "1,2")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse respuesta = resultado.getResponse();
+        esperar(respuesta, contenido -> contenido.contains("event:suscrito"));
+
+        // Act
+        difusor.alRegistrarMovimiento(evento(10L, 1L, "Retiro", "150.00", "850.00"));
+        difusor.alRegistrarMovimiento(evento(11L, 3L, "Deposito", "20.00", "20.00"));
+        difusor.alRegistrarMovimiento(evento(12L, 2L, "Deposito", "75.50", "575.50"));
+
+        // Assert: en orden y sin la cuenta 3
+        String contenido = esperar(respuesta, texto -> texto.contains("id:12"));
+        assertTrue(contenido.indexOf("id:10") < contenido.indexOf("id:12"));
+        assertFalse(contenido.contains("id:11"));
+        assertTrue(contenido.contains("\"saldoDisponible\":850.00"));
+        assertEquals(1, difusor.getActivos());
+    }
+
+    @Test
+    public void testRechazaSuscripcionesPorEncimaDelMaximo() {
+        // Arrange
+        when(cuentaRepository.countByIdIn(anyCollection())).thenReturn(1L);
+        difusor.suscribir(List.of(1L));
+
+        // Act & Assert
+        assertThrows(SuscripcionesAgotadasException.class, () -> difusor.suscribir(List.of(1L)));
+        assertThrows(IllegalArgumentException.class, () -> difusor.suscribir(List.of()));
+        assertEquals(1, difusor.getActivos());
+    }
+
+    @Test
+    public void testUnEnvioTrabadoDescartaAlSuscriptorSinDetenerALosDemas() throws Exception {
+        // Arrange: un solo hilo y el primer suscriptor deja de leer
+        difusor.cerrar();
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<EmisorDePrueba> emisores = new CopyOnWriteArrayList<>();
+        difusor = new DifusorMovimientos(cuentaRepository, objectMapper, 10, 16, 60_000, 1, 50) {
+            @Override
+            protected SseEmitter crearEmisor(long tiempoMaximoMs) {
+                EmisorDePrueba emisor = new EmisorDePrueba(emisores.isEmpty() ? liberar : null);
+                emisores.add(emisor);
+                return emisor;
+            }
+        };
+        when(cuentaRepository.countByIdIn(anyCollection())).thenReturn(1L);
+        difusor.suscribir(List.of(1L));
+        assertTrue(emisores.get(0).enviando.await(5, TimeUnit.SECONDS));
+        difusor.suscribir(List.of(1L));
+
+        // Act
+        Thread.sleep(100);
+        difusor.vigilarEnvios();
+        difusor.alRegistrarMovimiento(evento(10L, 1L, "Deposito", "20.00", "20.00"));
+
+        // Assert: el segundo recibe su confirmación y el movimiento aunque el primero siga trabado
+        EmisorDePrueba lento = emisores.get(0);
+        EmisorDePrueba sano = emisores.get(1);
+        long limite = System.currentTimeMillis() + 5_000;
+        while (sano.enviados.size() < 2 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, sano.enviados.size());
+        assertEquals(1, difusor.getActivos());
+        assertFalse(lento.completo);
+
+        liberar.countDown();
+        while (!lento.completo && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertTrue(lento.completo);
+        assertEquals(1, lento.enviados.size());
+    }
+
+    /**
+     * Emisor que registra lo enviado; con bloqueo, el envío espera como un socket lleno
+     */
+    private static final class EmisorDePrueba extends SseEmitter {
+        final CountDownLatch bloqueo;
+        final CountDownLatch enviando = new CountDownLatch(1);
+        final List<Set<DataWithMediaType>> enviados = new CopyOnWriteArrayList<>();
+        volatile boolean completo;
+
+        EmisorDePrueba(CountDownLatch bloqueo) {
+            super(60_000L);
+            this.bloqueo = bloqueo;
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> datos) throws IOException {
+            enviando.countDown();
+            if (bloqueo != null) {
+                try {
+                    bloqueo.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            enviados.add(datos);
+        }
+
+        @Override
+        public synchronized void complete() {
+            completo = true;
+        }
+    }
+
+    private static MovimientoRegistradoEvent evento(Long id, Long cuentaId, String tipo, String valor, String saldo) {
+        Movimiento movimiento = new Movimiento(LocalDateTime.of(2024, 3, 15, 10, 0), tipo,
+                new BigDecimal(valor), new BigDecimal(saldo), cuentaId);
+        movimiento.setId(id);
+        return new MovimientoRegistradoEvent(movimiento, new BigDecimal(saldo));
+    }
+
+    private static String esperar(MockHttpServletResponse respuesta, Predicate<String> condicion) throws Exception {
+        long limite = System.currentTimeMillis() + 5_000;
+        String contenido = respuesta.getContentAsString();
+        while (!condicion.test(contenido) && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+            contenido = respuesta.getContentAsString();
+        }
+        assertTrue(condicion.test(contenido), contenido);
+        return contenido;
+    }
+}
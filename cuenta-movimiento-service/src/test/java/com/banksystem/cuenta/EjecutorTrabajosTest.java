@@ -0,0 +1,76 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.trabajo.EjecutorTrabajos;
+import com.banksystem.cuenta.trabajo.EstadoTrabajo;
+import com.banksystem.cuenta.trabajo.Trabajo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EjecutorTrabajosTest {
+
+    private EjecutorTrabajos ejecutor;
+
+    @AfterEach
+    public void tearDown() {
+        ejecutor.detener();
+    }
+
+    @Test
+    public void testCupoPorClienteDejaPasarTrabajosDeOtroCliente() throws Exception {
+        // Arrange
+        ejecutor = new EjecutorTrabajos(2, 1, 10, 5);
+        ejecutor.iniciar();
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch terminado = new CountDownLatch(1);
+        Trabajo largo = ejecutor.enviar(new Trabajo("PRUEBA", 1L, 100, Map.of(),
+                trabajo -> liberar.await(5, TimeUnit.SECONDS)));
+        esperarEstado(largo, EstadoTrabajo.EN_EJECUCION);
+
+        // Act
+        Trabajo mismoCliente = ejecutor.enviar(new Trabajo("PRUEBA", 1L, 0, Map.of(), trabajo -> { }));
+        Trabajo otroCliente = ejecutor.enviar(new Trabajo("PRUEBA", 2L, 50, Map.of(),
+                trabajo -> terminado.countDown()));
+
+        // Assert
+        assertTrue(terminado.await(5, TimeUnit.SECONDS));
+        assertEquals(EstadoTrabajo.PENDIENTE, mismoCliente.getEstado());
+        liberar.countDown();
+        esperarEstado(mismoCliente, EstadoTrabajo.COMPLETADO);
+        esperarEstado(otroCliente, EstadoTrabajo.COMPLETADO);
+    }
+
+    @Test
+    public void testCancelarTrabajoEnCola() throws Exception {
+        // Arrange
+        ejecutor = new EjecutorTrabajos(1, 1, 10, 5);
+        ejecutor.iniciar();
+        CountDownLatch liberar = new CountDownLatch(1);
+        Trabajo bloqueante = ejecutor.enviar(new Trabajo("PRUEBA", 1L, 0, Map.of(),
+                trabajo -> liberar.await(5, TimeUnit.SECONDS)));
+        esperarEstado(bloqueante, EstadoTrabajo.EN_EJECUCION);
+        Trabajo enCola = ejecutor.enviar(new Trabajo("PRUEBA", 2L, 0, Map.of(),
+                trabajo -> fail("No debe ejecutarse")));
+
+        // Act
+        ejecutor.cancelar(enCola.getId());
+        liberar.countDown();
+
+        // Assert
+        esperarEstado(bloqueante, EstadoTrabajo.COMPLETADO);
+        assertEquals(EstadoTrabajo.CANCELADO, enCola.getEstado());
+    }
+
+    private void esperarEstado(Trabajo trabajo, EstadoTrabajo estado) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (trabajo.getEstado() != estado && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(estado, trabajo.getEstado());
+    }
+}
@@ -0,0 +1,178 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.cache.CacheEstadosCuenta;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.notificacion.MovimientoRegistradoEvent;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = "banco.tasa.reglas=")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class EstadoCuentaCacheIntegracionTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FIN = LocalDate.of(2024, 1, 31);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private CacheEstadosCuenta cache;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testPeriodoCerradoSeSirveComprimidoDesdeLaCache() throws Exception {
+        // Arrange
+        Long clienteId = crearClienteConMovimiento("Deposito de enero");
+        MockHttpServletResponse primera = pedir(clienteId, FIN, "application/json", "gzip");
+        long fallos = cache.getFallos();
+        long aciertos = cache.getAciertosMemoria();
+
+        // Act
+        MockHttpServletResponse comprimida = pedir(clienteId, FIN, "application/json", "gzip");
+        MockHttpServletResponse plana = pedir(clienteId, FIN, "application/json", null);
+        MockHttpServletResponse cbor = pedir(clienteId, FIN, "application/cbor", "gzip");
+
+        // Assert
+        assertEquals("gzip", comprimida.getHeader(HttpHeaders.CONTENT_ENCODING));
+        String json = new String(descomprimir(comprimida.getContentAsByteArray()), StandardCharsets.UTF_8);
+        assertTrue(json.contains("Deposito de enero"));
+        assertArrayEquals(primera.getContentAsByteArray(), comprimida.getContentAsByteArray());
+        assertNull(plana.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(json, plana.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals("application/cbor", cbor.getContentType());
+        // JSON dos veces desde memoria; CBOR es otra clave
+        assertEquals(aciertos + 2, cache.getAciertosMemoria());
+        assertEquals(fallos + 1, cache.getFallos());
+    }
+
+    @Test
+    public void testPeriodoAbiertoNoPasaPorLaCache() throws Exception {
+        // Arrange
+        Long clienteId = crearClienteConMovimiento("Deposito de enero");
+        long fallos = cache.getFallos();
+
+        // Act
+        MockHttpServletResponse respuesta = pedir(clienteId, LocalDate.now(), "application/json", "gzip");
+        MockHttpServletResponse cbor = pedir(clienteId, LocalDate.now(), "application/cbor", null);
+
+        // Assert
+        assertEquals(200, respuesta.getStatus());
+        assertNull(respuesta.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(respuesta.getContentAsString().contains("Deposito de enero"));
+        assertEquals("application/cbor", cbor.getContentType());
+        assertEquals(fallos, cache.getFallos());
+    }
+
+    @Test
+    public void testMovimientoConFechaEnPeriodoCerradoInvalidaLosEstadosDelCliente() throws Exception {
+        // Arrange
+        Long clienteId = crearClienteConMovimiento("Deposito de enero");
+        Long otroClienteId = crearClienteConMovimiento("Deposito de otro cliente");
+        pedir(clienteId, FIN, "application/json", null);
+        pedir(otroClienteId, FIN, "application/json", null);
+        Long cuentaId = cuentaRepository.findByClienteId(clienteId).get(0).getId();
+
+        // Act: ajuste con fecha de enero registrado hoy
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            Movimiento ajuste = new Movimiento(LocalDateTime.of(2024, 1, 20, 9, 0), "Deposito",
+                    new BigDecimal("5.00"), new BigDecimal("105.00"), cuentaId);
+            ajuste.setDescripcion("Ajuste retroactivo");
+            eventos.publishEvent(new MovimientoRegistradoEvent(movimientoRepository.save(ajuste), ajuste.getSaldo()));
+        });
+
+        // Assert
+        assertFalse(cache.enMemoria(new CacheEstadosCuenta.Clave(clienteId, INICIO, FIN, "json")));
+        assertTrue(cache.enMemoria(new CacheEstadosCuenta.Clave(otroClienteId, INICIO, FIN, "json")));
+        assertTrue(pedir(clienteId, FIN, "application/json", null).getContentAsString().contains("Ajuste retroactivo"));
+    }
+
+    @Test
+    public void testElEstadoGuardadoNoLlevaDatosVigentesYUnaCuentaNuevaLoInvalida() throws Exception {
+        // Arrange
+        Long clienteId = crearClienteConMovimiento("Deposito de enero");
+        String guardado = pedir(clienteId, FIN, "application/json", null).getContentAsString();
+
+        // Act: el cliente abre otra cuenta
+        cuentaRepository.save(new Cuenta("N" + System.nanoTime(), "Corriente",
+                new BigDecimal("10.00"), true, clienteId));
+
+        // Assert
+        assertFalse(guardado.contains("saldoActual"));
+        assertFalse(guardado.contains("fechaReporte"));
+        assertFalse(guardado.contains("\"estado\""));
+        assertFalse(cache.enMemoria(new CacheEstadosCuenta.Clave(clienteId, INICIO, FIN, "json")));
+        String regenerado = pedir(clienteId, FIN, "application/json", null).getContentAsString();
+        assertEquals(2, objectMapper.readTree(regenerado).get("cuentas").size());
+    }
+
+    private MockHttpServletResponse pedir(Long clienteId, LocalDate fechaFin, String acepta,
+                                          String codificacion) throws Exception {
+        var solicitud = get("/api/reportes/estado-cuenta")
+                .param("clienteId", clienteId.toString())
+                .param("fechaInicio", INICIO.toString())
+                .param("fechaFin", fechaFin.toString())
+                .header(HttpHeaders.ACCEPT, acepta);
+        if (codificacion != null) {
+            solicitud.header(HttpHeaders.ACCEPT_ENCODING, codificacion);
+        }
+        MockHttpServletResponse respuesta = mockMvc.perform(solicitud).andReturn().getResponse();
+        assertEquals(200, respuesta.getStatus());
+        return respuesta;
+    }
+
+    private Long crearClienteConMovimiento(String descripcion) {
+        Long clienteId = System.nanoTime();
+        Long cuentaId = cuentaRepository.save(new Cuenta("E" + System.nanoTime(), "Ahorros",
+                new BigDecimal("100.00"), true, clienteId)).getId();
+        Movimiento movimiento = new Movimiento(LocalDateTime.of(2024, 1, 10, 12, 0), "Deposito",
+                new BigDecimal("50.00"), new BigDecimal("150.00"), cuentaId);
+        movimiento.setDescripcion(descripcion);
+        movimientoRepository.save(movimiento);
+        return clienteId;
+    }
+
+    private static byte[] descomprimir(byte[] comprimido) throws Exception {
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(comprimido))) {
+            return entrada.readAllBytes();
+        }
+    }
+}
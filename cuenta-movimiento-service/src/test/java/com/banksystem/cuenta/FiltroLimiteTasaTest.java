@@ -0,0 +1,100 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.limite.FiltroLimiteTasa;
+import com.banksystem.cuenta.limite.LimitadorTasa;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FiltroLimiteTasaTest {
+
+    private FiltroLimiteTasa filtro;
+
+    @BeforeEach
+    public void setUp() {
+        // Una solicitud cada 10 s, sin ráfaga
+        LimitadorTasa limitador = new LimitadorTasa("/api/movimientos/cuenta/{cuentaId}/**=0.1:1", 100);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        filtro = new FiltroLimiteTasa(limitador, objectMapper, "movil:clave-movil,portal:clave-portal");
+    }
+
+    @Test
+    public void testRechazaCon429YRetryAfter() throws Exception {
+        // Arrange
+        assertEquals(200, filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.1", null, null).getStatus());
+
+        // Act
+        MockHttpServletResponse respuesta = filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.1", null, null);
+
+        // Assert
+        assertEquals(429, respuesta.getStatus());
+        assertEquals("10", respuesta.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(respuesta.getContentAsString().contains("\"status\":429"));
+        assertEquals(200, filtrar("/api/cuentas/1", "10.0.0.1", null, null).getStatus());
+    }
+
+    @Test
+    public void testCuentaClienteOClaveInventadaNoDanUnCuboNuevo() throws Exception {
+        // Arrange
+        filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.2", null, null);
+
+        // Act: otra cuenta, otro clienteId y una API key no registrada desde la misma IP
+        int otraCuenta = filtrar("/api/movimientos/cuenta/2/lista", "10.0.0.2", null, null).getStatus();
+        int otroCliente = filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.2", null, "99").getStatus();
+        int claveInventada = filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.2", "clave-falsa", null).getStatus();
+        int otraIp = filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.3", null, null).getStatus();
+
+        // Assert
+        assertEquals(429, otraCuenta);
+        assertEquals(429, otroCliente);
+        assertEquals(429, claveInventada);
+        assertEquals(200, otraIp);
+    }
+
+    @Test
+    public void testLaClaveRegistradaIdentificaAlIntegradorDesdeCualquierIp() throws Exception {
+        // Arrange
+        filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.4", null, null);
+
+        // Act
+        int registrada = filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.4", "clave-movil", null).getStatus();
+        int mismaClaveOtraIp = filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.5", "clave-movil", null).getStatus();
+        int otroIntegrador = filtrar("/api/movimientos/cuenta/1/lista", "10.0.0.5", "clave-portal", null).getStatus();
+
+        // Assert
+        assertEquals(200, registrada);
+        assertEquals(429, mismaClaveOtraIp);
+        assertEquals(200, otroIntegrador);
+    }
+
+    @Test
+    public void testRechazaApiKeysMalConfiguradas() {
+        // Arrange
+        LimitadorTasa limitador = new LimitadorTasa("", 100);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> new FiltroLimiteTasa(limitador, new ObjectMapper(), "solo-la-clave"));
+    }
+
+    private MockHttpServletResponse filtrar(String ruta, String ip, String apiKey, String clienteId) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", ruta);
+        request.setRemoteAddr(ip);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        if (clienteId != null) {
+            request.setParameter("clienteId", clienteId);
+        }
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        filtro.doFilter(request, respuesta, new MockFilterChain());
+        return respuesta;
+    }
+}
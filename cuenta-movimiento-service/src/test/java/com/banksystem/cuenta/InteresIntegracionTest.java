@@ -0,0 +1,136 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.DevengoInteres;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.DevengoInteresRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.AgregadoService;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.InteresService;
+import com.banksystem.cuenta.service.LibroMayorService;
+import com.banksystem.cuenta.service.MovimientoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class InteresIntegracionTest {
+
+    @Autowired
+    private InteresService interesService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private LibroMayorService libroMayorService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private DevengoInteresRepository devengoInteresRepository;
+
+    @Autowired
+    private AgregadoService agregadoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testDevengoAbonaElSaldoAlCierreDelDiaYRepetirloNoAbonaDosVeces() {
+        // Arrange: tres cuentas abiertas antes del día devengado y una abierta hoy
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        Long ahorrosId = crearCuenta("Ahorros", "365000.00");
+        Long libroMayorId = crearCuenta("Ahorros", "730000.00");
+        Long corrienteId = crearCuenta("Corriente", "365000.00");
+        Long nuevaId = crearCuenta("Ahorros", "365000.00");
+        jdbcTemplate.update("UPDATE cuenta SET fecha_creacion = ? WHERE id IN (?, ?, ?)",
+                ayer.atStartOfDay(), ahorrosId, libroMayorId, corrienteId);
+        libroMayorService.activar(libroMayorId);
+        // Un depósito de hoy no cuenta para el saldo de ayer
+        movimientoService.registrarMovimiento(ahorrosId, "Deposito", new BigDecimal("500.00"), null);
+
+        // Act
+        Map<String, Object> primera = interesService.devengar(ayer);
+        Map<String, Object> segunda = interesService.devengar(ayer);
+
+        // Assert: 365000 × 3 % / 365 = 30.00
+        assertEquals("COMPLETADO", primera.get("estado"));
+        assertEquals(1L, primera.get("abonosIndividuales"));
+        assertEquals(new BigDecimal("365530.00"), cuentaRepository.findById(ahorrosId).orElseThrow().getSaldoDisponible());
+        assertEquals(new BigDecimal("730060.00"), cuentaRepository.findById(libroMayorId).orElseThrow().getSaldoDisponible());
+        assertEquals(new BigDecimal("365000.00"), cuentaRepository.findById(corrienteId).orElseThrow().getSaldoDisponible());
+        assertEquals(new BigDecimal("365000.00"), cuentaRepository.findById(nuevaId).orElseThrow().getSaldoDisponible());
+
+        List<DevengoInteres> devengos = devengoInteresRepository.findByCuentaId(ahorrosId);
+        assertEquals(1, devengos.size());
+        assertEquals(new BigDecimal("365000.00"), devengos.get(0).getBase());
+        Movimiento abono = movimientoRepository.findById(devengos.get(0).getMovimientoId()).orElseThrow();
+        assertEquals(new BigDecimal("30.00"), abono.getValor());
+        assertEquals(new BigDecimal("365530.00"), abono.getSaldo());
+        assertEquals("Interés devengado del " + ayer, abono.getDescripcion());
+        assertEquals(1, devengoInteresRepository.findByCuentaId(libroMayorId).size());
+        assertTrue(devengoInteresRepository.findByCuentaId(corrienteId).isEmpty());
+
+        assertEquals("COMPLETADO", segunda.get("estado"));
+        assertEquals(0L, segunda.get("cuentasAbonadas"));
+        assertEquals(2, movimientoRepository.findByCuentaId(ahorrosId).size());
+        assertThrows(IllegalArgumentException.class, () -> interesService.devengar(LocalDate.now()));
+    }
+
+    @Test
+    public void testAbonoPorLoteSumaAlTotalEnLaMonedaDeLaCuenta() {
+        // Arrange: cuenta de ahorros en euros abierta antes del día devengado
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        Cuenta cuenta = new Cuenta("I" + System.nanoTime(), "Ahorros", new BigDecimal("365000.00"), true, 1L);
+        cuenta.setMoneda("EUR");
+        Long cuentaId = cuentaService.crearCuenta(cuenta).getId();
+        jdbcTemplate.update("UPDATE cuenta SET fecha_creacion = ? WHERE id = ?", ayer.atStartOfDay(), cuentaId);
+        BigDecimal antes = depositosDeHoy("EUR");
+
+        // Act
+        interesService.devengar(ayer);
+
+        // Assert: TOTAL (agregado por tipo de cuenta) incluye el abono, en euros
+        assertEquals(new BigDecimal("365030.00"), cuentaRepository.findById(cuentaId).orElseThrow().getSaldoDisponible());
+        assertEquals(0, new BigDecimal("30.00").compareTo(depositosDeHoy("EUR").subtract(antes)));
+        Integer enEuros = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM agregado_diario " +
+                "WHERE cuenta_id = ? AND moneda = 'EUR'", Integer.class, cuentaId);
+        assertEquals(1, enEuros);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BigDecimal depositosDeHoy(String moneda) {
+        LocalDate hoy = LocalDate.now();
+        List<Map<String, Object>> resultados = (List<Map<String, Object>>) agregadoService
+                .consultar(hoy, hoy, "DIA", "TOTAL", null, "Ahorros").get("resultados");
+        return resultados.stream()
+                .filter(fila -> moneda.equals(fila.get("moneda")) && "Deposito".equals(fila.get("tipoMovimiento")))
+                .map(fila -> (BigDecimal) fila.get("total"))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private Long crearCuenta(String tipoCuenta, String saldo) {
+        Cuenta cuenta = new Cuenta("I" + System.nanoTime(), tipoCuenta, new BigDecimal(saldo), true, 1L);
+        return cuentaService.crearCuenta(cuenta).getId();
+    }
+}
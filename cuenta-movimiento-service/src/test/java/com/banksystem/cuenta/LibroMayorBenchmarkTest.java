@@ -0,0 +1,102 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.LibroMayorService;
+import com.banksystem.cuenta.service.MovimientoService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cuenta caliente con depósitos y retiros concurrentes: lectura-modificación-escritura con la
+ * fila bloqueada contra el modo libro mayor (sólo INSERT con secuencia).
+ * Ejecutar con: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class LibroMayorBenchmarkTest {
+
+    private static final int HILOS = 8;
+    private static final int MOVIMIENTOS_POR_HILO = 250;
+    private static final BigDecimal VALOR = new BigDecimal("1.00");
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private LibroMayorService libroMayorService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Test
+    public void benchmarkCuentaCaliente() throws Exception {
+        medir("calentamiento", crearCuenta(), false);
+        Long bloqueo = crearCuenta();
+        Long libro = crearCuenta();
+        libroMayorService.activar(libro);
+
+        medir("bloqueo de fila", bloqueo, true);
+        long conflictosAntes = libroMayorService.getConflictos();
+        medir("libro mayor", libro, true);
+        System.out.printf("libro mayor: %d reintentos por secuencia ocupada%n",
+                libroMayorService.getConflictos() - conflictosAntes);
+
+        // Mitad depósitos y mitad retiros del mismo valor: el saldo vuelve al inicial
+        assertEquals(0, new BigDecimal("1000.00").compareTo(cuentaService.obtenerPorId(bloqueo).getSaldoDisponible()));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(cuentaService.obtenerPorId(libro).getSaldoDisponible()));
+    }
+
+    private void medir(String nombre, Long cuentaId, boolean imprimir) throws Exception {
+        long[] latencias = new long[HILOS * MOVIMIENTOS_POR_HILO];
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; i < MOVIMIENTOS_POR_HILO; i++) {
+                    long inicio = System.nanoTime();
+                    movimientoService.registrarMovimiento(cuentaId, i % 2 == 0 ? "Deposito" : "Retiro", VALOR);
+                    latencias[hilo * MOVIMIENTOS_POR_HILO + i] = System.nanoTime() - inicio;
+                }
+                return null;
+            });
+        }
+        long inicio = System.nanoTime();
+        salida.countDown();
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(5, TimeUnit.MINUTES));
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        if (imprimir) {
+            Arrays.sort(latencias);
+            System.out.printf("%s, %d hilos sobre una cuenta: %.0f movimientos/s, p50 %.2f ms, p99 %.2f ms%n",
+                    nombre, HILOS, latencias.length / segundos,
+                    latencias[latencias.length / 2] / 1e6, latencias[(int) (latencias.length * 0.99)] / 1e6);
+        }
+    }
+
+    private Long crearCuenta() {
+        return cuentaRepository.save(new Cuenta("B" + System.nanoTime(), "Corriente",
+                new BigDecimal("1000.00"), true, 1L)).getId();
+    }
+}
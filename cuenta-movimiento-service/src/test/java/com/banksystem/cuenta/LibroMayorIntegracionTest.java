@@ -0,0 +1,214 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.SaldoNoDisponibleException;
+import com.banksystem.cuenta.repository.AgregadoDiarioRepository;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.LibroMayorService;
+import com.banksystem.cuenta.service.MovimientoService;
+import com.banksystem.cuenta.service.TransferenciaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class LibroMayorIntegracionTest {
+
+    private static final int HILOS = 8;
+    private static final int MOVIMIENTOS_POR_HILO = 40;
+    private static final BigDecimal DEPOSITO = new BigDecimal("10.00");
+    private static final BigDecimal RETIRO = new BigDecimal("7.00");
+
+    @Autowired
+    private LibroMayorService libroMayorService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private TransferenciaService transferenciaService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private AgregadoDiarioRepository agregadoDiarioRepository;
+
+    @Test
+    public void testMovimientosConcurrentesEncadenanSecuenciaYSaldoSinTocarLaCuenta() throws Exception {
+        // Arrange
+        Long cuentaId = crearCuenta("50.00");
+        Cuenta activada = libroMayorService.activar(cuentaId);
+        movimientoService.registrarMovimiento(cuentaId, "Deposito", DEPOSITO);
+        assertEquals(0, new BigDecimal("60.00").compareTo(cuentaService.obtenerPorId(cuentaId).getSaldoDisponible()));
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+
+        // Act: depósitos y retiros concurrentes; algún retiro puede quedar sin saldo (F3)
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            hilos.submit(() -> {
+                try {
+                    salida.await();
+                    for (int i = 0; i < MOVIMIENTOS_POR_HILO; i++) {
+                        try {
+                            movimientoService.registrarMovimiento(cuentaId,
+                                    (hilo + i) % 3 == 0 ? "Retiro" : "Deposito", (hilo + i) % 3 == 0 ? RETIRO : DEPOSITO);
+                        } catch (SaldoNoDisponibleException e) {
+                            // válido: F3 sobre la cabeza del libro
+                        }
+                    }
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            });
+        }
+        salida.countDown();
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(2, TimeUnit.MINUTES));
+        BigDecimal saldoAntesDeCompactar = cuentaService.obtenerPorId(cuentaId).getSaldoDisponible();
+        libroMayorService.compactarPendientes();
+
+        // Assert: secuencias contiguas y cada saldo a partir del anterior
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        List<Movimiento> movimientos = new ArrayList<>(movimientoRepository.findByCuentaId(cuentaId));
+        movimientos.sort(Comparator.comparing(Movimiento::getSecuencia));
+        BigDecimal esperado = new BigDecimal("50.00");
+        BigDecimal depositado = BigDecimal.ZERO;
+        long secuencia = 0;
+        for (Movimiento movimiento : movimientos) {
+            assertEquals(++secuencia, movimiento.getSecuencia());
+            boolean deposito = "Deposito".equals(movimiento.getTipoMovimiento());
+            esperado = deposito ? esperado.add(movimiento.getValor()) : esperado.subtract(movimiento.getValor());
+            depositado = deposito ? depositado.add(movimiento.getValor()) : depositado;
+            assertEquals(0, esperado.compareTo(movimiento.getSaldo()), "Saldo encadenado en " + secuencia);
+            assertTrue(movimiento.getSaldo().signum() >= 0);
+        }
+        Cuenta cuenta = cuentaService.obtenerPorId(cuentaId);
+        assertEquals(0, esperado.compareTo(saldoAntesDeCompactar));
+        assertEquals(0, esperado.compareTo(cuenta.getSaldoDisponible()));
+        assertEquals(secuencia, cuenta.getSecuenciaCompactada());
+        assertNull(cuenta.getSaldoLibro());
+        // La fila sólo cambió al activar y al compactar, nunca por movimiento
+        assertTrue(cuenta.getVersion() - activada.getVersion() < movimientos.size());
+        assertEquals(0, depositado.compareTo(
+                agregadoDiarioRepository.findTotal(cuentaId, LocalDate.now(), "Deposito").orElse(BigDecimal.ZERO)));
+        assertTrue(cuentaRepository.findCuentasLibroPendientes().isEmpty());
+    }
+
+    @Test
+    public void testRetiroSinSaldoEnElLibroNoSeAnota() {
+        // Arrange
+        Long cuentaId = crearCuenta("20.00");
+        libroMayorService.activar(cuentaId);
+        movimientoService.registrarMovimiento(cuentaId, "Retiro", new BigDecimal("15.00"));
+
+        // Act & Assert: la fila aún dice 20, la cabeza del libro 5
+        assertThrows(SaldoNoDisponibleException.class,
+                () -> movimientoService.registrarMovimiento(cuentaId, "Retiro", new BigDecimal("10.00")));
+        assertEquals(1, movimientoRepository.countByCuentaId(cuentaId));
+        assertEquals(0, new BigDecimal("5.00").compareTo(cuentaService.obtenerPorId(cuentaId).getSaldoDisponible()));
+    }
+
+    @Test
+    public void testTransferenciaDesdeCuentaEnModoLibro() {
+        // Arrange
+        Long origenId = crearCuenta("100.00");
+        Long destinoId = crearCuenta("0.00");
+        libroMayorService.activar(origenId);
+        movimientoService.registrarMovimiento(origenId, "Retiro", new BigDecimal("30.00"));
+
+        // Act
+        Map<String, Object> transferencia = transferenciaService.transferir(origenId, destinoId, new BigDecimal("60.00"));
+
+        // Assert
+        Movimiento retiro = (Movimiento) transferencia.get("movimientoOrigen");
+        assertEquals(2L, retiro.getSecuencia());
+        assertEquals(0, new BigDecimal("10.00").compareTo(retiro.getSaldo()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(cuentaService.obtenerPorId(origenId).getSaldoDisponible()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(cuentaService.obtenerPorId(destinoId).getSaldoDisponible()));
+        assertThrows(SaldoNoDisponibleException.class,
+                () -> transferenciaService.transferir(origenId, destinoId, new BigDecimal("20.00")));
+    }
+
+    @Test
+    public void testTransferenciasHaciaCuentaEnModoLibroConcurrentesConDepositos() throws Exception {
+        // Arrange
+        Long origenId = crearCuenta("10000.00");
+        Long destinoId = crearCuenta("0.00");
+        libroMayorService.activar(destinoId);
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+
+        // Act: la mitad de los hilos transfiere al libro mientras la otra mitad deposita en él
+        for (int h = 0; h < HILOS; h++) {
+            boolean transfiere = h % 2 == 0;
+            hilos.submit(() -> {
+                try {
+                    salida.await();
+                    for (int i = 0; i < MOVIMIENTOS_POR_HILO; i++) {
+                        if (transfiere) {
+                            transferenciaService.transferir(origenId, destinoId, DEPOSITO);
+                        } else {
+                            movimientoService.registrarMovimiento(destinoId, "Deposito", DEPOSITO);
+                        }
+                    }
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            });
+        }
+        salida.countDown();
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(2, TimeUnit.MINUTES));
+
+        // Assert: ninguna transferencia perdida por la secuencia del libro
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        List<Movimiento> movimientos = new ArrayList<>(movimientoRepository.findByCuentaId(destinoId));
+        movimientos.sort(Comparator.comparing(Movimiento::getSecuencia));
+        assertEquals(HILOS * MOVIMIENTOS_POR_HILO, movimientos.size());
+        BigDecimal esperado = BigDecimal.ZERO;
+        long secuencia = 0;
+        for (Movimiento movimiento : movimientos) {
+            assertEquals(++secuencia, movimiento.getSecuencia());
+            esperado = esperado.add(movimiento.getValor());
+            assertEquals(0, esperado.compareTo(movimiento.getSaldo()), "Saldo encadenado en " + secuencia);
+        }
+        long transferidos = movimientos.stream().filter(m -> m.getTransferenciaId() != null).count();
+        assertEquals(HILOS / 2 * MOVIMIENTOS_POR_HILO, transferidos);
+        assertEquals(0, new BigDecimal("10000.00").subtract(DEPOSITO.multiply(BigDecimal.valueOf(transferidos)))
+                .compareTo(cuentaRepository.findById(origenId).orElseThrow().getSaldoDisponible()));
+    }
+
+    private Long crearCuenta(String saldo) {
+        return cuentaRepository.save(new Cuenta("L" + System.nanoTime(), "Corriente", new BigDecimal(saldo), true, 1L))
+                .getId();
+    }
+}
@@ -0,0 +1,77 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.limite.LimitadorConcurrencia;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitadorConcurrenciaTest {
+
+    private static final long OBJETIVO_MS = 100;
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void testRechazaAlAlcanzarElLimite() {
+        // Arrange
+        LimitadorConcurrencia limitador = new LimitadorConcurrencia(2, 1, 10, OBJETIVO_MS);
+
+        // Act
+        boolean primera = limitador.intentarAdquirir();
+        boolean segunda = limitador.intentarAdquirir();
+        boolean tercera = limitador.intentarAdquirir();
+        limitador.liberar(0, 10 * MS, false);
+        boolean cuarta = limitador.intentarAdquirir();
+
+        // Assert
+        assertTrue(primera);
+        assertTrue(segunda);
+        assertFalse(tercera);
+        assertTrue(cuarta);
+        assertEquals(1, limitador.getRechazadas());
+    }
+
+    @Test
+    public void testRecortaUnaVezPorRondaYCreceConRespuestasRapidas() {
+        // Arrange
+        LimitadorConcurrencia limitador = new LimitadorConcurrencia(20, 4, 40, OBJETIVO_MS);
+        for (int i = 0; i < 20; i++) {
+            limitador.intentarAdquirir();
+        }
+
+        // Act: todas las solicitudes de la ronda llegan lentas, sólo la primera recorta
+        for (int i = 0; i < 20; i++) {
+            limitador.liberar(0, (500 + i) * MS, false);
+        }
+        int trasRecorte = limitador.getLimite();
+        // Varias rondas rápidas con el límite en uso
+        for (int ronda = 0; ronda < 20; ronda++) {
+            int permisos = 0;
+            while (limitador.intentarAdquirir()) {
+                permisos++;
+            }
+            for (int i = 0; i < permisos; i++) {
+                limitador.liberar(1_000 * MS, 1_010 * MS, false);
+            }
+        }
+
+        // Assert
+        assertEquals(18, trasRecorte);
+        assertTrue(limitador.getLimite() >= trasRecorte + 5);
+        assertEquals(0, limitador.getEnCurso());
+    }
+
+    @Test
+    public void testFallosNoBajanDelMinimo() {
+        // Arrange
+        LimitadorConcurrencia limitador = new LimitadorConcurrencia(5, 4, 10, OBJETIVO_MS);
+
+        // Act
+        for (long i = 0; i < 50; i++) {
+            limitador.intentarAdquirir();
+            limitador.liberar(i * 1_000 * MS, (i * 1_000 + 1) * MS, true);
+        }
+
+        // Assert
+        assertEquals(4, limitador.getLimite());
+    }
+}
@@ -0,0 +1,88 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.limite.LimitadorConcurrencia;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Goodput bajo sobrecarga: respuestas útiles (dentro del plazo del cliente) por segundo.
+ * La base se simula con un pool de conexiones justo y un tiempo fijo por operación; los
+ * clientes abandonan a los {@value #PLAZO_CLIENTE_MS} ms, pero el servidor termina el
+ * trabajo igual. Sin límite la cola crece hasta que casi todo llega tarde; con el límite
+ * el exceso se rechaza al instante y lo admitido llega a tiempo.
+ * Ejecutar con: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+public class LimiteConcurrenciaBenchmarkTest {
+
+    private static final int CONEXIONES = 8;
+    private static final long OPERACION_MS = 5;
+    private static final long PLAZO_CLIENTE_MS = 100;
+    private static final int CLIENTES = 256;
+    private static final long DURACION_MS = 4_000;
+    private static final long PAUSA_TRAS_RECHAZO_MS = 2;
+
+    @Test
+    public void benchmarkGoodputBajoSobrecarga() throws Exception {
+        double capacidad = CONEXIONES * 1_000.0 / OPERACION_MS;
+        double sinLimite = medirGoodput(new LimitadorConcurrencia(Integer.MAX_VALUE, Integer.MAX_VALUE - 1,
+                Integer.MAX_VALUE, Long.MAX_VALUE / 1_000_000));
+        double conLimite = medirGoodput(new LimitadorConcurrencia(20, 4, 200, PLAZO_CLIENTE_MS / 2));
+
+        System.out.printf("capacidad teórica: %.0f op/s%n", capacidad);
+        System.out.printf("goodput sin límite: %.0f op/s%n", sinLimite);
+        System.out.printf("goodput con límite: %.0f op/s%n", conLimite);
+
+        assertTrue(conLimite > capacidad * 0.5);
+        assertTrue(conLimite > sinLimite * 2);
+    }
+
+    private double medirGoodput(LimitadorConcurrencia limitador) throws InterruptedException {
+        Semaphore conexiones = new Semaphore(CONEXIONES, true);
+        AtomicLong aTiempo = new AtomicLong();
+        long fin = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURACION_MS);
+        long plazo = TimeUnit.MILLISECONDS.toNanos(PLAZO_CLIENTE_MS);
+
+        List<Thread> hilos = new ArrayList<>();
+        for (int i = 0; i < CLIENTES; i++) {
+            Thread hilo = new Thread(() -> {
+                while (System.nanoTime() < fin) {
+                    if (!limitador.intentarAdquirir()) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(PAUSA_TRAS_RECHAZO_MS));
+                        continue;
+                    }
+                    long inicio = System.nanoTime();
+                    try {
+                        conexiones.acquireUninterruptibly();
+                        try {
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(OPERACION_MS));
+                        } finally {
+                            conexiones.release();
+                        }
+                    } finally {
+                        long termino = System.nanoTime();
+                        limitador.liberar(inicio, termino, false);
+                        if (termino - inicio <= plazo) {
+                            aTiempo.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        return aTiempo.get() * 1_000.0 / DURACION_MS;
+    }
+}
@@ -0,0 +1,90 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.limite.CubosTokens;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Costo del chequeo de tasa en la ruta caliente: una clave repetida, un millón de claves
+ * distintas y varios hilos compitiendo; y memoria retenida por clave activa.
+ * Ejecutar con: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+public class LimiteTasaBenchmarkTest {
+
+    private static final int CLAVES = 1_000_000;
+    private static final int OPERACIONES = 5_000_000;
+    private static final int HILOS = 8;
+
+    /** Evita que el JIT descarte las llamadas medidas */
+    private static volatile long sumidero;
+
+    @Test
+    public void benchmarkConsumo() throws Exception {
+        String[] claves = new String[CLAVES];
+        for (int i = 0; i < CLAVES; i++) {
+            claves[i] = "c:" + i;
+        }
+
+        CubosTokens unaClave = new CubosTokens(1_000_000, 1_000, CLAVES);
+        medir(unaClave, new String[]{"c:1"}, OPERACIONES);
+        double nsUnaClave = medir(unaClave, new String[]{"c:1"}, OPERACIONES);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memoriaAntes = runtime.totalMemory() - runtime.freeMemory();
+        CubosTokens muchasClaves = new CubosTokens(100, 10, CLAVES);
+        medir(muchasClaves, claves, CLAVES);
+        System.gc();
+        long bytesPorClave = (runtime.totalMemory() - runtime.freeMemory() - memoriaAntes) / CLAVES;
+        double nsMuchasClaves = medir(muchasClaves, claves, OPERACIONES);
+
+        double nsConcurrente = medirConcurrente(new CubosTokens(100, 10, CLAVES), claves);
+
+        System.out.printf("una clave: %.1f ns/op%n", nsUnaClave);
+        System.out.printf("%d claves: %.1f ns/op, ~%d bytes/clave%n", CLAVES, nsMuchasClaves, bytesPorClave);
+        System.out.printf("%d hilos sobre 1000 claves: %.1f ns/op (tiempo de pared / operaciones)%n", HILOS, nsConcurrente);
+
+        assertTrue(nsUnaClave < 1_000);
+        assertEquals(CLAVES, muchasClaves.getClaves());
+    }
+
+    private static double medir(CubosTokens cubos, String[] claves, int operaciones) {
+        long inicio = System.nanoTime();
+        long rechazos = 0;
+        for (int i = 0; i < operaciones; i++) {
+            if (cubos.consumir(claves[i % claves.length], System.nanoTime()) > 0) {
+                rechazos++;
+            }
+        }
+        double ns = (System.nanoTime() - inicio) / (double) operaciones;
+        sumidero += rechazos;
+        return ns;
+    }
+
+    private static double medirConcurrente(CubosTokens cubos, String[] claves) throws InterruptedException {
+        List<Thread> hilos = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < HILOS; h++) {
+            Thread hilo = new Thread(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERACIONES / HILOS; i++) {
+                    cubos.consumir(claves[azar.nextInt(1_000)], System.nanoTime());
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        return (System.nanoTime() - inicio) / (double) OPERACIONES;
+    }
+}
@@ -0,0 +1,205 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.cambio.TasasCambio;
+import com.banksystem.cuenta.dto.SaldoHistorico;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.SaldoNoDisponibleException;
+import com.banksystem.cuenta.exception.VelocidadExcedidaException;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.AgregadoService;
+import com.banksystem.cuenta.service.ArchivoMovimientosService;
+import com.banksystem.cuenta.service.ControlVelocidadService;
+import com.banksystem.cuenta.service.CuentaCalienteService;
+import com.banksystem.cuenta.service.CupoDiarioService;
+import com.banksystem.cuenta.service.LibroMayorService;
+import com.banksystem.cuenta.service.MovimientoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MovimientoServiceTest {
+
+    @Mock
+    private MovimientoRepository movimientoRepository;
+
+    @Mock
+    private CuentaRepository cuentaRepository;
+
+    @Mock
+    private ArchivoMovimientosService archivoMovimientosService;
+
+    @Mock
+    private AgregadoService agregadoService;
+
+    @Mock
+    private CuentaCalienteService cuentaCalienteService;
+
+    @Mock
+    private ControlVelocidadService controlVelocidadService;
+
+    @Mock
+    private CupoDiarioService cupoDiarioService;
+
+    @Mock
+    private LibroMayorService libroMayorService;
+
+    @Mock
+    private TasasCambio tasasCambio;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    @InjectMocks
+    private MovimientoService movimientoService;
+
+    private Cuenta cuenta;
+
+    @BeforeEach
+    public void setUp() {
+        cuenta = new Cuenta("478758", "Ahorros", new BigDecimal("2000.00"), true, 1L);
+        cuenta.setId(1L);
+    }
+
+    @Test
+    public void testRetiroSinSaldoDisponible() {
+        // Arrange
+        when(cuentaRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuenta));
+
+        // Act & Assert
+        assertThrows(SaldoNoDisponibleException.class, () -> {
+            movimientoService.registrarMovimiento(1L, "Retiro", new BigDecimal("2500.00"));
+        });
+        verify(movimientoRepository, times(0)).save(any());
+    }
+
+    @Test
+    public void testRetiroRechazadoPorVelocidadNoSeGuarda() {
+        // Arrange
+        when(cuentaRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuenta));
+        doThrow(new VelocidadExcedidaException("La cuenta 1 excede el límite de movimientos"))
+                .when(controlVelocidadService).registrar(1L, "Retiro", new BigDecimal("100.00"));
+
+        // Act & Assert
+        assertThrows(VelocidadExcedidaException.class, () -> {
+            movimientoService.registrarMovimiento(1L, "Retiro", new BigDecimal("100.00"));
+        });
+        assertEquals(new BigDecimal("2000.00"), cuenta.getSaldoDisponible());
+        verify(movimientoRepository, times(0)).save(any());
+    }
+
+    @Test
+    public void testDepositoActualizaAgregadoDiario() {
+        // Arrange
+        when(cuentaRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuenta));
+        when(movimientoRepository.save(any(Movimiento.class))).thenAnswer(invocacion -> invocacion.getArgument(0));
+
+        // Act
+        Movimiento resultado = movimientoService.registrarMovimiento(1L, "Deposito", new BigDecimal("600.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("2600.00"), resultado.getSaldo());
+        verify(agregadoService).registrarMovimiento(resultado, cuenta);
+    }
+
+    @Test
+    public void testSaldoEnFechaSinMovimientosUsaSaldoInicial() {
+        // Arrange
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuenta));
+        when(movimientoRepository.findUltimoSaldoHasta(eq(1L), eq(fecha), any()))
+                .thenReturn(Collections.emptyList());
+
+        // Act
+        SaldoHistorico resultado = movimientoService.obtenerSaldoEnFecha(1L, fecha);
+
+        // Assert
+        assertEquals(new BigDecimal("2000.00"), resultado.getSaldo());
+    }
+
+    @Test
+    public void testSaldoEnFechaUsaArchivoCuandoLaTablaNoTieneMovimientos() {
+        // Arrange
+        LocalDateTime fecha = LocalDateTime.of(2022, 6, 15, 12, 0);
+        when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuenta));
+        when(movimientoRepository.findUltimoSaldoHasta(eq(1L), eq(fecha), any()))
+                .thenReturn(Collections.emptyList());
+        when(archivoMovimientosService.obtenerUltimoSaldoHasta(1L, fecha))
+                .thenReturn(Optional.of(new BigDecimal("3150.50")));
+
+        // Act
+        SaldoHistorico resultado = movimientoService.obtenerSaldoEnFecha(1L, fecha);
+
+        // Assert
+        assertEquals(new BigDecimal("3150.50"), resultado.getSaldo());
+    }
+
+    @Test
+    public void testMovimientosPorCuentaCombinaArchivoYTabla() {
+        // Arrange
+        Movimiento archivado = new Movimiento(LocalDateTime.of(2022, 1, 10, 9, 0),
+                "Deposito", new BigDecimal("100.00"), new BigDecimal("2100.00"), 1L);
+        archivado.setId(1L);
+        Movimiento duplicado = new Movimiento(LocalDateTime.of(2022, 1, 11, 9, 0),
+                "Retiro", new BigDecimal("50.00"), new BigDecimal("2050.00"), 1L);
+        duplicado.setId(2L);
+        Movimiento activo = new Movimiento(duplicado.getFecha(),
+                "Retiro", new BigDecimal("50.00"), new BigDecimal("2050.00"), 1L);
+        activo.setId(2L);
+        Movimiento reciente = new Movimiento(LocalDateTime.of(2024, 3, 1, 9, 0),
+                "Deposito", new BigDecimal("10.00"), new BigDecimal("2060.00"), 1L);
+        reciente.setId(3L);
+        when(archivoMovimientosService.obtenerMovimientos(1L, null, null)).thenReturn(List.of(archivado, duplicado));
+        when(movimientoRepository.findByCuentaId(1L)).thenReturn(List.of(reciente, activo));
+
+        // Act
+        List<Movimiento> resultado = movimientoService.obtenerMovimientosPorCuenta(1L);
+
+        // Assert
+        assertEquals(3, resultado.size());
+        assertSame(archivado, resultado.get(0));
+        assertSame(activo, resultado.get(1));
+        assertSame(reciente, resultado.get(2));
+    }
+
+    @Test
+    public void testSaldosEnFechasAsociaCadaFilaConSuFecha() {
+        // Arrange
+        LocalDateTime enero = LocalDateTime.of(2024, 1, 31, 23, 59);
+        LocalDateTime febrero = LocalDateTime.of(2024, 2, 29, 23, 59);
+        when(movimientoRepository.findSaldosEnFecha(List.of(1L), enero)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, new BigDecimal("2000.00"), null}));
+        when(movimientoRepository.findSaldosEnFecha(List.of(1L), febrero)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, new BigDecimal("2000.00"), new BigDecimal("1425.00")}));
+
+        // Act
+        List<SaldoHistorico> resultado = movimientoService.obtenerSaldosEnFechas(
+                List.of(1L, 1L), List.of(febrero, enero, febrero));
+
+        // Assert
+        assertEquals(2, resultado.size());
+        assertEquals(enero, resultado.get(0).getFecha());
+        assertEquals(new BigDecimal("2000.00"), resultado.get(0).getSaldo());
+        assertEquals(febrero, resultado.get(1).getFecha());
+        assertEquals(new BigDecimal("1425.00"), resultado.get(1).getSaldo());
+        verify(movimientoRepository, times(2)).findSaldosEnFecha(anyCollection(), any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,81 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.dto.SaldoHistorico;
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.MovimientoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class SaldosEnFechasIntegracionTest {
+
+    private static final LocalDateTime ENERO = LocalDateTime.of(2024, 1, 15, 10, 0);
+    private static final LocalDateTime FEBRERO = LocalDateTime.of(2024, 2, 15, 10, 0);
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testCadaCuentaTomaElUltimoMovimientoHastaCadaFecha() {
+        // Arrange: dos movimientos en el mismo instante de enero (gana el de mayor ID) y uno en febrero
+        Long cuentaId = crearCuenta("100.00");
+        Long sinMovimientosId = crearCuenta("75.00");
+        fechar(movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("10.00")), ENERO);
+        fechar(movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("5.00")), ENERO);
+        fechar(movimientoService.registrarMovimiento(cuentaId, "Retiro", new BigDecimal("20.00")), FEBRERO);
+
+        // Act
+        List<SaldoHistorico> saldos = movimientoService.obtenerSaldosEnFechas(
+                List.of(cuentaId, sinMovimientosId, Long.MAX_VALUE),
+                List.of(ENERO.minusDays(1), ENERO, FEBRERO.minusSeconds(1), FEBRERO));
+
+        // Assert
+        assertEquals(8, saldos.size());
+        assertEquals(List.of(new BigDecimal("100.00"), new BigDecimal("115.00"),
+                        new BigDecimal("115.00"), new BigDecimal("95.00")),
+                saldos.subList(0, 4).stream().map(SaldoHistorico::getSaldo).toList());
+        assertTrue(saldos.subList(4, 8).stream()
+                .allMatch(saldo -> saldo.getCuentaId().equals(sinMovimientosId)
+                        && new BigDecimal("75.00").equals(saldo.getSaldo())));
+    }
+
+    @Test
+    public void testRechazaDemasiadasFechas() {
+        // Arrange
+        List<LocalDateTime> fechas = ENERO.toLocalDate().datesUntil(ENERO.toLocalDate().plusDays(101))
+                .map(dia -> dia.atStartOfDay())
+                .toList();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> movimientoService.obtenerSaldosEnFechas(List.of(1L), fechas));
+    }
+
+    private Long crearCuenta(String saldoInicial) {
+        return cuentaService.crearCuenta(new Cuenta("S" + System.nanoTime(), "Ahorros",
+                new BigDecimal(saldoInicial), true, 1L)).getId();
+    }
+
+    private void fechar(Movimiento movimiento, LocalDateTime fecha) {
+        jdbcTemplate.update("UPDATE movimiento SET fecha = ? WHERE id = ?", Timestamp.valueOf(fecha), movimiento.getId());
+    }
+}
@@ -0,0 +1,74 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.archivo.SegmentoMovimientos;
+import com.banksystem.cuenta.entity.Movimiento;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentoMovimientosTest {
+
+    @Test
+    public void testEscribirYLeerConservaTodosLosCampos() throws Exception {
+        // Arrange
+        Movimiento deposito = new Movimiento(LocalDateTime.of(2023, 5, 2, 10, 15, 30, 123_456_000),
+                "Deposito", new BigDecimal("600.00"), new BigDecimal("2600.00"), 7L);
+        deposito.setId(41L);
+        deposito.setDescripcion("Depósito de 600.00");
+        deposito.setFechaCreacion(deposito.getFecha().plusNanos(5_000));
+        deposito.setMonedaOrigen("EUR");
+        deposito.setValorOrigen(new BigDecimal("552.00"));
+        deposito.setTasaCambio(new BigDecimal("1.0869565217"));
+        Movimiento retiro = new Movimiento(LocalDateTime.of(2023, 5, 20, 8, 0),
+                "Retiro", new BigDecimal("575.25"), new BigDecimal("2024.75"), 7L);
+        retiro.setId(97L);
+        retiro.setFechaCreacion(retiro.getFecha());
+
+        // Act
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        SegmentoMovimientos.escribir(salida, List.of(deposito, retiro));
+        List<Movimiento> leidos = SegmentoMovimientos.leer(new ByteArrayInputStream(salida.toByteArray()), 7L);
+
+        // Assert
+        assertEquals(2, leidos.size());
+        Movimiento primero = leidos.get(0);
+        assertEquals(41L, primero.getId());
+        assertEquals(7L, primero.getCuentaId());
+        assertEquals(deposito.getFecha(), primero.getFecha());
+        assertEquals(deposito.getFechaCreacion(), primero.getFechaCreacion());
+        assertEquals("Deposito", primero.getTipoMovimiento());
+        assertEquals(new BigDecimal("600.00"), primero.getValor());
+        assertEquals(new BigDecimal("2600.00"), primero.getSaldo());
+        assertEquals("Depósito de 600.00", primero.getDescripcion());
+        assertEquals("EUR", primero.getMonedaOrigen());
+        assertEquals(new BigDecimal("552.00"), primero.getValorOrigen());
+        assertEquals(new BigDecimal("1.0869565217"), primero.getTasaCambio());
+        Movimiento segundo = leidos.get(1);
+        assertEquals(97L, segundo.getId());
+        assertEquals(new BigDecimal("2024.75"), segundo.getSaldo());
+        assertNull(segundo.getDescripcion());
+        assertNull(segundo.getMonedaOrigen());
+        assertNull(segundo.getTasaCambio());
+    }
+
+    @Test
+    public void testACentavosRedondeaImportesConMasDeDosDecimales() {
+        // Act
+        long exacto = SegmentoMovimientos.aCentavos(new BigDecimal("12.34"));
+        long haciaAbajo = SegmentoMovimientos.aCentavos(new BigDecimal("12.345"));
+        long haciaArriba = SegmentoMovimientos.aCentavos(new BigDecimal("12.355"));
+        long entero = SegmentoMovimientos.aCentavos(new BigDecimal("5"));
+
+        // Assert: redondeo bancario, como el resto de los importes
+        assertEquals(1234L, exacto);
+        assertEquals(1234L, haciaAbajo);
+        assertEquals(1236L, haciaArriba);
+        assertEquals(500L, entero);
+    }
+}
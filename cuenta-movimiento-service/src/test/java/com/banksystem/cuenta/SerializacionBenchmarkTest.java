@@ -0,0 +1,85 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Movimiento;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tamaño de payload y CPU de serialización de una respuesta de 10.000 movimientos.
+ * Ejecutar con: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+public class SerializacionBenchmarkTest {
+
+    private static final int MOVIMIENTOS = 10_000;
+    private static final int CALENTAMIENTO = 30;
+    private static final int ITERACIONES = 50;
+
+    @Test
+    public void benchmarkFormatosDeSerializacion() throws Exception {
+        List<Movimiento> movimientos = crearMovimientos();
+
+        Map<String, ObjectMapper> formatos = new LinkedHashMap<>();
+        formatos.put("json", new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+        // Igual que los conversores que Spring MVC registra con los módulos en el classpath
+        formatos.put("cbor", Jackson2ObjectMapperBuilder.cbor().build());
+        formatos.put("smile", Jackson2ObjectMapperBuilder.smile().build());
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Map<String, Integer> tamanos = new LinkedHashMap<>();
+
+        System.out.printf("%-20s %12s %16s%n", "formato", "bytes", "cpu ms/respuesta");
+        for (Map.Entry<String, ObjectMapper> formato : formatos.entrySet()) {
+            ObjectMapper mapper = formato.getValue();
+            for (int i = 0; i < CALENTAMIENTO; i++) {
+                mapper.writeValueAsBytes(movimientos);
+            }
+            int bytes = 0;
+            long cpuInicio = threadMXBean.getCurrentThreadCpuTime();
+            for (int i = 0; i < ITERACIONES; i++) {
+                bytes = mapper.writeValueAsBytes(movimientos).length;
+            }
+            double cpuMs = (threadMXBean.getCurrentThreadCpuTime() - cpuInicio) / 1_000_000.0 / ITERACIONES;
+            tamanos.put(formato.getKey(), bytes);
+            System.out.printf("%-20s %12d %16.2f%n", formato.getKey(), bytes, cpuMs);
+        }
+
+        assertTrue(tamanos.get("cbor") < tamanos.get("json"));
+        assertTrue(tamanos.get("smile") < tamanos.get("json"));
+    }
+
+    private List<Movimiento> crearMovimientos() {
+        List<Movimiento> movimientos = new ArrayList<>(MOVIMIENTOS);
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 1, 8, 0);
+        BigDecimal saldo = new BigDecimal("1000.00");
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            boolean deposito = i % 3 != 0;
+            BigDecimal valor = BigDecimal.valueOf(1000 + (i * 37L) % 50_000, 2);
+            saldo = deposito ? saldo.add(valor) : saldo.subtract(valor);
+            Movimiento movimiento = new Movimiento(fecha.plusMinutes(i * 7L),
+                    deposito ? "Deposito" : "Retiro", valor, saldo, 1L + i % 5);
+            movimiento.setId((long) i + 1);
+            movimiento.setDescripcion(movimiento.getTipoMovimiento() + " de " + valor);
+            movimiento.setFechaCreacion(movimiento.getFecha());
+            movimientos.add(movimiento);
+        }
+        return movimientos;
+    }
+}
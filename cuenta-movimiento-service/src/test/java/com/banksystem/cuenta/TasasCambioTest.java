@@ -0,0 +1,84 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.cambio.Conversion;
+import com.banksystem.cuenta.cambio.TablaTasas;
+import com.banksystem.cuenta.cambio.TasasCambio;
+import com.banksystem.cuenta.exception.TasaCambioNoDisponibleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TasasCambioTest {
+
+    @TempDir
+    private Path directorio;
+
+    @Test
+    public void testConvierteConTasaCruzadaYLaTablaLeidaNoCambia() {
+        // Arrange
+        TasasCambio tasas = new TasasCambio("USD", "", 0);
+        tasas.actualizar(Map.of("EUR", new BigDecimal("0.80"), "COP", new BigDecimal("4000")));
+        TablaTasas leida = tasas.getTabla();
+
+        // Act
+        Conversion aEuros = tasas.convertir(new BigDecimal("100.00"), "usd", "EUR");
+        Conversion deEurosAPesos = tasas.convertir(new BigDecimal("10.00"), "EUR", "COP");
+        tasas.actualizar(Map.of("EUR", new BigDecimal("0.90")));
+
+        // Assert
+        assertEquals(new BigDecimal("80.00"), aEuros.valorDestino());
+        assertEquals(new BigDecimal("50000.00"), deEurosAPesos.valorDestino());
+        assertEquals(new BigDecimal("5000.0000000000"), deEurosAPesos.tasa());
+        assertNull(tasas.convertir(BigDecimal.TEN, "EUR", "eur"));
+        assertEquals(new BigDecimal("0.80"), leida.obtener("EUR").unidadesPorBase());
+        assertEquals(new BigDecimal("0.90"), tasas.getTabla().obtener("EUR").unidadesPorBase());
+        assertEquals(leida.getVersion() + 1, tasas.getTabla().getVersion());
+        assertThrows(TasaCambioNoDisponibleException.class, () -> tasas.convertir(BigDecimal.TEN, "USD", "JPY"));
+        assertThrows(IllegalArgumentException.class, () -> tasas.actualizar(Map.of("XYZ1", BigDecimal.ONE)));
+    }
+
+    @Test
+    public void testElImporteConvertidoUsaLosDecimalesDeLaMonedaDestino() {
+        // Arrange
+        TasasCambio tasas = new TasasCambio("USD", "", 0);
+        tasas.actualizar(Map.of("JPY", new BigDecimal("151.37")));
+
+        // Act
+        Conversion aYenes = tasas.convertir(new BigDecimal("10.05"), "USD", "JPY");
+        Conversion aDolares = tasas.convertir(new BigDecimal("1000"), "JPY", "USD");
+
+        // Assert: el yen no tiene unidad menor; el dinar bahreiní tiene tres decimales
+        assertEquals(new BigDecimal("1521"), aYenes.valorDestino());
+        assertEquals(new BigDecimal("6.61"), aDolares.valorDestino());
+        assertThrows(IllegalArgumentException.class, () -> TasasCambio.validarMoneda("BHD"));
+    }
+
+    @Test
+    public void testFuenteLocalSePublicaEnteraONadaYLasTasasVencen() throws Exception {
+        // Arrange
+        Path archivo = directorio.resolve("tasas.csv");
+        Files.writeString(archivo, "# moneda,unidades por USD\nEUR,0.80\nGBP,0.70," + Instant.now().minusSeconds(120) + "\n");
+        TasasCambio tasas = new TasasCambio("USD", archivo.toString(), 60_000);
+
+        // Act
+        tasas.recargarSiCambio();
+        long version = tasas.getTabla().getVersion();
+        Files.writeString(archivo, "EUR,0.85\nGBP,cero\n");
+        Files.setLastModifiedTime(archivo, FileTime.from(Instant.now().plusSeconds(1)));
+        tasas.recargarSiCambio();
+
+        // Assert: la segunda carga no publica nada; GBP ya venció
+        assertEquals(version, tasas.getTabla().getVersion());
+        assertEquals(new BigDecimal("0.80"), tasas.getTabla().obtener("EUR").unidadesPorBase());
+        assertEquals(new BigDecimal("80.00"), tasas.convertir(new BigDecimal("100"), "USD", "EUR").valorDestino());
+        assertThrows(TasaCambioNoDisponibleException.class, () -> tasas.convertir(BigDecimal.TEN, "USD", "GBP"));
+    }
+}
@@ -0,0 +1,189 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.exception.SaldoNoDisponibleException;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.CuentaCalienteService;
+import com.banksystem.cuenta.service.TransferenciaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class TransferenciaConcurrenciaTest {
+
+    private static final int CUENTAS = 10;
+    private static final int HILOS = 8;
+    private static final int TRANSFERENCIAS_POR_HILO = 100;
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000.00");
+
+    @Autowired
+    private TransferenciaService transferenciaService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private CuentaCalienteService cuentaCalienteService;
+
+    @Test
+    public void testTransferenciasCruzadasSinInterbloqueoNiDescuadre() throws Exception {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < CUENTAS; i++) {
+            Cuenta cuenta = new Cuenta("T" + System.nanoTime() + i, "Ahorros", SALDO_INICIAL, true, 1L);
+            ids.add(cuentaRepository.save(cuenta).getId());
+        }
+        AtomicInteger realizadas = new AtomicInteger();
+        AtomicInteger sinSaldo = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+
+        // Act: pares al azar en ambos sentidos, montos que a veces superan el saldo
+        for (int h = 0; h < HILOS; h++) {
+            hilos.submit(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                try {
+                    salida.await();
+                    for (int i = 0; i < TRANSFERENCIAS_POR_HILO; i++) {
+                        Long origen = ids.get(azar.nextInt(CUENTAS));
+                        Long destino = ids.get(azar.nextInt(CUENTAS));
+                        if (origen.equals(destino)) {
+                            continue;
+                        }
+                        BigDecimal valor = BigDecimal.valueOf(azar.nextInt(1, 40_000), 2);
+                        try {
+                            transferenciaService.transferir(origen, destino, valor);
+                            realizadas.incrementAndGet();
+                        } catch (SaldoNoDisponibleException e) {
+                            sinSaldo.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            });
+        }
+        salida.countDown();
+        hilos.shutdown();
+
+        // Assert
+        assertTrue(hilos.awaitTermination(2, TimeUnit.MINUTES), "Las transferencias no terminaron");
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        assertTrue(realizadas.get() > 0);
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Long id : ids) {
+            Cuenta cuenta = cuentaRepository.findById(id).orElseThrow();
+            BigDecimal esperado = cuenta.getSaldoInicial();
+            for (Movimiento movimiento : movimientoRepository.findByCuentaId(id)) {
+                esperado = "Deposito".equals(movimiento.getTipoMovimiento())
+                        ? esperado.add(movimiento.getValor())
+                        : esperado.subtract(movimiento.getValor());
+            }
+            assertEquals(0, esperado.compareTo(cuenta.getSaldoDisponible()), "Descuadre en cuenta " + id);
+            assertTrue(cuenta.getSaldoDisponible().signum() >= 0);
+            total = total.add(cuenta.getSaldoDisponible());
+        }
+        assertEquals(0, SALDO_INICIAL.multiply(BigDecimal.valueOf(CUENTAS)).compareTo(total));
+    }
+
+    @Test
+    public void testTransferenciasCruzadasEntreCuentasCalientesSinInterbloqueo() throws Exception {
+        // Arrange: dos cuentas con sub-saldos; cada retiro consolida las ranuras del origen
+        Long a = cuentaRepository.save(new Cuenta("C" + System.nanoTime(), "Ahorros", SALDO_INICIAL, true, 1L)).getId();
+        Long b = cuentaRepository.save(new Cuenta("D" + System.nanoTime(), "Ahorros", SALDO_INICIAL, true, 1L)).getId();
+        cuentaCalienteService.configurar(a, 4);
+        cuentaCalienteService.configurar(b, 4);
+        AtomicInteger realizadas = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+
+        // Act: la mitad de los hilos transfiere A→B y la otra mitad B→A
+        for (int h = 0; h < HILOS; h++) {
+            Long origen = h % 2 == 0 ? a : b;
+            Long destino = h % 2 == 0 ? b : a;
+            hilos.submit(() -> {
+                try {
+                    salida.await();
+                    for (int i = 0; i < TRANSFERENCIAS_POR_HILO; i++) {
+                        try {
+                            transferenciaService.transferir(origen, destino, new BigDecimal("3.00"));
+                            realizadas.incrementAndGet();
+                        } catch (SaldoNoDisponibleException e) {
+                            // El origen quedó sin saldo momentáneamente
+                        }
+                    }
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            });
+        }
+        salida.countDown();
+        hilos.shutdown();
+
+        // Assert
+        assertTrue(hilos.awaitTermination(2, TimeUnit.MINUTES), "Las transferencias no terminaron");
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        assertTrue(realizadas.get() > 0);
+        cuentaCalienteService.consolidarPendientes();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Long id : List.of(a, b)) {
+            Cuenta cuenta = cuentaRepository.findById(id).orElseThrow();
+            BigDecimal esperado = cuenta.getSaldoInicial();
+            for (Movimiento movimiento : movimientoRepository.findByCuentaId(id)) {
+                esperado = "Deposito".equals(movimiento.getTipoMovimiento())
+                        ? esperado.add(movimiento.getValor())
+                        : esperado.subtract(movimiento.getValor());
+            }
+            assertEquals(0, esperado.compareTo(cuenta.getSaldoDisponible()), "Descuadre en cuenta " + id);
+            total = total.add(cuenta.getSaldoDisponible());
+        }
+        assertEquals(0, SALDO_INICIAL.multiply(BigDecimal.valueOf(2)).compareTo(total));
+    }
+
+    @Test
+    public void testTransferenciaEnlazaMovimientos() {
+        // Arrange
+        Long origen = cuentaRepository.save(
+                new Cuenta("E" + System.nanoTime(), "Ahorros", SALDO_INICIAL, true, 1L)).getId();
+        Long destino = cuentaRepository.save(
+                new Cuenta("F" + System.nanoTime(), "Corriente", SALDO_INICIAL, true, 1L)).getId();
+
+        // Act
+        Map<String, Object> transferencia = transferenciaService.transferir(origen, destino, new BigDecimal("250.00"));
+
+        // Assert
+        String transferenciaId = (String) transferencia.get("transferenciaId");
+        List<Movimiento> movimientos = movimientoRepository.findByTransferenciaId(transferenciaId);
+        assertEquals(2, movimientos.size());
+        assertEquals(0, new BigDecimal("750.00").compareTo(cuentaRepository.findById(origen).orElseThrow().getSaldoDisponible()));
+        assertEquals(0, new BigDecimal("1250.00").compareTo(cuentaRepository.findById(destino).orElseThrow().getSaldoDisponible()));
+        assertThrows(SaldoNoDisponibleException.class,
+                () -> transferenciaService.transferir(origen, destino, new BigDecimal("5000.00")));
+        assertEquals(0, new BigDecimal("750.00").compareTo(cuentaRepository.findById(origen).orElseThrow().getSaldoDisponible()));
+    }
+}
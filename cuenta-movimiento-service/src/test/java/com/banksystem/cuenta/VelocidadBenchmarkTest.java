@@ -0,0 +1,58 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.service.ControlVelocidadService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latencia que agregan las reglas de velocidad a cada movimiento: dos reglas (una por tipo y
+ * una de cualquier tipo) sobre 100.000 cuentas, medida llamada por llamada.
+ * Ejecutar con: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+public class VelocidadBenchmarkTest {
+
+    private static final int CUENTAS = 100_000;
+    private static final int OPERACIONES = 2_000_000;
+
+    @Test
+    public void benchmarkRegistrar() {
+        // Límites altos: se mide el camino que admite, el de todos los movimientos legítimos
+        ControlVelocidadService control = new ControlVelocidadService(null,
+                "Retiro@10=1000000:0,*@1440=1000000:0", 20, CUENTAS);
+        BigDecimal[] valores = {new BigDecimal("10.00"), new BigDecimal("250.50"), new BigDecimal("1999.99")};
+        String[] tipos = {"Retiro", "Deposito"};
+
+        medir(control, valores, tipos);
+        long[] latencias = medir(control, valores, tipos);
+
+        Arrays.sort(latencias);
+        double p50 = latencias[OPERACIONES / 2] / 1_000.0;
+        double p99 = latencias[(int) (OPERACIONES * 0.99)] / 1_000.0;
+        double p999 = latencias[(int) (OPERACIONES * 0.999)] / 1_000.0;
+        System.out.printf("registrar sobre %d cuentas: p50 %.2f µs, p99 %.2f µs, p99.9 %.2f µs%n",
+                CUENTAS, p50, p99, p999);
+
+        assertTrue(p99 < 5.0, "p99 de " + p99 + " µs");
+    }
+
+    private static long[] medir(ControlVelocidadService control, BigDecimal[] valores, String[] tipos) {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        long[] latencias = new long[OPERACIONES];
+        for (int i = 0; i < OPERACIONES; i++) {
+            long cuentaId = azar.nextInt(CUENTAS);
+            String tipo = tipos[i & 1];
+            BigDecimal valor = valores[i % valores.length];
+            long inicio = System.nanoTime();
+            control.registrar(cuentaId, tipo, valor);
+            latencias[i] = System.nanoTime() - inicio;
+        }
+        return latencias;
+    }
+}
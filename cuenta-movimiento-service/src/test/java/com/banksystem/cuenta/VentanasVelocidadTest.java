@@ -0,0 +1,88 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.limite.VentanasVelocidad;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VentanasVelocidadTest {
+
+    private static final long MINUTO = 60_000L;
+    private static final long INICIO = 1_700_000_000_000L;
+
+    @Test
+    public void testCantidadYMontoPorVentanaDeslizante() {
+        // Arrange: hasta 3 retiros o 1000.00 en 10 minutos
+        VentanasVelocidad.Regla regla = new VentanasVelocidad.Regla("Retiro", 10 * MINUTO, 3, 100_000, "Retiro@10=3:1000");
+        VentanasVelocidad ventanas = new VentanasVelocidad(List.of(regla), 10, 100);
+
+        // Act
+        VentanasVelocidad.Regla primero = ventanas.registrar(1, "Retiro", 10_000, INICIO);
+        VentanasVelocidad.Regla segundo = ventanas.registrar(1, "Retiro", 10_000, INICIO + MINUTO);
+        VentanasVelocidad.Regla excedeMonto = ventanas.registrar(1, "Retiro", 90_000, INICIO + 2 * MINUTO);
+        VentanasVelocidad.Regla tercero = ventanas.registrar(1, "Retiro", 10_000, INICIO + 2 * MINUTO);
+        VentanasVelocidad.Regla excedeCantidad = ventanas.registrar(1, "Retiro", 1, INICIO + 3 * MINUTO);
+        VentanasVelocidad.Regla deposito = ventanas.registrar(1, "Deposito", 1_000_000, INICIO + 3 * MINUTO);
+        VentanasVelocidad.Regla otraCuenta = ventanas.registrar(2, "Retiro", 10_000, INICIO + 3 * MINUTO);
+        // El primer retiro sale de la ventana: vuelve a haber lugar para uno
+        VentanasVelocidad.Regla trasDeslizar = ventanas.registrar(1, "Retiro", 10_000, INICIO + 10 * MINUTO);
+        VentanasVelocidad.Regla excedeOtraVez = ventanas.registrar(1, "Retiro", 10_000, INICIO + 10 * MINUTO);
+
+        // Assert
+        assertNull(primero);
+        assertNull(segundo);
+        assertSame(regla, excedeMonto);
+        assertNull(tercero);
+        assertSame(regla, excedeCantidad);
+        assertNull(deposito);
+        assertNull(otraCuenta);
+        assertNull(trasDeslizar);
+        assertSame(regla, excedeOtraVez);
+    }
+
+    @Test
+    public void testDeshacerLiberaElCupoYCargarNoValida() {
+        // Arrange: hasta 2 movimientos de cualquier tipo en 5 minutos
+        VentanasVelocidad.Regla regla = new VentanasVelocidad.Regla(null, 5 * MINUTO, 2, 0, "*@5=2:0");
+        VentanasVelocidad ventanas = new VentanasVelocidad(List.of(regla), 5, 100);
+        ventanas.cargar(1, "Deposito", 100, INICIO);
+        ventanas.cargar(1, "Retiro", 100, INICIO);
+        ventanas.cargar(1, "Retiro", 100, INICIO);
+
+        // Act
+        VentanasVelocidad.Regla excedida = ventanas.registrar(1, "Deposito", 100, INICIO + MINUTO);
+        ventanas.deshacer(1, "Retiro", 100, INICIO);
+        ventanas.deshacer(1, "Retiro", 100, INICIO);
+        VentanasVelocidad.Regla admitida = ventanas.registrar(1, "Deposito", 100, INICIO + MINUTO);
+
+        // Assert
+        assertSame(regla, excedida);
+        assertNull(admitida);
+    }
+
+    @Test
+    public void testPurgaCuentasInactivasYMaximoDeCuentas() {
+        // Arrange
+        VentanasVelocidad.Regla regla = new VentanasVelocidad.Regla("Retiro", MINUTO, 1, 0, "Retiro@1=1:0");
+        VentanasVelocidad ventanas = new VentanasVelocidad(List.of(regla), 4, 2);
+        ventanas.registrar(1, "Retiro", 100, INICIO);
+        ventanas.registrar(2, "Retiro", 100, INICIO + MINUTO);
+
+        // Act: sin lugar, la cuenta 3 no se controla
+        VentanasVelocidad.Regla sinControl1 = ventanas.registrar(3, "Retiro", 100, INICIO + MINUTO);
+        VentanasVelocidad.Regla sinControl2 = ventanas.registrar(3, "Retiro", 100, INICIO + MINUTO);
+        int descartadas = ventanas.purgar(INICIO + MINUTO + 1);
+        VentanasVelocidad.Regla controlada1 = ventanas.registrar(3, "Retiro", 100, INICIO + MINUTO);
+        VentanasVelocidad.Regla controlada2 = ventanas.registrar(3, "Retiro", 100, INICIO + MINUTO);
+
+        // Assert
+        assertNull(sinControl1);
+        assertNull(sinControl2);
+        assertEquals(1, descartadas);
+        assertNull(controlada1);
+        assertSame(regla, controlada2);
+        assertEquals(2, ventanas.getCuentas());
+    }
+}
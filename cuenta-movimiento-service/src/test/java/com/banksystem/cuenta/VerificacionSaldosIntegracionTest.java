@@ -0,0 +1,105 @@
+package com.banksystem.cuenta;
+
+import com.banksystem.cuenta.entity.Cuenta;
+import com.banksystem.cuenta.entity.Movimiento;
+import com.banksystem.cuenta.repository.CuentaRepository;
+import com.banksystem.cuenta.repository.MovimientoRepository;
+import com.banksystem.cuenta.service.CuentaService;
+import com.banksystem.cuenta.service.MovimientoService;
+import com.banksystem.cuenta.service.VerificacionSaldosService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class VerificacionSaldosIntegracionTest {
+
+    @Autowired
+    private VerificacionSaldosService verificacionSaldosService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private MovimientoService movimientoService;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testInformaElHuecoDeLaCadenaYLaReparacionLoCorrige() throws Exception {
+        // Arrange: el tercer depósito se calculó sobre el mismo saldo que el segundo
+        Long sanaId = crearCuenta("100.00");
+        movimientoService.registrarMovimiento(sanaId, "Deposito", new BigDecimal("40.00"));
+        Long cuentaId = crearCuenta("100.00");
+        movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("50.00"));
+        Movimiento segundo = movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("25.00"));
+        Movimiento tercero = movimientoService.registrarMovimiento(cuentaId, "Deposito", new BigDecimal("10.00"));
+        jdbcTemplate.update("UPDATE movimiento SET saldo = 160.00 WHERE id = ?", tercero.getId());
+        jdbcTemplate.update("UPDATE cuenta SET saldo_disponible = 160.00 WHERE id = ?", cuentaId);
+
+        // Act
+        List<JsonNode> informadas = verificar(false, cuentaId);
+        List<JsonNode> reparadas = verificar(true, cuentaId);
+        List<JsonNode> despues = verificar(false, cuentaId);
+
+        // Assert
+        assertEquals(2, informadas.size());
+        JsonNode cadena = informadas.get(0);
+        assertEquals("CADENA", cadena.get("tipo").asText());
+        assertEquals(tercero.getId().longValue(), cadena.get("movimientoId").asLong());
+        assertEquals(segundo.getId().longValue(), cadena.get("movimientoAnteriorId").asLong());
+        assertEquals(0, new BigDecimal("185.00").compareTo(cadena.get("saldoEsperado").decimalValue()));
+        assertEquals(0, new BigDecimal("160.00").compareTo(cadena.get("saldoRegistrado").decimalValue()));
+        assertEquals("SALDO_CUENTA", informadas.get(1).get("tipo").asText());
+        assertFalse(informadas.get(1).get("reparada").asBoolean());
+        assertTrue(verificar(false, sanaId).isEmpty());
+
+        assertEquals(2, reparadas.size());
+        assertTrue(reparadas.get(0).get("reparada").asBoolean());
+        assertTrue(despues.isEmpty());
+        assertEquals(new BigDecimal("185.00"), movimientoRepository.findById(tercero.getId()).orElseThrow().getSaldo());
+        assertEquals(new BigDecimal("185.00"), cuentaRepository.findById(cuentaId).orElseThrow().getSaldoDisponible());
+    }
+
+    private List<JsonNode> verificar(boolean reparar, Long cuentaId) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        Map<String, Object> resumen = verificacionSaldosService.verificar(reparar, salida);
+        JsonNode informe = objectMapper.readTree(salida.toByteArray());
+        assertEquals(resumen.get("divergencias"), informe.get("resumen").get("divergencias").asLong());
+        List<JsonNode> deLaCuenta = new ArrayList<>();
+        for (JsonNode divergencia : informe.get("divergencias")) {
+            if (divergencia.get("cuentaId").asLong() == cuentaId) {
+                deLaCuenta.add(divergencia);
+            }
+        }
+        return deLaCuenta;
+    }
+
+    private Long crearCuenta(String saldo) {
+        Cuenta cuenta = new Cuenta("V" + System.nanoTime(), "Ahorros", new BigDecimal(saldo), true, 1L);
+        return cuentaService.crearCuenta(cuenta).getId();
+    }
+}
@@ -0,0 +1,43 @@
+#!/bin/bash
+
+# Prueba de carga local: compila ambos servicios con el perfil embebido (H2 en memoria, sin
+# MySQL ni RabbitMQ), los arranca, ejecuta el generador de carga y los detiene.
+# El resumen queda en resultados-carga/<commit>.json para comparar entre commits.
+#
+# Uso: ./ejecutar-carga.sh [parámetros del generador]
+#
+# Ejemplos:
+#   ./ejecutar-carga.sh --tasa=100 --duracion-s=60
+#   ./ejecutar-carga.sh --tasa=50 --mezcla=deposito:50,retiro:50 --sesgo=1.4 --etiqueta=calientes
+
+set -e
+
+# clean: clases AOT de un build anterior con -Parranque-rapido no deben quedar en target/classes
+mvn -B -q clean package -DskipTests -Pembebido -pl cliente-persona-service,cuenta-movimiento-service -am
+mvn -B -q install -N
+mvn -B -q compile -pl prueba-carga
+
+LOGS=$(mktemp -d)
+java -jar cliente-persona-service/target/cliente-persona-service-1.0.0.jar \
+    --spring.profiles.active=embebido > "$LOGS/cliente.log" 2>&1 &
+PID_CLIENTES=$!
+java -jar cuenta-movimiento-service/target/cuenta-movimiento-service-1.0.0.jar \
+    --spring.profiles.active=embebido > "$LOGS/cuenta.log" 2>&1 &
+PID_CUENTAS=$!
+trap 'kill $PID_CLIENTES $PID_CUENTAS 2>/dev/null || true' EXIT
+
+esperar() {
+    for _ in $(seq 1 180); do
+        if [ "$(curl -s -o /dev/null -w '%{http_code}' "$1" 2>/dev/null)" = "200" ]; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo "❌ Sin respuesta 200 de $1; logs en $LOGS"
+    exit 1
+}
+esperar http://localhost:8080/api/clientes
+esperar http://localhost:8081/api/cuentas
+
+mvn -B -q -pl prueba-carga exec:java -Dexec.args="$*"
+echo "Logs de los servicios: $LOGS"
@@ -0,0 +1,75 @@
+#!/bin/bash
+
+# Medición de arranque de un servicio: tiempo hasta "Started" (reportado por Spring Boot)
+# y tiempo hasta la primera respuesta HTTP 200 desde el lanzamiento del proceso.
+#
+# Uso: ./medir-arranque.sh <url> <repeticiones> <comando...>
+#
+# Ejemplos (MySQL y RabbitMQ levantados con docker-compose):
+#   ./medir-arranque.sh http://localhost:8081/api/cuentas 5 \
+#       java -jar cuenta-movimiento-service/target/cuenta-movimiento-service-1.0.0.jar
+#   ./medir-arranque.sh http://localhost:8081/api/cuentas 5 \
+#       docker run --rm --network banco_banco-network -p 8081:8081 \
+#       -e SPRING_DATASOURCE_URL=jdbc:mysql://mysql:3306/banco_sistema -e SPRING_RABBITMQ_HOST=rabbitmq \
+#       banco-cuenta-movimiento-service
+
+set -e
+
+if [ $# -lt 3 ]; then
+    echo "Uso: $0 <url> <repeticiones> <comando...>"
+    exit 1
+fi
+
+URL=$1
+REPETICIONES=$2
+shift 2
+
+ms_ahora() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+mediana() {
+    sort -n | awk '{ v[NR] = $1 } END { if (NR % 2) print v[(NR + 1) / 2]; else print (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+ARRANQUES=()
+PRIMERAS=()
+for i in $(seq 1 "$REPETICIONES"); do
+    LOG=$(mktemp)
+    INICIO=$(ms_ahora)
+    "$@" > "$LOG" 2>&1 &
+    PID=$!
+
+    # Sondear cada 10 ms hasta la primera respuesta 200 (máximo 120 s)
+    PRIMERA=""
+    while [ $(( $(ms_ahora) - INICIO )) -lt 120000 ]; do
+        if ! kill -0 "$PID" 2>/dev/null; then
+            break
+        fi
+        if [ "$(curl -s -o /dev/null -w '%{http_code}' "$URL" 2>/dev/null)" = "200" ]; then
+            PRIMERA=$(( $(ms_ahora) - INICIO ))
+            break
+        fi
+        sleep 0.01
+    done
+
+    kill "$PID" 2>/dev/null || true
+    wait "$PID" 2>/dev/null || true
+
+    if [ -z "$PRIMERA" ]; then
+        echo "❌ Ejecución $i: sin respuesta 200 de $URL; últimas líneas del log:"
+        tail -20 "$LOG"
+        rm -f "$LOG"
+        exit 1
+    fi
+
+    # "Started X in 4.321 seconds (process running for 5.012)"
+    ARRANQUE=$(grep -o 'process running for [0-9.]*' "$LOG" | awk '{ printf "%d", $4 * 1000 }')
+    rm -f "$LOG"
+    ARRANQUES+=("$ARRANQUE")
+    PRIMERAS+=("$PRIMERA")
+    echo "Ejecución $i: arranque ${ARRANQUE} ms, primera respuesta ${PRIMERA} ms"
+done
+
+echo "Mediana: arranque $(printf '%s\n' "${ARRANQUES[@]}" | mediana) ms," \
+     "primera respuesta $(printf '%s\n' "${PRIMERAS[@]}" | mediana) ms"
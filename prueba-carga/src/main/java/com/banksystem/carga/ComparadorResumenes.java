@@ -0,0 +1,61 @@
+package com.banksystem.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Comparar dos corridas (p. ej. el commit base y el nuevo) por operación y percentil.
+ * Con {@code --umbral=N} termina con código 1 si algún p99 empeoró más de N %.
+ *
+ * <pre>
+ * mvn -pl prueba-carga exec:java -Dexec.mainClass=com.banksystem.carga.ComparadorResumenes \
+ *     -Dexec.args="resultados-carga/a1b2c3d.json resultados-carga/e4f5a6b.json --umbral=10"
+ * </pre>
+ */
+public class ComparadorResumenes {
+
+    private static final String[] METRICAS = {"porSegundo", "p50Ms", "p99Ms", "p999Ms"};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: ComparadorResumenes <base.json> <nuevo.json> [--umbral=porcentaje]");
+            System.exit(2);
+        }
+        double umbral = args.length > 2 && args[2].startsWith("--umbral=")
+                ? Double.parseDouble(args[2].substring("--umbral=".length())) : Double.NaN;
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode base = objectMapper.readTree(new File(args[0]));
+        JsonNode nuevo = objectMapper.readTree(new File(args[1]));
+
+        System.out.printf("%s -> %s%n%n%-14s %-11s %12s %12s %9s%n", base.get("etiqueta").asText(),
+                nuevo.get("etiqueta").asText(), "operacion", "metrica", "base", "nuevo", "cambio");
+        boolean regresion = false;
+        Iterator<Map.Entry<String, JsonNode>> operaciones = nuevo.get("operaciones").fields();
+        while (operaciones.hasNext()) {
+            Map.Entry<String, JsonNode> operacion = operaciones.next();
+            JsonNode anterior = base.get("operaciones").get(operacion.getKey());
+            if (anterior == null) {
+                continue;
+            }
+            for (String metrica : METRICAS) {
+                double valorBase = anterior.get(metrica).asDouble();
+                double valorNuevo = operacion.getValue().get(metrica).asDouble();
+                double cambio = valorBase == 0 ? 0 : (valorNuevo - valorBase) * 100 / valorBase;
+                System.out.printf("%-14s %-11s %12.3f %12.3f %+8.1f%%%n", operacion.getKey(), metrica,
+                        valorBase, valorNuevo, cambio);
+                if ("p99Ms".equals(metrica) && cambio > umbral) {
+                    regresion = true;
+                }
+            }
+        }
+        if (regresion) {
+            System.out.printf("%np99 empeoró más de %.1f %% en al menos una operación%n", umbral);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.banksystem.carga;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de una corrida ({@code --clave=valor}); lo no indicado toma el valor por defecto.
+ */
+public class ConfiguracionCarga {
+
+    private static final Map<String, String> POR_DEFECTO = new LinkedHashMap<>();
+
+    static {
+        POR_DEFECTO.put("url-clientes", "http://localhost:8080");
+        POR_DEFECTO.put("url-cuentas", "http://localhost:8081");
+        POR_DEFECTO.put("tasa", "200");
+        POR_DEFECTO.put("duracion-s", "60");
+        POR_DEFECTO.put("calentamiento-s", "10");
+        POR_DEFECTO.put("clientes", "200");
+        POR_DEFECTO.put("cuentas-por-cliente", "2");
+        POR_DEFECTO.put("sesgo", "1.1");
+        POR_DEFECTO.put("mezcla", "deposito:40,retiro:30,cuenta:20,cliente:5,estado-cuenta:5");
+        POR_DEFECTO.put("maximo-en-vuelo", "2000");
+        POR_DEFECTO.put("timeout-s", "10");
+        POR_DEFECTO.put("semilla", "42");
+        POR_DEFECTO.put("salida", "resultados-carga");
+        POR_DEFECTO.put("etiqueta", "");
+    }
+
+    private final Map<String, String> valores;
+
+    private ConfiguracionCarga(Map<String, String> valores) {
+        this.valores = valores;
+    }
+
+    public static ConfiguracionCarga desdeArgumentos(String[] args) {
+        Map<String, String> valores = new LinkedHashMap<>(POR_DEFECTO);
+        for (String argumento : args) {
+            int igual = argumento.indexOf('=');
+            if (!argumento.startsWith("--") || igual < 0) {
+                throw new IllegalArgumentException("Argumento inválido (--clave=valor): " + argumento);
+            }
+            String clave = argumento.substring(2, igual);
+            if (!valores.containsKey(clave)) {
+                throw new IllegalArgumentException("Parámetro desconocido: " + clave
+                        + " (válidos: " + String.join(", ", POR_DEFECTO.keySet()) + ")");
+            }
+            valores.put(clave, argumento.substring(igual + 1));
+        }
+        if (valores.get("etiqueta").isBlank()) {
+            valores.put("etiqueta", etiquetaPorDefecto());
+        }
+        return new ConfiguracionCarga(valores);
+    }
+
+    /**
+     * Commit actual (para comparar corridas entre commits) o, fuera de git, la fecha
+     */
+    private static String etiquetaPorDefecto() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").start();
+            String commit = new String(git.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (git.waitFor() == 0 && !commit.isEmpty()) {
+                return commit;
+            }
+        } catch (IOException e) {
+            // sin git en el PATH
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    }
+
+    public String texto(String clave) {
+        return valores.get(clave);
+    }
+
+    public int entero(String clave) {
+        return Integer.parseInt(valores.get(clave));
+    }
+
+    public double decimal(String clave) {
+        return Double.parseDouble(valores.get(clave));
+    }
+
+    public Map<String, String> getValores() {
+        return valores;
+    }
+}
@@ -0,0 +1,36 @@
+package com.banksystem.carga;
+
+import java.util.Arrays;
+
+/**
+ * Popularidad sesgada de las cuentas: la de rango k recibe tráfico proporcional a 1/k^s.
+ * Con s = 1.1 y 400 cuentas, las 10 más calientes reciben cerca de la mitad de las operaciones.
+ */
+public class DistribucionZipf {
+
+    private final double[] acumulada;
+
+    public DistribucionZipf(int elementos, double sesgo) {
+        if (elementos < 1 || sesgo < 0) {
+            throw new IllegalArgumentException("Se requieren elementos >= 1 y sesgo >= 0");
+        }
+        acumulada = new double[elementos];
+        double total = 0;
+        for (int k = 0; k < elementos; k++) {
+            total += 1.0 / Math.pow(k + 1, sesgo);
+            acumulada[k] = total;
+        }
+        for (int k = 0; k < elementos; k++) {
+            acumulada[k] /= total;
+        }
+    }
+
+    /**
+     * Rango (0 = el más popular) para un uniforme u en [0, 1)
+     */
+    public int rango(double u) {
+        int posicion = Arrays.binarySearch(acumulada, u);
+        int rango = posicion >= 0 ? posicion + 1 : -posicion - 1;
+        return Math.min(rango, acumulada.length - 1);
+    }
+}
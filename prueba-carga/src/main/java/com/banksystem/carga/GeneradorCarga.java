@@ -0,0 +1,240 @@
+package com.banksystem.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de modelo abierto contra ambos servicios.
+ * <ul>
+ *   <li>Las peticiones salen a tasa constante, respondan o no las anteriores: una respuesta
+ *   lenta no frena la llegada de las siguientes, como ocurre con usuarios reales.</li>
+ *   <li>Cuenta objetivo con distribución Zipf (pocas cuentas calientes) y operación según la
+ *   mezcla configurada; la semilla fija hace repetible la secuencia.</li>
+ *   <li>Tras el calentamiento se mide; el resumen queda en {@code salida/etiqueta.json} y el
+ *   log de intervalos HDR en {@code salida/etiqueta.hlog}.</li>
+ * </ul>
+ *
+ * <pre>
+ * mvn -pl prueba-carga exec:java -Dexec.args="--tasa=500 --duracion-s=60"
+ * </pre>
+ */
+public class GeneradorCarga {
+
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000.00");
+    private static final String VALOR_DEPOSITO = "50.00";
+    private static final String VALOR_RETIRO = "20.00";
+
+    /**
+     * Cuenta creada para la corrida con su cliente
+     */
+    record CuentaCarga(long cuentaId, long clienteId) {
+    }
+
+    private final ConfiguracionCarga configuracion;
+    private final HttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String urlClientes;
+    private final String urlCuentas;
+    private final Duration timeout;
+    private final List<CuentaCarga> cuentas = new ArrayList<>();
+
+    public GeneradorCarga(ConfiguracionCarga configuracion, ExecutorService ejecutor) {
+        this.configuracion = configuracion;
+        this.urlClientes = configuracion.texto("url-clientes");
+        this.urlCuentas = configuracion.texto("url-cuentas");
+        this.timeout = Duration.ofSeconds(configuracion.entero("timeout-s"));
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(ejecutor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfiguracionCarga configuracion = ConfiguracionCarga.desdeArgumentos(args);
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors()), tarea -> {
+                    Thread hilo = new Thread(tarea, "carga-" + numeroHilo.getAndIncrement());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        GeneradorCarga generador = new GeneradorCarga(configuracion, ejecutor);
+        generador.preparar();
+
+        Path salida = Path.of(configuracion.texto("salida"));
+        String etiqueta = configuracion.texto("etiqueta");
+        Files.createDirectories(salida);
+        Resultados resultados = new Resultados(salida.resolve(etiqueta + ".hlog"));
+        generador.ejecutar(resultados);
+        resultados.cerrar();
+
+        Map<String, Object> resumen = resultados.resumir(configuracion, configuracion.entero("duracion-s"));
+        Path archivo = salida.resolve(etiqueta + ".json");
+        Resultados.guardar(resumen, archivo);
+        Resultados.imprimir(resumen, System.out);
+        System.out.println("\nResumen: " + archivo.toAbsolutePath());
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Crear los clientes y sus cuentas de la corrida (identificaciones únicas por corrida,
+     * para poder repetirla sin reiniciar los servicios)
+     */
+    public void preparar() throws IOException, InterruptedException {
+        int clientes = configuracion.entero("clientes");
+        int cuentasPorCliente = configuracion.entero("cuentas-por-cliente");
+        long corrida = System.currentTimeMillis() % 10_000_000_000L;
+        System.out.printf("Preparando %d clientes con %d cuentas cada uno...%n", clientes, cuentasPorCliente);
+        for (int c = 0; c < clientes; c++) {
+            Map<String, Object> cliente = new LinkedHashMap<>();
+            cliente.put("nombre", "Cliente Carga " + c);
+            cliente.put("genero", c % 2 == 0 ? "F" : "M");
+            cliente.put("edad", 18 + c % 60);
+            cliente.put("identificacion", String.format("%010d%05d", corrida, c));
+            cliente.put("direccion", "Calle Carga " + c);
+            cliente.put("telefono", String.format("09%08d", c));
+            cliente.put("contrasena", "clave-" + c);
+            cliente.put("estado", true);
+            long clienteId = crear(urlClientes + "/api/clientes", cliente);
+            for (int k = 0; k < cuentasPorCliente; k++) {
+                Map<String, Object> cuenta = new LinkedHashMap<>();
+                cuenta.put("numeroCuenta", String.format("L%010d%05d%02d", corrida, c, k));
+                cuenta.put("tipoCuenta", k % 2 == 0 ? "Ahorros" : "Corriente");
+                cuenta.put("saldoInicial", SALDO_INICIAL);
+                cuenta.put("saldoDisponible", SALDO_INICIAL);
+                cuenta.put("estado", true);
+                cuenta.put("clienteId", clienteId);
+                cuentas.add(new CuentaCarga(crear(urlCuentas + "/api/cuentas", cuenta), clienteId));
+            }
+        }
+    }
+
+    private long crear(String url, Map<String, Object> cuerpo) throws IOException, InterruptedException {
+        HttpResponse<String> respuesta = http.send(HttpRequest.newBuilder(URI.create(url))
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(cuerpo)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 201 && respuesta.statusCode() != 200) {
+            throw new IllegalStateException("POST " + url + " respondió " + respuesta.statusCode()
+                    + ": " + respuesta.body());
+        }
+        JsonNode creado = objectMapper.readTree(respuesta.body());
+        return creado.get("id").asLong();
+    }
+
+    /**
+     * Fase de calentamiento más fase medida, a tasa constante
+     */
+    public void ejecutar(Resultados resultados) throws InterruptedException {
+        double tasa = configuracion.decimal("tasa");
+        long intervaloNanos = Math.round(1_000_000_000.0 / tasa);
+        int maximoEnVuelo = configuracion.entero("maximo-en-vuelo");
+        DistribucionZipf distribucion = new DistribucionZipf(cuentas.size(), configuracion.decimal("sesgo"));
+        Operacion.Mezcla mezcla = new Operacion.Mezcla(configuracion.texto("mezcla"));
+        SplittableRandom aleatorio = new SplittableRandom(configuracion.entero("semilla"));
+        AtomicInteger enVuelo = new AtomicInteger();
+
+        long inicio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long finCalentamiento = inicio + TimeUnit.SECONDS.toNanos(configuracion.entero("calentamiento-s"));
+        long fin = finCalentamiento + TimeUnit.SECONDS.toNanos(configuracion.entero("duracion-s"));
+        System.out.printf("Carga: %.0f peticiones/s, %d s de calentamiento y %d s medidos%n", tasa,
+                configuracion.entero("calentamiento-s"), configuracion.entero("duracion-s"));
+
+        ScheduledExecutorService volcado = Executors.newSingleThreadScheduledExecutor();
+        volcado.scheduleAtFixedRate(resultados::cerrarIntervalo, 1, 1, TimeUnit.SECONDS);
+        try {
+            for (long i = 0; ; i++) {
+                long programado = inicio + i * intervaloNanos;
+                if (programado - fin >= 0) {
+                    break;
+                }
+                esperarHasta(programado);
+                Operacion operacion = mezcla.elegir(aleatorio.nextDouble());
+                CuentaCarga cuenta = cuentas.get(distribucion.rango(aleatorio.nextDouble()));
+                boolean medir = programado - finCalentamiento >= 0;
+                if (enVuelo.get() >= maximoEnVuelo) {
+                    if (medir) {
+                        resultados.descartar(operacion);
+                    }
+                    continue;
+                }
+                enVuelo.incrementAndGet();
+                http.sendAsync(peticion(operacion, cuenta), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((respuesta, error) -> {
+                            enVuelo.decrementAndGet();
+                            if (medir) {
+                                resultados.registrar(operacion, System.nanoTime() - programado,
+                                        respuesta != null ? respuesta.statusCode() : -1);
+                            }
+                        });
+            }
+            // Las que siguen en vuelo cuentan con su latencia real (a lo sumo el timeout)
+            long limite = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+            while (enVuelo.get() > 0 && System.nanoTime() - limite < 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            volcado.shutdownNow();
+            volcado.awaitTermination(1, TimeUnit.SECONDS);
+            resultados.cerrarIntervalo();
+        }
+    }
+
+    HttpRequest peticion(Operacion operacion, CuentaCarga cuenta) {
+        String url = switch (operacion) {
+            case DEPOSITO -> urlCuentas + "/api/movimientos/registrar?cuentaId=" + cuenta.cuentaId()
+                    + "&tipoMovimiento=Deposito&valor=" + VALOR_DEPOSITO;
+            case RETIRO -> urlCuentas + "/api/movimientos/registrar?cuentaId=" + cuenta.cuentaId()
+                    + "&tipoMovimiento=Retiro&valor=" + VALOR_RETIRO;
+            case CONSULTA_CUENTA -> urlCuentas + "/api/cuentas/" + cuenta.cuentaId();
+            case CONSULTA_CLIENTE -> urlClientes + "/api/clientes/" + cuenta.clienteId();
+            case ESTADO_CUENTA -> urlCuentas + "/api/reportes/estado-cuenta?clienteId=" + cuenta.clienteId()
+                    + "&fechaInicio=" + LocalDate.now().minusDays(30) + "&fechaFin=" + LocalDate.now();
+        };
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(timeout);
+        if (operacion == Operacion.DEPOSITO || operacion == Operacion.RETIRO) {
+            builder.POST(HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Dormir hasta cerca del instante y girar el resto: parkNanos solo se pasa de largo
+     * decenas de microsegundos, demasiado a tasas altas
+     */
+    private static void esperarHasta(long instante) {
+        long restante;
+        while ((restante = instante - System.nanoTime()) > 0) {
+            if (restante > 100_000) {
+                LockSupport.parkNanos(restante - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.banksystem.carga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operaciones de la mezcla de tráfico y su peso relativo
+ */
+public enum Operacion {
+
+    DEPOSITO("deposito"),
+    RETIRO("retiro"),
+    CONSULTA_CUENTA("cuenta"),
+    CONSULTA_CLIENTE("cliente"),
+    ESTADO_CUENTA("estado-cuenta");
+
+    private final String clave;
+
+    Operacion(String clave) {
+        this.clave = clave;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public static Operacion porClave(String clave) {
+        for (Operacion operacion : values()) {
+            if (operacion.clave.equals(clave)) {
+                return operacion;
+            }
+        }
+        throw new IllegalArgumentException("Operación desconocida en la mezcla: " + clave);
+    }
+
+    /**
+     * Mezcla {@code operacion:peso,...} lista para elegir con un uniforme
+     */
+    public static class Mezcla {
+
+        private final Operacion[] operaciones;
+        private final double[] acumulada;
+
+        public Mezcla(String definicion) {
+            List<Operacion> elegidas = new ArrayList<>();
+            List<Double> pesos = new ArrayList<>();
+            double total = 0;
+            for (String parte : definicion.split(",")) {
+                if (parte.isBlank()) {
+                    continue;
+                }
+                String[] claveYPeso = parte.trim().split(":");
+                if (claveYPeso.length != 2) {
+                    throw new IllegalArgumentException("Mezcla inválida (operacion:peso): " + parte);
+                }
+                double peso = Double.parseDouble(claveYPeso[1]);
+                if (peso <= 0) {
+                    continue;
+                }
+                elegidas.add(porClave(claveYPeso[0].trim()));
+                total += peso;
+                pesos.add(total);
+            }
+            if (elegidas.isEmpty()) {
+                throw new IllegalArgumentException("La mezcla no tiene operaciones con peso positivo");
+            }
+            operaciones = elegidas.toArray(new Operacion[0]);
+            acumulada = new double[pesos.size()];
+            for (int i = 0; i < acumulada.length; i++) {
+                acumulada[i] = pesos.get(i) / total;
+            }
+        }
+
+        public Operacion elegir(double u) {
+            for (int i = 0; i < acumulada.length - 1; i++) {
+                if (u < acumulada[i]) {
+                    return operaciones[i];
+                }
+            }
+            return operaciones[operaciones.length - 1];
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.banksystem.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias (HDR, en nanosegundos) y conteos por operación durante la fase medida.
+ * <ul>
+ *   <li>La latencia se mide desde el instante en que la petición debía salir según la tasa, no
+ *   desde que salió: si el generador o el servicio se atrasan, la espera cuenta (sin omisión
+ *   coordinada).</li>
+ *   <li>Cada segundo se vuelca un intervalo por operación al log {@code .hlog}; el resumen
+ *   {@code .json} es el que se compara entre commits.</li>
+ * </ul>
+ */
+public class Resultados {
+
+    private static final double NANOS_POR_MS = 1_000_000.0;
+
+    private static final class Medicion {
+        final Recorder recorder = new Recorder(3);
+        final Histogram acumulado = new Histogram(3);
+        Histogram intervalo;
+        final LongAdder exitosas = new LongAdder();
+        final LongAdder rechazadas = new LongAdder();
+        final LongAdder errores = new LongAdder();
+        final LongAdder fallos = new LongAdder();
+        final LongAdder descartadas = new LongAdder();
+    }
+
+    private final Map<Operacion, Medicion> mediciones = new EnumMap<>(Operacion.class);
+    private final HistogramLogWriter log;
+
+    public Resultados(Path archivoLog) throws FileNotFoundException {
+        for (Operacion operacion : Operacion.values()) {
+            mediciones.put(operacion, new Medicion());
+        }
+        this.log = new HistogramLogWriter(archivoLog.toFile());
+        log.outputLogFormatVersion();
+        log.outputStartTime(System.currentTimeMillis());
+        log.outputLegend();
+    }
+
+    /**
+     * Respuesta (estado HTTP) o fallo sin respuesta (estado negativo: timeout, conexión)
+     */
+    public void registrar(Operacion operacion, long latenciaNanos, int estado) {
+        Medicion medicion = mediciones.get(operacion);
+        medicion.recorder.recordValue(Math.max(latenciaNanos, 1));
+        if (estado < 0) {
+            medicion.fallos.increment();
+        } else if (estado >= 500) {
+            medicion.errores.increment();
+        } else if (estado >= 400) {
+            medicion.rechazadas.increment();
+        } else {
+            medicion.exitosas.increment();
+        }
+    }
+
+    /**
+     * Petición no enviada porque el generador ya tenía el máximo en vuelo
+     */
+    public void descartar(Operacion operacion) {
+        mediciones.get(operacion).descartadas.increment();
+    }
+
+    /**
+     * Volcar el intervalo transcurrido al log y al acumulado (un solo hilo)
+     */
+    public synchronized void cerrarIntervalo() {
+        for (Map.Entry<Operacion, Medicion> entrada : mediciones.entrySet()) {
+            Medicion medicion = entrada.getValue();
+            medicion.intervalo = medicion.recorder.getIntervalHistogram(medicion.intervalo);
+            if (medicion.intervalo.getTotalCount() == 0) {
+                continue;
+            }
+            medicion.intervalo.setTag(entrada.getKey().getClave());
+            log.outputIntervalHistogram(medicion.intervalo);
+            medicion.acumulado.add(medicion.intervalo);
+        }
+    }
+
+    /**
+     * Resumen por operación y total, listo para serializar
+     */
+    public Map<String, Object> resumir(ConfiguracionCarga configuracion, double segundosMedidos) {
+        Map<String, Object> operaciones = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long[] conteosTotales = new long[5];
+        for (Map.Entry<Operacion, Medicion> entrada : mediciones.entrySet()) {
+            Medicion medicion = entrada.getValue();
+            long[] conteos = {medicion.exitosas.sum(), medicion.rechazadas.sum(), medicion.errores.sum(),
+                    medicion.fallos.sum(), medicion.descartadas.sum()};
+            if (medicion.acumulado.getTotalCount() == 0 && conteos[4] == 0) {
+                continue;
+            }
+            total.add(medicion.acumulado);
+            for (int i = 0; i < conteos.length; i++) {
+                conteosTotales[i] += conteos[i];
+            }
+            operaciones.put(entrada.getKey().getClave(), resumir(medicion.acumulado, conteos, segundosMedidos));
+        }
+        operaciones.put("total", resumir(total, conteosTotales, segundosMedidos));
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("etiqueta", configuracion.texto("etiqueta"));
+        resumen.put("fecha", LocalDateTime.now().toString());
+        resumen.put("parametros", configuracion.getValores());
+        resumen.put("segundosMedidos", segundosMedidos);
+        resumen.put("operaciones", operaciones);
+        return resumen;
+    }
+
+    private static Map<String, Object> resumir(Histogram histograma, long[] conteos, double segundos) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("exitosas", conteos[0]);
+        datos.put("rechazadas", conteos[1]);
+        datos.put("errores", conteos[2]);
+        datos.put("fallos", conteos[3]);
+        datos.put("descartadas", conteos[4]);
+        datos.put("porSegundo", redondear(histograma.getTotalCount() / segundos));
+        datos.put("p50Ms", milisegundos(histograma.getValueAtPercentile(50)));
+        datos.put("p90Ms", milisegundos(histograma.getValueAtPercentile(90)));
+        datos.put("p99Ms", milisegundos(histograma.getValueAtPercentile(99)));
+        datos.put("p999Ms", milisegundos(histograma.getValueAtPercentile(99.9)));
+        datos.put("maximoMs", milisegundos(histograma.getMaxValue()));
+        datos.put("mediaMs", redondear(histograma.getMean() / NANOS_POR_MS));
+        return datos;
+    }
+
+    public static void guardar(Map<String, Object> resumen, Path archivo) throws IOException {
+        Files.createDirectories(archivo.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(archivo.toFile(), resumen);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void imprimir(Map<String, Object> resumen, PrintStream salida) {
+        salida.printf("%n%-14s %9s %9s %7s %7s %7s %9s %9s %9s %9s %9s%n", "operacion", "ok", "4xx", "5xx",
+                "fallos", "descart", "por seg", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Map<String, Object> operaciones = (Map<String, Object>) resumen.get("operaciones");
+        operaciones.forEach((nombre, valor) -> {
+            Map<String, Object> datos = (Map<String, Object>) valor;
+            salida.printf("%-14s %9d %9d %7d %7d %7d %9.1f %9.3f %9.3f %9.3f %9.3f%n", nombre,
+                    datos.get("exitosas"), datos.get("rechazadas"), datos.get("errores"), datos.get("fallos"),
+                    datos.get("descartadas"), datos.get("porSegundo"), datos.get("p50Ms"), datos.get("p99Ms"),
+                    datos.get("p999Ms"), datos.get("maximoMs"));
+        });
+    }
+
+    public void cerrar() {
+        log.close();
+    }
+
+    private static double milisegundos(long nanos) {
+        return redondear(nanos / NANOS_POR_MS);
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 1000) / 1000.0;
+    }
+}
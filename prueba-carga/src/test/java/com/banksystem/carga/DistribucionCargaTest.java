@@ -0,0 +1,54 @@
+package com.banksystem.carga;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistribucionCargaTest {
+
+    @Test
+    public void testZipfConcentraElTraficoEnLasCuentasCalientes() {
+        // Arrange
+        DistribucionZipf distribucion = new DistribucionZipf(400, 1.1);
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        int[] conteos = new int[400];
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            conteos[distribucion.rango(aleatorio.nextDouble())]++;
+        }
+
+        // Assert: decreciente y las 10 primeras con cerca de la mitad
+        int primeras = 0;
+        for (int k = 0; k < 10; k++) {
+            primeras += conteos[k];
+        }
+        assertTrue(conteos[0] > conteos[1] && conteos[1] > conteos[10] && conteos[10] > conteos[300]);
+        assertTrue(primeras > 40_000 && primeras < 60_000, "10 más calientes: " + primeras);
+        assertEquals(0, distribucion.rango(0.0));
+        assertEquals(399, distribucion.rango(0.999_999_999));
+    }
+
+    @Test
+    public void testMezclaRespetaLosPesos() {
+        // Arrange
+        Operacion.Mezcla mezcla = new Operacion.Mezcla("deposito:60,retiro:0,estado-cuenta:40");
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        Map<Operacion, Integer> conteos = new EnumMap<>(Operacion.class);
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            conteos.merge(mezcla.elegir(aleatorio.nextDouble()), 1, Integer::sum);
+        }
+
+        // Assert
+        assertNull(conteos.get(Operacion.RETIRO));
+        assertEquals(6_000, conteos.get(Operacion.DEPOSITO), 300);
+        assertEquals(4_000, conteos.get(Operacion.ESTADO_CUENTA), 300);
+        assertThrows(IllegalArgumentException.class, () -> new Operacion.Mezcla("transferencia:10"));
+    }
+}
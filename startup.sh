@@ -75,6 +75,9 @@ case "${1:-help}" in
     build)
         echo "🔨 Compilando microservicios..."
         
+        echo "   Instalando banco-comun..."
+        mvn -q install -pl banco-comun
+        
         echo "   Compilando cliente-persona-service..."
         cd cliente-persona-service
         mvn clean package -DskipTests
@@ -91,6 +94,8 @@ case "${1:-help}" in
     test)
         echo "🧪 Ejecutando pruebas..."
         
+        mvn -q install -pl banco-comun
+        
         echo "   Pruebas en cliente-persona-service..."
         cd cliente-persona-service
         mvn test